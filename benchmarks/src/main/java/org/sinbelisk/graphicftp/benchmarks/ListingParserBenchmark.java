@@ -0,0 +1,99 @@
+package org.sinbelisk.graphicftp.benchmarks;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.net.ftp.FTPFile;
+import org.apache.commons.net.ftp.FTPFileEntryParser;
+import org.apache.commons.net.ftp.FTPListParseEngine;
+import org.apache.commons.net.ftp.parser.MLSxEntryParser;
+import org.apache.commons.net.ftp.parser.UnixFTPEntryParser;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Mide el análisis de un listado de directorio, tal y como lo hace {@code FTPClientManager.listEntriesInPages}
+ * con {@code LIST}: el texto de la respuesta pasa por un {@link FTPListParseEngine} y se recorre en páginas
+ * de 500 entradas.
+ * <p>
+ * Los listados son sintéticos, en formato {@code LIST} de Unix y en formato {@code MLSD}, con un 10 % de carpetas.
+ * {@link #parseLines} mide solo el análisis línea a línea, sin el motor ni la conversión de bytes a texto.
+ * </p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ListingParserBenchmark {
+    private static final int PAGE_SIZE = 500;
+
+    @Param({"LIST", "MLSD"})
+    private String format;
+
+    @Param({"1000", "10000"})
+    private int entries;
+
+    private FTPFileEntryParser parser;
+    private byte[] listing;
+    private String[] lines;
+
+    @Setup
+    public void setUp() {
+        // FTPClient crea el analizador una vez por sesión y lo reutiliza en cada listado
+        parser = "MLSD".equals(format) ? new MLSxEntryParser() : new UnixFTPEntryParser();
+        lines = new String[entries];
+        StringBuilder text = new StringBuilder(entries * 80);
+        for (int i = 0; i < entries; i++) {
+            lines[i] = "MLSD".equals(format) ? mlsdLine(i) : unixLine(i);
+            text.append(lines[i]).append("\r\n");
+        }
+        listing = text.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public void parseListing(Blackhole blackhole) throws IOException {
+        FTPListParseEngine engine = new FTPListParseEngine(parser);
+        engine.readServerList(new ByteArrayInputStream(listing), StandardCharsets.UTF_8.name());
+        while (engine.hasNext()) {
+            blackhole.consume(engine.getNext(PAGE_SIZE));
+        }
+    }
+
+    @Benchmark
+    public void parseLines(Blackhole blackhole) {
+        for (String line : lines) {
+            FTPFile file = parser.parseFTPEntry(line);
+            blackhole.consume(file);
+        }
+    }
+
+    private static String unixLine(int i) {
+        boolean folder = i % 10 == 0;
+        return (folder ? "drwxr-xr-x" : "-rw-r--r--") + "    1 ftp      ftp      "
+                + String.format("%12d", folder ? 4096 : i * 1031L) + " Mar 14  2024 " + name(i, folder);
+    }
+
+    private static String mlsdLine(int i) {
+        boolean folder = i % 10 == 0;
+        return "type=" + (folder ? "dir" : "file") + ";size=" + (folder ? 4096 : i * 1031L)
+                + ";modify=20240314093015;UNIX.mode=0644;UNIX.owner=ftp; " + name(i, folder);
+    }
+
+    private static String name(int i, boolean folder) {
+        return folder ? "carpeta_" + i : "archivo_" + i + ".txt";
+    }
+}
@@ -0,0 +1,97 @@
+package org.sinbelisk.graphicftp.benchmarks;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.sinbelisk.graphicftp.services.LocalFileChannels;
+
+/**
+ * Compara las formas de leer el archivo local de una subida de 1 GB: {@link FileInputStream} ({@code STREAM}),
+ * {@link LocalFileChannels} con el canal ({@code CHANNEL}) y con el archivo mapeado en memoria ({@code MAPPED}),
+ * con los tamaños de búfer de {@code TransferProfile}.
+ * <p>
+ * El archivo se crea una vez y queda en la caché de páginas, por lo que se mide el coste de la E/S en el propio
+ * proceso y no el del disco. Con {@code -p fileSizeMb=256} se ejecuta más rápido con archivos menores.
+ * </p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class LocalFileIOBenchmark {
+
+    @Param({"1024"})
+    private int fileSizeMb;
+
+    @Param({"65536", "262144"})
+    private int bufferSize;
+
+    @Param({"STREAM", "CHANNEL", "MAPPED"})
+    private String mode;
+
+    private Path source;
+    private byte[] buffer;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        source = Files.createTempFile("graphicftp-bench", ".src");
+        buffer = new byte[bufferSize];
+
+        byte[] block = new byte[1024 * 1024];
+        new Random(42).nextBytes(block);
+        try (OutputStream out = Files.newOutputStream(source)) {
+            for (int i = 0; i < fileSizeMb; i++) {
+                out.write(block);
+            }
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(source);
+    }
+
+    @Benchmark
+    public long read() throws IOException {
+        long total = 0;
+        try (InputStream in = openInput()) {
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                total += read;
+            }
+        }
+        return total;
+    }
+
+    private InputStream openInput() throws IOException {
+        switch (mode) {
+            case "CHANNEL":
+                return LocalFileChannels.openInput(source, 0, Long.MAX_VALUE);
+            case "MAPPED":
+                return LocalFileChannels.openInput(source, 0, 0);
+            default:
+                return new FileInputStream(source.toFile());
+        }
+    }
+}
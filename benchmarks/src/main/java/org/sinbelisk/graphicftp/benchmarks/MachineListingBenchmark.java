@@ -0,0 +1,92 @@
+package org.sinbelisk.graphicftp.benchmarks;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.net.ftp.FTPFile;
+import org.apache.commons.net.ftp.FTPFileEntryParser;
+import org.apache.commons.net.ftp.FTPListParseEngine;
+import org.apache.commons.net.ftp.parser.MLSxEntryParser;
+import org.apache.commons.net.ftp.parser.UnixFTPEntryParser;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.sinbelisk.graphicftp.services.MlsdParser;
+import org.sinbelisk.graphicftp.services.RemoteEntry;
+
+/**
+ * Compara el tiempo necesario para convertir un listado recibido en {@link RemoteEntry}, que es lo que muestra el árbol:
+ * <ul>
+ *     <li>{@link #listEngine}: {@code LIST} de Unix con {@link FTPListParseEngine} y {@link RemoteEntry#of}.</li>
+ *     <li>{@link #mlsdEngine}: {@code MLSD} con {@link MLSxEntryParser}, como {@code FTPClient.mlistDir}.</li>
+ *     <li>{@link #mlsdParser}: {@code MLSD} con {@link MlsdParser}, directamente desde los bytes.</li>
+ * </ul>
+ * Conviene ejecutarlo con {@code -prof gc} para comparar también la memoria asignada por entrada.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgs = "-Xmx2g")
+public class MachineListingBenchmark {
+    private static final String PARENT = "/datos";
+
+    @Param({"1000000"})
+    private int entries;
+
+    private byte[] unixListing;
+    private byte[] mlsdListing;
+
+    @Setup
+    public void setUp() {
+        StringBuilder unix = new StringBuilder(entries * 80);
+        StringBuilder mlsd = new StringBuilder(entries * 90);
+        for (int i = 0; i < entries; i++) {
+            boolean folder = i % 10 == 0;
+            String name = folder ? "carpeta " + i : "archivo " + i + ".txt";
+            long size = folder ? 4096 : i * 1031L;
+            unix.append(folder ? "drwxr-xr-x" : "-rw-r--r--").append("    1 ftp      ftp      ")
+                    .append(String.format("%12d", size)).append(" Mar 14  2024 ").append(name).append("\r\n");
+            mlsd.append("type=").append(folder ? "dir" : "file").append(";size=").append(size)
+                    .append(";modify=20240314093015;UNIX.mode=0644;UNIX.owner=ftp; ").append(name).append("\r\n");
+        }
+        unixListing = unix.toString().getBytes(StandardCharsets.UTF_8);
+        mlsdListing = mlsd.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public void listEngine(Blackhole blackhole) throws IOException {
+        parseWithEngine(new UnixFTPEntryParser(), unixListing, blackhole);
+    }
+
+    @Benchmark
+    public void mlsdEngine(Blackhole blackhole) throws IOException {
+        parseWithEngine(MLSxEntryParser.getInstance(), mlsdListing, blackhole);
+    }
+
+    @Benchmark
+    public RemoteEntry[] mlsdParser() throws IOException {
+        return MlsdParser.parse(new ByteArrayInputStream(mlsdListing), PARENT, StandardCharsets.UTF_8);
+    }
+
+    private static void parseWithEngine(FTPFileEntryParser parser, byte[] listing, Blackhole blackhole)
+            throws IOException {
+        FTPListParseEngine engine = new FTPListParseEngine(parser);
+        engine.readServerList(new ByteArrayInputStream(listing), StandardCharsets.UTF_8.name());
+        for (FTPFile file : engine.getFiles()) {
+            blackhole.consume(RemoteEntry.of(PARENT, file));
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package org.sinbelisk.graphicftp.benchmarks;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.net.io.Util;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.sinbelisk.graphicftp.services.TransferProgress;
+
+/**
+ * Mide la copia de un archivo local de 32 MB con {@link Util#copyStream}, el mismo bucle que usa {@code FTPClient}
+ * en {@code STOR} y {@code RETR}, con distintos tamaños de búfer y con o sin {@link TransferProgress} como oyente.
+ * <p>
+ * El destino descarta los datos, de modo que el resultado es el límite superior que impone el lado local
+ * a una transferencia. El resultado se expresa en operaciones por segundo: multiplicado por 32 da los MB/s.
+ * </p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class StreamCopyBenchmark {
+    private static final int FILE_SIZE = 32 * 1024 * 1024;
+
+    @Param({"8192", "65536", "262144"})
+    private int bufferSize;
+
+    @Param({"false", "true"})
+    private boolean withProgress;
+
+    private Path source;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        byte[] data = new byte[FILE_SIZE];
+        new Random(42).nextBytes(data);
+        source = Files.createTempFile("graphicftp-bench", ".bin");
+        Files.write(source, data);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(source);
+    }
+
+    @Benchmark
+    public long copy() throws IOException {
+        TransferProgress progress = withProgress ? new TransferProgress(null) : null;
+        if (progress != null) {
+            progress.start(FILE_SIZE, 0);
+        }
+        try (InputStream in = new BufferedInputStream(Files.newInputStream(source), bufferSize);
+             OutputStream out = OutputStream.nullOutputStream()) {
+            return Util.copyStream(in, out, bufferSize, FILE_SIZE, progress, false);
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package org.sinbelisk.graphicftp.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import javafx.scene.control.TreeItem;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.sinbelisk.graphicftp.services.RemoteEntry;
+import org.sinbelisk.graphicftp.util.ElementUtils;
+
+/**
+ * Mide {@link ElementUtils#getPathFromTreeItem(TreeItem)} sobre un elemento a distintas profundidades del árbol.
+ * <p>
+ * {@link #walkToRoot} reconstruye la ruta subiendo hasta la raíz, como hacía el árbol antes de que cada
+ * {@link RemoteEntry} guardase su ruta, y sirve de referencia para comparar.
+ * </p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TreePathBenchmark {
+
+    @Param({"1", "8", "32"})
+    private int depth;
+
+    private TreeItem<RemoteEntry> leaf;
+
+    @Setup
+    public void setUp() {
+        TreeItem<RemoteEntry> item = new TreeItem<>(RemoteEntry.root());
+        for (int level = 0; level < depth; level++) {
+            TreeItem<RemoteEntry> child = new TreeItem<>(item.getValue().childFolder("carpeta_" + level));
+            item.getChildren().add(child);
+            item = child;
+        }
+        leaf = item;
+    }
+
+    @Benchmark
+    public String getPathFromTreeItem() {
+        return ElementUtils.getPathFromTreeItem(leaf);
+    }
+
+    @Benchmark
+    public String walkToRoot() {
+        StringBuilder path = new StringBuilder();
+        for (TreeItem<RemoteEntry> item = leaf; item.getParent() != null; item = item.getParent()) {
+            path.insert(0, item.getValue().getName()).insert(0, '/');
+        }
+        return path.length() == 0 ? "/" : path.toString();
+    }
+}
@@ -0,0 +1,94 @@
+package org.sinbelisk.graphicftp.benchmarks;
+
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import javafx.scene.control.TreeItem;
+import org.apache.commons.net.ftp.FTPFile;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.sinbelisk.graphicftp.services.RemoteEntry;
+
+/**
+ * Mide el relleno de un nodo del árbol con un directorio grande, reproduciendo {@code FTPFileExplorer.populateTreeView}:
+ * por cada página de 500 archivos se crean sus {@link TreeItem}, las carpetas reciben el marcador de carga y el
+ * manejador de expansión, y la página se añade a los hijos del nodo con una sola operación, como hace
+ * {@code TreeUpdateDispatcher}. No se mide el dibujado, que depende del hilo de JavaFX.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TreePopulationBenchmark {
+    private static final int PAGE_SIZE = 500;
+    private static final String PATH = "/datos/grande";
+
+    @Param({"1000", "10000", "50000"})
+    private int entries;
+
+    private FTPFile[] files;
+
+    @Setup
+    public void setUp() {
+        files = new FTPFile[entries];
+        for (int i = 0; i < entries; i++) {
+            FTPFile file = new FTPFile();
+            boolean folder = i % 10 == 0;
+            file.setName(folder ? "carpeta_" + i : "archivo_" + i + ".txt");
+            file.setType(folder ? FTPFile.DIRECTORY_TYPE : FTPFile.FILE_TYPE);
+            file.setSize(folder ? 4096 : i * 1031L);
+            file.setTimestamp(Calendar.getInstance());
+            files[i] = file;
+        }
+    }
+
+    @Benchmark
+    public TreeItem<RemoteEntry> populate() {
+        TreeItem<RemoteEntry> parent = new TreeItem<>(RemoteEntry.root().childFolder("datos").childFolder("grande"));
+
+        for (int from = 0; from < files.length; from += PAGE_SIZE) {
+            int to = Math.min(files.length, from + PAGE_SIZE);
+            List<TreeItem<RemoteEntry>> items = new ArrayList<>(to - from);
+
+            for (int i = from; i < to; i++) {
+                FTPFile file = files[i];
+                TreeItem<RemoteEntry> item = new TreeItem<>(RemoteEntry.of(PATH, file));
+                if (file.isDirectory()) {
+                    setupDirectoryTreeItem(item);
+                }
+                items.add(item);
+            }
+
+            if (from == 0) {
+                parent.getChildren().setAll(items);
+            } else {
+                parent.getChildren().addAll(items);
+            }
+        }
+        return parent;
+    }
+
+    private static void setupDirectoryTreeItem(TreeItem<RemoteEntry> item) {
+        item.setExpanded(false);
+        item.addEventHandler(TreeItem.<RemoteEntry>branchExpandedEvent(), e -> {
+            if (e.getTreeItem() != item) {
+                return;
+            }
+            item.getChildren().clear();
+        });
+        item.getChildren().add(new TreeItem<>(RemoteEntry.loadingPlaceholder()));
+    }
+}
@@ -1,6 +1,7 @@
 module org.sinbelisk.graphicftp {
     requires javafx.controls;
     requires javafx.fxml;
+    requires java.management;
     requires org.apache.commons.net;
     requires org.apache.logging.log4j;
 
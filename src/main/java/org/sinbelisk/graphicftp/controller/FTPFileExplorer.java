@@ -4,10 +4,17 @@ import javafx.application.Platform;
 import javafx.concurrent.Task;
 import javafx.scene.control.TreeItem;
 import javafx.scene.control.TreeView;
-import org.apache.commons.net.ftp.FTPFile;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import org.sinbelisk.graphicftp.services.DeltaSynchronizer;
+import org.sinbelisk.graphicftp.services.DirectoryPrefetcher;
 import org.sinbelisk.graphicftp.services.FTPClientManager;
+import org.sinbelisk.graphicftp.services.FolderDownloader;
+import org.sinbelisk.graphicftp.services.FolderUploader;
+import org.sinbelisk.graphicftp.services.RemoteEntry;
+import org.sinbelisk.graphicftp.services.SyncPlan;
+import org.sinbelisk.graphicftp.services.TransferJob;
+import org.sinbelisk.graphicftp.services.TransferScheduler;
 import org.sinbelisk.graphicftp.util.AlertFactory;
 import org.sinbelisk.graphicftp.util.ElementUtils;
 import org.sinbelisk.graphicftp.util.FileChooserUtils;
@@ -16,6 +23,7 @@ import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * Clase que actúa como un puente entre la interfaz gráfica y el {@link FTPClientManager}.
@@ -25,44 +33,111 @@ import java.util.List;
 public class FTPFileExplorer {
     private static final Logger logger = LogManager.getLogger(FTPFileExplorer.class);
 
-    private final TreeView<String> treeView;
+    // Número de entradas que se añaden al árbol de una vez al listar un directorio
+    private static final int LISTING_PAGE_SIZE = 500;
+
+    private final TreeView<RemoteEntry> treeView;
+    private final TreeUpdateDispatcher<RemoteEntry> treeUpdates = new TreeUpdateDispatcher<>();
     private FTPClientManager ftpClientManager;
+    private TransferScheduler transferScheduler;
+    private DirectoryPrefetcher prefetcher;
+    private FolderUploader folderUploader;
+    private FolderDownloader folderDownloader;
+    private DeltaSynchronizer deltaSynchronizer;
+    private boolean prefetchEnabled = true;
 
     /**
      * Constructor de la clase {@code FTPFileExplorer}.
-     * Inicializa la vista de {@link TreeView} que representa los archivos y carpetas en el servidor FTP.
+     * Inicializa la vista de {@link TreeView} que representa los archivos y carpetas en el servidor FTP,
+     * y le asigna la celda {@link RemoteEntryTreeCell} que dibuja cada entrada. Debe crearse en el hilo de JavaFX.
      *
      * @param treeView La vista de árbol que muestra los archivos y carpetas.
      */
-    public FTPFileExplorer(TreeView<String> treeView) {
+    public FTPFileExplorer(TreeView<RemoteEntry> treeView) {
         this.treeView = treeView;
+        this.treeView.setCellFactory(view -> new RemoteEntryTreeCell());
     }
 
     /**
      * Sincroniza el árbol de archivos con el servidor FTP.
      * Establece la conexión con el servidor FTP a través de {@link FTPClientManager} y llena el {@link TreeView}
-     * con la estructura de archivos y carpetas.
+     * con la estructura de archivos y carpetas. Si ya había una sesión sincronizada, primero se desincroniza
+     * para detener su planificador de transferencias y sus precargas.
      *
      * @param ftpClientManager El gestor de conexión FTP que maneja la interacción con el servidor FTP.
      */
     public void sync(FTPClientManager ftpClientManager) {
+        if (this.ftpClientManager != null) {
+            desync();
+        }
         this.ftpClientManager = ftpClientManager;
-        TreeItem<String> rootItem = new TreeItem<>(ElementUtils.FOLDER_ICON + " Root");
+        this.transferScheduler = new TransferScheduler(ftpClientManager);
+        this.prefetcher = prefetchEnabled ? new DirectoryPrefetcher(ftpClientManager) : null;
+        this.folderUploader = new FolderUploader(ftpClientManager, transferScheduler);
+        this.folderDownloader = new FolderDownloader(ftpClientManager, transferScheduler);
+        this.deltaSynchronizer = new DeltaSynchronizer(ftpClientManager, transferScheduler);
+        TreeItem<RemoteEntry> rootItem = new TreeItem<>(RemoteEntry.root());
         treeView.setRoot(rootItem);
 
         Task<Void> syncTask = createSyncTask(rootItem, "/");
-        new Thread(syncTask).start();
+        ftpClientManager.getTaskExecutor().execute(syncTask);
     }
 
     /**
      * Desincroniza el árbol de archivos y elimina la conexión con el servidor FTP.
-     * Elimina la raíz del {@link TreeView} y limpia la referencia al {@link FTPClientManager}.
+     * Elimina la raíz del {@link TreeView}, detiene el planificador de transferencias
+     * y limpia la referencia al {@link FTPClientManager}.
      */
     public void desync() {
+        treeUpdates.stop();
         treeView.setRoot(null);
+        logger.info("Tree updates: {} submitted, {} applied in {} pulses, max queue depth {}",
+                treeUpdates.getSubmittedMutations(), treeUpdates.getAppliedBatches(),
+                treeUpdates.getPulses(), treeUpdates.getMaxQueueDepth());
+        if (transferScheduler != null) {
+            transferScheduler.shutdown();
+            transferScheduler = null;
+        }
+        if (prefetcher != null) {
+            prefetcher.cancelPending();
+            logger.info("Directory prefetch: {} listings prefetched, {} skipped",
+                    prefetcher.getPrefetched(), prefetcher.getSkipped());
+            prefetcher = null;
+        }
+        this.folderUploader = null;
+        this.folderDownloader = null;
+        this.deltaSynchronizer = null;
         this.ftpClientManager = null;
     }
 
+    /**
+     * Obtiene el planificador que ejecuta las subidas y descargas de la sesión actual.
+     *
+     * @return El planificador de transferencias, o {@code null} si no hay sesión sincronizada.
+     */
+    public TransferScheduler getTransferScheduler() {
+        return transferScheduler;
+    }
+
+    /**
+     * Activa o desactiva la precarga en segundo plano de los listados de las subcarpetas.
+     * Se aplica a partir de la siguiente sincronización.
+     *
+     * @param prefetchEnabled {@code true} para precargar las subcarpetas de cada carpeta abierta.
+     */
+    public void setPrefetchEnabled(boolean prefetchEnabled) {
+        this.prefetchEnabled = prefetchEnabled;
+    }
+
+    /**
+     * Obtiene el despachador que aplica los cambios del árbol, junto con sus métricas de cola.
+     *
+     * @return El despachador de cambios del árbol.
+     */
+    public TreeUpdateDispatcher<RemoteEntry> getTreeUpdateDispatcher() {
+        return treeUpdates;
+    }
+
     /**
      * Crea una tarea para sincronizar los archivos y carpetas del servidor FTP con el {@link TreeView}.
      *
@@ -70,7 +145,7 @@ public class FTPFileExplorer {
      * @param rootPath La ruta inicial del servidor FTP.
      * @return La tarea que realiza la sincronización.
      */
-    private Task<Void> createSyncTask(TreeItem<String> rootItem, String rootPath) {
+    private Task<Void> createSyncTask(TreeItem<RemoteEntry> rootItem, String rootPath) {
         return new Task<>() {
             @Override
             protected Void call() throws Exception {
@@ -94,73 +169,101 @@ public class FTPFileExplorer {
 
     /**
      * Rellena el árbol de archivos con los archivos y carpetas de la ruta proporcionada en el servidor FTP.
+     * Las entradas se añaden por páginas de {@link #LISTING_PAGE_SIZE} elementos, por lo que en directorios
+     * muy grandes las primeras filas aparecen antes de que termine de procesarse el listado. Las entradas se obtienen
+     * con {@link FTPClientManager#listEntriesInPages}, que usa {@code MLSD} si el servidor lo admite.
+     * Al terminar, se programa la precarga de las primeras subcarpetas con el {@link DirectoryPrefetcher}.
      *
      * @param parent El nodo padre del árbol en la interfaz gráfica.
      * @param path La ruta actual en el servidor FTP.
      * @throws IOException Si ocurre un error al obtener los archivos del servidor FTP.
      */
-    private void populateTreeView(TreeItem<String> parent, String path) throws IOException {
-        FTPFile[] filesAndDirs = ftpClientManager.getFtpClient().listFiles(path);
-        List<TreeItem<String>> items = new ArrayList<>();
-
-        for (FTPFile file : filesAndDirs) {
-            TreeItem<String> item = createTreeItem(file);
-            if (file.isDirectory()) {
-                setupDirectoryTreeItem(item, path, file);
+    private void populateTreeView(TreeItem<RemoteEntry> parent, String path) throws IOException {
+        boolean[] firstPage = {true};
+        DirectoryPrefetcher sessionPrefetcher = prefetcher;
+        int prefetchLimit = sessionPrefetcher != null ? sessionPrefetcher.getMaxDirectories() : 0;
+        List<RemoteEntry> subdirectories = new ArrayList<>(prefetchLimit);
+
+        ftpClientManager.listEntriesInPages(path, LISTING_PAGE_SIZE, page -> {
+            List<TreeItem<RemoteEntry>> items = new ArrayList<>(page.length);
+
+            for (RemoteEntry entry : page) {
+                TreeItem<RemoteEntry> item = createTreeItem(entry);
+                if (entry.isDirectory()) {
+                    setupDirectoryTreeItem(item);
+                    if (subdirectories.size() < prefetchLimit) {
+                        subdirectories.add(entry);
+                    }
+                }
+                items.add(item);
             }
-            items.add(item);
+
+            updateTreeView(parent, items, firstPage[0]);
+            firstPage[0] = false;
+        });
+
+        // Un directorio vacío no produce ninguna página, pero hay que retirar el marcador de carga.
+        if (firstPage[0]) {
+            updateTreeView(parent, List.of(), true);
         }
 
-        updateTreeView(parent, items);
+        if (sessionPrefetcher != null && !subdirectories.isEmpty()) {
+            sessionPrefetcher.prefetchChildren(subdirectories);
+        }
     }
 
     /**
      * Crea un {@link TreeItem} para representar un archivo o carpeta en el {@link TreeView}.
      *
-     * @param file El archivo o carpeta a representar.
+     * @param entry El archivo o carpeta a representar.
      * @return El {@link TreeItem} creado para ese archivo o carpeta.
      */
-    private TreeItem<String> createTreeItem(FTPFile file) {
-        String icon = ElementUtils.getIconForFile(file);
-        TreeItem<String> item = new TreeItem<>(icon + file.getName());
-        logger.info("Reading: {}", file.getName());
+    private TreeItem<RemoteEntry> createTreeItem(RemoteEntry entry) {
+        TreeItem<RemoteEntry> item = new TreeItem<>(entry);
+        logger.debug("Reading: {}", entry.getName());
         return item;
     }
 
     /**
      * Configura un {@link TreeItem} para un directorio, añadiendo un manejador de eventos para cargar su contenido
-     * cuando el usuario expanda el nodo.
+     * cuando el usuario expanda el nodo. La ruta se lee de la entrada en el momento de expandir,
+     * por lo que sigue siendo válida aunque la carpeta se haya renombrado.
      *
      * @param item El {@link TreeItem} que representa el directorio.
-     * @param path La ruta del directorio en el servidor FTP.
-     * @param file El objeto {@link FTPFile} que representa el directorio.
      */
-    private void setupDirectoryTreeItem(TreeItem<String> item, String path, FTPFile file) {
-        String newPath = path.endsWith("/") ? path + file.getName() : path + "/" + file.getName();
+    private void setupDirectoryTreeItem(TreeItem<RemoteEntry> item) {
         item.setExpanded(false);
 
-        item.addEventHandler(TreeItem.branchExpandedEvent(), e -> {
-            if (item.getChildren().size() == 1 && "Loading...".equals(item.getChildren().get(0).getValue())) {
+        item.addEventHandler(TreeItem.<RemoteEntry>branchExpandedEvent(), e -> {
+            // El evento también llega desde los descendientes expandidos, que se ignoran.
+            if (e.getTreeItem() != item) {
+                return;
+            }
+            if (item.getChildren().size() == 1 && item.getChildren().get(0).getValue().isPlaceholder()) {
                 item.getChildren().clear();
-                Task<Void> loadTask = createSyncTask(item, newPath);
-                new Thread(loadTask).start();
+                Task<Void> loadTask = createSyncTask(item, item.getValue().getPath());
+                ftpClientManager.getTaskExecutor().execute(loadTask);
             }
         });
 
-        item.getChildren().add(new TreeItem<>("Loading..."));
+        item.getChildren().add(new TreeItem<>(RemoteEntry.loadingPlaceholder()));
     }
 
     /**
      * Actualiza el {@link TreeView} con los elementos proporcionados.
+     * El cambio se aplica en el siguiente pulso de JavaFX a través del {@link TreeUpdateDispatcher}.
      *
      * @param parent El nodo raíz del árbol a actualizar.
      * @param items Los nuevos elementos a agregar al árbol.
+     * @param replace {@code true} para sustituir los hijos actuales, {@code false} para añadirlos a continuación.
      */
-    private void updateTreeView(TreeItem<String> parent, List<TreeItem<String>> items) {
-        Platform.runLater(() -> {
-            logger.info("Updating TreeView with {} items.", items.size());
-            parent.getChildren().setAll(items);
-        });
+    private void updateTreeView(TreeItem<RemoteEntry> parent, List<TreeItem<RemoteEntry>> items, boolean replace) {
+        logger.info("Queueing TreeView update with {} items.", items.size());
+        if (replace) {
+            treeUpdates.replaceChildren(parent, items);
+        } else {
+            treeUpdates.appendChildren(parent, items);
+        }
     }
 
     /**
@@ -169,17 +272,18 @@ public class FTPFileExplorer {
      * @param selectedItem El elemento seleccionado en el {@link TreeView} donde se creará la carpeta.
      * @return {@code true} si la carpeta fue creada con éxito, {@code false} si ocurrió un error.
      */
-    public boolean createFolder(TreeItem<String> selectedItem) {
+    public boolean createFolder(TreeItem<RemoteEntry> selectedItem) {
         String folderName = AlertFactory.showTextInputDialog("Folder Name");
         if (folderName == null || folderName.isBlank()) {
             return false;
         }
 
-        String path = ElementUtils.getPathFromTreeItem(selectedItem);
-        logger.info("Creating folder at path: {}/{}", path, folderName);
+        RemoteEntry folder = selectedItem.getValue().childFolder(folderName);
+        logger.info("Creating folder at path: {}", folder.getPath());
 
-        if (ftpClientManager.createFolder(path + "/" + folderName)) {
-            TreeItem<String> newFolder = new TreeItem<>(ElementUtils.FOLDER_ICON + folderName);
+        if (ftpClientManager.createFolder(folder.getPath())) {
+            TreeItem<RemoteEntry> newFolder = createTreeItem(folder);
+            setupDirectoryTreeItem(newFolder);
             selectedItem.getChildren().add(newFolder);
             return true;
         }
@@ -194,35 +298,57 @@ public class FTPFileExplorer {
      * @param newName El nuevo nombre para el archivo o carpeta.
      * @return {@code true} si el renombrado fue exitoso, {@code false} si ocurrió un error.
      */
-    public boolean renameFileOrFolder(TreeItem<String> selectedItem, String newName) {
+    public boolean renameFileOrFolder(TreeItem<RemoteEntry> selectedItem, String newName) {
         if (newName == null || newName.isBlank()) {
             return false;
         }
 
-        String path = ElementUtils.getPathFromTreeItem(selectedItem);
-        String parentPath = ElementUtils.getPathFromTreeItem(selectedItem.getParent());
-        logger.info("Renaming file/folder from: {} to: {}/{}", path, parentPath, newName);
+        RemoteEntry entry = selectedItem.getValue();
+        RemoteEntry renamed = entry.renamedTo(newName);
+        logger.info("Renaming file/folder from: {} to: {}", entry.getPath(), renamed.getPath());
 
-        if (ftpClientManager.renameFileOrFolder(path, parentPath + "/" + newName)) {
-            selectedItem.setValue(ElementUtils.getTreeParsedName(selectedItem.getValue(), newName));
+        if (ftpClientManager.renameFileOrFolder(entry.getPath(), renamed.getPath())) {
+            selectedItem.setValue(renamed);
+            relocateChildren(selectedItem);
             return true;
         }
 
         return false;
     }
 
+    /**
+     * Actualiza la ruta de los descendientes ya cargados de una carpeta después de renombrarla.
+     *
+     * @param folderItem La carpeta renombrada.
+     */
+    private void relocateChildren(TreeItem<RemoteEntry> folderItem) {
+        String folderPath = folderItem.getValue().getPath();
+
+        for (TreeItem<RemoteEntry> child : folderItem.getChildren()) {
+            if (!child.getValue().isPlaceholder()) {
+                child.setValue(child.getValue().movedTo(folderPath));
+                relocateChildren(child);
+            }
+        }
+    }
+
     /**
      * Elimina un archivo o carpeta del servidor FTP.
+     * Las carpetas se eliminan con todo su contenido mediante {@link #deleteFolder(TreeItem)}.
      *
      * @param selectedItem El elemento seleccionado en el {@link TreeView} que se desea eliminar.
-     * @return {@code true} si la eliminación fue exitosa, {@code false} si ocurrió un error.
+     * @return {@code true} si la eliminación fue exitosa o se encoló, {@code false} si ocurrió un error.
      */
-    public boolean deleteFileOrFolder(TreeItem<String> selectedItem) {
+    public boolean deleteFileOrFolder(TreeItem<RemoteEntry> selectedItem) {
+        if (ElementUtils.isElementFolder(selectedItem)) {
+            return deleteFolder(selectedItem);
+        }
+
         String path = ElementUtils.getPathFromTreeItem(selectedItem);
         logger.info("Deleting file/folder at path: {}", path);
 
-        if (ftpClientManager.deleteFileOrFolder(path)) {
-            TreeItem<String> parent = selectedItem.getParent();
+        if (ftpClientManager.deleteFileOrFolder(path, selectedItem.getValue().isDirectory())) {
+            TreeItem<RemoteEntry> parent = selectedItem.getParent();
             if (parent != null) {
                 parent.getChildren().remove(selectedItem);
             }
@@ -233,62 +359,200 @@ public class FTPFileExplorer {
     }
 
     /**
-     * Sube un archivo al servidor FTP en la carpeta seleccionada.
+     * Encola la eliminación de una carpeta con todo su contenido, previa confirmación del usuario.
+     * El progreso se muestra en la lista de transferencias. Al terminar, el subárbol se retira del árbol en una
+     * sola actualización; si algún elemento no se pudo eliminar, la carpeta se conserva y se vuelve a listar
+     * al expandirla.
      *
-     * @param selectedFolder El elemento de carpeta seleccionado en el {@link TreeView} donde se subirá el archivo.
-     * @return {@code true} si el archivo se subió con éxito, {@code false} si ocurrió un error.
+     * @param selectedFolder La carpeta seleccionada en el {@link TreeView} que se desea eliminar.
+     * @return {@code true} si la eliminación se encoló o el usuario la canceló.
      */
-    public boolean uploadFile(TreeItem<String> selectedFolder) {
-        String selectedFolderPath = ElementUtils.getPathFromTreeItem(selectedFolder);
+    public boolean deleteFolder(TreeItem<RemoteEntry> selectedFolder) {
+        String path = ElementUtils.getPathFromTreeItem(selectedFolder);
+        if (!AlertFactory.showConfirmationAlert("Se eliminará la carpeta " + path + " con todo su contenido. ¿Continuar?")) {
+            return true;
+        }
+
+        logger.info("Queueing recursive delete of folder: {}", path);
+        TransferJob job = transferScheduler.enqueueDelete(path);
+        job.getCompletion().thenAccept(finished -> {
+            if (finished.getState() == TransferJob.State.DONE) {
+                treeUpdates.submit(() -> removeFromTree(selectedFolder));
+            } else if (finished.getState() == TransferJob.State.FAILED) {
+                treeUpdates.submit(() -> {
+                    selectedFolder.setExpanded(false);
+                    selectedFolder.getChildren().setAll(List.of(new TreeItem<>(RemoteEntry.loadingPlaceholder())));
+                });
+                Platform.runLater(() -> AlertFactory.showWarningAlert(
+                        "No se ha podido eliminar la carpeta por completo: " + finished.getMessage()));
+            }
+        });
+        return true;
+    }
 
-        // Verifica si el elemento seleccionado es una carpeta y ajusta la ruta en consecuencia.
+    /**
+     * Retira un elemento, junto con sus descendientes, del árbol.
+     *
+     * @param item El elemento a retirar.
+     */
+    private void removeFromTree(TreeItem<RemoteEntry> item) {
+        TreeItem<RemoteEntry> parent = item.getParent();
+        if (parent != null) {
+            parent.getChildren().remove(item);
+        }
+    }
+
+    /**
+     * Encola la subida de uno o varios archivos al servidor FTP en la carpeta seleccionada.
+     * Las transferencias se ejecutan en segundo plano mediante el {@link TransferScheduler}; cada archivo
+     * se añade al árbol cuando su subida termina correctamente.
+     *
+     * @param selectedFolder El elemento de carpeta seleccionado en el {@link TreeView} donde se subirán los archivos.
+     * @return {@code true} si se encoló al menos un archivo, {@code false} si no se seleccionó ninguno.
+     */
+    public boolean uploadFile(TreeItem<RemoteEntry> selectedFolder) {
+        // Verifica si el elemento seleccionado es una carpeta y ajusta el nodo destino en consecuencia.
+        TreeItem<RemoteEntry> targetFolder = selectedFolder;
         if(!ElementUtils.isElementFolder(selectedFolder)) {
-            int lastIndex = selectedFolderPath.lastIndexOf('/');
-            selectedFolderPath = selectedFolderPath.substring(0, lastIndex);
+            targetFolder = selectedFolder.getParent();
         }
+        RemoteEntry targetEntry = targetFolder.getValue();
 
-        // Permite al usuario seleccionar un archivo a subir.
-        File fileToUpload = FileChooserUtils.selectFile();
-        if (fileToUpload == null) {
+        // Permite al usuario seleccionar los archivos a subir.
+        List<File> filesToUpload = FileChooserUtils.selectMultipleFiles();
+        if (filesToUpload == null || filesToUpload.isEmpty()) {
             logger.warn("No file selected for upload.");
             return false;
         }
 
-        // Define la ruta final del archivo en el servidor FTP.
-        String finalUploadPath = selectedFolderPath + "/" + fileToUpload.getName();
-        logger.info("Uploading file: {}", fileToUpload.getName());
+        for (File fileToUpload : filesToUpload) {
+            // Define la ruta final del archivo en el servidor FTP.
+            String finalUploadPath = targetEntry.childPath(fileToUpload.getName());
+            logger.info("Queueing upload of file: {}", fileToUpload.getName());
+
+            TransferJob job = transferScheduler.enqueueUpload(fileToUpload.getPath(), finalUploadPath);
+            TreeItem<RemoteEntry> parentItem = targetFolder;
+            job.getCompletion().thenAccept(finished -> {
+                if (finished.getState() == TransferJob.State.DONE) {
+                    treeUpdates.submit(() -> addUploadedFileToTree(parentItem, fileToUpload));
+                }
+            });
+        }
+
+        return true;
+    }
+
+    /**
+     * Sube una carpeta local completa, con todas sus subcarpetas, dentro de la carpeta seleccionada.
+     * La carpeta se recorre en segundo plano con el {@link FolderUploader}: las carpetas remotas se crean en orden
+     * y cada archivo se encola en el {@link TransferScheduler}, que los sube en paralelo.
+     *
+     * @param selectedFolder El elemento seleccionado en el {@link TreeView} donde se subirá la carpeta.
+     * @return {@code true} si se empezó a subir la carpeta, {@code false} si no se seleccionó ninguna.
+     */
+    public boolean uploadFolder(TreeItem<RemoteEntry> selectedFolder) {
+        TreeItem<RemoteEntry> targetFolder = ElementUtils.isElementFolder(selectedFolder)
+                ? selectedFolder : selectedFolder.getParent();
+
+        File folderToUpload = FileChooserUtils.selectFolder();
+        if (folderToUpload == null) {
+            logger.warn("No folder selected for upload.");
+            return false;
+        }
+
+        String remoteParentPath = targetFolder.getValue().getPath();
+        FolderUploader uploader = folderUploader;
+        logger.info("Queueing upload of folder: {} -> {}", folderToUpload, remoteParentPath);
 
-        // Sube el archivo al servidor FTP.
-        if (ftpClientManager.uploadFile(fileToUpload.getPath(), finalUploadPath)) {
-            // Si la carga es exitosa, agrega el nuevo archivo al árbol.
-            TreeItem<String> newFileItem = new TreeItem<>(ElementUtils.getIconForFile(fileToUpload) + fileToUpload.getName());
+        Task<FolderUploader.Result> walkTask = new Task<>() {
+            @Override
+            protected FolderUploader.Result call() throws Exception {
+                return uploader.upload(folderToUpload.toPath(), remoteParentPath);
+            }
 
-            // Añade el archivo al nodo adecuado en el árbol (como archivo o dentro de una carpeta).
-            if (!ElementUtils.isElementFolder(selectedFolder)) {
-                selectedFolder.getParent().getChildren().add(newFileItem);
-            } else {
-                selectedFolder.getChildren().add(newFileItem);
+            @Override
+            protected void succeeded() {
+                super.succeeded();
+                FolderUploader.Result result = getValue();
+                addUploadedFolderToTree(targetFolder, folderToUpload.getName());
+                if (!result.getFailedPaths().isEmpty()) {
+                    AlertFactory.showWarningAlert("No se han podido subir " + result.getFailedPaths().size()
+                            + " elementos de la carpeta.");
+                }
             }
 
-            // Expande el nodo para mostrar el nuevo archivo.
-            selectedFolder.setExpanded(true);
-            return true;
+            @Override
+            protected void failed() {
+                super.failed();
+                logger.error("Folder upload of {} failed.", folderToUpload, getException());
+                AlertFactory.showErrorAlert("No se ha podido recorrer la carpeta seleccionada.");
+            }
+        };
+        ftpClientManager.getTaskExecutor().execute(walkTask);
+        return true;
+    }
+
+    /**
+     * Añade al árbol una carpeta recién subida, sin listarla. Si ya existía, se vacía para que se vuelva
+     * a listar al expandirla.
+     *
+     * @param parentItem La carpeta del árbol donde se subió la carpeta.
+     * @param folderName El nombre de la carpeta subida.
+     */
+    private void addUploadedFolderToTree(TreeItem<RemoteEntry> parentItem, String folderName) {
+        RemoteEntry uploaded = parentItem.getValue().childFolder(folderName);
+        TreeItem<RemoteEntry> existing = parentItem.getChildren().stream()
+                .filter(child -> uploaded.getPath().equals(child.getValue().getPath()))
+                .findFirst()
+                .orElse(null);
+
+        if (existing == null) {
+            TreeItem<RemoteEntry> item = new TreeItem<>(uploaded);
+            setupDirectoryTreeItem(item);
+            parentItem.getChildren().add(item);
+        } else {
+            existing.setExpanded(false);
+            existing.getChildren().setAll(List.of(new TreeItem<>(RemoteEntry.loadingPlaceholder())));
         }
 
-        return false;
+        parentItem.setExpanded(true);
+    }
+
+    /**
+     * Añade al árbol un archivo recién subido, salvo que ya exista un elemento con el mismo nombre.
+     *
+     * @param parentItem   La carpeta del árbol donde se subió el archivo.
+     * @param uploadedFile El archivo local que se subió.
+     */
+    private void addUploadedFileToTree(TreeItem<RemoteEntry> parentItem, File uploadedFile) {
+        RemoteEntry uploaded = RemoteEntry.of(parentItem.getValue().getPath(), uploadedFile);
+        boolean alreadyPresent = parentItem.getChildren().stream()
+                .anyMatch(child -> uploaded.getPath().equals(child.getValue().getPath()));
+
+        if (!alreadyPresent) {
+            parentItem.getChildren().add(new TreeItem<>(uploaded));
+        }
+
+        // Expande el nodo para mostrar el nuevo archivo.
+        parentItem.setExpanded(true);
     }
 
     /**
-     * Descarga un archivo del servidor FTP a la carpeta seleccionada en el sistema local.
+     * Encola la descarga de un archivo del servidor FTP a la ubicación elegida en el sistema local.
+     * La descarga se ejecuta en segundo plano mediante el {@link TransferScheduler}.
+     * Si el elemento seleccionado es una carpeta, se descarga completa con {@link #downloadFolder(TreeItem)}.
      *
      * @param selectedItem El archivo seleccionado en el {@link TreeView} que se desea descargar.
-     * @return {@code true} si el archivo fue descargado con éxito, {@code false} si ocurrió un error.
+     * @return {@code true} si la descarga se encoló, {@code false} si el usuario canceló la selección.
      */
-    public boolean downloadFile(TreeItem<String> selectedItem) {
-        // Obtiene la ruta remota del archivo seleccionado.
+    public boolean downloadFile(TreeItem<RemoteEntry> selectedItem) {
+        if (ElementUtils.isElementFolder(selectedItem)) {
+            return downloadFolder(selectedItem);
+        }
+
+        // Obtiene la ruta remota y el nombre del archivo seleccionado.
         String remotePath = ElementUtils.getPathFromTreeItem(selectedItem);
-        // Extrae el nombre del archivo de la ruta remota.
-        String fileName = remotePath.substring(remotePath.lastIndexOf("/") + 1);
+        String fileName = selectedItem.getValue().getName();
 
         // Permite al usuario seleccionar la ubicación para guardar el archivo.
         File selectedFile = FileChooserUtils.saveFile(fileName);
@@ -300,7 +564,147 @@ public class FTPFileExplorer {
         // Define la ruta local donde se guardará el archivo descargado.
         String localPath = selectedFile.getParent() + "/" + selectedFile.getName();
 
-        // Descarga el archivo del servidor FTP a la ubicación local seleccionada.
-        return ftpClientManager.downloadFile(remotePath, localPath);
+        // Encola la descarga del archivo a la ubicación local seleccionada.
+        transferScheduler.enqueueDownload(remotePath, localPath);
+        return true;
+    }
+
+    /**
+     * Descarga una carpeta del servidor FTP, con todas sus subcarpetas, dentro de la carpeta local elegida.
+     * La carpeta se recorre en segundo plano con el {@link FolderDownloader}, que lista varias carpetas a la vez
+     * y encola cada archivo en el {@link TransferScheduler} en cuanto aparece en un listado.
+     *
+     * @param selectedFolder La carpeta seleccionada en el {@link TreeView} que se desea descargar.
+     * @return {@code true} si se empezó a descargar la carpeta, {@code false} si el usuario canceló la selección.
+     */
+    public boolean downloadFolder(TreeItem<RemoteEntry> selectedFolder) {
+        File destination = FileChooserUtils.saveFolder();
+        if (destination == null) {
+            logger.warn("No destination folder selected for download.");
+            return false;
+        }
+
+        RemoteEntry remoteFolder = selectedFolder.getValue();
+        FolderDownloader downloader = folderDownloader;
+        logger.info("Queueing download of folder: {} -> {}", remoteFolder.getPath(), destination);
+
+        Task<FolderDownloader.Result> crawlTask = new Task<>() {
+            @Override
+            protected FolderDownloader.Result call() throws Exception {
+                return downloader.download(remoteFolder, destination.toPath());
+            }
+
+            @Override
+            protected void succeeded() {
+                super.succeeded();
+                if (!getValue().getFailedPaths().isEmpty()) {
+                    AlertFactory.showWarningAlert("No se han podido descargar " + getValue().getFailedPaths().size()
+                            + " elementos de la carpeta.");
+                }
+            }
+
+            @Override
+            protected void failed() {
+                super.failed();
+                logger.error("Folder download of {} failed.", remoteFolder.getPath(), getException());
+                AlertFactory.showErrorAlert("No se ha podido recorrer la carpeta seleccionada.");
+            }
+        };
+        ftpClientManager.getTaskExecutor().execute(crawlTask);
+        return true;
+    }
+
+    /**
+     * Sincroniza una carpeta local con la carpeta remota seleccionada, subiendo solo los archivos nuevos
+     * o modificados. El plan se calcula en segundo plano con el {@link DeltaSynchronizer} y se muestra
+     * al usuario como ensayo antes de aplicarlo.
+     *
+     * @param selectedFolder La carpeta del {@link TreeView} que se actualizará con el contenido de la carpeta local.
+     * @return {@code true} si se empezó a comparar, {@code false} si el usuario canceló la selección.
+     */
+    public boolean syncFolder(TreeItem<RemoteEntry> selectedFolder) {
+        TreeItem<RemoteEntry> targetFolder = ElementUtils.isElementFolder(selectedFolder)
+                ? selectedFolder : selectedFolder.getParent();
+
+        File localFolder = FileChooserUtils.selectFolder();
+        if (localFolder == null) {
+            logger.warn("No folder selected for synchronisation.");
+            return false;
+        }
+
+        String remoteFolder = targetFolder.getValue().getPath();
+        DeltaSynchronizer synchronizer = deltaSynchronizer;
+        logger.info("Planning synchronisation: {} -> {}", localFolder, remoteFolder);
+
+        Task<SyncPlan> planTask = new Task<>() {
+            @Override
+            protected SyncPlan call() throws Exception {
+                return synchronizer.plan(localFolder.toPath(), remoteFolder, SyncPlan.Direction.UPLOAD);
+            }
+
+            @Override
+            protected void succeeded() {
+                super.succeeded();
+                SyncPlan plan = getValue();
+                if (plan.isEmpty()) {
+                    AlertFactory.showInfoAlert("La carpeta ya está sincronizada.");
+                } else if (AlertFactory.showConfirmationAlert(plan.getReport(15) + "\n¿Aplicar los cambios?")) {
+                    applySyncPlan(synchronizer, plan, targetFolder);
+                }
+            }
+
+            @Override
+            protected void failed() {
+                super.failed();
+                logger.error("Synchronisation plan of {} failed.", localFolder, getException());
+                AlertFactory.showErrorAlert("No se han podido comparar las carpetas.");
+            }
+        };
+        ftpClientManager.getTaskExecutor().execute(planTask);
+        return true;
+    }
+
+    /**
+     * Aplica en segundo plano un plan de sincronización y, cuando han terminado todas sus transferencias,
+     * vuelve a listar la carpeta del árbol para mostrar el resultado.
+     *
+     * @param synchronizer El sincronizador que calculó el plan.
+     * @param plan         El plan confirmado por el usuario.
+     * @param targetFolder La carpeta del árbol sincronizada.
+     */
+    private void applySyncPlan(DeltaSynchronizer synchronizer, SyncPlan plan, TreeItem<RemoteEntry> targetFolder) {
+        FTPClientManager manager = ftpClientManager;
+        Task<List<TransferJob>> applyTask = new Task<>() {
+            @Override
+            protected List<TransferJob> call() throws Exception {
+                return synchronizer.execute(plan);
+            }
+
+            @Override
+            protected void succeeded() {
+                super.succeeded();
+                CompletableFuture<?>[] completions = getValue().stream()
+                        .map(TransferJob::getCompletion)
+                        .toArray(CompletableFuture[]::new);
+                CompletableFuture.allOf(completions).thenRun(() -> {
+                    if (!manager.isConnected()) {
+                        return;
+                    }
+                    manager.getListingCache().invalidateTree(plan.getRemoteRoot());
+                    treeUpdates.submit(() -> {
+                        targetFolder.getChildren().clear();
+                        manager.getTaskExecutor().execute(createSyncTask(targetFolder, plan.getRemoteRoot()));
+                    });
+                });
+            }
+
+            @Override
+            protected void failed() {
+                super.failed();
+                logger.error("Synchronisation of {} failed.", plan.getRemoteRoot(), getException());
+                AlertFactory.showErrorAlert("No se ha podido completar la sincronización.");
+            }
+        };
+        manager.getTaskExecutor().execute(applyTask);
     }
-}
\ No newline at end of file
+}
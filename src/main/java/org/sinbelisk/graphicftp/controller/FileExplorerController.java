@@ -1,5 +1,6 @@
 package org.sinbelisk.graphicftp.controller;
 
+import javafx.application.Platform;
 import javafx.event.ActionEvent;
 import javafx.fxml.FXML;
 import javafx.scene.control.*;
@@ -7,7 +8,10 @@ import javafx.scene.input.MouseButton;
 import javafx.scene.input.MouseEvent;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import org.sinbelisk.graphicftp.services.DirectoryListingCache;
 import org.sinbelisk.graphicftp.services.FTPClientManager;
+import org.sinbelisk.graphicftp.services.RemoteEntry;
+import org.sinbelisk.graphicftp.services.TransferJob;
 import org.sinbelisk.graphicftp.util.AlertFactory;
 
 import java.io.IOException;
@@ -32,11 +36,26 @@ public class FileExplorerController {
     @FXML
     public PasswordField passwordField;
     @FXML
-    private TreeView<String> fileTreeView;
+    private TreeView<RemoteEntry> fileTreeView;
+    @FXML
+    private ListView<TransferJob> transferListView;
+    @FXML
+    private Button connectButton;
+    @FXML
+    private Button cancelConnectButton;
+    @FXML
+    private ProgressIndicator connectProgress;
 
     private FTPClientManager ftpClientManager;
     private FTPFileExplorer ftpFileExplorer;
     private FileTreeContextMenu fileTreeContextMenu;
+    private TransferMonitor transferMonitor;
+    // Gestor cuya conexión está en curso, o null si no se está conectando
+    private FTPClientManager pendingConnection;
+
+    // Caché de listados que se conserva entre reconexiones al mismo servidor y usuario
+    private DirectoryListingCache listingCache;
+    private String listingCacheOwner;
 
     /**
      * Método de inicialización que se ejecuta al cargar la vista.
@@ -51,6 +70,7 @@ public class FileExplorerController {
         // Inicializa el explorador de archivos y el menú contextual
         ftpFileExplorer = new FTPFileExplorer(fileTreeView);
         fileTreeContextMenu = new FileTreeContextMenu(fileTreeView, ftpFileExplorer);
+        transferMonitor = new TransferMonitor(transferListView);
 
         // Configura el filtro para el campo del puerto
         setupFormatterForPortField();
@@ -79,15 +99,11 @@ public class FileExplorerController {
 
     /**
      * Método que se ejecuta cuando el usuario hace clic en el botón de conexión.
-     * Valida los campos de entrada y establece una conexión con el servidor FTP.
+     * Valida los campos de entrada y establece una conexión con el servidor FTP en segundo plano,
+     * de modo que la ventana sigue respondiendo y la conexión puede cancelarse.
      * Si ya hay una conexión activa, solicita confirmación para desconectar antes de conectar nuevamente.
      */
     public void onConnectClicked(ActionEvent actionEvent){
-        // Verifica si ya hay una conexión activa y solicita confirmación para desconectar
-        if (isClientConnected() && !AlertFactory.showConfirmationAlert("Ya hay una conexión activa, estás seguro?")) {
-            disconnect();
-        }
-
         // Valida que todos los campos de entrada estén completos
         if (!areFieldsValid()){
             AlertFactory.showErrorAlert("Los campos no pueden estar vacios.");
@@ -95,26 +111,97 @@ public class FileExplorerController {
             return;
         }
 
+        // Verifica si ya hay una conexión activa y solicita confirmación para desconectar
+        if (isClientConnected() && !AlertFactory.showConfirmationAlert("Ya hay una conexión activa, estás seguro?")) {
+            return;
+        }
+        // Cierra la sesión anterior, aunque se haya perdido, para liberar sus conexiones e hilos
+        if (ftpClientManager != null) {
+            disconnect();
+        }
+
         // Obtiene los datos de conexión desde los campos de texto
         String serverAddress = serverAddressField.getText();
         String username = usernameField.getText();
         String password = passwordField.getText();
         int port = Integer.parseInt(portField.getText());
 
-        // Intenta conectar y autenticar al usuario
-        ftpClientManager = new FTPClientManager(serverAddress, port);
-        boolean loginSuccess = ftpClientManager.connectAndLogin(username, password);
+        // Intenta conectar y autenticar al usuario sin bloquear la interfaz
+        FTPClientManager manager = new FTPClientManager(serverAddress, port);
+        manager.setListingCache(getListingCacheFor(username + "@" + serverAddress + ":" + port));
+        setConnecting(manager);
+        manager.connectAndLoginAsync(username, password)
+                .whenComplete((loginSuccess, error) -> Platform.runLater(() ->
+                        onConnectFinished(manager, error == null && loginSuccess)));
+    }
+
+    /**
+     * Método que se ejecuta cuando el usuario hace clic en el botón de cancelar.
+     * Interrumpe la conexión en curso.
+     */
+    public void onCancelConnectClicked(ActionEvent actionEvent) {
+        if (pendingConnection == null) {
+            return;
+        }
+        logger.info("User cancelled the connection attempt.");
+        FTPClientManager manager = pendingConnection;
+        setConnecting(null);
+        manager.cancelConnect();
+    }
+
+    /**
+     * Actualiza los botones y el indicador de progreso según haya o no una conexión en curso.
+     *
+     * @param manager Gestor que se está conectando, o null si ya no hay ninguna conexión en curso.
+     */
+    private void setConnecting(FTPClientManager manager) {
+        pendingConnection = manager;
+        boolean connecting = manager != null;
+        connectButton.setDisable(connecting);
+        cancelConnectButton.setDisable(!connecting);
+        connectProgress.setVisible(connecting);
+    }
+
+    /**
+     * Termina la conexión en el hilo de JavaFX. Si la conexión se canceló, el resultado se descarta.
+     * El gestor solo pasa a ser el de la sesión activa si se ha iniciado sesión; en otro caso se cierra.
+     *
+     * @param manager      Gestor que ha terminado de conectarse.
+     * @param loginSuccess true si se ha iniciado sesión.
+     */
+    private void onConnectFinished(FTPClientManager manager, boolean loginSuccess) {
+        if (manager != pendingConnection) {
+            return;
+        }
+        setConnecting(null);
 
         // Si la conexión es exitosa, sincroniza el explorador de archivos
         if (loginSuccess) {
-            ftpFileExplorer.sync(ftpClientManager);
+            ftpClientManager = manager;
+            ftpFileExplorer.sync(manager);
+            transferMonitor.attach(ftpFileExplorer.getTransferScheduler());
             AlertFactory.showInfoAlert("Se ha establecido la conexión con el servidor!");
         } else {
             AlertFactory.showErrorAlert("Error al conectarse al servidor especificado.");
             logger.error("Could not connect to server");
-            // Si la conexión falla, desconecta si estaba previamente conectado
-            if (isClientConnected()) disconnect();
+            // Si la conexión falla, libera los recursos que el gestor haya llegado a crear
+            manager.disconnect();
+        }
+    }
+
+    /**
+     * Obtiene la caché de listados para una conexión. Si se vuelve a conectar al mismo servidor con el mismo
+     * usuario se reutiliza la caché anterior; en otro caso se crea una nueva.
+     *
+     * @param owner Identificador de la conexión (usuario, servidor y puerto).
+     * @return La caché de listados a usar en la conexión.
+     */
+    private DirectoryListingCache getListingCacheFor(String owner) {
+        if (listingCache == null || !owner.equals(listingCacheOwner)) {
+            listingCache = new DirectoryListingCache();
+            listingCacheOwner = owner;
         }
+        return listingCache;
     }
 
     /**
@@ -141,7 +228,7 @@ public class FileExplorerController {
      * @return true si el cliente FTP está conectado, false si no lo está.
      */
     private boolean isClientConnected() {
-        return ftpClientManager != null && ftpClientManager.getFtpClient().isConnected();
+        return ftpClientManager != null && ftpClientManager.isConnected();
     }
 
     /**
@@ -157,8 +244,10 @@ public class FileExplorerController {
      * Desconecta el cliente FTP y desactiva la sincronización con el explorador de archivos.
      */
     private void disconnect() {
-        ftpClientManager.disconnect();
+        transferMonitor.detach();
         ftpFileExplorer.desync();
+        ftpClientManager.disconnect();
+        ftpClientManager = null;
         logger.info("User disconnected and file explored desynchronized");
     }
 
@@ -174,7 +263,7 @@ public class FileExplorerController {
         }
 
         // Muestra el menú contextual para el archivo o carpeta seleccionado
-        TreeItem<String> selectedItem = fileTreeView.getSelectionModel().getSelectedItem();
+        TreeItem<RemoteEntry> selectedItem = fileTreeView.getSelectionModel().getSelectedItem();
         if (selectedItem != null) {
             fileTreeContextMenu.showContextMenu(event, selectedItem);
         }
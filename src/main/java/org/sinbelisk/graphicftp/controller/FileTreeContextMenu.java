@@ -4,6 +4,7 @@ import javafx.scene.control.*;
 import javafx.scene.input.MouseEvent;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import org.sinbelisk.graphicftp.services.RemoteEntry;
 import org.sinbelisk.graphicftp.util.AlertFactory;
 
 import java.io.IOException;
@@ -15,7 +16,7 @@ import java.io.IOException;
  */
 public class FileTreeContextMenu {
     private final FTPFileExplorer ftpFileExplorer;
-    private final TreeView<String> fileTreeView;
+    private final TreeView<RemoteEntry> fileTreeView;
     private final ContextMenu contextMenu;
 
     /**
@@ -25,7 +26,7 @@ public class FileTreeContextMenu {
      * @param fileTreeView El TreeView que contiene los archivos y carpetas.
      * @param ftpFileExplorer El explorador de archivos FTP que maneja las operaciones de archivos.
      */
-    public FileTreeContextMenu(TreeView<String> fileTreeView, FTPFileExplorer ftpFileExplorer) {
+    public FileTreeContextMenu(TreeView<RemoteEntry> fileTreeView, FTPFileExplorer ftpFileExplorer) {
         this.ftpFileExplorer = ftpFileExplorer;
         this.fileTreeView = fileTreeView;
         this.contextMenu = new ContextMenu();
@@ -36,8 +37,11 @@ public class FileTreeContextMenu {
         MenuItem createFolderItem = new MenuItem("Crear Carpeta");
         MenuItem renameItem = new MenuItem("Renombrar");
         MenuItem deleteItem = new MenuItem("Eliminar");
+        MenuItem uploadFolderItem = new MenuItem("Subir carpeta");
+        MenuItem syncFolderItem = new MenuItem("Sincronizar carpeta");
 
-        contextMenu.getItems().addAll(createFolderItem, renameItem, deleteItem, downloadItem, uploadItem);
+        contextMenu.getItems().addAll(createFolderItem, renameItem, deleteItem, downloadItem, uploadItem, uploadFolderItem,
+                syncFolderItem);
     }
 
     /**
@@ -47,7 +51,7 @@ public class FileTreeContextMenu {
      * @param event El evento de clic que activa la visualización del menú contextual.
      * @param selectedItem El TreeItem seleccionado sobre el cual se mostrará el menú.
      */
-    public void showContextMenu(MouseEvent event, TreeItem<String> selectedItem) {
+    public void showContextMenu(MouseEvent event, TreeItem<RemoteEntry> selectedItem) {
         if (selectedItem == null) {
             return;
         }
@@ -62,7 +66,7 @@ public class FileTreeContextMenu {
      *
      * @param selectedItem El TreeItem seleccionado que corresponde a un archivo o carpeta en el árbol de archivos.
      */
-    private void updateMenuItems(TreeItem<String> selectedItem) {
+    private void updateMenuItems(TreeItem<RemoteEntry> selectedItem) {
         // Acción para crear una nueva carpeta
         setActionForMenuItem(contextMenu.getItems().get(0), () -> {
             if (!ftpFileExplorer.createFolder(selectedItem))
@@ -82,20 +86,28 @@ public class FileTreeContextMenu {
                 AlertFactory.showErrorAlert("No se ha podido eliminar la carpeta o fichero");
         });
 
-        // Acción para descargar un archivo o carpeta
+        // Acción para descargar un archivo o carpeta (se encola en el planificador de transferencias)
         setActionForMenuItem(contextMenu.getItems().get(3), () -> {
             if (!ftpFileExplorer.downloadFile(selectedItem))
                 AlertFactory.showErrorAlert("No se ha podido descargar el elemento especificado");
-            else
-                AlertFactory.showInfoAlert("Elemento descargado satisfactoriamente.");
         });
 
-        // Acción para subir un archivo o carpeta
+        // Acción para subir uno o varios archivos (se encolan en el planificador de transferencias)
         setActionForMenuItem(contextMenu.getItems().get(4), () -> {
             if (!ftpFileExplorer.uploadFile(selectedItem))
                 AlertFactory.showErrorAlert("Error al subir el fichero seleccionado");
-            else
-                AlertFactory.showInfoAlert("Elemento subido satisfactoriamente al servidor.");
+        });
+
+        // Acción para subir una carpeta completa (sus archivos se encolan en el planificador de transferencias)
+        setActionForMenuItem(contextMenu.getItems().get(5), () -> {
+            if (!ftpFileExplorer.uploadFolder(selectedItem))
+                AlertFactory.showErrorAlert("Error al subir la carpeta seleccionada");
+        });
+
+        // Acción para sincronizar una carpeta local con la seleccionada (solo se suben los cambios)
+        setActionForMenuItem(contextMenu.getItems().get(6), () -> {
+            if (!ftpFileExplorer.syncFolder(selectedItem))
+                AlertFactory.showErrorAlert("Error al sincronizar la carpeta seleccionada");
         });
     }
 
@@ -0,0 +1,25 @@
+package org.sinbelisk.graphicftp.controller;
+
+import javafx.scene.control.TreeCell;
+import org.sinbelisk.graphicftp.services.RemoteEntry;
+import org.sinbelisk.graphicftp.util.ElementUtils;
+
+/**
+ * Celda del árbol de archivos que dibuja una {@link RemoteEntry} con su icono y su nombre.
+ * El texto se calcula solo para las celdas visibles, en lugar de guardarse en cada elemento del árbol.
+ */
+public class RemoteEntryTreeCell extends TreeCell<RemoteEntry> {
+
+    @Override
+    protected void updateItem(RemoteEntry entry, boolean empty) {
+        super.updateItem(entry, empty);
+
+        if (empty || entry == null) {
+            setText(null);
+        } else if (entry.isPlaceholder()) {
+            setText(entry.getName());
+        } else {
+            setText(ElementUtils.getIconForEntry(entry) + " " + entry.getName());
+        }
+    }
+}
@@ -0,0 +1,148 @@
+package org.sinbelisk.graphicftp.controller;
+
+import javafx.application.Platform;
+import javafx.collections.FXCollections;
+import javafx.collections.ObservableList;
+import javafx.scene.control.CheckMenuItem;
+import javafx.scene.control.ContextMenu;
+import javafx.scene.control.ListView;
+import javafx.scene.control.MenuItem;
+import org.sinbelisk.graphicftp.services.TransferJob;
+import org.sinbelisk.graphicftp.services.TransferScheduler;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Clase que muestra en un {@link ListView} las transferencias gestionadas por un {@link TransferScheduler}.
+ * Mantiene una lista observable de {@link TransferJob} que se actualiza siempre desde el hilo de JavaFX,
+ * aunque los cambios de estado lleguen desde los hilos de trabajo del planificador.
+ * <p>
+ * Los cambios se acumulan y se aplican juntos en una sola tarea del hilo de JavaFX, de modo que subir
+ * una carpeta con miles de archivos no genera miles de tareas ni recorre la lista en cada cambio.
+ * </p>
+ */
+public class TransferMonitor implements TransferScheduler.TransferListener {
+    private final ObservableList<TransferJob> jobs = FXCollections.observableArrayList();
+    private final ListView<TransferJob> transferListView;
+    private final Queue<TransferJob> pendingUpdates = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean drainScheduled = new AtomicBoolean();
+    // Transferencias que ya están en la lista; solo se usa desde el hilo de JavaFX
+    private final Set<TransferJob> shownJobs = Collections.newSetFromMap(new IdentityHashMap<>());
+    private final CheckMenuItem verifyItem = new CheckMenuItem("Verificar integridad");
+    private TransferScheduler scheduler;
+
+    /**
+     * Constructor del monitor de transferencias.
+     * Vincula la lista observable a la vista y configura su menú contextual.
+     *
+     * @param transferListView La vista que muestra las transferencias.
+     */
+    public TransferMonitor(ListView<TransferJob> transferListView) {
+        this.transferListView = transferListView;
+        transferListView.setItems(jobs);
+        setupContextMenu();
+    }
+
+    /**
+     * Empieza a mostrar las transferencias del planificador indicado.
+     *
+     * @param scheduler El planificador de transferencias activo.
+     */
+    public void attach(TransferScheduler scheduler) {
+        detach();
+        this.scheduler = scheduler;
+        scheduler.setVerificationEnabled(verifyItem.isSelected());
+        scheduler.addListener(this);
+    }
+
+    /**
+     * Deja de escuchar al planificador actual. Las transferencias ya mostradas se conservan.
+     */
+    public void detach() {
+        if (scheduler != null) {
+            scheduler.removeListener(this);
+            scheduler = null;
+        }
+    }
+
+    /**
+     * @return La lista observable de transferencias, apta para vincularse a otros controles.
+     */
+    public ObservableList<TransferJob> getJobs() {
+        return jobs;
+    }
+
+    /**
+     * Recibe un cambio de estado y programa su reflejo en la lista en el hilo de JavaFX.
+     *
+     * @param job La transferencia que ha cambiado.
+     */
+    @Override
+    public void onTransferUpdated(TransferJob job) {
+        pendingUpdates.add(job);
+        if (drainScheduled.compareAndSet(false, true)) {
+            Platform.runLater(this::applyPendingUpdates);
+        }
+    }
+
+    /**
+     * Añade de una vez las transferencias nuevas y repinta la lista si alguna de las ya mostradas ha cambiado.
+     */
+    private void applyPendingUpdates() {
+        drainScheduled.set(false);
+
+        List<TransferJob> added = new ArrayList<>();
+        boolean changed = false;
+        TransferJob job;
+        while ((job = pendingUpdates.poll()) != null) {
+            if (shownJobs.add(job)) {
+                added.add(job);
+            } else {
+                changed = true;
+            }
+        }
+
+        jobs.addAll(added);
+        if (changed) {
+            transferListView.refresh(); // Fuerza el repintado de las celdas visibles
+        }
+    }
+
+    /**
+     * Configura el menú contextual que permite cancelar transferencias en cola, limpiar las terminadas
+     * y activar la verificación de integridad de las siguientes transferencias.
+     */
+    private void setupContextMenu() {
+        MenuItem cancelItem = new MenuItem("Cancelar");
+        cancelItem.setOnAction(e -> {
+            TransferJob selected = transferListView.getSelectionModel().getSelectedItem();
+            if (selected != null && scheduler != null) {
+                scheduler.cancel(selected);
+            }
+        });
+
+        MenuItem clearItem = new MenuItem("Limpiar terminadas");
+        clearItem.setOnAction(e -> jobs.removeIf(job -> {
+            boolean finished = job.getState().isFinished();
+            if (finished) {
+                shownJobs.remove(job);
+            }
+            return finished;
+        }));
+
+        verifyItem.setOnAction(e -> {
+            if (scheduler != null) {
+                scheduler.setVerificationEnabled(verifyItem.isSelected());
+            }
+        });
+
+        transferListView.setContextMenu(new ContextMenu(cancelItem, clearItem, verifyItem));
+    }
+}
@@ -0,0 +1,290 @@
+package org.sinbelisk.graphicftp.controller;
+
+import javafx.animation.AnimationTimer;
+import javafx.application.Platform;
+import javafx.scene.control.TreeItem;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Clase que agrupa los cambios del {@link javafx.scene.control.TreeView} que llegan desde los hilos de trabajo
+ * y los aplica en el hilo de JavaFX como mucho una vez por pulso de renderizado.
+ * <p>
+ * En lugar de un {@code Platform.runLater} por cada lote, los cambios se encolan y un {@link AnimationTimer}
+ * los vacía en cada pulso. Las altas consecutivas de hijos sobre un mismo nodo se fusionan en una única
+ * operación {@code setAll}/{@code addAll}, de modo que la escena se recalcula una vez por nodo y pulso
+ * aunque lleguen miles de páginas por segundo.
+ * </p>
+ * <p>
+ * El temporizador solo está activo mientras hay cambios pendientes: se arranca al encolar el primero y se detiene
+ * en cuanto la cola se vacía, de modo que sin cambios el hilo de JavaFX no ejecuta nada en cada pulso.
+ * </p>
+ *
+ * @param <T> Tipo del valor de los elementos del árbol.
+ */
+public class TreeUpdateDispatcher<T> {
+    private static final Logger logger = LogManager.getLogger(TreeUpdateDispatcher.class);
+
+    // Número máximo de cambios encolados que se aplican en un mismo pulso
+    private static final int MAX_MUTATIONS_PER_PULSE = 256;
+
+    private final Queue<Mutation<T>> pending = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger queueDepth = new AtomicInteger();
+    private final AtomicInteger maxQueueDepth = new AtomicInteger();
+    private final AtomicLong submittedMutations = new AtomicLong();
+    private final AtomicLong appliedBatches = new AtomicLong();
+    private final AtomicLong pulses = new AtomicLong();
+
+    // true mientras el temporizador está arrancado o hay una petición de arranque pendiente
+    private final AtomicBoolean running = new AtomicBoolean();
+    private final PulseTimer timer;
+
+    /**
+     * Constructor del despachador, que aplica los cambios con un {@link AnimationTimer}.
+     */
+    public TreeUpdateDispatcher() {
+        this(TreeUpdateDispatcher::animationTimer);
+    }
+
+    /**
+     * Constructor con una fuente de pulsos propia, para las pruebas.
+     *
+     * @param timerFactory Crea el temporizador que llama a la acción recibida en cada pulso.
+     */
+    TreeUpdateDispatcher(Function<Runnable, PulseTimer> timerFactory) {
+        this.timer = timerFactory.apply(this::pulse);
+    }
+
+    /**
+     * Deja de aplicar cambios hasta que se encole uno nuevo. Debe llamarse desde el hilo de JavaFX.
+     */
+    public void stop() {
+        running.set(false);
+        timer.stop();
+    }
+
+    /**
+     * Encola la sustitución de los hijos de un nodo.
+     *
+     * @param parent El nodo cuyos hijos se sustituyen.
+     * @param items  Los nuevos hijos.
+     */
+    public void replaceChildren(TreeItem<T> parent, List<TreeItem<T>> items) {
+        enqueue(new Mutation<>(parent, items, true, null));
+    }
+
+    /**
+     * Encola el añadido de hijos al final de un nodo.
+     *
+     * @param parent El nodo al que se añaden los hijos.
+     * @param items  Los hijos a añadir.
+     */
+    public void appendChildren(TreeItem<T> parent, List<TreeItem<T>> items) {
+        enqueue(new Mutation<>(parent, items, false, null));
+    }
+
+    /**
+     * Encola un cambio arbitrario del árbol, que se ejecutará en el hilo de JavaFX respetando el orden de llegada.
+     *
+     * @param action El cambio a aplicar.
+     */
+    public void submit(Runnable action) {
+        enqueue(new Mutation<>(null, null, false, action));
+    }
+
+    /**
+     * @return Número de cambios pendientes de aplicar.
+     */
+    public int getQueueDepth() {
+        return queueDepth.get();
+    }
+
+    /**
+     * @return Mayor número de cambios pendientes observado.
+     */
+    public int getMaxQueueDepth() {
+        return maxQueueDepth.get();
+    }
+
+    /**
+     * @return Número total de cambios encolados.
+     */
+    public long getSubmittedMutations() {
+        return submittedMutations.get();
+    }
+
+    /**
+     * @return Número de operaciones realmente aplicadas sobre el árbol tras fusionar los cambios.
+     */
+    public long getAppliedBatches() {
+        return appliedBatches.get();
+    }
+
+    /**
+     * @return Número de pulsos en los que había algún cambio pendiente.
+     */
+    public long getPulses() {
+        return pulses.get();
+    }
+
+    private void enqueue(Mutation<T> mutation) {
+        pending.add(mutation);
+        submittedMutations.incrementAndGet();
+        int depth = queueDepth.incrementAndGet();
+        maxQueueDepth.accumulateAndGet(depth, Math::max);
+        if (running.compareAndSet(false, true)) {
+            timer.start();
+        }
+    }
+
+    /**
+     * Se ejecuta en el hilo de JavaFX en cada pulso: aplica los cambios pendientes y, si la cola ha quedado vacía,
+     * detiene el temporizador.
+     */
+    void pulse() {
+        drain();
+        if (!pending.isEmpty()) {
+            return;
+        }
+
+        running.set(false);
+        timer.stop();
+        // Un cambio encolado mientras se detenía el temporizador puede haber visto running a true y no arrancarlo.
+        if (!pending.isEmpty() && running.compareAndSet(false, true)) {
+            timer.start();
+        }
+    }
+
+    /**
+     * Aplica los cambios pendientes.
+     * Los cambios de hijos consecutivos se fusionan por nodo; un cambio arbitrario obliga a aplicar antes
+     * los cambios fusionados para conservar el orden.
+     */
+    private void drain() {
+        if (pending.isEmpty()) {
+            return;
+        }
+        pulses.incrementAndGet();
+
+        Map<TreeItem<T>, ChildrenBatch<T>> batches = new LinkedHashMap<>();
+        Mutation<T> mutation;
+        int drained = 0;
+
+        while (drained < MAX_MUTATIONS_PER_PULSE && (mutation = pending.poll()) != null) {
+            queueDepth.decrementAndGet();
+            drained++;
+
+            if (mutation.action != null) {
+                applyBatches(batches);
+                mutation.action.run();
+                appliedBatches.incrementAndGet();
+            } else {
+                batches.computeIfAbsent(mutation.parent, key -> new ChildrenBatch<>()).merge(mutation);
+            }
+        }
+
+        applyBatches(batches);
+        logger.debug("Applied {} tree mutations in one pulse ({} still queued).", drained, queueDepth.get());
+    }
+
+    private void applyBatches(Map<TreeItem<T>, ChildrenBatch<T>> batches) {
+        for (Map.Entry<TreeItem<T>, ChildrenBatch<T>> entry : batches.entrySet()) {
+            ChildrenBatch<T> batch = entry.getValue();
+            if (batch.replace) {
+                entry.getKey().getChildren().setAll(batch.items);
+            } else {
+                entry.getKey().getChildren().addAll(batch.items);
+            }
+            appliedBatches.incrementAndGet();
+        }
+        batches.clear();
+    }
+
+    /**
+     * Crea un {@link AnimationTimer} que ejecuta la acción en cada pulso. Se puede arrancar desde cualquier hilo:
+     * fuera del hilo de JavaFX, el arranque se programa con {@link Platform#runLater(Runnable)}.
+     */
+    private static PulseTimer animationTimer(Runnable onPulse) {
+        AnimationTimer animationTimer = new AnimationTimer() {
+            @Override
+            public void handle(long now) {
+                onPulse.run();
+            }
+        };
+        return new PulseTimer() {
+            @Override
+            public void start() {
+                if (Platform.isFxApplicationThread()) {
+                    animationTimer.start();
+                } else {
+                    Platform.runLater(animationTimer::start);
+                }
+            }
+
+            @Override
+            public void stop() {
+                animationTimer.stop();
+            }
+        };
+    }
+
+    /**
+     * Temporizador que llama a {@link #pulse()} en cada pulso mientras está arrancado.
+     */
+    interface PulseTimer {
+        /**
+         * Arranca el temporizador. Puede llamarse desde cualquier hilo.
+         */
+        void start();
+
+        /**
+         * Detiene el temporizador. Se llama desde el hilo de JavaFX.
+         */
+        void stop();
+    }
+
+    /**
+     * Cambio encolado: o bien un cambio de hijos de un nodo, o bien una acción arbitraria.
+     */
+    private static final class Mutation<T> {
+        private final TreeItem<T> parent;
+        private final List<TreeItem<T>> items;
+        private final boolean replace;
+        private final Runnable action;
+
+        private Mutation(TreeItem<T> parent, List<TreeItem<T>> items, boolean replace, Runnable action) {
+            this.parent = parent;
+            this.items = items;
+            this.replace = replace;
+            this.action = action;
+        }
+    }
+
+    /**
+     * Resultado de fusionar varios cambios de hijos sobre un mismo nodo.
+     * Una sustitución descarta los añadidos anteriores del mismo pulso.
+     */
+    private static final class ChildrenBatch<T> {
+        private final List<TreeItem<T>> items = new ArrayList<>();
+        private boolean replace;
+
+        private void merge(Mutation<T> mutation) {
+            if (mutation.replace) {
+                items.clear();
+                replace = true;
+            }
+            items.addAll(mutation.items);
+        }
+    }
+}
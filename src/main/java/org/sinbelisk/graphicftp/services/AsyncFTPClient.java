@@ -0,0 +1,123 @@
+package org.sinbelisk.graphicftp.services;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Fachada asíncrona de las operaciones de un {@link FTPClientManager}.
+ * <p>
+ * Cada operación se ejecuta en el {@link RemoteTaskExecutor} de la sesión y devuelve un {@link CompletableFuture}
+ * con un {@link FTPResult}, que incluye la respuesta del servidor y el tiempo empleado, de modo que las operaciones
+ * pueden encadenarse con {@code thenCompose} o lanzarse a la vez sin bloquear ningún hilo a la espera.
+ * </p>
+ * <p>
+ * Cada operación toma una sesión del {@link FTPConnectionPool} para ella sola, así que los comandos de una misma
+ * conexión de control nunca se mezclan, mientras que las operaciones independientes se ejecutan en paralelo
+ * en sesiones distintas. Como mucho se ejecutan a la vez tantas operaciones como sesiones admite el pool;
+ * el resto espera en cola sin ocupar hilos.
+ * </p>
+ */
+public class AsyncFTPClient {
+    private static final Logger logger = LogManager.getLogger(AsyncFTPClient.class);
+
+    private final FTPClientManager manager;
+    private final Executor executor;
+
+    /**
+     * Constructor de la fachada.
+     *
+     * @param manager Gestor con el que se ejecutan las operaciones.
+     */
+    public AsyncFTPClient(FTPClientManager manager) {
+        this.manager = manager;
+        this.executor = manager.getTaskExecutor().limitedTo(manager.getMaxConnections());
+    }
+
+    /**
+     * Sube un archivo al servidor FTP, como {@link FTPClientManager#uploadFile(String, String)}.
+     *
+     * @param localFilePath Ruta del archivo local.
+     * @param remotePath    Ruta en el servidor FTP donde se guardará el archivo.
+     * @return Futuro con el resultado de la subida.
+     */
+    public CompletableFuture<FTPResult> uploadFile(String localFilePath, String remotePath) {
+        return submit("STOR " + remotePath, () -> manager.uploadFile(localFilePath, remotePath));
+    }
+
+    /**
+     * Descarga un archivo del servidor FTP en un único flujo de datos. A diferencia de
+     * {@link FTPClientManager#downloadFile(String, String)}, los archivos grandes no se descargan en varios rangos:
+     * la operación ocupa una sola sesión, como el resto de operaciones de la fachada, y el resultado incluye
+     * la respuesta al {@code RETR}, que con varios rangos se recibiría en otros hilos.
+     *
+     * @param remotePath    Ruta del archivo en el servidor FTP.
+     * @param localFilePath Ruta local donde se guardará el archivo.
+     * @return Futuro con el resultado de la descarga.
+     */
+    public CompletableFuture<FTPResult> downloadFile(String remotePath, String localFilePath) {
+        return submit("RETR " + remotePath, () -> manager.downloadFileSingleStream(remotePath, localFilePath, null, null));
+    }
+
+    /**
+     * Crea una carpeta en el servidor FTP.
+     *
+     * @param remotePath Ruta de la carpeta en el servidor FTP.
+     * @return Futuro con el resultado de la creación.
+     */
+    public CompletableFuture<FTPResult> createFolder(String remotePath) {
+        return submit("MKD " + remotePath, () -> manager.createFolder(remotePath));
+    }
+
+    /**
+     * Renombra un archivo o carpeta del servidor FTP.
+     *
+     * @param remoteOldPath Ruta actual en el servidor FTP.
+     * @param remoteNewPath Nueva ruta en el servidor FTP.
+     * @return Futuro con el resultado del renombrado.
+     */
+    public CompletableFuture<FTPResult> renameFileOrFolder(String remoteOldPath, String remoteNewPath) {
+        return submit("RNFR " + remoteOldPath + " RNTO " + remoteNewPath,
+                () -> manager.renameFileOrFolder(remoteOldPath, remoteNewPath));
+    }
+
+    /**
+     * Elimina un archivo o una carpeta vacía del servidor FTP.
+     *
+     * @param remotePath Ruta en el servidor FTP.
+     * @return Futuro con el resultado de la eliminación.
+     */
+    public CompletableFuture<FTPResult> deleteFileOrFolder(String remotePath) {
+        return submit("DELE " + remotePath, () -> manager.deleteFileOrFolder(remotePath));
+    }
+
+    /**
+     * Ejecuta una operación en segundo plano y construye su resultado con la última respuesta
+     * recibida en el hilo que la ha ejecutado.
+     */
+    private CompletableFuture<FTPResult> submit(String operation, Callable<Boolean> action) {
+        return CompletableFuture.supplyAsync(() -> {
+            ReplyRecorder.reset();
+            long start = System.nanoTime();
+            boolean success = false;
+            Throwable error = null;
+            try {
+                success = action.call();
+            } catch (Exception e) {
+                error = e;
+            }
+            if (error == null) {
+                error = ReplyRecorder.lastFailure();
+            }
+
+            FTPResult result = new FTPResult(operation, success, ReplyRecorder.lastReplyCode(),
+                    ReplyRecorder.lastReplyString(), System.nanoTime() - start, error);
+            ReplyRecorder.reset();
+            logger.debug("Async operation finished: {}", result);
+            return result;
+        }, executor);
+    }
+}
@@ -0,0 +1,70 @@
+package org.sinbelisk.graphicftp.services;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Latencias y errores de un comando FTP, registrados por {@link FTPClientMetrics}.
+ * Un comando cuenta como error cuando el servidor responde con un código {@code 4xx} o {@code 5xx}.
+ */
+public class CommandLatency implements CommandLatencyMBean {
+    private final String command;
+    private final LatencyHistogram histogram = new LatencyHistogram();
+    private final LongAdder errors = new LongAdder();
+
+    CommandLatency(String command) {
+        this.command = command;
+    }
+
+    void record(long nanos, boolean error) {
+        histogram.record(nanos);
+        if (error) {
+            errors.increment();
+        }
+    }
+
+    @Override
+    public String getCommand() {
+        return command;
+    }
+
+    @Override
+    public long getCount() {
+        return histogram.getCount();
+    }
+
+    @Override
+    public long getErrors() {
+        return errors.sum();
+    }
+
+    @Override
+    public double getMeanMillis() {
+        return histogram.getMeanMillis();
+    }
+
+    @Override
+    public double getP50Millis() {
+        return histogram.getPercentileMillis(50);
+    }
+
+    @Override
+    public double getP95Millis() {
+        return histogram.getPercentileMillis(95);
+    }
+
+    @Override
+    public double getP99Millis() {
+        return histogram.getPercentileMillis(99);
+    }
+
+    @Override
+    public double getMaxMillis() {
+        return histogram.getMaxMillis();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s n=%d err=%d p50=%.1fms p95=%.1fms p99=%.1fms max=%.1fms", command, getCount(),
+                getErrors(), getP50Millis(), getP95Millis(), getP99Millis(), getMaxMillis());
+    }
+}
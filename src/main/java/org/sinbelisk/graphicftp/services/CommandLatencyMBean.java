@@ -0,0 +1,23 @@
+package org.sinbelisk.graphicftp.services;
+
+/**
+ * Interfaz JMX con las latencias de un comando FTP. Cada comando se publica como un MBean independiente
+ * bajo el dominio {@code org.sinbelisk.graphicftp}, con las latencias en milisegundos.
+ */
+public interface CommandLatencyMBean {
+    String getCommand();
+
+    long getCount();
+
+    long getErrors();
+
+    double getMeanMillis();
+
+    double getP50Millis();
+
+    double getP95Millis();
+
+    double getP99Millis();
+
+    double getMaxMillis();
+}
@@ -0,0 +1,446 @@
+package org.sinbelisk.graphicftp.services;
+
+import java.io.IOException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.Instant;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Sincroniza una carpeta local con una carpeta remota transfiriendo solo las diferencias.
+ * <p>
+ * Primero se calcula un {@link SyncPlan} comparando ambos árboles: los archivos que faltan o cuyo tamaño difiere
+ * se transfieren directamente; los de igual tamaño se comparan con la suma {@code HASH} si el servidor la admite,
+ * o si no por fecha de modificación. La fecha del listado solo se confirma con {@code MDTM} cuando su precisión
+ * no basta para decidir, por lo que la mayoría de archivos no requieren ninguna orden adicional.
+ * Las comprobaciones que sí requieren el servidor se hacen en paralelo sobre sesiones del pool.
+ * </p>
+ * <p>
+ * El plan se puede revisar como ensayo antes de aplicarlo con {@link #execute(SyncPlan)}, que aplica los cambios
+ * de estructura y encola las transferencias en el {@link TransferScheduler}.
+ * </p>
+ */
+public class DeltaSynchronizer {
+    private static final Logger logger = LogManager.getLogger(DeltaSynchronizer.class);
+
+    /**
+     * Diferencia de fechas por debajo de la cual dos archivos se consideran igual de recientes.
+     */
+    public static final long TIME_TOLERANCE_MS = 2_000;
+
+    // Precisión de las fechas que no requieren confirmación con MDTM
+    private static final long EXACT_PRECISION_MS = 1_000;
+    private static final int CHECK_PARALLELISM = 2;
+
+    private final FTPClientManager ftpClientManager;
+    private final TransferScheduler transferScheduler;
+    private final Executor checkExecutor;
+    private boolean useHash = true;
+    private boolean deleteExtraneous;
+
+    /**
+     * Constructor del sincronizador.
+     *
+     * @param ftpClientManager  Gestor FTP con el que se listan y comparan los archivos remotos.
+     * @param transferScheduler Planificador en el que se encolan las transferencias del plan.
+     */
+    public DeltaSynchronizer(FTPClientManager ftpClientManager, TransferScheduler transferScheduler) {
+        this.ftpClientManager = ftpClientManager;
+        this.transferScheduler = transferScheduler;
+        this.checkExecutor = ftpClientManager.getTaskExecutor().limitedTo(CHECK_PARALLELISM);
+    }
+
+    /**
+     * Indica si se usan sumas {@code HASH} para comparar archivos de igual tamaño cuando el servidor las admite.
+     *
+     * @param useHash {@code true} para comparar por suma, {@code false} para comparar solo por fecha.
+     */
+    public void setUseHash(boolean useHash) {
+        this.useHash = useHash;
+    }
+
+    /**
+     * Indica si se eliminan del destino los elementos que no existen en el origen.
+     *
+     * @param deleteExtraneous {@code true} para que el destino sea una copia exacta del origen.
+     */
+    public void setDeleteExtraneous(boolean deleteExtraneous) {
+        this.deleteExtraneous = deleteExtraneous;
+    }
+
+    /**
+     * Compara una carpeta local con una remota y calcula los cambios necesarios sin aplicar ninguno.
+     *
+     * @param localFolder  Carpeta local.
+     * @param remoteFolder Carpeta remota.
+     * @param direction    Sentido de la sincronización.
+     * @return El plan de cambios.
+     * @throws IOException si no se puede recorrer alguno de los dos árboles.
+     */
+    public SyncPlan plan(Path localFolder, String remoteFolder, SyncPlan.Direction direction) throws IOException {
+        Path localRoot = localFolder.toAbsolutePath().normalize();
+        Map<String, Item> local = scanLocal(localRoot);
+        ftpClientManager.getListingCache().invalidateTree(remoteFolder);
+        Map<String, Item> remote = scanRemote(remoteFolder);
+
+        boolean upload = direction == SyncPlan.Direction.UPLOAD;
+        Map<String, Item> sources = upload ? local : remote;
+        Map<String, Item> targets = upload ? remote : local;
+        SyncPlan.ActionType transferType = upload ? SyncPlan.ActionType.UPLOAD : SyncPlan.ActionType.DOWNLOAD;
+        boolean compareByHash = useHash && ftpClientManager.isHashSupported();
+
+        List<CompletableFuture<SyncPlan.Action>> actions = new ArrayList<>();
+        Set<String> blockedFolders = new HashSet<>();
+
+        for (Item source : sources.values()) {
+            Item target = targets.get(source.relativePath);
+            String localPath = localRoot.resolve(source.relativePath).toString();
+            String remotePath = RemoteEntry.join(remoteFolder, source.relativePath);
+
+            if (isUnder(source.relativePath, blockedFolders)) {
+                actions.add(done(SyncPlan.ActionType.SKIP, source, localPath, remotePath, "conflicto en una carpeta superior"));
+            } else if (target != null && target.folder != source.folder) {
+                if (source.folder) {
+                    blockedFolders.add(source.relativePath);
+                }
+                actions.add(done(SyncPlan.ActionType.SKIP, source, localPath, remotePath, "conflicto entre archivo y carpeta"));
+            } else if (source.folder) {
+                if (target == null) {
+                    actions.add(done(SyncPlan.ActionType.CREATE_FOLDER, source, localPath, remotePath, "nueva"));
+                }
+            } else if (target == null) {
+                actions.add(done(transferType, source, localPath, remotePath, "nuevo"));
+            } else {
+                Item localItem = upload ? source : target;
+                Item remoteItem = upload ? target : source;
+                actions.add(compare(localItem, remoteItem, direction, transferType, localPath, remotePath, compareByHash));
+            }
+        }
+
+        if (deleteExtraneous) {
+            Set<String> deletedFolders = new HashSet<>();
+            for (Item target : targets.values()) {
+                if (sources.containsKey(target.relativePath) || isUnder(target.relativePath, deletedFolders)) {
+                    continue;
+                }
+                if (target.folder) {
+                    deletedFolders.add(target.relativePath);
+                }
+                actions.add(done(SyncPlan.ActionType.DELETE, target, localRoot.resolve(target.relativePath).toString(),
+                        RemoteEntry.join(remoteFolder, target.relativePath), "no existe en el origen"));
+            }
+        }
+
+        SyncPlan plan = new SyncPlan(direction, localRoot.toString(), remoteFolder);
+        try {
+            for (CompletableFuture<SyncPlan.Action> action : actions) {
+                plan.add(action.join());
+            }
+        } catch (CompletionException e) {
+            throw e.getCause() instanceof IOException ? (IOException) e.getCause() : new IOException(e.getCause());
+        }
+
+        logger.info("Sync plan {} <-> {}: {}", localRoot, remoteFolder, plan.getSummary());
+        return plan;
+    }
+
+    /**
+     * Aplica un plan. Los cambios de estructura, tanto en local como en el servidor, se aplican en el hilo actual
+     * y en el orden del plan: se crean las carpetas que faltan, antes de que pueda empezar ninguna transferencia
+     * que dependa de ellas, y se eliminan los elementos sobrantes, las carpetas remotas con el
+     * {@link RecursiveDeleter}. Solo las transferencias de archivos se encolan en el {@link TransferScheduler},
+     * por lo que el método vuelve cuando la estructura está aplicada y las transferencias encoladas.
+     * Un cambio de estructura que falla se registra y no impide aplicar el resto.
+     *
+     * @param plan El plan calculado con {@link #plan(Path, String, SyncPlan.Direction)}.
+     * @return Las transferencias encoladas.
+     * @throws IOException si no se puede modificar la carpeta local o se pierde la conexión con el servidor.
+     */
+    public List<TransferJob> execute(SyncPlan plan) throws IOException {
+        boolean upload = plan.getDirection() == SyncPlan.Direction.UPLOAD;
+        List<TransferJob> jobs = new ArrayList<>();
+
+        for (SyncPlan.Action action : plan.getActions()) {
+            switch (action.getType()) {
+                case CREATE_FOLDER:
+                    if (!upload) {
+                        Files.createDirectories(Path.of(action.getLocalPath()));
+                    } else if (!ftpClientManager.ensureDirectory(action.getRemotePath())) {
+                        logger.warn("Sync could not create remote folder {}", action.getRemotePath());
+                    }
+                    break;
+                case UPLOAD:
+                    jobs.add(transferScheduler.enqueueUpload(action.getLocalPath(), action.getRemotePath()));
+                    break;
+                case DOWNLOAD:
+                    jobs.add(transferScheduler.enqueueDownload(action.getRemotePath(), action.getLocalPath()));
+                    break;
+                case DELETE:
+                    if (!upload) {
+                        deleteLocal(Path.of(action.getLocalPath()));
+                    } else {
+                        deleteRemote(action);
+                    }
+                    break;
+                default:
+                    break;
+            }
+        }
+
+        logger.info("Sync plan applied: {} jobs queued.", jobs.size());
+        return jobs;
+    }
+
+    /**
+     * Elimina un archivo remoto, o una carpeta remota con todo su contenido.
+     */
+    private void deleteRemote(SyncPlan.Action action) throws IOException {
+        String remotePath = action.getRemotePath();
+        if (!action.isFolder()) {
+            if (!ftpClientManager.deleteFileOrFolder(remotePath, false)) {
+                logger.warn("Sync could not delete remote file {}", remotePath);
+            }
+            return;
+        }
+
+        RecursiveDeleter.Result result = new RecursiveDeleter(ftpClientManager).delete(remotePath, null);
+        if (!result.isSuccessful()) {
+            logger.warn("Sync could not delete remote folder {} completely: {}", remotePath, result.getFailures());
+        }
+    }
+
+    /**
+     * Compara un archivo que existe en ambos lados. Las comprobaciones que requieren el servidor se ejecutan
+     * en segundo plano.
+     */
+    private CompletableFuture<SyncPlan.Action> compare(Item local, Item remote, SyncPlan.Direction direction,
+                                                       SyncPlan.ActionType transferType, String localPath,
+                                                       String remotePath, boolean compareByHash) {
+        Item source = direction == SyncPlan.Direction.UPLOAD ? local : remote;
+
+        if (remote.size >= 0 && local.size != remote.size) {
+            return done(transferType, source, localPath, remotePath, "tamaño distinto");
+        }
+
+        boolean exactTime = remote.modificationTime >= 0 && (remote.precisionMillis <= EXACT_PRECISION_MS
+                || Math.abs(local.modificationTime - remote.modificationTime) > remote.precisionMillis);
+        if (!compareByHash && exactTime) {
+            return done(compareTimes(local.modificationTime, remote.modificationTime, direction) ? transferType
+                    : SyncPlan.ActionType.SKIP, source, localPath, remotePath, timeReason(local, remote, direction));
+        }
+
+        return CompletableFuture.supplyAsync(() -> {
+            if (compareByHash) {
+                RemoteChecksum checksum = ftpClientManager.getRemoteChecksum(remotePath);
+                if (checksum != null) {
+                    try {
+                        boolean same = checksum.matches(Path.of(localPath));
+                        return action(same ? SyncPlan.ActionType.SKIP : transferType, source, localPath, remotePath,
+                                same ? "suma idéntica" : "suma distinta");
+                    } catch (IOException e) {
+                        logger.warn("Could not compute checksum of {}: {}", localPath, e.getMessage());
+                    }
+                }
+            }
+
+            long remoteTime = exactTime ? remote.modificationTime : ftpClientManager.getRemoteModificationTime(remotePath);
+            if (remoteTime < 0) {
+                return action(SyncPlan.ActionType.SKIP, source, localPath, remotePath, "mismo tamaño, fecha desconocida");
+            }
+            Item exactRemote = new Item(remote.relativePath, false, remote.size, remoteTime, EXACT_PRECISION_MS);
+            return action(compareTimes(local.modificationTime, remoteTime, direction) ? transferType
+                    : SyncPlan.ActionType.SKIP, source, localPath, remotePath, timeReason(local, exactRemote, direction));
+        }, checkExecutor);
+    }
+
+    /**
+     * @return true si el archivo de origen es más reciente que el de destino.
+     */
+    private static boolean compareTimes(long localTime, long remoteTime, SyncPlan.Direction direction) {
+        long sourceTime = direction == SyncPlan.Direction.UPLOAD ? localTime : remoteTime;
+        long targetTime = direction == SyncPlan.Direction.UPLOAD ? remoteTime : localTime;
+        return sourceTime > targetTime + TIME_TOLERANCE_MS;
+    }
+
+    private static String timeReason(Item local, Item remote, SyncPlan.Direction direction) {
+        return compareTimes(local.modificationTime, remote.modificationTime, direction) ? "más reciente" : "sin cambios";
+    }
+
+    /**
+     * Recorre la carpeta local y devuelve sus elementos indexados por ruta relativa, con las carpetas
+     * antes que su contenido.
+     */
+    private static Map<String, Item> scanLocal(Path root) throws IOException {
+        Map<String, Item> items = new TreeMap<>();
+
+        Files.walkFileTree(root, new SimpleFileVisitor<>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
+                if (!dir.equals(root)) {
+                    String relative = toRelative(root, dir);
+                    items.put(relative, new Item(relative, true, -1, attrs.lastModifiedTime().toMillis(), 1));
+                }
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                if (attrs.isRegularFile()) {
+                    String relative = toRelative(root, file);
+                    items.put(relative, new Item(relative, false, attrs.size(), attrs.lastModifiedTime().toMillis(), 1));
+                }
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFileFailed(Path file, IOException e) {
+                logger.warn("Could not read {}: {}", file, e.getMessage());
+                return FileVisitResult.CONTINUE;
+            }
+        });
+
+        return items;
+    }
+
+    /**
+     * Recorre en anchura la carpeta remota y devuelve sus elementos indexados por ruta relativa.
+     * Los enlaces simbólicos se ignoran.
+     */
+    private Map<String, Item> scanRemote(String remoteRoot) throws IOException {
+        Map<String, Item> items = new TreeMap<>();
+        Deque<String> pending = new ArrayDeque<>();
+        pending.add("");
+        boolean exactListing = ftpClientManager.getCapabilities().supportsMlsd();
+
+        while (!pending.isEmpty()) {
+            String relativeFolder = pending.poll();
+            String folderPath = relativeFolder.isEmpty() ? remoteRoot : RemoteEntry.join(remoteRoot, relativeFolder);
+
+            for (RemoteEntry entry : ftpClientManager.listEntries(folderPath)) {
+                String name = entry.getName();
+                if (".".equals(name) || "..".equals(name) || entry.getType() == RemoteEntry.Type.SYMBOLIC_LINK) {
+                    continue;
+                }
+
+                String relative = relativeFolder.isEmpty() ? name : relativeFolder + "/" + name;
+                long modificationTime = entry.getModificationTime();
+                items.put(relative, new Item(relative, entry.isDirectory(), entry.getSize(),
+                        modificationTime, precisionOf(modificationTime, exactListing)));
+                if (entry.isDirectory()) {
+                    pending.add(relative);
+                }
+            }
+        }
+
+        return items;
+    }
+
+    /**
+     * Estima la precisión de una fecha del listado. Las de {@code MLSD} incluyen segundos; las de {@code LIST}
+     * suelen dar solo minutos, o solo el día para los archivos antiguos, en cuyo caso la hora queda a medianoche.
+     */
+    private static long precisionOf(long modificationTime, boolean exactListing) {
+        if (modificationTime == RemoteEntry.UNKNOWN) {
+            return Long.MAX_VALUE;
+        }
+        if (exactListing) {
+            return EXACT_PRECISION_MS;
+        }
+        LocalTime time = Instant.ofEpochMilli(modificationTime).atZone(ZoneId.systemDefault()).toLocalTime();
+        return time.equals(LocalTime.MIDNIGHT) ? 24 * 60 * 60_000L : 60_000;
+    }
+
+    private static String toRelative(Path root, Path path) {
+        StringBuilder relative = new StringBuilder();
+        for (Path part : root.relativize(path)) {
+            if (relative.length() > 0) {
+                relative.append('/');
+            }
+            relative.append(part);
+        }
+        return relative.toString();
+    }
+
+    private static boolean isUnder(String relativePath, Set<String> folders) {
+        for (String folder : folders) {
+            if (relativePath.startsWith(folder + "/")) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Elimina un archivo o una carpeta local con todo su contenido.
+     */
+    private static void deleteLocal(Path path) throws IOException {
+        if (!Files.isDirectory(path)) {
+            Files.deleteIfExists(path);
+            return;
+        }
+
+        Files.walkFileTree(path, new SimpleFileVisitor<>() {
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                Files.delete(file);
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult postVisitDirectory(Path dir, IOException e) throws IOException {
+                if (e != null) {
+                    throw e;
+                }
+                Files.delete(dir);
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+
+    private static CompletableFuture<SyncPlan.Action> done(SyncPlan.ActionType type, Item item, String localPath,
+                                                           String remotePath, String reason) {
+        return CompletableFuture.completedFuture(action(type, item, localPath, remotePath, reason));
+    }
+
+    private static SyncPlan.Action action(SyncPlan.ActionType type, Item item, String localPath, String remotePath,
+                                          String reason) {
+        return new SyncPlan.Action(type, item.relativePath, localPath, remotePath, item.folder, reason);
+    }
+
+    /**
+     * Archivo o carpeta de uno de los dos árboles, con los datos necesarios para compararlo.
+     */
+    private static final class Item {
+        private final String relativePath;
+        private final boolean folder;
+        private final long size;
+        private final long modificationTime;
+        private final long precisionMillis;
+
+        private Item(String relativePath, boolean folder, long size, long modificationTime, long precisionMillis) {
+            this.relativePath = relativePath;
+            this.folder = folder;
+            this.size = size;
+            this.modificationTime = modificationTime;
+            this.precisionMillis = precisionMillis;
+        }
+    }
+}
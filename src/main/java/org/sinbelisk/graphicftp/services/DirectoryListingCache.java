@@ -0,0 +1,256 @@
+package org.sinbelisk.graphicftp.services;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Caché de listados de directorios del servidor FTP, indexada por ruta.
+ * Evita repetir un {@code MLSD} o un {@code LIST} (y su conexión de datos) cada vez que se vuelve a abrir
+ * una carpeta o se reconecta al mismo servidor. Guarda las {@link RemoteEntry} ya construidas, de modo que
+ * un listado guardado se entrega igual sea cual sea el comando con que se obtuvo.
+ * <p>
+ * Cada entrada caduca pasado un tiempo configurable y, cuando se supera el número máximo de entradas,
+ * se descarta la usada hace más tiempo (LRU). Las operaciones que modifican el servidor deben invalidar
+ * las rutas afectadas con {@link #invalidate(String)} o {@link #invalidateTree(String)}.
+ * </p>
+ * <p>
+ * Un listado que se pide mientras otra operación modifica la carpeta puede llegar después de que esta la haya
+ * invalidado. Para no guardarlo, quien lista toma antes un sello con {@link #generation()} y lo guarda con
+ * {@link #put(String, RemoteEntry[], long)}, que lo descarta si desde entonces se ha invalidado alguna ruta.
+ * </p>
+ */
+public class DirectoryListingCache {
+    private static final Logger logger = LogManager.getLogger(DirectoryListingCache.class);
+
+    public static final long DEFAULT_TTL_MS = 60_000;
+    public static final int DEFAULT_MAX_ENTRIES = 512;
+
+    private final long ttlMillis;
+    private final int maxEntries;
+    private final LongSupplier clock;
+    private final LinkedHashMap<String, CachedListing> entries;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    // Aumenta con cada invalidación, aunque la ruta no estuviera guardada: puede haber un listado en curso
+    private long generation;
+
+    /**
+     * Constructor de la caché con la caducidad y el tamaño por defecto.
+     */
+    public DirectoryListingCache() {
+        this(DEFAULT_TTL_MS, DEFAULT_MAX_ENTRIES);
+    }
+
+    /**
+     * Constructor de la caché.
+     *
+     * @param ttlMillis  Tiempo en milisegundos que un listado se considera válido.
+     * @param maxEntries Número máximo de directorios guardados.
+     */
+    public DirectoryListingCache(long ttlMillis, int maxEntries) {
+        this(ttlMillis, maxEntries, System::currentTimeMillis);
+    }
+
+    /**
+     * Constructor de la caché con un reloj configurable, para las pruebas.
+     */
+    DirectoryListingCache(long ttlMillis, int maxEntries, LongSupplier clock) {
+        this.ttlMillis = ttlMillis;
+        this.maxEntries = maxEntries;
+        this.clock = clock;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CachedListing> eldest) {
+                if (size() > DirectoryListingCache.this.maxEntries) {
+                    evictions.incrementAndGet();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Obtiene el listado guardado de un directorio si todavía no ha caducado.
+     * El array devuelto es compartido y no debe modificarse.
+     *
+     * @param path Ruta del directorio.
+     * @return El listado guardado, o {@code null} si no hay ninguno válido.
+     */
+    public synchronized RemoteEntry[] get(String path) {
+        String key = normalize(path);
+        CachedListing listing = entries.get(key);
+
+        if (listing == null || clock.getAsLong() - listing.storedAt > ttlMillis) {
+            if (listing != null) {
+                entries.remove(key);
+            }
+            misses.incrementAndGet();
+            return null;
+        }
+
+        hits.incrementAndGet();
+        return listing.entries;
+    }
+
+    /**
+     * Comprueba si hay un listado válido de un directorio sin contarlo como acierto o fallo.
+     * Lo utiliza la precarga de listados para no falsear las estadísticas de la caché.
+     *
+     * @param path Ruta del directorio.
+     * @return El listado guardado, o {@code null} si no hay ninguno válido.
+     */
+    public synchronized RemoteEntry[] peek(String path) {
+        CachedListing listing = entries.get(normalize(path));
+        if (listing == null || clock.getAsLong() - listing.storedAt > ttlMillis) {
+            return null;
+        }
+        return listing.entries;
+    }
+
+    /**
+     * Guarda el listado de un directorio.
+     *
+     * @param path    Ruta del directorio.
+     * @param listing Archivos y carpetas contenidos en el directorio.
+     */
+    public synchronized void put(String path, RemoteEntry[] listing) {
+        entries.put(normalize(path), new CachedListing(listing, clock.getAsLong()));
+    }
+
+    /**
+     * Obtiene el sello de invalidaciones que debe tomarse antes de pedir un listado al servidor.
+     *
+     * @return El número de invalidaciones hechas hasta ahora.
+     */
+    public synchronized long generation() {
+        return generation;
+    }
+
+    /**
+     * Guarda el listado de un directorio solo si no se ha invalidado ninguna ruta desde que se tomó el sello,
+     * ya que el listado podría ser anterior a la modificación que provocó la invalidación.
+     *
+     * @param path       Ruta del directorio.
+     * @param listing    Archivos y carpetas contenidos en el directorio.
+     * @param generation Sello obtenido con {@link #generation()} antes de pedir el listado.
+     * @return true si el listado se ha guardado.
+     */
+    public synchronized boolean put(String path, RemoteEntry[] listing, long generation) {
+        if (generation != this.generation) {
+            logger.debug("Discarding listing of {} fetched before an invalidation", path);
+            return false;
+        }
+        put(path, listing);
+        return true;
+    }
+
+    /**
+     * Descarta el listado de un único directorio.
+     *
+     * @param path Ruta del directorio.
+     */
+    public synchronized void invalidate(String path) {
+        generation++;
+        if (entries.remove(normalize(path)) != null) {
+            logger.debug("Listing cache invalidated: {}", path);
+        }
+    }
+
+    /**
+     * Descarta el listado de un directorio y de todos sus subdirectorios.
+     *
+     * @param path Ruta del directorio raíz del subárbol.
+     */
+    public synchronized void invalidateTree(String path) {
+        generation++;
+        String root = normalize(path);
+        String prefix = root.endsWith("/") ? root : root + "/";
+
+        Iterator<String> keys = entries.keySet().iterator();
+        while (keys.hasNext()) {
+            String key = keys.next();
+            if (key.equals(root) || key.startsWith(prefix)) {
+                keys.remove();
+            }
+        }
+    }
+
+    /**
+     * Descarta el listado del directorio que contiene la ruta indicada.
+     *
+     * @param path Ruta de un archivo o carpeta.
+     */
+    public void invalidateParent(String path) {
+        invalidate(parentOf(path));
+    }
+
+    /**
+     * Vacía la caché por completo.
+     */
+    public synchronized void clear() {
+        generation++;
+        entries.clear();
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    public long getEvictions() {
+        return evictions.get();
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * Obtiene la ruta del directorio padre de una ruta remota.
+     *
+     * @param path Ruta de un archivo o carpeta.
+     * @return La ruta del directorio que lo contiene.
+     */
+    public static String parentOf(String path) {
+        String normalized = normalize(path);
+        int lastSlash = normalized.lastIndexOf('/');
+        return lastSlash <= 0 ? "/" : normalized.substring(0, lastSlash);
+    }
+
+    /**
+     * Normaliza una ruta remota para usarla como clave: la raíz es {@code "/"} y no hay barra final.
+     */
+    private static String normalize(String path) {
+        if (path == null || path.isEmpty() || "/".equals(path)) {
+            return "/";
+        }
+        String normalized = path.startsWith("/") ? path : "/" + path;
+        return normalized.endsWith("/") ? normalized.substring(0, normalized.length() - 1) : normalized;
+    }
+
+    /**
+     * Listado guardado junto con el instante en que se obtuvo.
+     */
+    private static final class CachedListing {
+        private final RemoteEntry[] entries;
+        private final long storedAt;
+
+        private CachedListing(RemoteEntry[] entries, long storedAt) {
+            this.entries = entries;
+            this.storedAt = storedAt;
+        }
+    }
+}
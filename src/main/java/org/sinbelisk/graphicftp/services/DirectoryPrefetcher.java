@@ -0,0 +1,164 @@
+package org.sinbelisk.graphicftp.services;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Precarga en segundo plano los listados de las subcarpetas de una carpeta recién abierta, de modo que
+ * al expandirlas el árbol se rellena desde la {@link DirectoryListingCache} sin esperar al servidor.
+ * <p>
+ * La precarga está acotada: solo se listan las primeras {@code maxDirectories} subcarpetas de cada carpeta,
+ * hasta {@code maxDepth} niveles por debajo de la carpeta abierta, con como mucho {@code maxConcurrent} listados
+ * a la vez. Además, cada listado solo se pide si el pool tiene sesiones libres de sobra
+ * (ver {@link FTPClientManager#prefetchListing(String)}), y al abrir otra carpeta se descartan
+ * las precargas pendientes de la anterior.
+ * </p>
+ */
+public class DirectoryPrefetcher {
+    private static final Logger logger = LogManager.getLogger(DirectoryPrefetcher.class);
+
+    public static final int DEFAULT_MAX_DIRECTORIES = 8;
+    public static final int DEFAULT_MAX_DEPTH = 1;
+    public static final int DEFAULT_MAX_CONCURRENT = 1;
+
+    private final FTPClientManager ftpClientManager;
+    private final Executor executor;
+    private final int maxDirectories;
+    private final int maxDepth;
+
+    // Cada carpeta abierta inicia una generación nueva; las tareas de generaciones anteriores se descartan.
+    private final AtomicLong generation = new AtomicLong();
+    private final Set<String> inFlight = ConcurrentHashMap.newKeySet();
+
+    private final AtomicLong prefetched = new AtomicLong();
+    private final AtomicLong skipped = new AtomicLong();
+
+    /**
+     * Constructor del precargador con los límites por defecto.
+     *
+     * @param ftpClientManager El gestor de conexión cuyas sesiones y caché se utilizan.
+     */
+    public DirectoryPrefetcher(FTPClientManager ftpClientManager) {
+        this(ftpClientManager, DEFAULT_MAX_DIRECTORIES, DEFAULT_MAX_DEPTH, DEFAULT_MAX_CONCURRENT);
+    }
+
+    /**
+     * Constructor del precargador.
+     *
+     * @param ftpClientManager El gestor de conexión cuyas sesiones y caché se utilizan.
+     * @param maxDirectories   Número máximo de subcarpetas que se precargan de cada carpeta.
+     * @param maxDepth         Número de niveles por debajo de la carpeta abierta que se precargan.
+     * @param maxConcurrent    Número máximo de listados de precarga simultáneos.
+     */
+    public DirectoryPrefetcher(FTPClientManager ftpClientManager, int maxDirectories, int maxDepth, int maxConcurrent) {
+        this.ftpClientManager = ftpClientManager;
+        this.executor = ftpClientManager.getTaskExecutor().limitedTo(maxConcurrent);
+        this.maxDirectories = maxDirectories;
+        this.maxDepth = maxDepth;
+    }
+
+    /**
+     * Programa la precarga de las subcarpetas de una carpeta que se acaba de listar.
+     * Las precargas pendientes de carpetas abiertas anteriormente se descartan.
+     *
+     * @param children Archivos y carpetas que contiene; solo se precargan las carpetas.
+     */
+    public void prefetchChildren(List<RemoteEntry> children) {
+        List<String> directories = new ArrayList<>();
+        for (RemoteEntry child : children) {
+            if (child.isDirectory()) {
+                directories.add(child.getPath());
+            }
+        }
+        schedule(directories, 1, generation.incrementAndGet());
+    }
+
+    /**
+     * Descarta las precargas que todavía no han empezado.
+     */
+    public void cancelPending() {
+        generation.incrementAndGet();
+    }
+
+    /**
+     * @return Número máximo de subcarpetas que se precargan de cada carpeta.
+     */
+    public int getMaxDirectories() {
+        return maxDirectories;
+    }
+
+    /**
+     * @return Número de listados precargados.
+     */
+    public long getPrefetched() {
+        return prefetched.get();
+    }
+
+    /**
+     * @return Número de precargas descartadas por falta de sesiones libres o por haberse abierto otra carpeta.
+     */
+    public long getSkipped() {
+        return skipped.get();
+    }
+
+    private void schedule(List<String> directories, int depth, long taskGeneration) {
+        if (depth > maxDepth) {
+            return;
+        }
+
+        int scheduled = 0;
+        for (String path : directories) {
+            if (scheduled >= maxDirectories) {
+                break;
+            }
+            if (inFlight.add(path)) {
+                scheduled++;
+                try {
+                    executor.execute(() -> fetch(path, depth, taskGeneration));
+                } catch (RejectedExecutionException e) {
+                    // La sesión se ha cerrado; no tiene sentido seguir precargando.
+                    inFlight.remove(path);
+                    return;
+                }
+            }
+        }
+    }
+
+    private void fetch(String path, int depth, long taskGeneration) {
+        try {
+            if (taskGeneration != generation.get()) {
+                skipped.incrementAndGet();
+                return;
+            }
+
+            RemoteEntry[] listing = ftpClientManager.prefetchListing(path);
+            if (listing == null) {
+                skipped.incrementAndGet();
+                return;
+            }
+
+            prefetched.incrementAndGet();
+            logger.debug("Prefetched listing of {} ({} entries).", path, listing.length);
+            List<String> directories = new ArrayList<>();
+            for (RemoteEntry child : listing) {
+                if (child.isDirectory() && !".".equals(child.getName()) && !"..".equals(child.getName())) {
+                    directories.add(child.getPath());
+                }
+            }
+            schedule(directories, depth + 1, taskGeneration);
+        } catch (IOException e) {
+            logger.debug("Prefetch of {} failed: {}", path, e.getMessage());
+        } finally {
+            inFlight.remove(path);
+        }
+    }
+}
@@ -1,11 +1,32 @@
 package org.sinbelisk.graphicftp.services;
 
-import java.io.FileInputStream;
-import java.io.FileOutputStream;
+import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.Charset;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
 
+import org.apache.commons.net.ftp.FTP;
 import org.apache.commons.net.ftp.FTPClient;
 import org.apache.commons.net.ftp.FTPFile;
+import org.apache.commons.net.ftp.FTPListParseEngine;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
@@ -13,13 +34,105 @@ import org.apache.logging.log4j.Logger;
  * Clase que gestiona la conexión y autenticación con un servidor FTP.
  * Proporciona métodos para conectarse, iniciar sesión y desconectarse del servidor,
  * además de permitir la subida, descarga, creación, renombrado y eliminación de archivos y carpetas en el servidor.
+ * <p>
+ * Tras el inicio de sesión, todas las operaciones se ejecutan sobre sesiones de un {@link FTPConnectionPool},
+ * por lo que varios listados y transferencias pueden realizarse a la vez sin compartir el canal de control.
+ * </p>
+ * <p>
+ * Todas las sesiones miden sus comandos en un {@link FTPClientMetrics}, que se publica por JMX mientras
+ * hay una sesión iniciada.
+ * </p>
+ * <p>
+ * Las sesiones envían {@code NOOP} por el canal de control cuando están inactivas y durante las transferencias
+ * largas, para que el servidor no las cierre. Si aun así se pierde la conexión, las consultas que pueden
+ * repetirse (listados, {@code SIZE}, {@code MDTM}, {@code HASH}...) se repiten en una sesión nueva, que inicia
+ * sesión otra vez y vuelve al directorio de trabajo inicial.
+ * </p>
+ * <p>
+ * La conexión, las respuestas del canal de control y las conexiones de datos tienen un tiempo máximo de espera,
+ * y la conexión inicial puede hacerse en segundo plano con {@link #connectAndLoginAsync(String, String)}
+ * y cancelarse con {@link #cancelConnect()}. Si el nombre del servidor resuelve a varias direcciones,
+ * se intenta conectar con todas a la vez y se usa la primera que responde.
+ * </p>
+ * <p>
+ * Al iniciar sesión se obtienen las {@link ServerCapabilities} del servidor, que se consultan una vez por servidor,
+ * y cada operación elige según ellas el comando más barato: {@code MLSD} para listar, {@code MLST} para consultar
+ * un único elemento, {@code HASH} para las sumas de comprobación o {@code REST STREAM} para reanudar.
+ * </p>
  */
 public class FTPClientManager {
     private static final Logger logger = LogManager.getLogger(FTPClientManager.class);
 
+    /**
+     * Tamaño a partir del cual una descarga se divide en rangos paralelos (64 MB).
+     */
+    public static final long DEFAULT_SEGMENTED_DOWNLOAD_THRESHOLD = 64L * 1024 * 1024;
+
+    /**
+     * Número máximo de entradas que puede tener un listado paginado para guardarse en la caché.
+     */
+    private static final int MAX_CACHED_PAGED_ENTRIES = 10_000;
+
+    /**
+     * Número de sesiones del pool que la precarga de listados deja siempre libres para las operaciones del usuario.
+     */
+    private static final int PREFETCH_RESERVED_SESSIONS = 1;
+
+    /**
+     * Número de sesiones libres que una descarga segmentada deja sin usar, para que los listados y el resto
+     * de transferencias no tengan que esperar a que termine.
+     */
+    private static final int SEGMENTED_RESERVED_SESSIONS = 1;
+
+    /**
+     * Intervalo por defecto entre los {@code NOOP} que mantienen vivas las sesiones (30 segundos).
+     */
+    public static final long DEFAULT_KEEPALIVE_INTERVAL_MS = 30_000;
+
+    /**
+     * Tiempo máximo por defecto para establecer la conexión TCP con el servidor (10 segundos).
+     */
+    public static final int DEFAULT_CONNECT_TIMEOUT_MS = 10_000;
+
+    /**
+     * Tiempo máximo por defecto de espera de una respuesta en el canal de control (60 segundos).
+     */
+    public static final int DEFAULT_READ_TIMEOUT_MS = 60_000;
+
+    /**
+     * Tiempo máximo por defecto sin recibir datos en una conexión de datos (60 segundos).
+     */
+    public static final int DEFAULT_DATA_TIMEOUT_MS = 60_000;
+
+    /**
+     * Retraso entre el inicio de los intentos de conexión a cada dirección del servidor, como en Happy Eyeballs.
+     */
+    private static final long ADDRESS_RACE_DELAY_MS = 250;
+
     private final FTPClient ftpClient;
     private final String server;
     private final int port;
+    private final int maxConnections;
+    private final RemoteTaskExecutor taskExecutor = new RemoteTaskExecutor("ftp-io-");
+    private final FTPClientMetrics metrics;
+    // Sockets de la carrera de direcciones que todavía se están conectando
+    private final Set<Socket> pendingProbes = ConcurrentHashMap.newKeySet();
+
+    private String username;
+    private String password;
+    private FTPConnectionPool connectionPool;
+    private volatile ServerCapabilities capabilities = ServerCapabilities.UNKNOWN;
+    private long segmentedDownloadThreshold = DEFAULT_SEGMENTED_DOWNLOAD_THRESHOLD;
+    private TransferJournal transferJournal = new TransferJournal(TransferJournal.defaultLocation());
+    private DirectoryListingCache listingCache = new DirectoryListingCache();
+    private volatile TransferProfile transferProfile = new TransferProfile();
+    private long keepAliveInterval = DEFAULT_KEEPALIVE_INTERVAL_MS;
+    private volatile String workingDirectory;
+    private int connectTimeout = DEFAULT_CONNECT_TIMEOUT_MS;
+    private int readTimeout = DEFAULT_READ_TIMEOUT_MS;
+    private int dataTimeout = DEFAULT_DATA_TIMEOUT_MS;
+    private volatile InetAddress resolvedAddress;
+    private volatile boolean connectCancelled;
 
 
     /**
@@ -29,9 +142,24 @@ public class FTPClientManager {
      * @param port   Puerto del servidor FTP.
      */
     public FTPClientManager(String server, int port) {
+        this(server, port, FTPConnectionPool.DEFAULT_MAX_SIZE);
+    }
+
+    /**
+     * Constructor de la clase FTPClientManager con un tamaño de pool personalizado.
+     *
+     * @param server         Dirección del servidor FTP.
+     * @param port           Puerto del servidor FTP.
+     * @param maxConnections Número máximo de sesiones simultáneas con el servidor.
+     */
+    public FTPClientManager(String server, int port, int maxConnections) {
         this.server = server;
         this.port = port;
-        this.ftpClient = new FTPClient();
+        this.maxConnections = maxConnections;
+        this.metrics = new FTPClientMetrics(server + ":" + port);
+        this.ftpClient = new ListingFTPClient();
+        this.ftpClient.addProtocolCommandListener(metrics.newCommandListener());
+        this.ftpClient.addProtocolCommandListener(ReplyRecorder.INSTANCE);
     }
 
     /**
@@ -44,37 +172,547 @@ public class FTPClientManager {
     public boolean connectAndLogin(String username, String password) {
         try {
             logger.info("Connecting to FTP server: {} on port {}", server, port);
-            ftpClient.connect(server, port);
+            connect(ftpClient);
 
             boolean loginSuccess = ftpClient.login(username, password);
 
             if (loginSuccess) {
                 logger.info("User '{}' logged in successfully", username);
                 //ftpClient.enterLocalPassiveMode();
+                this.username = username;
+                this.password = password;
+                workingDirectory = ftpClient.printWorkingDirectory();
+                capabilities = ServerCapabilities.forHost(server + ":" + port, ftpClient);
+                configureSession(ftpClient);
+                connectionPool = new FTPConnectionPool(this::openSession, maxConnections);
+                connectionPool.seed(ftpClient);
+                connectionPool.startKeepAlive(keepAliveInterval);
+                metrics.recordSessionOpened();
+                metrics.attachPool(connectionPool);
+                metrics.register();
             } else {
                 logger.warn("Login failed for user '{}'.", username);
             }
 
+            if (loginSuccess && connectCancelled) {
+                logger.info("Connection to {} cancelled after login.", server);
+                disconnect();
+                return false;
+            }
             return loginSuccess;
         } catch (IOException e) {
-            logger.error("Error connecting to FTP server: {}", e.getMessage());
+            if (connectCancelled) {
+                logger.info("Connection to {} cancelled.", server);
+            } else {
+                logger.error("Error connecting to FTP server: {}", e.getMessage());
+            }
+            return false;
+        } catch (RuntimeException e) {
+            // Cerrar el socket desde otro hilo puede interrumpir la conexión en un estado intermedio.
+            if (!connectCancelled) {
+                throw e;
+            }
+            logger.info("Connection to {} cancelled.", server);
             return false;
         }
     }
 
     /**
-     * Obtiene el cliente FTP subyacente.
+     * Conecta e inicia sesión en segundo plano, sin bloquear el hilo que lo llama.
      *
-     * @return Instancia de {@link FTPClient} utilizada en la conexión.
+     * @param username Nombre de usuario para la autenticación.
+     * @param password Contraseña del usuario.
+     * @return Futuro que se completa con el resultado de {@link #connectAndLogin(String, String)}.
+     */
+    public CompletableFuture<Boolean> connectAndLoginAsync(String username, String password) {
+        return CompletableFuture.supplyAsync(() -> connectAndLogin(username, password), taskExecutor);
+    }
+
+    /**
+     * Cancela una conexión en curso: cierra los sockets que se están conectando, de modo que
+     * {@link #connectAndLogin(String, String)} termina enseguida devolviendo false. Si la sesión llegó
+     * a iniciarse, se desconecta.
      */
-    public FTPClient getFtpClient() {
-        return ftpClient;
+    public void cancelConnect() {
+        connectCancelled = true;
+        for (Socket probe : pendingProbes) {
+            closeQuietly(probe);
+        }
+        try {
+            ftpClient.disconnect();
+        } catch (IOException e) {
+            logger.debug("Error closing cancelled connection: {}", e.getMessage());
+        }
+        if (connectionPool != null) {
+            disconnect();
+        }
+    }
+
+    /**
+     * Abre una nueva sesión autenticada con las credenciales del inicio de sesión.
+     * La utiliza el {@link FTPConnectionPool} cuando necesita más conexiones o sustituye una sesión perdida;
+     * la sesión se sitúa en el mismo directorio de trabajo que tenía la primera tras iniciar sesión.
+     *
+     * @return Una sesión FTP conectada y autenticada.
+     * @throws IOException si no se puede conectar o el servidor rechaza las credenciales.
+     */
+    private FTPClient openSession() throws IOException {
+        FTPClient client = new ListingFTPClient();
+        client.addProtocolCommandListener(metrics.newCommandListener());
+        client.addProtocolCommandListener(ReplyRecorder.INSTANCE);
+        connect(client);
+
+        if (!client.login(username, password)) {
+            client.disconnect();
+            throw new IOException("Login rejected for pooled session of user '" + username + "'");
+        }
+
+        String directory = workingDirectory;
+        if (directory != null && !client.changeWorkingDirectory(directory)) {
+            logger.warn("Could not restore working directory {} on a new FTP session.", directory);
+        }
+
+        configureSession(client);
+        metrics.recordSessionOpened();
+        return client;
+    }
+
+    /**
+     * Aplica a una sesión recién iniciada el intérprete de listados del servidor, el perfil de transferencia
+     * y el {@code NOOP} periódico durante las transferencias, que evita que el servidor o un cortafuegos cierren el canal de control por inactividad.
+     */
+    private void configureSession(FTPClient client) {
+        capabilities.configure(client);
+        transferProfile.applyTo(client);
+        client.setControlKeepAliveTimeout(Duration.ofMillis(keepAliveInterval));
+        client.setDataTimeout(Duration.ofMillis(dataTimeout));
+    }
+
+    /**
+     * Conecta una sesión con el servidor y registra el tiempo de conexión como el comando {@code CONNECT}.
+     */
+    private void connect(FTPClient client) throws IOException {
+        long start = System.nanoTime();
+        boolean failed = true;
+        try {
+            // Sin límite de espera, una conexión cortada sin aviso bloquearía la operación indefinidamente.
+            client.setConnectTimeout(connectTimeout);
+            client.setDefaultTimeout(readTimeout);
+            client.connect(resolveAddress(), port);
+            failed = false;
+        } finally {
+            metrics.recordCommand("CONNECT", System.nanoTime() - start, failed);
+        }
+    }
+
+    /**
+     * Obtiene la dirección del servidor. Se resuelve una sola vez por conexión; las sesiones del pool reutilizan
+     * la dirección que respondió primero.
+     */
+    private InetAddress resolveAddress() throws IOException {
+        InetAddress address = resolvedAddress;
+        if (address == null) {
+            InetAddress[] addresses = InetAddress.getAllByName(server);
+            address = addresses.length == 1 ? addresses[0] : raceAddresses(addresses);
+            resolvedAddress = address;
+        }
+        return address;
+    }
+
+    /**
+     * Intenta conectar a la vez con todas las direcciones del servidor, empezando cada intento
+     * {@link #ADDRESS_RACE_DELAY_MS} después del anterior en el orden que da el sistema, y devuelve la primera
+     * que acepta la conexión. Así, una dirección inaccesible no hace esperar al usuario todo el tiempo de conexión.
+     *
+     * @param addresses Direcciones del servidor.
+     * @return La primera dirección que ha aceptado una conexión TCP.
+     * @throws IOException si ninguna dirección acepta la conexión.
+     */
+    InetAddress raceAddresses(InetAddress[] addresses) throws IOException {
+        CompletableFuture<InetAddress> winner = new CompletableFuture<>();
+        AtomicInteger failures = new AtomicInteger();
+
+        for (int i = 0; i < addresses.length; i++) {
+            InetAddress address = addresses[i];
+            long delay = i * ADDRESS_RACE_DELAY_MS;
+            taskExecutor.execute(() -> {
+                if (delay > 0 && isDecidedWithin(winner, delay)) {
+                    return;
+                }
+                Socket probe = new Socket();
+                pendingProbes.add(probe);
+                try (probe) {
+                    probe.connect(new InetSocketAddress(address, port), connectTimeout);
+                    winner.complete(address);
+                } catch (IOException e) {
+                    logger.debug("Address {} did not answer: {}", address, e.getMessage());
+                    if (failures.incrementAndGet() == addresses.length) {
+                        winner.completeExceptionally(e);
+                    }
+                } finally {
+                    pendingProbes.remove(probe);
+                }
+            });
+        }
+
+        try {
+            InetAddress address = winner.get();
+            logger.info("Server {} resolved to {} addresses, {} answered first.", server, addresses.length, address);
+            return address;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while connecting to " + server, e);
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof IOException ? (IOException) e.getCause()
+                    : new IOException("Could not connect to " + server, e.getCause());
+        } finally {
+            // Los intentos que siguen en curso ya no hacen falta.
+            for (Socket probe : pendingProbes) {
+                closeQuietly(probe);
+            }
+        }
+    }
+
+    /**
+     * Espera hasta el tiempo indicado a que la carrera de direcciones tenga ganador.
+     */
+    private static boolean isDecidedWithin(CompletableFuture<InetAddress> winner, long delayMs) {
+        try {
+            winner.get(delayMs, TimeUnit.MILLISECONDS);
+            return true;
+        } catch (TimeoutException | ExecutionException e) {
+            return false;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return true;
+        }
+    }
+
+    private static void disconnectQuietly(FTPClient client) {
+        try {
+            client.disconnect();
+        } catch (IOException e) {
+            logger.debug("Error closing FTP session: {}", e.getMessage());
+        }
+    }
+
+    private static void closeQuietly(Socket socket) {
+        try {
+            socket.close();
+        } catch (IOException e) {
+            logger.debug("Error closing socket: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Obtiene las métricas de los comandos enviados por todas las sesiones de este gestor.
+     *
+     * @return El registro de métricas, publicado por JMX mientras hay una sesión iniciada.
+     */
+    public FTPClientMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Obtiene el pool de sesiones del servidor.
+     *
+     * @return El pool de conexiones, o {@code null} si todavía no se ha iniciado sesión.
+     */
+    public FTPConnectionPool getConnectionPool() {
+        return connectionPool;
+    }
+
+    /**
+     * Obtiene el ejecutor en el que deben lanzarse todas las tareas que bloquean esperando al servidor.
+     * Se detiene al desconectar.
+     *
+     * @return El ejecutor de tareas remotas de esta sesión.
+     */
+    public RemoteTaskExecutor getTaskExecutor() {
+        return taskExecutor;
+    }
+
+    /**
+     * @return Número máximo de sesiones simultáneas con el servidor.
+     */
+    public int getMaxConnections() {
+        return maxConnections;
+    }
+
+    /**
+     * Indica si hay una sesión activa con el servidor.
+     *
+     * @return true si se ha iniciado sesión y no se ha desconectado, false en caso contrario.
+     */
+    public boolean isConnected() {
+        return connectionPool != null && !connectionPool.isClosed();
+    }
+
+    /**
+     * Obtiene el pool de conexiones comprobando que se haya iniciado sesión.
+     *
+     * @return El pool de conexiones activo.
+     * @throws IOException si no hay una sesión activa.
+     */
+    private FTPConnectionPool requirePool() throws IOException {
+        if (!isConnected()) {
+            throw new IOException("Not connected to FTP server " + server);
+        }
+        return connectionPool;
+    }
+
+    /**
+     * Lista los archivos y carpetas de una ruta del servidor FTP.
+     * Si la {@link DirectoryListingCache} tiene un listado válido de la ruta, se devuelve sin consultar al servidor.
+     *
+     * @param remotePath Ruta de la carpeta en el servidor FTP.
+     * @return Los archivos y carpetas contenidos en la ruta. El array no debe modificarse.
+     * @throws IOException si ocurre un error al obtener el listado.
+     */
+    public RemoteEntry[] listEntries(String remotePath) throws IOException {
+        RemoteEntry[] cached = listingCache.get(remotePath);
+        if (cached != null) {
+            return cached;
+        }
+
+        long generation = listingCache.generation();
+        RemoteEntry[] entries = requirePool().executeIdempotent(client -> listEntries(client, remotePath));
+        listingCache.put(remotePath, entries, generation);
+        return entries;
+    }
+
+    /**
+     * Lista los archivos y carpetas de una ruta del servidor FTP entregándolos por páginas.
+     * <p>
+     * Si el servidor admite {@code MLSD}, el {@link MlsdParser} construye las entradas directamente desde los bytes
+     * de la conexión de datos y entrega cada página en cuanto la ha leído, de modo que el llamante puede mostrar
+     * las primeras entradas mientras el resto del listado sigue llegando; la sesión queda ocupada hasta el final
+     * del listado, así que el receptor no debe bloquearse. Si no, el listado {@code LIST} se obtiene con un
+     * {@link FTPListParseEngine}: la sesión se devuelve al pool en cuanto termina la transferencia de datos
+     * y las líneas se interpretan página a página con {@code getNext(pageSize)}.
+     * </p>
+     * <p>
+     * Un listado válido en la {@link DirectoryListingCache}, por ejemplo el de una precarga, se entrega sin consultar
+     * al servidor. Los listados obtenidos se guardan en ella salvo los que superan {@link #MAX_CACHED_PAGED_ENTRIES}
+     * entradas, que no se guardan para no retenerlos en memoria.
+     * </p>
+     *
+     * @param remotePath   Ruta de la carpeta en el servidor FTP.
+     * @param pageSize     Número máximo de entradas por página.
+     * @param pageConsumer Receptor de cada página, llamado en el hilo actual.
+     * @throws IOException si ocurre un error al obtener el listado.
+     */
+    public void listEntriesInPages(String remotePath, int pageSize, Consumer<RemoteEntry[]> pageConsumer)
+            throws IOException {
+        RemoteEntry[] cached = listingCache.get(remotePath);
+        if (cached != null) {
+            for (int from = 0; from < cached.length; from += pageSize) {
+                pageConsumer.accept(Arrays.copyOfRange(cached, from, Math.min(cached.length, from + pageSize)));
+            }
+            return;
+        }
+
+        long generation = listingCache.generation();
+        ListingCollector collector = new ListingCollector(pageConsumer);
+        if (capabilities.supportsMlsd()) {
+            requirePool().executeIdempotent(client -> {
+                // Un reintento tras entregar alguna página la repetiría, así que solo se reintenta antes de empezar
+                if (collector.delivered > 0) {
+                    throw new IOException("MLSD " + remotePath + " interrupted after " + collector.delivered + " entries");
+                }
+                streamEntries(client, remotePath, pageSize, collector);
+                return null;
+            });
+        } else {
+            FTPListParseEngine engine = requirePool().executeIdempotent(client -> client.initiateListParsing(remotePath));
+            while (engine.hasNext()) {
+                collector.accept(toEntries(remotePath, removeSkippedEntries(engine.getNext(pageSize))));
+            }
+        }
+
+        if (collector.collected != null) {
+            listingCache.put(remotePath, collector.collected.toArray(new RemoteEntry[0]), generation);
+        }
+    }
+
+    /**
+     * Lista una carpeta con una sesión ya prestada: con {@code MLSD} si el servidor lo admite,
+     * ya que sus líneas no dependen del formato del servidor e incluyen fechas exactas, y con {@code LIST} si no.
+     *
+     * @param client     Sesión FTP.
+     * @param remotePath Ruta de la carpeta en el servidor FTP.
+     * @return Las entradas contenidas en la ruta.
+     * @throws IOException si ocurre un error al obtener el listado o el servidor no confirma la transferencia.
+     */
+    RemoteEntry[] listEntries(FTPClient client, String remotePath) throws IOException {
+        if (!capabilities.supportsMlsd()) {
+            return toEntries(remotePath, client.listFiles(remotePath));
+        }
+
+        List<RemoteEntry> entries = new ArrayList<>();
+        streamEntries(client, remotePath, Integer.MAX_VALUE, page -> entries.addAll(Arrays.asList(page)));
+        return entries.toArray(new RemoteEntry[0]);
+    }
+
+    /**
+     * Lista una carpeta con {@code MLSD} en una sesión ya prestada, interpretando los bytes recibidos con
+     * {@link MlsdParser} y entregando las páginas a medida que llegan. Las sesiones que no son
+     * {@link ListingFTPClient} usan {@link FTPClient#mlistDir(String)} y entregan el listado de una vez.
+     * Si el listado se interrumpe, porque falla la lectura o porque el receptor lanza una excepción,
+     * la sesión se cierra y el pool no la reutiliza.
+     */
+    private void streamEntries(FTPClient client, String remotePath, int pageSize, Consumer<RemoteEntry[]> pageConsumer)
+            throws IOException {
+        if (!(client instanceof ListingFTPClient listingClient)) {
+            RemoteEntry[] entries = toEntries(remotePath, removeSkippedEntries(client.mlistDir(remotePath)));
+            if (entries.length > 0) {
+                pageConsumer.accept(entries);
+            }
+            return;
+        }
+
+        InputStream listing = listingClient.openMachineListing(remotePath);
+        if (listing == null) {
+            // Igual que mlistDir, una carpeta que no se puede listar se trata como vacía
+            logger.warn("MLSD {} rejected: {}", remotePath, client.getReplyString().trim());
+            return;
+        }
+
+        try (listing) {
+            MlsdParser.parse(listing, remotePath, Charset.forName(client.getControlEncoding()), pageSize, pageConsumer);
+        } catch (IOException | RuntimeException e) {
+            // Sin leer la respuesta final del MLSD, la siguiente orden de la sesión recibiría esa respuesta
+            // en lugar de la suya: se cierra para que el pool la descarte al devolverla.
+            disconnectQuietly(client);
+            throw e;
+        }
+        if (!client.completePendingCommand()) {
+            throw new IOException("MLSD " + remotePath + " failed: " + client.getReplyString().trim());
+        }
+    }
+
+    private static RemoteEntry[] toEntries(String parentPath, FTPFile[] files) {
+        RemoteEntry[] entries = new RemoteEntry[files.length];
+        for (int i = 0; i < files.length; i++) {
+            entries[i] = RemoteEntry.of(parentPath, files[i]);
+        }
+        return entries;
+    }
+
+    /**
+     * Receptor de páginas que las reenvía al llamante y guarda una copia para la caché mientras el listado
+     * no supera {@link #MAX_CACHED_PAGED_ENTRIES} entradas.
+     */
+    private static final class ListingCollector implements Consumer<RemoteEntry[]> {
+        private final Consumer<RemoteEntry[]> pageConsumer;
+        private List<RemoteEntry> collected = new ArrayList<>();
+        private int delivered;
+
+        private ListingCollector(Consumer<RemoteEntry[]> pageConsumer) {
+            this.pageConsumer = pageConsumer;
+        }
+
+        @Override
+        public void accept(RemoteEntry[] page) {
+            delivered += page.length;
+            pageConsumer.accept(page);
+            if (collected != null && collected.size() + page.length <= MAX_CACHED_PAGED_ENTRIES) {
+                collected.addAll(Arrays.asList(page));
+            } else {
+                collected = null;
+            }
+        }
+    }
+
+    /**
+     * Obtiene el listado de una carpeta para la precarga, sin competir con las operaciones del usuario.
+     * Si la caché ya tiene un listado válido se devuelve sin consultar al servidor. En otro caso, el listado solo
+     * se pide si quedan más de {@link #PREFETCH_RESERVED_SESSIONS} sesiones libres en el pool y se guarda en la
+     * {@link DirectoryListingCache}, para que al expandir la carpeta se muestre sin esperar al servidor,
+     * salvo que alguna operación haya invalidado la caché mientras tanto.
+     *
+     * @param remotePath Ruta de la carpeta en el servidor FTP.
+     * @return El listado de la carpeta, o {@code null} si no había sesiones libres.
+     * @throws IOException si ocurre un error al obtener el listado.
+     */
+    public RemoteEntry[] prefetchListing(String remotePath) throws IOException {
+        RemoteEntry[] cached = listingCache.peek(remotePath);
+        if (cached != null) {
+            return cached;
+        }
+
+        FTPConnectionPool pool = requirePool();
+        if (pool.getAvailableCount() <= PREFETCH_RESERVED_SESSIONS) {
+            return null;
+        }
+
+        long generation = listingCache.generation();
+        RemoteEntry[] entries = pool.tryExecute(client -> listEntries(client, remotePath));
+        if (entries != null && entries.length <= MAX_CACHED_PAGED_ENTRIES) {
+            // Si la carpeta se ha modificado mientras tanto, el listado puede ser anterior al cambio
+            listingCache.put(remotePath, entries, generation);
+        }
+        return entries;
+    }
+
+    /**
+     * Elimina de una página las líneas que el intérprete del listado no ha podido reconocer y las entradas
+     * de {@code MLSD} que describen la propia carpeta o su carpeta padre ({@code type=cdir} y {@code type=pdir}).
+     */
+    private static FTPFile[] removeSkippedEntries(FTPFile[] page) {
+        int valid = 0;
+        for (FTPFile file : page) {
+            if (file != null && !isSelfOrParentEntry(file)) {
+                page[valid++] = file;
+            }
+        }
+        return valid == page.length ? page : Arrays.copyOf(page, valid);
+    }
+
+    private static boolean isSelfOrParentEntry(FTPFile file) {
+        String raw = file.getRawListing();
+        if (raw == null || !file.isDirectory()) {
+            return false;
+        }
+        // Los hechos van antes del primer espacio; el resto de la línea es el nombre
+        int space = raw.indexOf(' ');
+        String facts = (space < 0 ? raw : raw.substring(0, space)).toLowerCase(Locale.ROOT);
+        return facts.contains("type=cdir;") || facts.contains("type=pdir;");
+    }
+
+    /**
+     * Obtiene la caché de listados de directorios.
+     *
+     * @return La caché de listados utilizada por {@link #listEntries(String)}.
+     */
+    public DirectoryListingCache getListingCache() {
+        return listingCache;
+    }
+
+    /**
+     * Establece la caché de listados de directorios. Permite conservar los listados entre reconexiones
+     * al mismo servidor.
+     *
+     * @param listingCache La caché de listados.
+     */
+    public void setListingCache(DirectoryListingCache listingCache) {
+        this.listingCache = listingCache;
     }
 
     /**
      * Cierra la sesión y desconecta el cliente FTP si está conectado.
+     * También cierra todas las sesiones del pool de conexiones y detiene el ejecutor de tareas remotas.
      */
     public void disconnect() {
+        taskExecutor.shutdown();
+        if (connectionPool != null) {
+            connectionPool.close();
+        }
+        logger.info("Listing cache stats: {} hits, {} misses, {} evictions",
+                listingCache.getHits(), listingCache.getMisses(), listingCache.getEvictions());
+        logger.info("Command metrics for {}", metrics);
+        metrics.unregister();
+
         try {
             if (ftpClient.isConnected()) {
                 ftpClient.logout();
@@ -88,16 +726,68 @@ public class FTPClientManager {
 
     /**
      * Sube un archivo al servidor FTP.
+     * Si el {@link TransferJournal} tiene una subida pendiente del mismo archivo sin modificar, la subida continúa
+     * desde el tamaño que ya tiene el archivo remoto usando {@code REST} + {@code STOR}, o {@code APPE}
+     * si el servidor no admite {@code REST STREAM}.
      *
      * @param localFilePath Ruta del archivo local.
      * @param remotePath Ruta en el servidor FTP donde se guardará el archivo.
      * @return true si la subida es exitosa, false en caso contrario.
      */
     public boolean uploadFile(String localFilePath, String remotePath) {
-        try (FileInputStream fis = new FileInputStream(localFilePath)) {
+        return uploadFile(localFilePath, remotePath, null, null);
+    }
+
+    /**
+     * Sube un archivo al servidor FTP calculando a la vez la suma de comprobación de los bytes enviados
+     * e informando del progreso. Si la subida se reanuda, la calculadora solo recibe la parte enviada en este intento.
+     *
+     * @param localFilePath Ruta del archivo local.
+     * @param remotePath Ruta en el servidor FTP donde se guardará el archivo.
+     * @param checksum Calculadora que recibe los bytes enviados, o {@code null}.
+     * @param progress Progreso que se actualiza con cada bloque enviado, o {@code null}.
+     * @return true si la subida es exitosa, false en caso contrario.
+     */
+    public boolean uploadFile(String localFilePath, String remotePath, RemoteChecksum.Calculator checksum,
+                              TransferProgress progress) {
+        File localFile = new File(localFilePath);
+        TransferJournal.Entry pending = findPendingTransfer(TransferJob.Direction.UPLOAD, remotePath, localFilePath,
+                localFile.length(), localFile.lastModified());
+        long offset = pending == null ? 0 : getUploadResumeOffset(remotePath, localFile.length());
+        boolean useRest = offset > 0 && isRestStreamSupported();
+        TransferJournal.Entry entry = new TransferJournal.Entry(TransferJob.Direction.UPLOAD, remotePath, localFilePath,
+                localFile.length(), localFile.lastModified(), offset);
+
+        TransferProfile profile = transferProfile;
+        boolean success = false;
+        try (InputStream fis = transferJournal.track(withChecksum(openLocalInput(localFile, offset, profile), checksum),
+                entry)) {
+            if (offset > 0) {
+                logger.info("Resuming upload of {} at byte {} ({})", localFilePath, offset, useRest ? "REST" : "APPE");
+            }
             logger.info("Uploading file: {} -> {}", localFilePath, remotePath);
+            if (progress != null) {
+                progress.start(localFile.length(), offset);
+            }
 
-            boolean success = ftpClient.storeFile(remotePath, fis);
+            success = requirePool().executeTransfer(client -> {
+                client.setFileType(FTP.BINARY_FILE_TYPE);
+                profile.applyTo(client);
+                client.setCopyStreamListener(progress);
+                try {
+                    if (offset == 0) {
+                        return client.storeFile(remotePath, fis);
+                    }
+                    if (useRest) {
+                        client.setRestartOffset(offset);
+                        return client.storeFile(remotePath, fis);
+                    }
+                    return client.appendFile(remotePath, fis);
+                } finally {
+                    // La sesión vuelve al pool y no debe seguir informando a este progreso.
+                    client.setCopyStreamListener(null);
+                }
+            });
 
             if (success) {
                 logger.info("File '{}' uploaded successfully", remotePath);
@@ -108,22 +798,203 @@ public class FTPClientManager {
             return success;
         } catch (IOException e) {
             logger.error("Error uploading file: {}", e.getMessage(), e);
+            ReplyRecorder.recordFailure(e);
             return false;
+        } finally {
+            finishProgress(progress);
+            metrics.addBytesSent(entry.getBytesConfirmed() - offset);
+            updateJournal(entry, success);
+            // Incluso una subida fallida puede haber dejado un archivo parcial en el servidor.
+            listingCache.invalidateParent(remotePath);
         }
     }
 
     /**
      * Descarga un archivo del servidor FTP.
+     * Si el archivo supera el umbral de descarga segmentada y, además de {@link #SEGMENTED_RESERVED_SESSIONS},
+     * quedan al menos dos sesiones libres en el pool, se descarga en varios rangos paralelos con
+     * {@link #downloadFileSegmented(String, String, int)}, uno por cada sesión libre no reservada.
+     * Las descargas con una entrada pendiente en el {@link TransferJournal} se reanudan: las segmentadas descargan
+     * solo los rangos que faltan, si sigue habiendo sesiones libres, y el resto en un único flujo.
      *
      * @param remotePath Ruta del archivo en el servidor FTP.
      * @param localFilePath Ruta local donde se guardará el archivo descargado.
      * @return true si la descarga es exitosa, false en caso contrario.
      */
     public boolean downloadFile(String remotePath, String localFilePath) {
+        return downloadFile(remotePath, localFilePath, null, null);
+    }
+
+    /**
+     * Descarga un archivo del servidor FTP calculando a la vez la suma de comprobación de los bytes recibidos
+     * e informando del progreso. Las descargas segmentadas o reanudadas no alimentan la calculadora
+     * con el archivo completo.
+     *
+     * @param remotePath Ruta del archivo en el servidor FTP.
+     * @param localFilePath Ruta local donde se guardará el archivo descargado.
+     * @param checksum Calculadora que recibe los bytes descargados, o {@code null}.
+     * @param progress Progreso que se actualiza con cada bloque recibido, o {@code null}.
+     * @return true si la descarga es exitosa, false en caso contrario.
+     */
+    public boolean downloadFile(String remotePath, String localFilePath, RemoteChecksum.Calculator checksum,
+                                TransferProgress progress) {
+        TransferJournal.Entry pending = transferJournal.find(TransferJob.Direction.DOWNLOAD, remotePath, localFilePath);
+        int segments = isConnected() ? connectionPool.getAvailableCount() - SEGMENTED_RESERVED_SESSIONS : 0;
+        if ((pending != null && !pending.isSegmented()) || segments < 2 || !isRestStreamSupported()) {
+            return downloadFileSingleStream(remotePath, localFilePath, checksum, progress);
+        }
+
+        // El tamaño se pide una sola vez y se reutiliza en el camino que se elija
+        long size = getRemoteFileSize(remotePath);
+        if (pending != null || size >= segmentedDownloadThreshold) {
+            return downloadFileSegmented(remotePath, localFilePath, size, segments, progress);
+        }
+        return downloadFileSingleStream(remotePath, localFilePath, size, checksum, progress);
+    }
+
+    /**
+     * Descarga un archivo del servidor FTP dividiéndolo en rangos que se transfieren en paralelo,
+     * cada uno con su propia sesión del pool y un desplazamiento {@code REST}. Solo la primera sesión se espera;
+     * el resto de rangos se reparten entre las sesiones que estén libres (ver {@link SegmentedDownloader}).
+     * Si el servidor no anuncia {@code REST STREAM} o no informa del tamaño del archivo,
+     * se descarga en un único flujo.
+     *
+     * @param remotePath Ruta del archivo en el servidor FTP.
+     * @param localFilePath Ruta local donde se guardará el archivo descargado.
+     * @param segments Número máximo de rangos en que se divide el archivo.
+     * @return true si la descarga es exitosa, false en caso contrario.
+     */
+    public boolean downloadFileSegmented(String remotePath, String localFilePath, int segments) {
+        return downloadFileSegmented(remotePath, localFilePath, segments, null);
+    }
+
+    /**
+     * Descarga un archivo en varios rangos paralelos informando del progreso conjunto de todos ellos.
+     *
+     * @param remotePath Ruta del archivo en el servidor FTP.
+     * @param localFilePath Ruta local donde se guardará el archivo descargado.
+     * @param segments Número de rangos en que se divide el archivo.
+     * @param progress Progreso que se actualiza con cada bloque recibido por cualquier rango, o {@code null}.
+     * @return true si la descarga es exitosa, false en caso contrario.
+     */
+    public boolean downloadFileSegmented(String remotePath, String localFilePath, int segments,
+                                         TransferProgress progress) {
+        if (segments < 2 || !isRestStreamSupported()) {
+            logger.info("Segmented download not available for {}, using a single stream.", remotePath);
+            return downloadFileSingleStream(remotePath, localFilePath, null, progress);
+        }
+        return downloadFileSegmented(remotePath, localFilePath, getRemoteFileSize(remotePath), segments, progress);
+    }
+
+    /**
+     * Descarga en varios rangos paralelos un archivo cuyo tamaño ya se ha obtenido del servidor.
+     * Si el {@link TransferJournal} tiene una descarga segmentada pendiente del mismo archivo remoto sin modificar
+     * y el archivo local conserva su tamaño, solo se descargan los rangos que faltan.
+     * Si el tamaño no se conoce, se descarga en un único flujo.
+     */
+    private boolean downloadFileSegmented(String remotePath, String localFilePath, long size, int segments,
+                                          TransferProgress progress) {
+        if (size <= 0) {
+            logger.info("Segmented download not available for {}, using a single stream.", remotePath);
+            return downloadFileSingleStream(remotePath, localFilePath, size, null, progress);
+        }
+
+        long modificationTime = getRemoteModificationTime(remotePath);
+        TransferJournal.Entry pending = findPendingTransfer(TransferJob.Direction.DOWNLOAD, remotePath, localFilePath,
+                size, modificationTime);
+        TransferJournal.Entry entry = pending != null && pending.isSegmented()
+                && new File(localFilePath).length() == size ? pending
+                : new TransferJournal.Entry(TransferJob.Direction.DOWNLOAD, remotePath, localFilePath, size,
+                modificationTime, 0);
+        long offset = entry.getBytesConfirmed();
+
+        boolean success = false;
+        try {
+            if (offset > 0) {
+                logger.info("Resuming segmented download of {} with {} bytes already confirmed", remotePath, offset);
+            }
+            logger.info("Downloading file in {} segments: {} ({} bytes) -> {}", segments, remotePath, size, localFilePath);
+            if (progress != null) {
+                progress.start(size, offset);
+            }
+            success = new SegmentedDownloader(requirePool(), taskExecutor, transferProfile)
+                    .download(entry, segments, progress, transferJournal);
+            if (success) {
+                logger.info("File downloaded successfully: {}", localFilePath);
+            } else {
+                logger.warn("Error downloading file: {}", remotePath);
+            }
+
+            return success;
+        } catch (IOException e) {
+            logger.error("Error downloading file: ", e);
+            ReplyRecorder.recordFailure(e);
+            return false;
+        } finally {
+            finishProgress(progress);
+            metrics.addBytesReceived(entry.getBytesConfirmed() - offset);
+            updateJournal(entry, success);
+        }
+    }
+
+    /**
+     * Descarga un archivo del servidor FTP en un único flujo de datos.
+     * Si el {@link TransferJournal} tiene una descarga pendiente del mismo archivo remoto sin modificar,
+     * la descarga continúa desde el último byte confirmado usando {@code REST} + {@code RETR}.
+     *
+     * @param remotePath Ruta del archivo en el servidor FTP.
+     * @param localFilePath Ruta local donde se guardará el archivo descargado.
+     * @param checksum Calculadora que recibe los bytes descargados, o {@code null}.
+     * @param progress Progreso que se actualiza con cada bloque recibido, o {@code null}.
+     * @return true si la descarga es exitosa, false en caso contrario.
+     */
+    boolean downloadFileSingleStream(String remotePath, String localFilePath, RemoteChecksum.Calculator checksum,
+                                     TransferProgress progress) {
+        return downloadFileSingleStream(remotePath, localFilePath, getRemoteFileSize(remotePath), checksum, progress);
+    }
 
-        try (FileOutputStream fos = new FileOutputStream(localFilePath)) {
+    /**
+     * Descarga en un único flujo un archivo cuyo tamaño ya se ha obtenido del servidor, o -1 si no lo proporciona.
+     */
+    private boolean downloadFileSingleStream(String remotePath, String localFilePath, long size,
+                                             RemoteChecksum.Calculator checksum, TransferProgress progress) {
+        long modificationTime = getRemoteModificationTime(remotePath);
+        TransferJournal.Entry pending = findPendingTransfer(TransferJob.Direction.DOWNLOAD, remotePath, localFilePath,
+                size, modificationTime);
+
+        long offset = 0;
+        if (pending != null && new File(localFilePath).length() >= pending.getResumeOffset() && isRestStreamSupported()) {
+            // De una descarga segmentada solo se aprovecha la parte confirmada sin huecos desde el principio
+            offset = pending.getResumeOffset();
+        }
+        TransferJournal.Entry entry = new TransferJournal.Entry(TransferJob.Direction.DOWNLOAD, remotePath, localFilePath,
+                size, modificationTime, offset);
+
+        TransferProfile profile = transferProfile;
+        boolean success = false;
+        try (OutputStream fos = transferJournal.track(withChecksum(LocalFileChannels.openOutput(Path.of(localFilePath), offset),
+                checksum), entry)) {
+            if (offset > 0) {
+                logger.info("Resuming download of {} at byte {}", remotePath, offset);
+            }
             logger.info("Downloading file: {} -> {}", remotePath, localFilePath);
-            boolean success = ftpClient.retrieveFile(remotePath, fos);
+
+            if (progress != null) {
+                progress.start(size, offset);
+            }
+
+            long restartOffset = offset;
+            success = requirePool().executeTransfer(client -> {
+                client.setFileType(FTP.BINARY_FILE_TYPE);
+                profile.applyTo(client);
+                client.setRestartOffset(restartOffset);
+                client.setCopyStreamListener(progress);
+                try {
+                    return client.retrieveFile(remotePath, fos);
+                } finally {
+                    client.setCopyStreamListener(null);
+                }
+            });
 
             if (success) {
                 logger.info("File downloaded successfully: {}", localFilePath);
@@ -134,8 +1005,252 @@ public class FTPClientManager {
             return success;
         } catch (IOException e) {
             logger.error("Error downloading file: ", e);
+            ReplyRecorder.recordFailure(e);
             return false;
+        } finally {
+            finishProgress(progress);
+            metrics.addBytesReceived(entry.getBytesConfirmed() - offset);
+            updateJournal(entry, success);
+        }
+    }
+
+    /**
+     * Busca en el diario una transferencia pendiente cuyo origen no haya cambiado.
+     *
+     * @return La entrada pendiente con algún byte confirmado, o {@code null} si la transferencia debe empezar de cero.
+     */
+    private TransferJournal.Entry findPendingTransfer(TransferJob.Direction direction, String remotePath,
+                                                      String localFilePath, long size, long modificationTime) {
+        TransferJournal.Entry entry = transferJournal.find(direction, remotePath, localFilePath);
+        if (entry == null || entry.getBytesConfirmed() == 0 || size < 0) {
+            return null;
+        }
+        if (!entry.matches(size, modificationTime)) {
+            logger.info("Source of pending transfer {} changed, restarting from byte 0", remotePath);
+            return null;
+        }
+        return entry;
+    }
+
+    /**
+     * Calcula desde qué byte puede reanudarse una subida: el tamaño actual del archivo remoto,
+     * siempre que no supere el del archivo local.
+     */
+    private long getUploadResumeOffset(String remotePath, long localSize) {
+        long remoteSize = getRemoteFileSize(remotePath);
+        return remoteSize > 0 && remoteSize <= localSize ? remoteSize : 0;
+    }
+
+    /**
+     * Abre el archivo local para leerlo a partir del desplazamiento indicado, mapeándolo en memoria
+     * si lo que queda por enviar supera el umbral del perfil de transferencia.
+     */
+    private InputStream openLocalInput(File localFile, long offset, TransferProfile profile) throws IOException {
+        return LocalFileChannels.openInput(localFile.toPath(), offset, profile.getMemoryMapThreshold());
+    }
+
+    private static void finishProgress(TransferProgress progress) {
+        if (progress != null) {
+            progress.finish();
+        }
+    }
+
+    private static InputStream withChecksum(InputStream input, RemoteChecksum.Calculator checksum) {
+        return checksum == null ? input : checksum.wrap(input);
+    }
+
+    private static OutputStream withChecksum(OutputStream output, RemoteChecksum.Calculator checksum) {
+        return checksum == null ? output : checksum.wrap(output);
+    }
+
+    /**
+     * Elimina la entrada del diario si la transferencia terminó o guarda su progreso si se interrumpió.
+     */
+    private void updateJournal(TransferJournal.Entry entry, boolean success) {
+        if (success || entry.getBytesConfirmed() == 0) {
+            transferJournal.remove(entry);
+        } else {
+            transferJournal.checkpoint(entry);
+        }
+    }
+
+    /**
+     * Obtiene la fecha de modificación de un archivo remoto con el comando {@code MDTM},
+     * o con {@code MLST} si el servidor no admite {@code MDTM}.
+     *
+     * @param remotePath Ruta del archivo en el servidor FTP.
+     * @return La fecha en milisegundos, o -1 si el servidor no la proporciona.
+     */
+    public long getRemoteModificationTime(String remotePath) {
+        ServerCapabilities features = capabilities;
+        if (!features.supportsMdtm() && !features.supportsMlsd()) {
+            return -1;
+        }
+
+        try {
+            FTPFile file = requirePool().executeIdempotent(client -> features.supportsMdtm()
+                    ? client.mdtmFile(remotePath) : client.mlistFile(remotePath));
+            return file == null || file.getTimestamp() == null ? -1 : file.getTimestamp().getTimeInMillis();
+        } catch (IOException e) {
+            logger.warn("Could not get modification time of {}: {}", remotePath, e.getMessage());
+            return -1;
+        }
+    }
+
+    /**
+     * Establece el diario en el que se guarda el progreso de las transferencias interrumpidas.
+     *
+     * @param transferJournal El diario de transferencias.
+     */
+    public void setTransferJournal(TransferJournal transferJournal) {
+        this.transferJournal = transferJournal;
+    }
+
+    /**
+     * Obtiene el tamaño de un archivo remoto con el comando {@code SIZE} en modo binario,
+     * o con {@code MLST} si el servidor no admite {@code SIZE}.
+     *
+     * @param remotePath Ruta del archivo en el servidor FTP.
+     * @return El tamaño en bytes, o -1 si el servidor no lo proporciona.
+     */
+    public long getRemoteFileSize(String remotePath) {
+        ServerCapabilities features = capabilities;
+        if (!features.supportsSize()) {
+            return features.supportsMlsd() ? getRemoteFileSizeFromFacts(remotePath) : -1;
+        }
+
+        try {
+            String size = requirePool().executeIdempotent(client -> {
+                client.setFileType(FTP.BINARY_FILE_TYPE);
+                return client.getSize(remotePath);
+            });
+            return size == null ? -1 : Long.parseLong(size.trim());
+        } catch (IOException | NumberFormatException e) {
+            logger.warn("Could not get size of {}: {}", remotePath, e.getMessage());
+            return -1;
+        }
+    }
+
+    /**
+     * Obtiene el tamaño de un archivo remoto del hecho {@code size} de su línea {@code MLST}.
+     */
+    private long getRemoteFileSizeFromFacts(String remotePath) {
+        try {
+            FTPFile file = requirePool().executeIdempotent(client -> client.mlistFile(remotePath));
+            return file == null || file.isDirectory() ? -1 : file.getSize();
+        } catch (IOException e) {
+            logger.warn("Could not get size of {}: {}", remotePath, e.getMessage());
+            return -1;
+        }
+    }
+
+    /**
+     * Comprueba si el servidor anuncia {@code REST STREAM} en su respuesta a {@code FEAT}.
+     *
+     * @return true si el servidor admite reanudar transferencias desde un desplazamiento.
+     */
+    private boolean isRestStreamSupported() {
+        return capabilities.supportsRestStream();
+    }
+
+    /**
+     * Obtiene la suma de comprobación de un archivo remoto con el comando {@code HASH}, si el servidor lo anuncia.
+     * El algoritmo es el que el servidor tenga seleccionado por defecto.
+     *
+     * @param remotePath Ruta del archivo en el servidor FTP.
+     * @return La suma de comprobación, o {@code null} si el servidor no la proporciona.
+     */
+    public RemoteChecksum getRemoteChecksum(String remotePath) {
+        if (!isHashSupported()) {
+            return null;
+        }
+
+        try {
+            return requirePool().executeIdempotent(client -> {
+                client.sendCommand("HASH", remotePath);
+                return RemoteChecksum.parseHashReply(client.getReplyString());
+            });
+        } catch (IOException e) {
+            logger.warn("Could not get checksum of {}: {}", remotePath, e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Comprueba si el servidor anuncia el comando {@code HASH} en su respuesta a {@code FEAT}.
+     *
+     * @return true si el servidor puede calcular sumas de comprobación de archivos.
+     */
+    public boolean isHashSupported() {
+        return capabilities.supportsHash();
+    }
+
+    /**
+     * Obtiene las funciones que anuncia el servidor, consultadas al iniciar sesión.
+     *
+     * @return Las funciones del servidor, o {@link ServerCapabilities#UNKNOWN} si todavía no se ha iniciado sesión.
+     */
+    public ServerCapabilities getCapabilities() {
+        return capabilities;
+    }
+
+    /**
+     * Obtiene el perfil de E/S de las transferencias.
+     *
+     * @return El perfil de transferencia actual.
+     */
+    public TransferProfile getTransferProfile() {
+        return transferProfile;
+    }
+
+    /**
+     * Establece el perfil de E/S de las transferencias: tamaño del búfer de copia, búferes de los sockets de datos
+     * y umbral de mapeo en memoria. Se aplica a las sesiones nuevas y a cada transferencia que empiece a partir de ahora.
+     *
+     * @param transferProfile El perfil de transferencia.
+     */
+    public void setTransferProfile(TransferProfile transferProfile) {
+        this.transferProfile = transferProfile;
+        logger.info("Transfer profile: {}", transferProfile);
+    }
+
+    /**
+     * Establece los tiempos máximos de espera de las sesiones. Debe llamarse antes de
+     * {@link #connectAndLogin(String, String)}.
+     *
+     * @param connectTimeout Tiempo máximo para establecer la conexión TCP, en milisegundos.
+     * @param readTimeout    Tiempo máximo de espera de una respuesta del canal de control, en milisegundos.
+     * @param dataTimeout    Tiempo máximo sin recibir datos en una conexión de datos, en milisegundos.
+     */
+    public void setTimeouts(int connectTimeout, int readTimeout, int dataTimeout) {
+        if (connectTimeout <= 0 || readTimeout <= 0 || dataTimeout <= 0) {
+            throw new IllegalArgumentException("Timeouts must be positive");
+        }
+        this.connectTimeout = connectTimeout;
+        this.readTimeout = readTimeout;
+        this.dataTimeout = dataTimeout;
+    }
+
+    /**
+     * Establece cada cuánto se envía un {@code NOOP} a las sesiones inactivas y por el canal de control durante
+     * las transferencias. Debe llamarse antes de {@link #connectAndLogin(String, String)}.
+     *
+     * @param keepAliveInterval Intervalo en milisegundos, mayor que 0.
+     */
+    public void setKeepAliveInterval(long keepAliveInterval) {
+        if (keepAliveInterval <= 0) {
+            throw new IllegalArgumentException("Keepalive interval must be positive: " + keepAliveInterval);
         }
+        this.keepAliveInterval = keepAliveInterval;
+    }
+
+    /**
+     * Establece el tamaño a partir del cual {@link #downloadFile(String, String)} usa la descarga segmentada.
+     *
+     * @param segmentedDownloadThreshold Umbral en bytes; {@link Long#MAX_VALUE} la desactiva.
+     */
+    public void setSegmentedDownloadThreshold(long segmentedDownloadThreshold) {
+        this.segmentedDownloadThreshold = segmentedDownloadThreshold;
     }
 
     /**
@@ -147,9 +1262,9 @@ public class FTPClientManager {
     public boolean createFolder(String remotePath) {
         try {
             logger.info("Creating folder at path: {}", remotePath);
-            boolean success = ftpClient.makeDirectory(remotePath);
-
+            boolean success = requirePool().execute(client -> client.makeDirectory(remotePath));
             if (success) {
+                listingCache.invalidateParent(remotePath);
                 logger.info("Folder created successfully at {}", remotePath);
             } else {
                 logger.warn("Error creating folder at {}", remotePath);
@@ -158,10 +1273,53 @@ public class FTPClientManager {
             return success;
         } catch (IOException e) {
             logger.error("Error creating folder: {}", e.getMessage(), e);
+            ReplyRecorder.recordFailure(e);
             return false;
         }
     }
 
+    /**
+     * Se asegura de que exista una carpeta en el servidor FTP, creándola si es necesario.
+     * A diferencia de {@link #createFolder(String)}, que la carpeta ya exista no se considera un error.
+     *
+     * @param remotePath Ruta de la carpeta en el servidor FTP. Su carpeta padre debe existir.
+     * @return true si la carpeta existe al terminar, false en caso contrario.
+     */
+    public boolean ensureDirectory(String remotePath) {
+        try {
+            boolean exists = requirePool().execute(client ->
+                    client.makeDirectory(remotePath) || isExistingDirectory(client, remotePath, capabilities));
+            if (exists) {
+                listingCache.invalidateParent(remotePath);
+            } else {
+                logger.warn("Could not create folder at {}", remotePath);
+            }
+            return exists;
+        } catch (IOException e) {
+            logger.error("Error creating folder: {}", e.getMessage(), e);
+            return false;
+        }
+    }
+
+    /**
+     * Comprueba si una ruta es una carpeta: con {@code MLST} si el servidor lo admite y, si no, entrando en ella
+     * y volviendo después al directorio de trabajo anterior.
+     */
+    private static boolean isExistingDirectory(FTPClient client, String remotePath, ServerCapabilities capabilities)
+            throws IOException {
+        if (capabilities.supportsMlsd()) {
+            FTPFile file = client.mlistFile(remotePath);
+            return file != null && file.isDirectory();
+        }
+
+        String previous = client.printWorkingDirectory();
+        boolean exists = client.changeWorkingDirectory(remotePath);
+        if (exists && previous != null) {
+            client.changeWorkingDirectory(previous);
+        }
+        return exists;
+    }
+
     /**
      * Renombra un archivo o carpeta en el servidor FTP.
      *
@@ -172,9 +1330,11 @@ public class FTPClientManager {
     public boolean renameFileOrFolder(String remoteOldPath, String remoteNewPath) {
         try {
             logger.info("Renaming file/folder from: {} to: {}", remoteOldPath, remoteNewPath);
-            boolean success = ftpClient.rename(remoteOldPath, remoteNewPath);
-
+            boolean success = requirePool().execute(client -> client.rename(remoteOldPath, remoteNewPath));
             if (success) {
+                listingCache.invalidateParent(remoteOldPath);
+                listingCache.invalidateParent(remoteNewPath);
+                listingCache.invalidateTree(remoteOldPath);
                 logger.info("File/folder renamed successfully from: {} to: {}", remoteOldPath, remoteNewPath);
             } else {
                 logger.warn("Error renaming file/folder from: {} to: {}", remoteOldPath, remoteNewPath);
@@ -183,29 +1343,55 @@ public class FTPClientManager {
             return success;
         } catch (IOException e) {
             logger.error("Error renaming file/folder: {}", e.getMessage(), e);
+            ReplyRecorder.recordFailure(e);
             return false;
         }
     }
 
     /**
      * Elimina un archivo o carpeta del servidor FTP.
+     * Si el servidor admite {@code MLST} se consulta primero el tipo; si no, se intenta {@code DELE}
+     * y, si falla, {@code RMD}.
      *
      * @param remotePath Ruta del archivo o carpeta a eliminar.
      * @return true si la eliminación es exitosa, false en caso contrario.
      */
     public boolean deleteFileOrFolder(String remotePath) {
-        try {
-            logger.info("Deleting file/folder at path: {}", remotePath);
-            boolean success;
+        return delete(remotePath, null);
+    }
 
-            FTPFile file = ftpClient.mlistFile(remotePath);
-            if (file != null && file.isDirectory()) {
-                success = ftpClient.removeDirectory(remotePath);
-            } else {
-                success = ftpClient.deleteFile(remotePath);
-            }
+    /**
+     * Elimina un archivo o una carpeta vacía del servidor FTP cuyo tipo ya se conoce, sin consultarlo al servidor.
+     *
+     * @param remotePath Ruta del archivo o carpeta a eliminar.
+     * @param directory  true si es una carpeta, false si es un archivo.
+     * @return true si la eliminación es exitosa, false en caso contrario.
+     */
+    public boolean deleteFileOrFolder(String remotePath, boolean directory) {
+        return delete(remotePath, directory);
+    }
 
+    /**
+     * Elimina un archivo o una carpeta vacía. Si no se conoce el tipo ({@code directory} es {@code null}),
+     * se averigua con {@code MLST} o, si el servidor no lo admite, se prueba {@code DELE} y después {@code RMD}.
+     */
+    private boolean delete(String remotePath, Boolean directory) {
+        try {
+            logger.info("Deleting file/folder at path: {}", remotePath);
+            boolean success = requirePool().execute(client -> {
+                Boolean isDirectory = directory;
+                if (isDirectory == null && capabilities.supportsMlsd()) {
+                    FTPFile file = client.mlistFile(remotePath);
+                    isDirectory = file != null && file.isDirectory();
+                }
+                if (isDirectory == null) {
+                    return client.deleteFile(remotePath) || client.removeDirectory(remotePath);
+                }
+                return isDirectory ? client.removeDirectory(remotePath) : client.deleteFile(remotePath);
+            });
             if (success) {
+                listingCache.invalidateParent(remotePath);
+                listingCache.invalidateTree(remotePath);
                 logger.info("File/folder deleted successfully at path: {}", remotePath);
             } else {
                 logger.warn("Error deleting file/folder at path: {}", remotePath);
@@ -214,6 +1400,7 @@ public class FTPClientManager {
             return success;
         } catch (IOException e) {
             logger.error("Error deleting file/folder: {}", e.getMessage(), e);
+            ReplyRecorder.recordFailure(e);
             return false;
         }
     }
@@ -0,0 +1,296 @@
+package org.sinbelisk.graphicftp.services;
+
+import java.lang.management.ManagementFactory;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.apache.commons.net.ProtocolCommandEvent;
+import org.apache.commons.net.ProtocolCommandListener;
+import org.apache.commons.net.ftp.FTPReply;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Registro de métricas de las sesiones FTP de un {@link FTPClientManager}.
+ * <p>
+ * Cada sesión lleva un {@link ProtocolCommandListener} creado con {@link #newCommandListener()}, que mide el tiempo
+ * entre el envío de cada comando y su respuesta definitiva. Las respuestas preliminares ({@code 1xx}) no cierran
+ * la medición, por lo que {@code STOR}, {@code RETR} y {@code LIST} incluyen la transferencia de datos.
+ * Cada comando tiene su propio {@link LatencyHistogram}; además se cuentan los bytes transferidos, los errores,
+ * las sesiones abiertas y las reconexiones tras descartar una sesión caída.
+ * </p>
+ * <p>
+ * Con {@link #register()} las métricas se publican por JMX bajo el dominio {@code org.sinbelisk.graphicftp}:
+ * un MBean {@code type=FTPClient} con los totales y uno {@code type=FTPCommand} por comando con sus percentiles,
+ * legibles desde JConsole o cualquier recolector JMX. Los nombres incluyen el servidor y un número de instancia,
+ * de modo que dos gestores conectados al mismo servidor publican y retiran cada uno solo sus propios MBeans.
+ * </p>
+ */
+public class FTPClientMetrics implements FTPClientMetricsMBean {
+    private static final Logger logger = LogManager.getLogger(FTPClientMetrics.class);
+
+    /**
+     * Dominio JMX de las métricas.
+     */
+    public static final String JMX_DOMAIN = "org.sinbelisk.graphicftp";
+
+    private static final AtomicInteger INSTANCES = new AtomicInteger();
+
+    private final String server;
+    private final int instance = INSTANCES.incrementAndGet();
+    private final Map<String, CommandLatency> commands = new ConcurrentHashMap<>();
+    private final LongAdder errors = new LongAdder();
+    private final LongAdder bytesSent = new LongAdder();
+    private final LongAdder bytesReceived = new LongAdder();
+    private final LongAdder sessionsOpened = new LongAdder();
+    private final LongAdder previousReconnects = new LongAdder();
+    private volatile FTPConnectionPool pool;
+    private volatile MBeanServer mBeanServer;
+
+    /**
+     * Constructor del registro.
+     *
+     * @param server Servidor y puerto, usados para identificar los MBeans.
+     */
+    public FTPClientMetrics(String server) {
+        this.server = server;
+    }
+
+    /**
+     * Crea el oyente que mide los comandos de una sesión. Cada sesión necesita el suyo,
+     * ya que guarda el comando pendiente de respuesta.
+     *
+     * @return El oyente para añadir con {@code addProtocolCommandListener}.
+     */
+    public ProtocolCommandListener newCommandListener() {
+        return new CommandTimer();
+    }
+
+    /**
+     * Registra la duración de un comando u operación.
+     *
+     * @param command Nombre del comando, por ejemplo {@code RETR} o {@code CONNECT}.
+     * @param nanos   Duración en nanosegundos.
+     * @param error   true si el comando falló.
+     */
+    public void recordCommand(String command, long nanos, boolean error) {
+        CommandLatency latency = commands.get(command);
+        if (latency == null) {
+            latency = commands.computeIfAbsent(command, this::createCommand);
+        }
+        latency.record(nanos, error);
+        if (error) {
+            errors.increment();
+        }
+    }
+
+    /**
+     * Registra un error que no corresponde a la respuesta de un comando, como una conexión cortada.
+     */
+    public void recordError() {
+        errors.increment();
+    }
+
+    public void addBytesSent(long bytes) {
+        bytesSent.add(Math.max(0, bytes));
+    }
+
+    public void addBytesReceived(long bytes) {
+        bytesReceived.add(Math.max(0, bytes));
+    }
+
+    public void recordSessionOpened() {
+        sessionsOpened.increment();
+    }
+
+    /**
+     * Asocia el pool de la sesión actual, del que se leen las reconexiones. Las del pool anterior se conservan.
+     *
+     * @param pool El pool de conexiones activo.
+     */
+    void attachPool(FTPConnectionPool pool) {
+        FTPConnectionPool previous = this.pool;
+        if (previous != null) {
+            previousReconnects.add(previous.getDiscardedSessions());
+        }
+        this.pool = pool;
+    }
+
+    /**
+     * Obtiene las métricas de un comando.
+     *
+     * @param command Nombre del comando.
+     * @return Sus latencias, o {@code null} si todavía no se ha enviado.
+     */
+    public CommandLatency getCommandLatency(String command) {
+        return commands.get(command);
+    }
+
+    /**
+     * Publica las métricas en el servidor de MBeans de la plataforma.
+     */
+    public synchronized void register() {
+        if (mBeanServer != null) {
+            return;
+        }
+        mBeanServer = ManagementFactory.getPlatformMBeanServer();
+        registerQuietly(this, clientName());
+        for (CommandLatency latency : commands.values()) {
+            registerQuietly(latency, commandName(latency.getCommand()));
+        }
+    }
+
+    /**
+     * Retira de JMX todos los MBeans publicados con {@link #register()}.
+     */
+    public synchronized void unregister() {
+        if (mBeanServer == null) {
+            return;
+        }
+        unregisterQuietly(clientName());
+        for (String command : commands.keySet()) {
+            unregisterQuietly(commandName(command));
+        }
+        mBeanServer = null;
+    }
+
+    private synchronized CommandLatency createCommand(String command) {
+        CommandLatency latency = new CommandLatency(command);
+        if (mBeanServer != null) {
+            registerQuietly(latency, commandName(command));
+        }
+        return latency;
+    }
+
+    private void registerQuietly(Object mBean, ObjectName name) {
+        try {
+            mBeanServer.registerMBean(mBean, name);
+        } catch (JMException e) {
+            logger.warn("Could not register MBean {}: {}", name, e.getMessage());
+        }
+    }
+
+    private void unregisterQuietly(ObjectName name) {
+        try {
+            if (mBeanServer.isRegistered(name)) {
+                mBeanServer.unregisterMBean(name);
+            }
+        } catch (JMException e) {
+            logger.warn("Could not unregister MBean {}: {}", name, e.getMessage());
+        }
+    }
+
+    /**
+     * @return El nombre JMX del MBean con los totales de este registro.
+     */
+    public ObjectName clientName() {
+        return objectName("type=FTPClient,server=" + ObjectName.quote(server) + ",instance=" + instance);
+    }
+
+    /**
+     * @param command Nombre del comando.
+     * @return El nombre JMX del MBean con las latencias del comando en este registro.
+     */
+    public ObjectName commandName(String command) {
+        return objectName("type=FTPCommand,server=" + ObjectName.quote(server) + ",instance=" + instance
+                + ",name=" + ObjectName.quote(command));
+    }
+
+    private static ObjectName objectName(String properties) {
+        try {
+            return new ObjectName(JMX_DOMAIN + ":" + properties);
+        } catch (JMException e) {
+            throw new IllegalArgumentException(e);
+        }
+    }
+
+    @Override
+    public String getServer() {
+        return server;
+    }
+
+    @Override
+    public String[] getCommands() {
+        return new TreeSet<>(commands.keySet()).toArray(new String[0]);
+    }
+
+    @Override
+    public long getCommandCount() {
+        long total = 0;
+        for (CommandLatency latency : commands.values()) {
+            total += latency.getCount();
+        }
+        return total;
+    }
+
+    @Override
+    public long getErrors() {
+        return errors.sum();
+    }
+
+    @Override
+    public long getBytesSent() {
+        return bytesSent.sum();
+    }
+
+    @Override
+    public long getBytesReceived() {
+        return bytesReceived.sum();
+    }
+
+    @Override
+    public long getSessionsOpened() {
+        return sessionsOpened.sum();
+    }
+
+    @Override
+    public long getReconnects() {
+        FTPConnectionPool current = pool;
+        return previousReconnects.sum() + (current == null ? 0 : current.getDiscardedSessions());
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder text = new StringBuilder(server).append(": ").append(getCommandCount()).append(" commands, ")
+                .append(getErrors()).append(" errors, ").append(getReconnects()).append(" reconnects, ")
+                .append(TransferProgress.formatBytes(getBytesSent())).append(" sent, ")
+                .append(TransferProgress.formatBytes(getBytesReceived())).append(" received");
+        for (String command : getCommands()) {
+            text.append("\n  ").append(commands.get(command));
+        }
+        return text.toString();
+    }
+
+    /**
+     * Mide los comandos de una sesión. Los oyentes se llaman desde el hilo que usa la sesión,
+     * y una sesión solo la usa un hilo cada vez.
+     */
+    private final class CommandTimer implements ProtocolCommandListener {
+        private String pendingCommand;
+        private long sentAt;
+
+        @Override
+        public void protocolCommandSent(ProtocolCommandEvent event) {
+            pendingCommand = event.getCommand().trim().toUpperCase(Locale.ROOT);
+            sentAt = System.nanoTime();
+        }
+
+        @Override
+        public void protocolReplyReceived(ProtocolCommandEvent event) {
+            int code = event.getReplyCode();
+            if (pendingCommand == null || FTPReply.isPositivePreliminary(code)) {
+                return;
+            }
+            recordCommand(pendingCommand, System.nanoTime() - sentAt, code >= 400);
+            pendingCommand = null;
+        }
+    }
+}
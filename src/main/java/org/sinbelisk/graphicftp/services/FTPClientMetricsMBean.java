@@ -0,0 +1,25 @@
+package org.sinbelisk.graphicftp.services;
+
+/**
+ * Interfaz JMX con los totales de las sesiones de un {@link FTPClientManager}.
+ */
+public interface FTPClientMetricsMBean {
+    String getServer();
+
+    /**
+     * @return Nombres de los comandos que se han enviado, cada uno publicado como {@link CommandLatencyMBean}.
+     */
+    String[] getCommands();
+
+    long getCommandCount();
+
+    long getErrors();
+
+    long getBytesSent();
+
+    long getBytesReceived();
+
+    long getSessionsOpened();
+
+    long getReconnects();
+}
@@ -0,0 +1,463 @@
+package org.sinbelisk.graphicftp.services;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.SocketException;
+import java.net.SocketTimeoutException;
+import java.util.Deque;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.apache.commons.net.ftp.FTPClient;
+import org.apache.commons.net.ftp.FTPConnectionClosedException;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Pool acotado de sesiones FTP ya autenticadas.
+ * Cada operación toma prestada una sesión con {@link #borrow()} y la devuelve con {@link #release(FTPClient)},
+ * de modo que los listados y las transferencias no compiten por un único canal de control.
+ * <p>
+ * Antes de entregar una sesión que lleva un tiempo inactiva se comprueba su estado con un {@code NOOP};
+ * las sesiones caídas se descartan y se sustituyen por otras nuevas creadas con la {@link SessionFactory}.
+ * </p>
+ * <p>
+ * Con {@link #startKeepAlive(long)} las sesiones inactivas reciben un {@code NOOP} periódico para que el servidor
+ * no las cierre por inactividad. Si aun así una operación encuentra la conexión cortada (respuesta {@code 421}
+ * o socket roto), {@link #executeIdempotent(SessionCallback)} la repite en una sesión nueva sin que el usuario lo note.
+ * </p>
+ */
+public class FTPConnectionPool {
+    private static final Logger logger = LogManager.getLogger(FTPConnectionPool.class);
+
+    public static final int DEFAULT_MAX_SIZE = 4;
+    private static final long BORROW_TIMEOUT_MS = 60_000;
+    private static final long VALIDATION_INTERVAL_MS = 15_000;
+    // Reintentos de una operación idempotente tras perder la conexión
+    private static final int MAX_RECONNECT_ATTEMPTS = 2;
+
+    private final SessionFactory sessionFactory;
+    private final int maxSize;
+    private final Semaphore permits;
+    private final Deque<IdleSession> idleSessions = new ConcurrentLinkedDeque<>();
+    private final LongAdder discardedSessions = new LongAdder();
+    private final LongAdder retriedOperations = new LongAdder();
+    private volatile boolean closed;
+    // Las sesiones inactivas desde antes de este instante se validan siempre, ya que una conexión cayó después
+    private volatile long suspectBefore;
+    private ScheduledExecutorService keepAliveTimer;
+
+    /**
+     * Constructor del pool.
+     *
+     * @param sessionFactory Factoría que abre y autentica nuevas sesiones FTP.
+     * @param maxSize        Número máximo de sesiones abiertas simultáneamente.
+     */
+    public FTPConnectionPool(SessionFactory sessionFactory, int maxSize) {
+        if (maxSize < 1) {
+            throw new IllegalArgumentException("El tamaño máximo del pool debe ser al menos 1.");
+        }
+        this.sessionFactory = sessionFactory;
+        this.maxSize = maxSize;
+        this.permits = new Semaphore(maxSize, true);
+    }
+
+    /**
+     * Añade al pool una sesión que ya ha sido conectada y autenticada fuera de él.
+     *
+     * @param client Sesión autenticada.
+     */
+    public void seed(FTPClient client) {
+        idleSessions.offerFirst(new IdleSession(client));
+    }
+
+    /**
+     * Toma prestada una sesión del pool, esperando si todas están en uso.
+     * La sesión debe devolverse siempre con {@link #release(FTPClient)} o {@link #invalidate(FTPClient)}.
+     *
+     * @return Una sesión conectada y autenticada.
+     * @throws IOException si el pool está cerrado, se agota la espera o no se puede abrir una sesión nueva.
+     */
+    public FTPClient borrow() throws IOException {
+        ensureOpen();
+        try {
+            if (!permits.tryAcquire(BORROW_TIMEOUT_MS, TimeUnit.MILLISECONDS)) {
+                throw new IOException("Timed out waiting for a free FTP connection");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for a free FTP connection");
+        }
+
+        return acquireSession();
+    }
+
+    /**
+     * Intenta tomar prestada una sesión sin esperar.
+     *
+     * @return Una sesión autenticada, o {@code null} si todas están en uso.
+     * @throws IOException si no se puede abrir una sesión nueva.
+     */
+    public FTPClient tryBorrow() throws IOException {
+        ensureOpen();
+        if (!permits.tryAcquire()) {
+            return null;
+        }
+
+        return acquireSession();
+    }
+
+    /**
+     * Devuelve al pool una sesión prestada para que pueda reutilizarse.
+     *
+     * @param client La sesión prestada.
+     */
+    public void release(FTPClient client) {
+        if (closed || !client.isConnected()) {
+            disconnectQuietly(client);
+        } else {
+            idleSessions.offerFirst(new IdleSession(client));
+        }
+        permits.release();
+    }
+
+    /**
+     * Descarta una sesión prestada que ha quedado en un estado no reutilizable.
+     *
+     * @param client La sesión prestada.
+     */
+    public void invalidate(FTPClient client) {
+        discardedSessions.increment();
+        disconnectQuietly(client);
+        permits.release();
+    }
+
+    /**
+     * Ejecuta una operación con una sesión prestada y la devuelve al pool al terminar.
+     * Si la operación falla porque la conexión se ha cerrado, la sesión se descarta.
+     *
+     * @param callback La operación a ejecutar.
+     * @param <T>      Tipo del resultado de la operación.
+     * @return El resultado de la operación.
+     * @throws IOException si la operación falla o no se puede obtener una sesión.
+     */
+    public <T> T execute(SessionCallback<T> callback) throws IOException {
+        return runWithSession(borrow(), callback);
+    }
+
+    /**
+     * Ejecuta una transferencia ({@code STOR}, {@code APPE}, {@code RETR}...) con una sesión prestada.
+     * A diferencia de {@link #execute(SessionCallback)}, la sesión se descarta ante cualquier error: si falla el lado
+     * local de la copia (disco lleno, diario sin guardar...), commons-net no lee la respuesta final de la transferencia
+     * y la siguiente operación que usara la sesión recibiría esa respuesta en lugar de la suya.
+     *
+     * @param callback La transferencia a ejecutar.
+     * @param <T>      Tipo del resultado de la transferencia.
+     * @return El resultado de la transferencia.
+     * @throws IOException si la transferencia falla o no se puede obtener una sesión.
+     */
+    public <T> T executeTransfer(SessionCallback<T> callback) throws IOException {
+        FTPClient client = borrow();
+        try {
+            T result = callback.doWithSession(client);
+            release(client);
+            return result;
+        } catch (IOException | RuntimeException e) {
+            if (e instanceof IOException && isConnectionLost((IOException) e)) {
+                suspectBefore = System.currentTimeMillis();
+            }
+            invalidate(client);
+            throw e;
+        }
+    }
+
+    /**
+     * Ejecuta una operación solo si hay una sesión libre en ese momento, sin esperar.
+     * Pensado para trabajo opcional, como la precarga de listados, que no debe competir con las operaciones del usuario.
+     *
+     * @param callback La operación a ejecutar.
+     * @param <T>      Tipo del resultado de la operación.
+     * @return El resultado de la operación, o {@code null} si todas las sesiones estaban en uso.
+     * @throws IOException si la operación falla o no se puede abrir una sesión nueva.
+     */
+    public <T> T tryExecute(SessionCallback<T> callback) throws IOException {
+        FTPClient client = tryBorrow();
+        return client == null ? null : runWithSession(client, callback);
+    }
+
+    /**
+     * Ejecuta una operación que puede repetirse sin efectos secundarios, como un listado o un {@code SIZE}.
+     * Si falla porque la conexión se ha perdido, se repite en otra sesión, que el pool abre e inicia de nuevo
+     * si hace falta.
+     *
+     * @param callback La operación a ejecutar.
+     * @param <T>      Tipo del resultado de la operación.
+     * @return El resultado de la operación.
+     * @throws IOException si la operación falla por otro motivo o se agotan los reintentos.
+     */
+    public <T> T executeIdempotent(SessionCallback<T> callback) throws IOException {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return execute(callback);
+            } catch (IOException e) {
+                if (!isConnectionLost(e) || attempt > MAX_RECONNECT_ATTEMPTS || closed) {
+                    throw e;
+                }
+                retriedOperations.increment();
+                logger.warn("FTP session lost ({}), retrying on another session ({}/{}).",
+                        e.getMessage(), attempt, MAX_RECONNECT_ATTEMPTS);
+            }
+        }
+    }
+
+    /**
+     * Ejecuta la operación con la sesión ya prestada y la devuelve o la descarta según el resultado.
+     */
+    private <T> T runWithSession(FTPClient client, SessionCallback<T> callback) throws IOException {
+        try {
+            T result = callback.doWithSession(client);
+            release(client);
+            return result;
+        } catch (IOException e) {
+            if (isConnectionLost(e)) {
+                // Si una sesión ha caído, es probable que las demás también: se validarán antes de prestarse.
+                suspectBefore = System.currentTimeMillis();
+                invalidate(client);
+            } else {
+                release(client);
+            }
+            throw e;
+        } catch (RuntimeException e) {
+            release(client);
+            throw e;
+        }
+    }
+
+    /**
+     * Determina si un error indica que la conexión de control se ha perdido: el servidor la ha cerrado
+     * (por ejemplo con {@code 421} por inactividad), el socket está roto o no llega respuesta.
+     *
+     * @param e El error de la operación.
+     * @return true si la sesión ya no puede usarse.
+     */
+    public static boolean isConnectionLost(IOException e) {
+        return e instanceof FTPConnectionClosedException || e instanceof SocketException
+                || e instanceof SocketTimeoutException || e instanceof EOFException;
+    }
+
+    /**
+     * Empieza a enviar un {@code NOOP} a las sesiones que llevan inactivas al menos el intervalo indicado,
+     * para que el servidor no las cierre. Las sesiones que no responden se descartan.
+     *
+     * @param intervalMs Intervalo en milisegundos entre dos comprobaciones.
+     */
+    public synchronized void startKeepAlive(long intervalMs) {
+        if (keepAliveTimer != null || closed) {
+            return;
+        }
+        keepAliveTimer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "ftp-keepalive");
+            thread.setDaemon(true);
+            return thread;
+        });
+        keepAliveTimer.scheduleWithFixedDelay(() -> sendKeepAlives(intervalMs), intervalMs, intervalMs,
+                TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Envía un {@code NOOP} a cada sesión inactiva desde hace al menos el intervalo. La sesión se retira del pool
+     * mientras tanto, de modo que ninguna operación puede tomarla a la vez.
+     */
+    private void sendKeepAlives(long intervalMs) {
+        long now = System.currentTimeMillis();
+        for (IdleSession session : idleSessions) {
+            if (now - session.idleSince < intervalMs || !idleSessions.remove(session)) {
+                continue;
+            }
+
+            boolean alive;
+            try {
+                alive = session.client.isConnected() && session.client.sendNoOp();
+            } catch (IOException e) {
+                alive = false;
+            }
+
+            // Si mientras tanto se abrió otra sesión para ocupar su lugar, esta sobra.
+            int borrowed = maxSize - permits.availablePermits();
+            if (alive && !closed && idleSessions.size() + borrowed < maxSize) {
+                idleSessions.offerLast(new IdleSession(session.client));
+            } else {
+                if (!alive) {
+                    logger.info("Discarding pooled FTP session that did not answer the keepalive.");
+                    discardedSessions.increment();
+                }
+                disconnectQuietly(session.client);
+            }
+        }
+    }
+
+    /**
+     * Cierra el pool y todas las sesiones inactivas.
+     * Las sesiones que estén prestadas se cierran cuando se devuelven.
+     */
+    public void close() {
+        closed = true;
+        synchronized (this) {
+            if (keepAliveTimer != null) {
+                keepAliveTimer.shutdownNow();
+            }
+        }
+        IdleSession session;
+        while ((session = idleSessions.pollFirst()) != null) {
+            disconnectQuietly(session.client);
+        }
+        logger.info("FTP connection pool closed.");
+    }
+
+    /**
+     * @return {@code true} si el pool ha sido cerrado.
+     */
+    public boolean isClosed() {
+        return closed;
+    }
+
+    /**
+     * @return Número máximo de sesiones del pool.
+     */
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    /**
+     * @return Número de sesiones que pueden prestarse sin esperar.
+     */
+    public int getAvailableCount() {
+        return permits.availablePermits();
+    }
+
+    /**
+     * @return Número de sesiones descartadas por estar caídas o en un estado no reutilizable.
+     * Cada una se sustituye por una sesión nueva cuando vuelve a hacer falta.
+     */
+    public long getDiscardedSessions() {
+        return discardedSessions.sum();
+    }
+
+    /**
+     * @return Número de operaciones repetidas en otra sesión tras perder la conexión.
+     */
+    public long getRetriedOperations() {
+        return retriedOperations.sum();
+    }
+
+    /**
+     * Obtiene una sesión inactiva sana o abre una nueva. El llamante ya posee un permiso.
+     */
+    private FTPClient acquireSession() throws IOException {
+        try {
+            FTPClient client = pollHealthySession();
+            if (client == null) {
+                client = sessionFactory.openSession();
+                logger.info("Opened new pooled FTP session ({} max).", maxSize);
+            }
+            return client;
+        } catch (IOException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    /**
+     * Extrae sesiones inactivas hasta encontrar una que siga respondiendo.
+     */
+    private FTPClient pollHealthySession() {
+        IdleSession session;
+        while ((session = idleSessions.pollFirst()) != null) {
+            if (isHealthy(session)) {
+                return session.client;
+            }
+            logger.info("Discarding stale pooled FTP session.");
+            discardedSessions.increment();
+            disconnectQuietly(session.client);
+        }
+        return null;
+    }
+
+    /**
+     * Comprueba si una sesión inactiva sigue siendo utilizable.
+     * Solo se envía {@code NOOP} cuando la sesión lleva inactiva más de {@link #VALIDATION_INTERVAL_MS}
+     * o desde antes de que se perdiera otra conexión.
+     */
+    private boolean isHealthy(IdleSession session) {
+        if (!session.client.isConnected()) {
+            return false;
+        }
+        if (System.currentTimeMillis() - session.idleSince < VALIDATION_INTERVAL_MS && session.idleSince > suspectBefore) {
+            return true;
+        }
+        try {
+            return session.client.sendNoOp();
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    private void ensureOpen() throws IOException {
+        if (closed) {
+            throw new IOException("FTP connection pool is closed");
+        }
+    }
+
+    private void disconnectQuietly(FTPClient client) {
+        try {
+            if (client.isConnected()) {
+                client.logout();
+            }
+        } catch (IOException ignored) {
+            // La sesión se va a cerrar de todas formas.
+        }
+        try {
+            if (client.isConnected()) {
+                client.disconnect();
+            }
+        } catch (IOException e) {
+            logger.warn("Error closing pooled FTP session: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Sesión inactiva junto con el instante en que se devolvió al pool.
+     */
+    private static final class IdleSession {
+        private final FTPClient client;
+        private final long idleSince;
+
+        private IdleSession(FTPClient client) {
+            this.client = client;
+            this.idleSince = System.currentTimeMillis();
+        }
+    }
+
+    /**
+     * Factoría de sesiones FTP conectadas y autenticadas.
+     */
+    @FunctionalInterface
+    public interface SessionFactory {
+        FTPClient openSession() throws IOException;
+    }
+
+    /**
+     * Operación que se ejecuta con una sesión prestada del pool.
+     *
+     * @param <T> Tipo del resultado.
+     */
+    @FunctionalInterface
+    public interface SessionCallback<T> {
+        T doWithSession(FTPClient client) throws IOException;
+    }
+}
@@ -0,0 +1,73 @@
+package org.sinbelisk.graphicftp.services;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Resultado de una operación ejecutada con {@link AsyncFTPClient}: si tuvo éxito, la última respuesta
+ * del servidor, el tiempo que tardó y, si falló con una excepción, la causa.
+ */
+public final class FTPResult {
+    private final String operation;
+    private final boolean success;
+    private final int replyCode;
+    private final String replyString;
+    private final long elapsedNanos;
+    private final Throwable error;
+
+    FTPResult(String operation, boolean success, int replyCode, String replyString, long elapsedNanos,
+              Throwable error) {
+        this.operation = operation;
+        this.success = success;
+        this.replyCode = replyCode;
+        this.replyString = replyString;
+        this.elapsedNanos = elapsedNanos;
+        this.error = error;
+    }
+
+    /**
+     * @return Descripción de la operación, por ejemplo {@code MKD /fotos}.
+     */
+    public String getOperation() {
+        return operation;
+    }
+
+    public boolean isSuccess() {
+        return success;
+    }
+
+    /**
+     * @return Código de la última respuesta del servidor, o 0 si la operación no llegó a recibir ninguna.
+     */
+    public int getReplyCode() {
+        return replyCode;
+    }
+
+    /**
+     * @return Texto de la última respuesta del servidor, o {@code null} si no se recibió ninguna.
+     */
+    public String getReplyString() {
+        return replyString;
+    }
+
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    public long getElapsedMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(elapsedNanos);
+    }
+
+    /**
+     * @return La excepción que interrumpió la operación, o {@code null} si terminó sin excepciones.
+     */
+    public Throwable getError() {
+        return error;
+    }
+
+    @Override
+    public String toString() {
+        return operation + (success ? " OK" : " FAILED") + " in " + getElapsedMillis() + " ms"
+                + (replyString == null ? "" : " [" + replyString + "]")
+                + (error == null ? "" : " (" + error.getMessage() + ")");
+    }
+}
@@ -0,0 +1,220 @@
+package org.sinbelisk.graphicftp.services;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Descarga una carpeta remota completa, con todas sus subcarpetas, y la reproduce dentro de una carpeta local.
+ * <p>
+ * El subárbol remoto se recorre en anchura: cada carpeta se lista en una tarea del {@link RemoteTaskExecutor},
+ * con varias carpetas listándose a la vez sobre sesiones distintas del pool. Los archivos de cada página del listado
+ * se encolan de inmediato en el {@link TransferScheduler}, de modo que las descargas empiezan mientras
+ * las carpetas más profundas todavía se están listando.
+ * </p>
+ * <p>
+ * Los enlaces simbólicos no se siguen, y los nombres remotos que saldrían de la carpeta local de destino
+ * se descartan.
+ * </p>
+ */
+public class FolderDownloader {
+    private static final Logger logger = LogManager.getLogger(FolderDownloader.class);
+
+    /**
+     * Número de carpetas que se listan a la vez por defecto.
+     */
+    public static final int DEFAULT_LISTING_PARALLELISM = 2;
+
+    // Número de entradas de cada página del listado que se procesan de una vez
+    private static final int LISTING_PAGE_SIZE = 500;
+
+    private final FTPClientManager ftpClientManager;
+    private final TransferScheduler transferScheduler;
+    private final Executor listingExecutor;
+
+    /**
+     * Constructor del descargador de carpetas con el número de listados simultáneos por defecto.
+     *
+     * @param ftpClientManager  Gestor FTP con el que se listan las carpetas remotas.
+     * @param transferScheduler Planificador en el que se encolan las descargas de los archivos.
+     */
+    public FolderDownloader(FTPClientManager ftpClientManager, TransferScheduler transferScheduler) {
+        this(ftpClientManager, transferScheduler, DEFAULT_LISTING_PARALLELISM);
+    }
+
+    /**
+     * Constructor del descargador de carpetas.
+     *
+     * @param ftpClientManager   Gestor FTP con el que se listan las carpetas remotas.
+     * @param transferScheduler  Planificador en el que se encolan las descargas de los archivos.
+     * @param listingParallelism Número de carpetas que se listan a la vez.
+     */
+    public FolderDownloader(FTPClientManager ftpClientManager, TransferScheduler transferScheduler,
+                            int listingParallelism) {
+        this.ftpClientManager = ftpClientManager;
+        this.transferScheduler = transferScheduler;
+        this.listingExecutor = ftpClientManager.getTaskExecutor().limitedTo(listingParallelism);
+    }
+
+    /**
+     * Recorre una carpeta remota, crea su estructura en local y encola la descarga de todos sus archivos.
+     * El método vuelve cuando se han listado todas las carpetas, sin esperar a que terminen las descargas.
+     *
+     * @param remoteFolder La carpeta remota que se desea descargar.
+     * @param localParent  Carpeta local dentro de la cual se creará la copia.
+     * @return El resultado del recorrido, con las transferencias encoladas y las rutas que no se pudieron procesar.
+     * @throws IOException si el recorrido se interrumpe.
+     */
+    public Result download(RemoteEntry remoteFolder, Path localParent) throws IOException {
+        Path localRoot = localParent.toAbsolutePath().normalize().resolve(remoteFolder.getName());
+        Crawl crawl = new Crawl(new Result(localRoot));
+        crawl.submit(remoteFolder.getPath(), localRoot);
+
+        try {
+            crawl.done.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Folder download interrupted");
+        } catch (ExecutionException e) {
+            throw new IOException(e.getCause());
+        }
+
+        Result result = crawl.result;
+        logger.info("Folder download of {} queued: {} files from {} folders, {} failures.", remoteFolder.getPath(),
+                result.jobs.size(), result.listedDirectories.get(), result.failedPaths.size());
+        return result;
+    }
+
+    /**
+     * Estado de un recorrido: cuenta las carpetas pendientes de listar y se completa cuando no queda ninguna.
+     */
+    private final class Crawl {
+        private final Result result;
+        private final AtomicInteger outstanding = new AtomicInteger();
+        private final CompletableFuture<Void> done = new CompletableFuture<>();
+
+        private Crawl(Result result) {
+            this.result = result;
+        }
+
+        /**
+         * Programa el listado de una carpeta. Se cuenta como pendiente antes de que la carpeta que la contiene
+         * termine, por lo que el recorrido no puede darse por acabado antes de tiempo.
+         */
+        private void submit(String remotePath, Path localDir) {
+            outstanding.incrementAndGet();
+            try {
+                listingExecutor.execute(() -> visit(remotePath, localDir));
+            } catch (RejectedExecutionException e) {
+                result.failedPaths.add(remotePath);
+                finishOne();
+            }
+        }
+
+        private void visit(String remotePath, Path localDir) {
+            try {
+                Files.createDirectories(localDir);
+                ftpClientManager.listEntriesInPages(remotePath, LISTING_PAGE_SIZE, page -> {
+                    for (RemoteEntry entry : page) {
+                        visitEntry(entry, localDir);
+                    }
+                });
+                result.listedDirectories.incrementAndGet();
+            } catch (IOException e) {
+                logger.warn("Could not list {}: {}", remotePath, e.getMessage());
+                result.failedPaths.add(remotePath);
+            } finally {
+                finishOne();
+            }
+        }
+
+        private void visitEntry(RemoteEntry entry, Path localDir) {
+            String name = entry.getName();
+            if (".".equals(name) || "..".equals(name)) {
+                return;
+            }
+
+            Path target;
+            try {
+                target = localDir.resolve(name).normalize();
+            } catch (InvalidPathException e) {
+                target = null;
+            }
+            if (target == null || !localDir.equals(target.getParent())) {
+                logger.warn("Skipping remote entry with unsafe name: {}", entry.getPath());
+                result.failedPaths.add(entry.getPath());
+                return;
+            }
+
+            if (entry.isDirectory()) {
+                submit(entry.getPath(), target);
+            } else if (entry.getType() == RemoteEntry.Type.FILE) {
+                result.jobs.add(transferScheduler.enqueueDownload(entry.getPath(), target.toString()));
+            } else {
+                logger.info("Skipping symbolic link {}", entry.getPath());
+            }
+        }
+
+        private void finishOne() {
+            if (outstanding.decrementAndGet() == 0) {
+                done.complete(null);
+            }
+        }
+    }
+
+    /**
+     * Resultado de recorrer una carpeta remota para descargarla.
+     */
+    public static final class Result {
+        private final Path localPath;
+        private final Queue<TransferJob> jobs = new ConcurrentLinkedQueue<>();
+        private final Queue<String> failedPaths = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger listedDirectories = new AtomicInteger();
+
+        private Result(Path localPath) {
+            this.localPath = localPath;
+        }
+
+        /**
+         * @return Carpeta local en la que se reproduce la carpeta remota.
+         */
+        public Path getLocalPath() {
+            return localPath;
+        }
+
+        /**
+         * @return Las descargas encoladas, una por archivo.
+         */
+        public List<TransferJob> getJobs() {
+            return new ArrayList<>(jobs);
+        }
+
+        /**
+         * @return Rutas remotas que no se pudieron listar o cuyo nombre no era válido en local.
+         */
+        public List<String> getFailedPaths() {
+            return new ArrayList<>(failedPaths);
+        }
+
+        /**
+         * @return Número de carpetas remotas listadas.
+         */
+        public int getListedDirectories() {
+            return listedDirectories.get();
+        }
+    }
+}
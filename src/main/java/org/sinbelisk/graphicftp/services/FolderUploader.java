@@ -0,0 +1,169 @@
+package org.sinbelisk.graphicftp.services;
+
+import java.io.IOException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Sube una carpeta local completa, con todas sus subcarpetas, al servidor FTP.
+ * <p>
+ * El árbol local se recorre con {@link Files#walkFileTree}. Cada carpeta remota se crea antes que su contenido
+ * y una sola vez: las rutas que ya se sabe que existen se recuerdan durante el recorrido y no se vuelven a pedir.
+ * Ese registro es propio de cada llamada a {@link #upload}, ya que otra sesión o una operación posterior pueden
+ * haber borrado o renombrado las carpetas.
+ * Los archivos se encolan en el {@link TransferScheduler} a medida que se encuentran, por lo que se suben en
+ * paralelo sobre las sesiones del pool mientras el recorrido sigue creando las carpetas más profundas.
+ * </p>
+ */
+public class FolderUploader {
+    private static final Logger logger = LogManager.getLogger(FolderUploader.class);
+
+    private final FTPClientManager ftpClientManager;
+    private final TransferScheduler transferScheduler;
+
+    /**
+     * Constructor del cargador de carpetas.
+     *
+     * @param ftpClientManager  Gestor FTP con el que se crean las carpetas remotas.
+     * @param transferScheduler Planificador en el que se encolan las subidas de los archivos.
+     */
+    public FolderUploader(FTPClientManager ftpClientManager, TransferScheduler transferScheduler) {
+        this.ftpClientManager = ftpClientManager;
+        this.transferScheduler = transferScheduler;
+    }
+
+    /**
+     * Recorre una carpeta local, crea su estructura en el servidor y encola la subida de todos sus archivos.
+     * El método vuelve en cuanto se han encolado todos los archivos, sin esperar a que terminen de subirse.
+     *
+     * @param localFolder      Carpeta local que se desea subir.
+     * @param remoteParentPath Carpeta remota dentro de la cual se creará la carpeta subida.
+     * @return El resultado del recorrido, con las transferencias encoladas y las rutas que no se pudieron procesar.
+     * @throws IOException si no se puede recorrer la carpeta local.
+     */
+    public Result upload(Path localFolder, String remoteParentPath) throws IOException {
+        Path root = localFolder.toAbsolutePath().normalize();
+        String remoteRoot = RemoteEntry.join(remoteParentPath, root.getFileName().toString());
+        Set<String> knownDirectories = new HashSet<>();
+        knownDirectories.add(remoteParentPath);
+        Result result = new Result(remoteRoot);
+
+        Files.walkFileTree(root, new SimpleFileVisitor<>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
+                String remoteDir = toRemotePath(root, dir, remoteRoot);
+                if (ensureDirectory(remoteDir, knownDirectories, result)) {
+                    return FileVisitResult.CONTINUE;
+                }
+
+                logger.warn("Could not create remote folder {}; skipping its contents.", remoteDir);
+                result.failedPaths.add(dir.toString());
+                return FileVisitResult.SKIP_SUBTREE;
+            }
+
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                if (attrs.isRegularFile()) {
+                    result.jobs.add(transferScheduler.enqueueUpload(file.toString(), toRemotePath(root, file, remoteRoot)));
+                }
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFileFailed(Path file, IOException e) {
+                logger.warn("Could not read {}: {}", file, e.getMessage());
+                result.failedPaths.add(file.toString());
+                return FileVisitResult.CONTINUE;
+            }
+        });
+
+        logger.info("Folder upload of {} queued: {} files, {} folders created, {} failures.",
+                root, result.jobs.size(), result.createdDirectories, result.failedPaths.size());
+        return result;
+    }
+
+    /**
+     * Crea una carpeta remota si no se sabe ya que existe.
+     */
+    private boolean ensureDirectory(String remoteDir, Set<String> knownDirectories, Result result) {
+        if (knownDirectories.contains(remoteDir)) {
+            return true;
+        }
+        if (!ftpClientManager.ensureDirectory(remoteDir)) {
+            return false;
+        }
+
+        knownDirectories.add(remoteDir);
+        result.createdDirectories++;
+        return true;
+    }
+
+    /**
+     * Traduce una ruta local dentro de la carpeta subida a su ruta remota equivalente.
+     */
+    private static String toRemotePath(Path root, Path local, String remoteRoot) {
+        Path relative = root.relativize(local);
+        if (relative.toString().isEmpty()) {
+            return remoteRoot;
+        }
+
+        StringBuilder remote = new StringBuilder(remoteRoot);
+        for (Path part : relative) {
+            remote.append('/').append(part);
+        }
+        return remote.toString();
+    }
+
+    /**
+     * Resultado de recorrer una carpeta local para subirla.
+     */
+    public static final class Result {
+        private final String remotePath;
+        private final List<TransferJob> jobs = new ArrayList<>();
+        private final List<String> failedPaths = new ArrayList<>();
+        private int createdDirectories;
+
+        private Result(String remotePath) {
+            this.remotePath = remotePath;
+        }
+
+        /**
+         * @return Ruta remota de la carpeta subida.
+         */
+        public String getRemotePath() {
+            return remotePath;
+        }
+
+        /**
+         * @return Las subidas encoladas, una por archivo.
+         */
+        public List<TransferJob> getJobs() {
+            return Collections.unmodifiableList(jobs);
+        }
+
+        /**
+         * @return Rutas locales que no se pudieron leer o cuya carpeta remota no se pudo crear.
+         */
+        public List<String> getFailedPaths() {
+            return Collections.unmodifiableList(failedPaths);
+        }
+
+        /**
+         * @return Número de carpetas remotas creadas o comprobadas durante el recorrido.
+         */
+        public int getCreatedDirectories() {
+            return createdDirectories;
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package org.sinbelisk.graphicftp.services;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Histograma de latencias sin bloqueos, pensado para registrarse desde muchos hilos a la vez.
+ * <p>
+ * Las latencias se guardan en microsegundos en cubos logarítmicos con ocho subdivisiones por cada potencia de dos,
+ * de modo que cualquier percentil se obtiene con un error relativo inferior al 12,5 % usando un array fijo de
+ * contadores. Registrar una muestra solo cuesta unos incrementos atómicos; los percentiles se calculan al leerlos.
+ * </p>
+ */
+public class LatencyHistogram {
+    // Bits de la subdivisión de cada potencia de dos (2^3 = 8 cubos)
+    private static final int SUB_BUCKET_BITS = 3;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int BUCKET_COUNT = (64 - SUB_BUCKET_BITS) * SUB_BUCKETS;
+
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKET_COUNT);
+    private final LongAdder count = new LongAdder();
+    private final LongAdder totalMicros = new LongAdder();
+    private final AtomicLong maxMicros = new AtomicLong();
+
+    /**
+     * Registra una latencia.
+     *
+     * @param nanos Duración en nanosegundos.
+     */
+    public void record(long nanos) {
+        long micros = Math.max(0, TimeUnit.NANOSECONDS.toMicros(nanos));
+        buckets.incrementAndGet(indexOf(micros));
+        count.increment();
+        totalMicros.add(micros);
+        if (micros > maxMicros.get()) {
+            maxMicros.accumulateAndGet(micros, Math::max);
+        }
+    }
+
+    /**
+     * @return Número de latencias registradas.
+     */
+    public long getCount() {
+        return count.sum();
+    }
+
+    /**
+     * @return Latencia media en milisegundos.
+     */
+    public double getMeanMillis() {
+        long samples = count.sum();
+        return samples == 0 ? 0 : totalMicros.sum() / (samples * 1000.0);
+    }
+
+    /**
+     * @return Latencia máxima registrada en milisegundos.
+     */
+    public double getMaxMillis() {
+        return maxMicros.get() / 1000.0;
+    }
+
+    /**
+     * Calcula un percentil de las latencias registradas. Las muestras que se registren mientras se calcula
+     * pueden contarse o no.
+     *
+     * @param percentile Percentil entre 0 y 100.
+     * @return La latencia del percentil en milisegundos, o 0 si no hay muestras.
+     */
+    public double getPercentileMillis(double percentile) {
+        long[] snapshot = new long[BUCKET_COUNT];
+        long total = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            snapshot[i] = buckets.get(i);
+            total += snapshot[i];
+        }
+        if (total == 0) {
+            return 0;
+        }
+
+        long rank = Math.max(1, (long) Math.ceil(total * Math.min(100, Math.max(0, percentile)) / 100.0));
+        long seen = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            seen += snapshot[i];
+            if (seen >= rank) {
+                return Math.min(midpointOf(i), maxMicros.get()) / 1000.0;
+            }
+        }
+        return getMaxMillis();
+    }
+
+    /**
+     * Calcula el cubo de un valor: los valores menores de 16 tienen un cubo propio; a partir de ahí,
+     * cada potencia de dos se divide en {@link #SUB_BUCKETS} cubos.
+     */
+    static int indexOf(long micros) {
+        if (micros < 2 * SUB_BUCKETS) {
+            return (int) micros;
+        }
+        int shift = 63 - Long.numberOfLeadingZeros(micros) - SUB_BUCKET_BITS;
+        return (shift + 1) * SUB_BUCKETS + (int) ((micros >>> shift) - SUB_BUCKETS);
+    }
+
+    /**
+     * Calcula el valor central de un cubo, en microsegundos.
+     */
+    static long midpointOf(int index) {
+        if (index < 2 * SUB_BUCKETS) {
+            return index;
+        }
+        int shift = index / SUB_BUCKETS - 1;
+        long lower = (long) (SUB_BUCKETS + index % SUB_BUCKETS) << shift;
+        return lower + ((1L << shift) >>> 1);
+    }
+}
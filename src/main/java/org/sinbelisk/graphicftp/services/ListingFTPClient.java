@@ -0,0 +1,37 @@
+package org.sinbelisk.graphicftp.services;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.Socket;
+
+import org.apache.commons.net.ftp.FTPClient;
+import org.apache.commons.net.ftp.FTPCmd;
+import org.apache.commons.net.io.SocketInputStream;
+
+/**
+ * Sesión FTP que, además de lo que ofrece {@link FTPClient}, da acceso directo a los bytes de un listado {@code MLSD}.
+ * <p>
+ * {@link FTPClient#mlistDir(String)} convierte cada línea en un {@code String} y después en un
+ * {@link org.apache.commons.net.ftp.FTPFile}; con este flujo, {@link MlsdParser} construye las
+ * {@link RemoteEntry} directamente desde los bytes recibidos.
+ * </p>
+ */
+final class ListingFTPClient extends FTPClient {
+
+    /**
+     * Envía {@code MLSD} y abre la conexión de datos por la que llega el listado, igual que
+     * {@link FTPClient#retrieveFileStream(String)} con {@code RETR}. Al cerrar el flujo se cierra la conexión de datos
+     * y después hay que llamar a {@link #completePendingCommand()} para leer la respuesta final.
+     *
+     * @param pathname Ruta de la carpeta, o {@code null} para el directorio de trabajo.
+     * @return El flujo con las líneas del listado, o {@code null} si el servidor ha rechazado el comando.
+     * @throws IOException si ocurre un error al abrir la conexión de datos.
+     */
+    InputStream openMachineListing(String pathname) throws IOException {
+        Socket socket = _openDataConnection_(FTPCmd.MLSD, pathname);
+        if (socket == null) {
+            return null;
+        }
+        return new SocketInputStream(socket, socket.getInputStream());
+    }
+}
@@ -0,0 +1,164 @@
+package org.sinbelisk.graphicftp.services;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Apertura de los archivos locales de las transferencias a través de {@link FileChannel}.
+ * <p>
+ * Las lecturas de archivos grandes se hacen sobre ventanas del archivo mapeadas en memoria: los datos pasan
+ * de la caché de páginas del sistema al búfer de la transferencia sin una llamada al sistema por bloque.
+ * Los archivos pequeños se leen con el canal directamente, ya que mapearlos cuesta más de lo que ahorra.
+ * Las escrituras usan siempre el canal, que permite recortar el archivo y continuar al reanudar una descarga.
+ * </p>
+ */
+public final class LocalFileChannels {
+
+    // Tamaño de cada ventana mapeada; un MappedByteBuffer no puede superar los 2 GB
+    private static final long MAP_WINDOW_SIZE = 128L * 1024 * 1024;
+
+    private LocalFileChannels() {
+    }
+
+    /**
+     * Abre un archivo local para leerlo a partir de un desplazamiento.
+     *
+     * @param path               Ruta del archivo.
+     * @param offset             Byte desde el que se empieza a leer.
+     * @param memoryMapThreshold Bytes por leer a partir de los cuales el archivo se mapea en memoria.
+     * @return El flujo de lectura, que cierra el canal al cerrarse.
+     * @throws IOException Si no se puede abrir el archivo.
+     */
+    public static InputStream openInput(Path path, long offset, long memoryMapThreshold) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            long size = channel.size();
+            if (size - offset >= memoryMapThreshold) {
+                return new MappedInputStream(channel, offset, size);
+            }
+            channel.position(offset);
+            return Channels.newInputStream(channel);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Abre un archivo local para escribir en él. Si se reanuda, se recorta a los bytes confirmados
+     * y se escribe a continuación; si no, se sobrescribe.
+     *
+     * @param path   Ruta del archivo.
+     * @param offset Bytes del archivo que se conservan.
+     * @return El flujo de escritura, que cierra el canal al cerrarse.
+     * @throws IOException Si no se puede abrir el archivo.
+     */
+    public static OutputStream openOutput(Path path, long offset) throws IOException {
+        if (offset == 0) {
+            return Channels.newOutputStream(FileChannel.open(path, StandardOpenOption.CREATE,
+                    StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING));
+        }
+
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        try {
+            channel.truncate(offset);
+            channel.position(offset);
+            return Channels.newOutputStream(channel);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Flujo que lee un archivo a través de ventanas consecutivas mapeadas en memoria.
+     * Cada ventana se libera cuando el recolector de basura recoge su búfer.
+     */
+    private static final class MappedInputStream extends InputStream {
+        private final FileChannel channel;
+        private final long size;
+        private long windowStart;
+        private MappedByteBuffer window;
+
+        private MappedInputStream(FileChannel channel, long offset, long size) {
+            this.channel = channel;
+            this.size = size;
+            this.windowStart = offset;
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (!ensureWindow()) {
+                return -1;
+            }
+            return window.get() & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            if (length == 0) {
+                return 0;
+            }
+            if (!ensureWindow()) {
+                return -1;
+            }
+            int count = Math.min(length, window.remaining());
+            window.get(buffer, offset, count);
+            return count;
+        }
+
+        @Override
+        public long skip(long bytes) throws IOException {
+            long skipped = Math.max(0, Math.min(bytes, available()));
+            if (window != null) {
+                long inWindow = Math.min(skipped, window.remaining());
+                window.position(window.position() + (int) inWindow);
+                if (inWindow < skipped) {
+                    windowStart += window.limit() + (skipped - inWindow);
+                    window = null;
+                }
+            } else {
+                windowStart += skipped;
+            }
+            return skipped;
+        }
+
+        @Override
+        public int available() {
+            long remaining = size - windowStart - (window == null ? 0 : window.position());
+            return (int) Math.min(Integer.MAX_VALUE, Math.max(0, remaining));
+        }
+
+        @Override
+        public void close() throws IOException {
+            window = null;
+            channel.close();
+        }
+
+        /**
+         * Mapea la siguiente ventana si la actual se ha agotado.
+         *
+         * @return false si se ha llegado al final del archivo.
+         */
+        private boolean ensureWindow() throws IOException {
+            if (window != null && window.hasRemaining()) {
+                return true;
+            }
+            if (window != null) {
+                windowStart += window.limit();
+                window = null;
+            }
+            if (windowStart >= size) {
+                return false;
+            }
+            window = channel.map(FileChannel.MapMode.READ_ONLY, windowStart, Math.min(MAP_WINDOW_SIZE, size - windowStart));
+            return true;
+        }
+    }
+}
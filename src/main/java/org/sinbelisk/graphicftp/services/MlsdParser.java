@@ -0,0 +1,311 @@
+package org.sinbelisk.graphicftp.services;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Intérprete de listados {@code MLSD} (RFC 3659) que construye las {@link RemoteEntry} directamente desde los bytes
+ * recibidos por la conexión de datos.
+ * <p>
+ * Cada línea tiene la forma {@code hecho=valor;hecho=valor; nombre}: los hechos terminan en el primer espacio y
+ * el resto de la línea es el nombre, que puede contener espacios. A diferencia de {@code LIST}, el formato no depende
+ * del servidor y las fechas van siempre en UTC con segundos. Los hechos se recorren por posiciones dentro del búfer,
+ * sin expresiones regulares ni cadenas intermedias; por cada entrada solo se crean el nombre, la ruta y la propia
+ * {@link RemoteEntry}. Se interpretan {@code type}, {@code size}, {@code sizd} y {@code modify}, sin distinguir
+ * mayúsculas; el resto de hechos se ignoran.
+ * </p>
+ * <p>
+ * Las entradas {@code type=cdir} y {@code type=pdir}, que describen la propia carpeta y su carpeta padre,
+ * se descartan, igual que las líneas que no tienen el formato esperado. Las entradas pueden entregarse por páginas
+ * a medida que se leen, sin esperar a que termine el listado.
+ * </p>
+ */
+public final class MlsdParser {
+    private static final int BUFFER_SIZE = 16 * 1024;
+    private static final int TIMESTAMP_DIGITS = 14;
+
+    private MlsdParser() {
+    }
+
+    /**
+     * Lee un listado {@code MLSD} completo.
+     *
+     * @param in         Flujo con las líneas del listado, separadas por {@code CRLF} o {@code LF}. No se cierra.
+     * @param parentPath Ruta de la carpeta listada, con la que se construye la ruta de cada entrada.
+     * @param charset    Codificación de los nombres, la misma que la del canal de control.
+     * @return Las entradas del listado, en el orden en que las ha enviado el servidor.
+     * @throws IOException si ocurre un error al leer el flujo.
+     */
+    public static RemoteEntry[] parse(InputStream in, String parentPath, Charset charset) throws IOException {
+        List<RemoteEntry> entries = new ArrayList<>();
+        parse(in, parentPath, charset, Integer.MAX_VALUE, page -> entries.addAll(Arrays.asList(page)));
+        return entries.toArray(new RemoteEntry[0]);
+    }
+
+    /**
+     * Lee un listado {@code MLSD} entregando las entradas por páginas a medida que llegan, de modo que
+     * el llamante puede mostrar las primeras sin esperar al resto del listado.
+     *
+     * @param in           Flujo con las líneas del listado, separadas por {@code CRLF} o {@code LF}. No se cierra.
+     * @param parentPath   Ruta de la carpeta listada, con la que se construye la ruta de cada entrada.
+     * @param charset      Codificación de los nombres, la misma que la del canal de control.
+     * @param pageSize     Número máximo de entradas por página.
+     * @param pageConsumer Receptor de cada página, llamado en el hilo actual mientras se sigue leyendo el flujo.
+     *                     Un listado vacío no produce ninguna página.
+     * @throws IOException si ocurre un error al leer el flujo.
+     */
+    public static void parse(InputStream in, String parentPath, Charset charset, int pageSize,
+                             Consumer<RemoteEntry[]> pageConsumer) throws IOException {
+        List<RemoteEntry> page = new ArrayList<>(Math.min(pageSize, BUFFER_SIZE));
+        byte[] buffer = new byte[BUFFER_SIZE];
+        int lineStart = 0;
+        int scanned = 0;
+        int end = 0;
+
+        while (true) {
+            for (; scanned < end; scanned++) {
+                if (buffer[scanned] == '\n') {
+                    addEntry(page, buffer, lineStart, scanned, parentPath, charset);
+                    lineStart = scanned + 1;
+                    if (page.size() >= pageSize) {
+                        flush(page, pageConsumer);
+                    }
+                }
+            }
+
+            // La línea incompleta se mueve al principio del búfer; si ocupa el búfer entero, se amplía.
+            if (lineStart > 0) {
+                System.arraycopy(buffer, lineStart, buffer, 0, end - lineStart);
+                end -= lineStart;
+                scanned = end;
+                lineStart = 0;
+            } else if (end == buffer.length) {
+                buffer = Arrays.copyOf(buffer, buffer.length * 2);
+            }
+
+            int read = in.read(buffer, end, buffer.length - end);
+            if (read < 0) {
+                break;
+            }
+            end += read;
+        }
+
+        // La última línea puede llegar sin salto de línea
+        addEntry(page, buffer, lineStart, end, parentPath, charset);
+        if (!page.isEmpty()) {
+            flush(page, pageConsumer);
+        }
+    }
+
+    /**
+     * Interpreta una sola línea de un listado {@code MLSD}.
+     *
+     * @param line       La línea, sin el salto de línea final.
+     * @param parentPath Ruta de la carpeta listada.
+     * @return La entrada, o {@code null} si la línea no tiene el formato esperado o describe la propia carpeta
+     * o su carpeta padre.
+     */
+    public static RemoteEntry parseLine(String line, String parentPath) {
+        byte[] bytes = line.getBytes(StandardCharsets.UTF_8);
+        return parseEntry(bytes, 0, bytes.length, parentPath, StandardCharsets.UTF_8);
+    }
+
+    private static void flush(List<RemoteEntry> page, Consumer<RemoteEntry[]> pageConsumer) {
+        RemoteEntry[] entries = page.toArray(new RemoteEntry[0]);
+        page.clear();
+        pageConsumer.accept(entries);
+    }
+
+    private static void addEntry(List<RemoteEntry> entries, byte[] buffer, int from, int to, String parentPath,
+                                 Charset charset) {
+        if (to > from && buffer[to - 1] == '\r') {
+            to--;
+        }
+        if (to > from) {
+            RemoteEntry entry = parseEntry(buffer, from, to, parentPath, charset);
+            if (entry != null) {
+                entries.add(entry);
+            }
+        }
+    }
+
+    /**
+     * Interpreta los bytes {@code [from, to)} de una línea.
+     */
+    static RemoteEntry parseEntry(byte[] line, int from, int to, String parentPath, Charset charset) {
+        int factsEnd = indexOf(line, from, to, (byte) ' ');
+        if (factsEnd < 0 || factsEnd + 1 >= to) {
+            return null;
+        }
+
+        RemoteEntry.Type type = RemoteEntry.Type.FILE;
+        long size = RemoteEntry.UNKNOWN;
+        long modificationTime = RemoteEntry.UNKNOWN;
+
+        int fact = from;
+        while (fact < factsEnd) {
+            int separator = indexOf(line, fact, factsEnd, (byte) ';');
+            if (separator < 0) {
+                separator = factsEnd;
+            }
+            // El valor de type puede contener '=' (type=OS.unix=slink:destino), así que se busca el primero
+            int equals = indexOf(line, fact, separator, (byte) '=');
+            if (equals > fact) {
+                int value = equals + 1;
+                if (nameEquals(line, fact, equals, "type")) {
+                    type = parseType(line, value, separator);
+                    if (type == null) {
+                        return null;
+                    }
+                } else if (nameEquals(line, fact, equals, "size") || nameEquals(line, fact, equals, "sizd")) {
+                    size = parseNumber(line, value, separator);
+                } else if (nameEquals(line, fact, equals, "modify")) {
+                    modificationTime = parseTimestamp(line, value, separator);
+                }
+            }
+            fact = separator + 1;
+        }
+
+        String name = new String(line, factsEnd + 1, to - factsEnd - 1, charset);
+        return new RemoteEntry(name, RemoteEntry.join(parentPath, name), type, size, modificationTime);
+    }
+
+    /**
+     * @return El tipo de la entrada, o {@code null} para {@code cdir} y {@code pdir}. Los tipos desconocidos,
+     * como los dispositivos de Unix, se tratan como archivos.
+     */
+    private static RemoteEntry.Type parseType(byte[] line, int from, int to) {
+        if (nameEquals(line, from, to, "file")) {
+            return RemoteEntry.Type.FILE;
+        }
+        if (nameEquals(line, from, to, "dir")) {
+            return RemoteEntry.Type.DIRECTORY;
+        }
+        if (nameEquals(line, from, to, "cdir") || nameEquals(line, from, to, "pdir")) {
+            return null;
+        }
+        if (startsWith(line, from, to, "os.unix=slink") || startsWith(line, from, to, "os.unix=symlink")) {
+            return RemoteEntry.Type.SYMBOLIC_LINK;
+        }
+        return RemoteEntry.Type.FILE;
+    }
+
+    private static long parseNumber(byte[] line, int from, int to) {
+        // Más de 18 cifras podrían desbordar un long
+        if (to <= from || to - from > 18) {
+            return RemoteEntry.UNKNOWN;
+        }
+        long value = 0;
+        for (int i = from; i < to; i++) {
+            int digit = line[i] - '0';
+            if (digit < 0 || digit > 9) {
+                return RemoteEntry.UNKNOWN;
+            }
+            value = value * 10 + digit;
+        }
+        return value;
+    }
+
+    /**
+     * Convierte una fecha {@code YYYYMMDDHHMMSS[.sss]} en UTC a milisegundos desde la época.
+     */
+    private static long parseTimestamp(byte[] line, int from, int to) {
+        if (to - from < TIMESTAMP_DIGITS) {
+            return RemoteEntry.UNKNOWN;
+        }
+        int year = digits(line, from, 4);
+        int month = digits(line, from + 4, 2);
+        int day = digits(line, from + 6, 2);
+        int hour = digits(line, from + 8, 2);
+        int minute = digits(line, from + 10, 2);
+        int second = digits(line, from + 12, 2);
+        if (year < 0 || month < 1 || month > 12 || day < 1 || day > 31 || hour < 0 || hour > 23
+                || minute < 0 || minute > 59 || second < 0 || second > 60) {
+            return RemoteEntry.UNKNOWN;
+        }
+
+        int millis = 0;
+        int fraction = from + TIMESTAMP_DIGITS;
+        if (fraction < to) {
+            if (line[fraction] != '.') {
+                return RemoteEntry.UNKNOWN;
+            }
+            // Solo se conservan los milisegundos; el resto de cifras se ignoran
+            int scale = 100;
+            for (int i = fraction + 1; i < to; i++) {
+                int digit = line[i] - '0';
+                if (digit < 0 || digit > 9) {
+                    return RemoteEntry.UNKNOWN;
+                }
+                millis += digit * scale;
+                scale /= 10;
+            }
+        }
+
+        long seconds = ((daysFromEpoch(year, month, day) * 24 + hour) * 60 + minute) * 60 + second;
+        return seconds * 1000 + millis;
+    }
+
+    /**
+     * Número de días entre el 1 de enero de 1970 y la fecha indicada del calendario gregoriano,
+     * calculado sin {@link java.util.Calendar} a partir de eras de 400 años.
+     */
+    private static long daysFromEpoch(int year, int month, int day) {
+        int y = month <= 2 ? year - 1 : year;
+        int era = Math.floorDiv(y, 400);
+        int yearOfEra = y - era * 400;
+        // Los años empiezan en marzo para que el 29 de febrero quede al final
+        int dayOfYear = (153 * ((month + 9) % 12) + 2) / 5 + day - 1;
+        int dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+        return era * 146_097L + dayOfEra - 719_468;
+    }
+
+    private static int digits(byte[] line, int from, int count) {
+        int value = 0;
+        for (int i = from; i < from + count; i++) {
+            int digit = line[i] - '0';
+            if (digit < 0 || digit > 9) {
+                return -1;
+            }
+            value = value * 10 + digit;
+        }
+        return value;
+    }
+
+    private static int indexOf(byte[] line, int from, int to, byte value) {
+        for (int i = from; i < to; i++) {
+            if (line[i] == value) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static boolean nameEquals(byte[] line, int from, int to, String lowerCaseName) {
+        return to - from == lowerCaseName.length() && startsWith(line, from, to, lowerCaseName);
+    }
+
+    /**
+     * Compara sin distinguir mayúsculas con un texto ASCII en minúsculas.
+     */
+    private static boolean startsWith(byte[] line, int from, int to, String lowerCasePrefix) {
+        int length = lowerCasePrefix.length();
+        if (to - from < length) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            byte b = line[from + i];
+            char expected = lowerCasePrefix.charAt(i);
+            if (b != expected && !(expected >= 'a' && expected <= 'z' && (b | 0x20) == expected)) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
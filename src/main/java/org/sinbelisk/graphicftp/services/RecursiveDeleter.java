@@ -0,0 +1,325 @@
+package org.sinbelisk.graphicftp.services;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.commons.net.ftp.FTPClient;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Elimina una carpeta remota junto con todo su contenido.
+ * <p>
+ * El subárbol se lista desde el servidor, sin usar la {@link DirectoryListingCache}, y cada archivo se elimina
+ * en cuanto aparece en un listado, con varias eliminaciones en paralelo sobre sesiones del {@link FTPConnectionPool}.
+ * Cuando no quedan archivos, las carpetas se eliminan de la más profunda a la menos profunda; las carpetas
+ * de un mismo nivel también se eliminan en paralelo.
+ * </p>
+ * <p>
+ * Si algún elemento no se puede eliminar, el resto se sigue eliminando y el {@link Result} recoge la respuesta
+ * del servidor para cada fallo. Las carpetas que contienen un elemento fallido se conservan.
+ * </p>
+ */
+public class RecursiveDeleter {
+    private static final Logger logger = LogManager.getLogger(RecursiveDeleter.class);
+
+    /**
+     * Número de operaciones simultáneas por defecto.
+     */
+    public static final int DEFAULT_PARALLELISM = Math.max(1, FTPConnectionPool.DEFAULT_MAX_SIZE - 1);
+
+    // Cada cuántos elementos eliminados se informa del progreso
+    private static final int PROGRESS_STEP = 50;
+
+    private final FTPClientManager ftpClientManager;
+    private final Executor executor;
+
+    /**
+     * Constructor del eliminador con el número de operaciones simultáneas por defecto.
+     *
+     * @param ftpClientManager Gestor FTP cuyas sesiones se utilizan.
+     */
+    public RecursiveDeleter(FTPClientManager ftpClientManager) {
+        this(ftpClientManager, DEFAULT_PARALLELISM);
+    }
+
+    /**
+     * Constructor del eliminador.
+     *
+     * @param ftpClientManager Gestor FTP cuyas sesiones se utilizan.
+     * @param parallelism      Número máximo de listados y eliminaciones simultáneos.
+     */
+    public RecursiveDeleter(FTPClientManager ftpClientManager, int parallelism) {
+        this.ftpClientManager = ftpClientManager;
+        this.executor = ftpClientManager.getTaskExecutor().limitedTo(parallelism);
+    }
+
+    /**
+     * Elimina una carpeta remota y todo su contenido. El método vuelve cuando ha terminado.
+     *
+     * @param remoteFolder Ruta de la carpeta en el servidor FTP.
+     * @param listener     Receptor del progreso, llamado desde los hilos de trabajo. Puede ser {@code null}.
+     * @return El resultado de la eliminación, con los elementos eliminados y los que fallaron.
+     * @throws IOException si no hay conexión o la eliminación se interrumpe.
+     */
+    public Result delete(String remoteFolder, ProgressListener listener) throws IOException {
+        FTPConnectionPool pool = ftpClientManager.getConnectionPool();
+        if (pool == null || pool.isClosed()) {
+            throw new IOException("Not connected to FTP server");
+        }
+
+        Run run = new Run(pool, listener);
+        run.submit(() -> run.listFolder(remoteFolder, 0));
+        run.await();
+        run.removeFolders();
+
+        DirectoryListingCache cache = ftpClientManager.getListingCache();
+        cache.invalidateTree(remoteFolder);
+        cache.invalidateParent(remoteFolder);
+
+        Result result = run.result;
+        run.reportProgress();
+        logger.info("Recursive delete of {}: {} files and {} folders deleted, {} failures.", remoteFolder,
+                result.deletedFiles.get(), result.deletedFolders.get(), result.failures.size());
+        return result;
+    }
+
+    /**
+     * Estado de una eliminación en curso.
+     */
+    private final class Run {
+        private final FTPConnectionPool pool;
+        private final ProgressListener listener;
+        private final Result result = new Result();
+        private final Queue<Folder> folders = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger discovered = new AtomicInteger(1);
+        private final AtomicInteger deleted = new AtomicInteger();
+        private final AtomicInteger outstanding = new AtomicInteger();
+        private volatile CompletableFuture<Void> done = new CompletableFuture<>();
+
+        private Run(FTPConnectionPool pool, ProgressListener listener) {
+            this.pool = pool;
+            this.listener = listener;
+        }
+
+        /**
+         * Programa una tarea y la cuenta como pendiente hasta que termine.
+         */
+        private void submit(Runnable task) {
+            outstanding.incrementAndGet();
+            try {
+                executor.execute(() -> {
+                    try {
+                        task.run();
+                    } finally {
+                        finishOne();
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                finishOne();
+            }
+        }
+
+        private void finishOne() {
+            if (outstanding.decrementAndGet() == 0) {
+                done.complete(null);
+            }
+        }
+
+        private void await() throws IOException {
+            try {
+                done.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Recursive delete interrupted");
+            } catch (ExecutionException e) {
+                throw new IOException(e.getCause());
+            }
+        }
+
+        /**
+         * Lista una carpeta, programa la eliminación de sus archivos y el listado de sus subcarpetas.
+         */
+        private void listFolder(String path, int depth) {
+            RemoteEntry[] entries;
+            try {
+                entries = pool.execute(client -> ftpClientManager.listEntries(client, path));
+            } catch (IOException e) {
+                result.failures.put(path, e.getMessage());
+                return;
+            }
+            folders.add(new Folder(path, depth));
+
+            for (RemoteEntry entry : entries) {
+                String name = entry.getName();
+                if (".".equals(name) || "..".equals(name)) {
+                    continue;
+                }
+
+                String childPath = RemoteEntry.join(path, name);
+                discovered.incrementAndGet();
+                if (entry.isDirectory()) {
+                    submit(() -> listFolder(childPath, depth + 1));
+                } else {
+                    // Los enlaces simbólicos se eliminan como archivos, sin seguirlos.
+                    submit(() -> remove(childPath, false));
+                }
+            }
+        }
+
+        /**
+         * Elimina las carpetas listadas de la más profunda a la menos profunda.
+         * Las carpetas de un mismo nivel se eliminan en paralelo.
+         */
+        private void removeFolders() throws IOException {
+            TreeMap<Integer, List<String>> byDepth = new TreeMap<>();
+            for (Folder folder : folders) {
+                byDepth.computeIfAbsent(folder.depth, key -> new ArrayList<>()).add(folder.path);
+            }
+
+            for (List<String> level : byDepth.descendingMap().values()) {
+                done = new CompletableFuture<>();
+                outstanding.incrementAndGet(); // Evita que el nivel se dé por terminado mientras se programa
+                for (String path : level) {
+                    if (!containsFailure(path)) {
+                        submit(() -> remove(path, true));
+                    }
+                }
+                finishOne();
+                await();
+            }
+        }
+
+        /**
+         * Elimina un archivo o una carpeta vacía y anota la respuesta del servidor si falla.
+         */
+        private void remove(String path, boolean folder) {
+            try {
+                String error = pool.execute(client -> {
+                    boolean removed = folder ? client.removeDirectory(path) : client.deleteFile(path);
+                    return removed ? null : replyOf(client);
+                });
+
+                if (error != null) {
+                    result.failures.put(path, error);
+                    return;
+                }
+                if (folder) {
+                    result.deletedFolders.incrementAndGet();
+                } else {
+                    result.deletedFiles.incrementAndGet();
+                }
+            } catch (IOException e) {
+                result.failures.put(path, e.getMessage());
+                return;
+            }
+
+            // Solo informa cuando el número de eliminados alcanza un múltiplo del paso, no en cada fallo posterior
+            if (deleted.incrementAndGet() % PROGRESS_STEP == 0) {
+                reportProgress();
+            }
+        }
+
+        /**
+         * Comprueba si algún elemento de una carpeta no se pudo eliminar, en cuyo caso la carpeta no estará vacía.
+         */
+        private boolean containsFailure(String folderPath) {
+            String prefix = folderPath.endsWith("/") ? folderPath : folderPath + "/";
+            for (String failed : result.failures.keySet()) {
+                if (failed.startsWith(prefix)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private void reportProgress() {
+            if (listener != null) {
+                listener.onProgress(result.getDeletedCount(), discovered.get());
+            }
+        }
+    }
+
+    private static String replyOf(FTPClient client) {
+        String reply = client.getReplyString();
+        return reply == null ? "Sin respuesta del servidor" : reply.trim();
+    }
+
+    /**
+     * Carpeta listada durante la eliminación, con su profundidad respecto a la carpeta eliminada.
+     */
+    private static final class Folder {
+        private final String path;
+        private final int depth;
+
+        private Folder(String path, int depth) {
+            this.path = path;
+            this.depth = depth;
+        }
+    }
+
+    /**
+     * Receptor del progreso de una eliminación.
+     */
+    @FunctionalInterface
+    public interface ProgressListener {
+        /**
+         * @param deleted    Número de archivos y carpetas eliminados hasta ahora.
+         * @param discovered Número de archivos y carpetas encontrados hasta ahora, incluida la carpeta eliminada.
+         */
+        void onProgress(int deleted, int discovered);
+    }
+
+    /**
+     * Resultado de una eliminación recursiva.
+     */
+    public static final class Result {
+        private final AtomicInteger deletedFiles = new AtomicInteger();
+        private final AtomicInteger deletedFolders = new AtomicInteger();
+        private final Map<String, String> failures = new ConcurrentHashMap<>();
+
+        private Result() {
+        }
+
+        public int getDeletedFiles() {
+            return deletedFiles.get();
+        }
+
+        public int getDeletedFolders() {
+            return deletedFolders.get();
+        }
+
+        /**
+         * @return Número total de archivos y carpetas eliminados.
+         */
+        public int getDeletedCount() {
+            return deletedFiles.get() + deletedFolders.get();
+        }
+
+        /**
+         * @return Los elementos que no se pudieron eliminar, ordenados por ruta, con la respuesta del servidor.
+         */
+        public Map<String, String> getFailures() {
+            return new TreeMap<>(failures);
+        }
+
+        /**
+         * @return true si se eliminó todo el contenido y la propia carpeta.
+         */
+        public boolean isSuccessful() {
+            return failures.isEmpty();
+        }
+    }
+}
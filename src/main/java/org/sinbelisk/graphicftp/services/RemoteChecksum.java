@@ -0,0 +1,278 @@
+package org.sinbelisk.graphicftp.services;
+
+import java.io.FilterInputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Locale;
+import java.util.zip.CRC32;
+
+/**
+ * Suma de comprobación de un archivo remota, tal y como la devuelve el servidor con el comando {@code HASH}
+ * o con las extensiones {@code XMD5}, {@code XSHA1} y {@code XCRC}.
+ * Permite calcular la misma suma sobre un archivo local para comparar ambos sin transferir el contenido,
+ * o calcularla con un {@link Calculator} sobre los datos de una transferencia mientras se envían o reciben.
+ */
+public final class RemoteChecksum {
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final String algorithm;
+    private final String value;
+
+    /**
+     * Constructor de la suma de comprobación.
+     *
+     * @param algorithm Nombre del algoritmo tal y como lo usa el servidor ({@code SHA-256}, {@code MD5}, {@code CRC32}...).
+     * @param value     Valor de la suma en hexadecimal.
+     */
+    public RemoteChecksum(String algorithm, String value) {
+        this.algorithm = algorithm.toUpperCase(Locale.ROOT);
+        this.value = value.toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Interpreta la respuesta a un comando {@code HASH}, con la forma
+     * {@code 213 SHA-256 0-1234 80a5...e1 nombre}.
+     *
+     * @param reply Respuesta completa del servidor.
+     * @return La suma de comprobación, o {@code null} si la respuesta no tiene el formato esperado.
+     */
+    public static RemoteChecksum parseHashReply(String reply) {
+        if (reply == null) {
+            return null;
+        }
+
+        String[] parts = reply.trim().split("\\s+", 5);
+        if (parts.length < 4 || !"213".equals(parts[0]) || !parts[3].matches("[0-9A-Fa-f]+")) {
+            return null;
+        }
+        return new RemoteChecksum(parts[1], parts[3]);
+    }
+
+    /**
+     * Interpreta la respuesta a un comando {@code XMD5}, {@code XSHA1} o {@code XCRC}, que contiene solo el valor
+     * de la suma, por ejemplo {@code 250 098F6BCD4621D373CADE4E832627B4F6}.
+     *
+     * @param algorithm Algoritmo correspondiente al comando enviado.
+     * @param reply     Respuesta completa del servidor.
+     * @return La suma de comprobación, o {@code null} si la respuesta no es correcta.
+     */
+    public static RemoteChecksum parseValueReply(String algorithm, String reply) {
+        if (reply == null || !reply.startsWith("2")) {
+            return null;
+        }
+
+        String[] parts = reply.trim().split("\\s+");
+        for (int i = 1; i < parts.length; i++) {
+            if (parts[i].matches("[0-9A-Fa-f]+")) {
+                String value = parts[i];
+                // Algunos servidores omiten los ceros a la izquierda del CRC
+                if ("CRC32".equalsIgnoreCase(algorithm) && value.length() < 8) {
+                    value = "0".repeat(8 - value.length()) + value;
+                }
+                return new RemoteChecksum(algorithm, value);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Crea una calculadora de la suma indicada para alimentarla con los datos de una transferencia.
+     *
+     * @param algorithm Nombre del algoritmo ({@code CRC32} o cualquiera de {@link MessageDigest}).
+     * @return La calculadora, sin datos.
+     * @throws IOException si el algoritmo no está disponible.
+     */
+    public static Calculator newCalculator(String algorithm) throws IOException {
+        return new Calculator(algorithm);
+    }
+
+    public String getAlgorithm() {
+        return algorithm;
+    }
+
+    public String getValue() {
+        return value;
+    }
+
+    /**
+     * Calcula la misma suma sobre un archivo local y la compara con esta.
+     *
+     * @param file El archivo local.
+     * @return true si ambas sumas coinciden.
+     * @throws IOException si no se puede leer el archivo o el algoritmo no está disponible.
+     */
+    public boolean matches(Path file) throws IOException {
+        return value.equals(compute(file, algorithm));
+    }
+
+    /**
+     * Calcula la suma de comprobación de un archivo local.
+     *
+     * @param file      El archivo local.
+     * @param algorithm Nombre del algoritmo ({@code CRC32} o cualquiera de {@link MessageDigest}).
+     * @return El valor de la suma en hexadecimal y minúsculas.
+     * @throws IOException si no se puede leer el archivo o el algoritmo no está disponible.
+     */
+    public static String compute(Path file, String algorithm) throws IOException {
+        Calculator calculator = new Calculator(algorithm);
+        byte[] buffer = new byte[BUFFER_SIZE];
+
+        try (InputStream input = Files.newInputStream(file)) {
+            int read;
+            while ((read = input.read(buffer)) >= 0) {
+                calculator.update(buffer, 0, read);
+            }
+        }
+        return calculator.getValue();
+    }
+
+    /**
+     * Convierte bytes a hexadecimal en minúsculas.
+     */
+    static String toHex(byte[] bytes) {
+        StringBuilder hex = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes) {
+            hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+        return hex.toString();
+    }
+
+    @Override
+    public String toString() {
+        return algorithm + " " + value;
+    }
+
+    /**
+     * Calcula una suma de comprobación a medida que recibe datos, de modo que una transferencia puede verificarse
+     * sin volver a leer el archivo. Cada calculadora debe usarse desde un único hilo cada vez.
+     */
+    public static final class Calculator {
+        private final String algorithm;
+        private final MessageDigest digest;
+        private final CRC32 crc;
+        private long byteCount;
+        private String value;
+
+        private Calculator(String algorithm) throws IOException {
+            this.algorithm = algorithm.toUpperCase(Locale.ROOT);
+            if ("CRC32".equals(this.algorithm)) {
+                this.digest = null;
+                this.crc = new CRC32();
+            } else {
+                try {
+                    this.digest = MessageDigest.getInstance(this.algorithm);
+                } catch (NoSuchAlgorithmException e) {
+                    throw new IOException("Unsupported checksum algorithm: " + algorithm, e);
+                }
+                this.crc = null;
+            }
+        }
+
+        public String getAlgorithm() {
+            return algorithm;
+        }
+
+        /**
+         * @return Número de bytes incluidos en la suma.
+         */
+        public long getByteCount() {
+            return byteCount;
+        }
+
+        void update(byte[] bytes, int offset, int length) {
+            if (crc != null) {
+                crc.update(bytes, offset, length);
+            } else {
+                digest.update(bytes, offset, length);
+            }
+            byteCount += length;
+        }
+
+        void update(int b) {
+            if (crc != null) {
+                crc.update(b);
+            } else {
+                digest.update((byte) b);
+            }
+            byteCount++;
+        }
+
+        /**
+         * Termina el cálculo. Los datos recibidos después ya no se tienen en cuenta.
+         *
+         * @return El valor de la suma en hexadecimal y minúsculas.
+         */
+        public String getValue() {
+            if (value == null) {
+                value = crc != null ? String.format("%08x", crc.getValue()) : toHex(digest.digest());
+            }
+            return value;
+        }
+
+        /**
+         * Envuelve un flujo de entrada para que todos los bytes leídos se incluyan en la suma.
+         *
+         * @param input El flujo original.
+         * @return El flujo que alimenta la calculadora.
+         */
+        public InputStream wrap(InputStream input) {
+            return new FilterInputStream(input) {
+                @Override
+                public int read() throws IOException {
+                    int b = super.read();
+                    if (b >= 0) {
+                        update(b);
+                    }
+                    return b;
+                }
+
+                @Override
+                public int read(byte[] bytes, int offset, int length) throws IOException {
+                    int read = super.read(bytes, offset, length);
+                    if (read > 0) {
+                        update(bytes, offset, read);
+                    }
+                    return read;
+                }
+
+                @Override
+                public long skip(long n) {
+                    return 0; // Saltar bytes dejaría la suma incompleta
+                }
+
+                @Override
+                public boolean markSupported() {
+                    return false;
+                }
+            };
+        }
+
+        /**
+         * Envuelve un flujo de salida para que todos los bytes escritos se incluyan en la suma.
+         *
+         * @param output El flujo original.
+         * @return El flujo que alimenta la calculadora.
+         */
+        public OutputStream wrap(OutputStream output) {
+            return new FilterOutputStream(output) {
+                @Override
+                public void write(int b) throws IOException {
+                    out.write(b);
+                    update(b);
+                }
+
+                @Override
+                public void write(byte[] bytes, int offset, int length) throws IOException {
+                    out.write(bytes, offset, length);
+                    update(bytes, offset, length);
+                }
+            };
+        }
+    }
+}
@@ -0,0 +1,196 @@
+package org.sinbelisk.graphicftp.services;
+
+import java.io.File;
+import java.util.Calendar;
+
+import org.apache.commons.net.ftp.FTPFile;
+
+/**
+ * Representa un archivo o carpeta del servidor FTP tal y como se muestra en el árbol de archivos.
+ * Guarda el nombre, la ruta completa, el tipo, el tamaño y la fecha de modificación, de modo que obtener
+ * la ruta de un elemento del árbol no requiere recorrerlo hasta la raíz.
+ * <p>
+ * Las instancias son inmutables: renombrar o mover un elemento produce una nueva entrada.
+ * </p>
+ */
+public final class RemoteEntry {
+
+    /**
+     * Tipo de elemento remoto.
+     */
+    public enum Type {
+        DIRECTORY, FILE, SYMBOLIC_LINK,
+        /**
+         * Marcador que ocupa el lugar de los hijos de una carpeta que todavía no se ha listado.
+         */
+        PLACEHOLDER
+    }
+
+    /**
+     * Valor usado cuando el servidor no informa del tamaño o de la fecha.
+     */
+    public static final long UNKNOWN = -1;
+
+    private static final RemoteEntry ROOT = new RemoteEntry("Root", "/", Type.DIRECTORY, UNKNOWN, UNKNOWN);
+
+    private final String name;
+    private final String path;
+    private final Type type;
+    private final long size;
+    private final long modificationTime;
+
+    /**
+     * Constructor de la entrada.
+     *
+     * @param name             Nombre del archivo o carpeta, sin ruta.
+     * @param path             Ruta absoluta en el servidor.
+     * @param type             Tipo de elemento.
+     * @param size             Tamaño en bytes, o {@link #UNKNOWN}.
+     * @param modificationTime Fecha de modificación en milisegundos desde la época, o {@link #UNKNOWN}.
+     */
+    public RemoteEntry(String name, String path, Type type, long size, long modificationTime) {
+        this.name = name;
+        this.path = path;
+        this.type = type;
+        this.size = size;
+        this.modificationTime = modificationTime;
+    }
+
+    /**
+     * @return La entrada que representa la raíz del servidor.
+     */
+    public static RemoteEntry root() {
+        return ROOT;
+    }
+
+    /**
+     * Crea el marcador de carga que se muestra dentro de una carpeta aún no listada.
+     *
+     * @return Un nuevo marcador de carga.
+     */
+    public static RemoteEntry loadingPlaceholder() {
+        return new RemoteEntry("Loading...", "", Type.PLACEHOLDER, UNKNOWN, UNKNOWN);
+    }
+
+    /**
+     * Crea la entrada de un archivo obtenido al listar un directorio.
+     *
+     * @param parentPath Ruta del directorio listado.
+     * @param file       El archivo devuelto por el servidor.
+     * @return La entrada correspondiente.
+     */
+    public static RemoteEntry of(String parentPath, FTPFile file) {
+        Type type = file.isDirectory() ? Type.DIRECTORY : file.isSymbolicLink() ? Type.SYMBOLIC_LINK : Type.FILE;
+        Calendar timestamp = file.getTimestamp();
+        return new RemoteEntry(file.getName(), join(parentPath, file.getName()), type, file.getSize(),
+                timestamp != null ? timestamp.getTimeInMillis() : UNKNOWN);
+    }
+
+    /**
+     * Crea la entrada de un archivo local que se acaba de subir al directorio indicado.
+     *
+     * @param parentPath Ruta del directorio remoto de destino.
+     * @param file       El archivo local subido.
+     * @return La entrada correspondiente.
+     */
+    public static RemoteEntry of(String parentPath, File file) {
+        return new RemoteEntry(file.getName(), join(parentPath, file.getName()),
+                file.isDirectory() ? Type.DIRECTORY : Type.FILE, file.length(), file.lastModified());
+    }
+
+    /**
+     * Crea la entrada de una carpeta recién creada dentro de esta.
+     *
+     * @param folderName Nombre de la nueva carpeta.
+     * @return La entrada de la carpeta.
+     */
+    public RemoteEntry childFolder(String folderName) {
+        return new RemoteEntry(folderName, childPath(folderName), Type.DIRECTORY, UNKNOWN, UNKNOWN);
+    }
+
+    /**
+     * Obtiene la ruta de un elemento contenido en esta carpeta.
+     *
+     * @param childName Nombre del elemento.
+     * @return La ruta absoluta del elemento.
+     */
+    public String childPath(String childName) {
+        return join(path, childName);
+    }
+
+    /**
+     * Devuelve una copia de esta entrada con otro nombre dentro de la misma carpeta.
+     *
+     * @param newName El nuevo nombre.
+     * @return La entrada renombrada.
+     */
+    public RemoteEntry renamedTo(String newName) {
+        return new RemoteEntry(newName, join(getParentPath(), newName), type, size, modificationTime);
+    }
+
+    /**
+     * Devuelve una copia de esta entrada situada en otra carpeta, conservando el nombre.
+     *
+     * @param newParentPath Ruta de la nueva carpeta contenedora.
+     * @return La entrada movida.
+     */
+    public RemoteEntry movedTo(String newParentPath) {
+        return new RemoteEntry(name, join(newParentPath, name), type, size, modificationTime);
+    }
+
+    /**
+     * @return La ruta de la carpeta que contiene esta entrada.
+     */
+    public String getParentPath() {
+        return DirectoryListingCache.parentOf(path);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getPath() {
+        return path;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public long getSize() {
+        return size;
+    }
+
+    public long getModificationTime() {
+        return modificationTime;
+    }
+
+    /**
+     * @return true si la entrada es una carpeta.
+     */
+    public boolean isDirectory() {
+        return type == Type.DIRECTORY;
+    }
+
+    /**
+     * @return true si la entrada es el marcador de carga de una carpeta sin listar.
+     */
+    public boolean isPlaceholder() {
+        return type == Type.PLACEHOLDER;
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+
+    /**
+     * Une la ruta de una carpeta con el nombre de un elemento sin duplicar la barra de la raíz.
+     */
+    static String join(String parentPath, String childName) {
+        if (parentPath == null || parentPath.isEmpty() || parentPath.endsWith("/")) {
+            return (parentPath == null || parentPath.isEmpty() ? "/" : parentPath) + childName;
+        }
+        return parentPath + "/" + childName;
+    }
+}
@@ -0,0 +1,199 @@
+package org.sinbelisk.graphicftp.services;
+
+import java.lang.reflect.Method;
+import java.util.Queue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Ejecutor central de todas las tareas que realizan E/S bloqueante contra el servidor FTP
+ * (listados, transferencias, rangos de descargas segmentadas...).
+ * <p>
+ * Si el entorno de ejecución admite hilos virtuales (Java 21 o superior) se crea un hilo virtual por tarea,
+ * por lo que mantener cientos de tareas esperando al servidor apenas consume memoria. En entornos anteriores
+ * se usa un pool acotado de hilos de plataforma con nombre. El ejecutor pertenece a una sesión y se detiene
+ * al desconectar.
+ * </p>
+ */
+public class RemoteTaskExecutor implements Executor {
+    private static final Logger logger = LogManager.getLogger(RemoteTaskExecutor.class);
+
+    /**
+     * Número máximo de hilos de plataforma cuando no hay hilos virtuales disponibles.
+     */
+    public static final int PLATFORM_POOL_SIZE = 64;
+
+    private final ExecutorService delegate;
+    private final boolean virtualThreads;
+
+    /**
+     * Constructor del ejecutor.
+     *
+     * @param threadNamePrefix Prefijo del nombre de los hilos creados.
+     */
+    public RemoteTaskExecutor(String threadNamePrefix) {
+        ExecutorService virtualExecutor = createVirtualThreadExecutor(threadNamePrefix);
+        this.virtualThreads = virtualExecutor != null;
+        this.delegate = virtualThreads ? virtualExecutor : createPlatformExecutor(threadNamePrefix);
+        logger.info("Remote task executor started using {} threads.", virtualThreads ? "virtual" : "platform");
+    }
+
+    /**
+     * Ejecuta una tarea en segundo plano.
+     *
+     * @param task La tarea a ejecutar.
+     */
+    @Override
+    public void execute(Runnable task) {
+        delegate.execute(task);
+    }
+
+    /**
+     * Ejecuta en segundo plano una tarea que devuelve un resultado.
+     *
+     * @param task La tarea a ejecutar.
+     * @param <T>  Tipo del resultado.
+     * @return El futuro con el resultado de la tarea.
+     */
+    public <T> Future<T> submit(Callable<T> task) {
+        return delegate.submit(task);
+    }
+
+    /**
+     * Crea una vista de este ejecutor que no ejecuta más de {@code parallelism} tareas a la vez.
+     * Las tareas que exceden el límite esperan en una cola sin ocupar ningún hilo.
+     *
+     * @param parallelism Número máximo de tareas simultáneas.
+     * @return El ejecutor limitado.
+     */
+    public Executor limitedTo(int parallelism) {
+        return new LimitedExecutor(parallelism);
+    }
+
+    /**
+     * @return true si las tareas se ejecutan en hilos virtuales.
+     */
+    public boolean usesVirtualThreads() {
+        return virtualThreads;
+    }
+
+    /**
+     * Detiene el ejecutor e interrumpe las tareas en curso.
+     */
+    public void shutdown() {
+        delegate.shutdownNow();
+        logger.info("Remote task executor shut down.");
+    }
+
+    /**
+     * @return true si el ejecutor ya ha sido detenido.
+     */
+    public boolean isShutdown() {
+        return delegate.isShutdown();
+    }
+
+    /**
+     * Crea un ejecutor con un hilo virtual por tarea usando reflexión, ya que el proyecto se compila para Java 17.
+     *
+     * @return El ejecutor, o {@code null} si el entorno no admite hilos virtuales.
+     */
+    private static ExecutorService createVirtualThreadExecutor(String threadNamePrefix) {
+        try {
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+            builder = builderClass.getMethod("name", String.class, long.class).invoke(builder, threadNamePrefix, 1L);
+            ThreadFactory factory = (ThreadFactory) builderClass.getMethod("factory").invoke(builder);
+
+            Method newExecutor = Executors.class.getMethod("newThreadPerTaskExecutor", ThreadFactory.class);
+            return (ExecutorService) newExecutor.invoke(null, factory);
+        } catch (ReflectiveOperationException | LinkageError e) {
+            return null;
+        }
+    }
+
+    /**
+     * Crea un pool acotado de hilos de plataforma que se liberan tras un tiempo inactivos.
+     */
+    private static ExecutorService createPlatformExecutor(String threadNamePrefix) {
+        AtomicInteger threadCount = new AtomicInteger();
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(PLATFORM_POOL_SIZE, PLATFORM_POOL_SIZE,
+                30, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), runnable -> {
+            Thread thread = new Thread(runnable, threadNamePrefix + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    /**
+     * Ejecutor que reparte las tareas en el ejecutor central sin superar un número de tareas simultáneas.
+     */
+    private final class LimitedExecutor implements Executor {
+        private final Queue<Runnable> queue = new ConcurrentLinkedQueue<>();
+        private final Semaphore slots;
+
+        private LimitedExecutor(int parallelism) {
+            this.slots = new Semaphore(parallelism);
+        }
+
+        @Override
+        public void execute(Runnable task) {
+            queue.add(task);
+            dispatch();
+        }
+
+        /**
+         * Envía tareas de la cola al ejecutor central mientras haya huecos libres.
+         */
+        private void dispatch() {
+            while (!queue.isEmpty() && slots.tryAcquire()) {
+                Runnable task = queue.poll();
+                if (task == null) {
+                    slots.release();
+                    continue;
+                }
+
+                try {
+                    delegate.execute(() -> {
+                        try {
+                            task.run();
+                        } finally {
+                            slots.release();
+                            dispatchAfterCompletion();
+                        }
+                    });
+                } catch (RuntimeException e) {
+                    slots.release();
+                    throw e;
+                }
+            }
+        }
+
+        /**
+         * Continúa con la cola tras terminar una tarea. Si el ejecutor central ya se ha detenido,
+         * las tareas que quedaban en cola se descartan.
+         */
+        private void dispatchAfterCompletion() {
+            try {
+                dispatch();
+            } catch (RejectedExecutionException e) {
+                queue.clear();
+            }
+        }
+    }
+}
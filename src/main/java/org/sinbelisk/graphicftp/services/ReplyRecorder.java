@@ -0,0 +1,83 @@
+package org.sinbelisk.graphicftp.services;
+
+import java.io.IOException;
+
+import org.apache.commons.net.ProtocolCommandEvent;
+import org.apache.commons.net.ProtocolCommandListener;
+import org.apache.commons.net.ftp.FTPReply;
+
+/**
+ * Oyente que guarda, por hilo, la última respuesta definitiva recibida del servidor y el último error de E/S
+ * de una operación.
+ * <p>
+ * Las sesiones FTP notifican sus respuestas en el hilo que ejecuta el comando, por lo que al terminar una operación
+ * de {@link FTPClientManager} se puede consultar la respuesta que recibió o el error que la detuvo, aunque el método
+ * solo devuelva un booleano. Lo usa {@link AsyncFTPClient} para construir cada {@link FTPResult}.
+ * </p>
+ */
+final class ReplyRecorder implements ProtocolCommandListener {
+
+    /**
+     * Instancia compartida por todas las sesiones; no guarda estado fuera del hilo que recibe la respuesta.
+     */
+    static final ReplyRecorder INSTANCE = new ReplyRecorder();
+
+    private static final ThreadLocal<ProtocolCommandEvent> lastReply = new ThreadLocal<>();
+    private static final ThreadLocal<IOException> lastFailure = new ThreadLocal<>();
+
+    private ReplyRecorder() {
+    }
+
+    /**
+     * Olvida la última respuesta del hilo actual, antes de empezar una operación.
+     */
+    static void reset() {
+        lastReply.remove();
+        lastFailure.remove();
+    }
+
+    /**
+     * Guarda el error que ha detenido la operación en curso en el hilo actual.
+     *
+     * @param failure El error de E/S.
+     */
+    static void recordFailure(IOException failure) {
+        lastFailure.set(failure);
+    }
+
+    /**
+     * @return El último error guardado en el hilo actual, o {@code null} si no hay ninguno.
+     */
+    static IOException lastFailure() {
+        return lastFailure.get();
+    }
+
+    /**
+     * @return Código de la última respuesta recibida en el hilo actual, o 0 si no se ha recibido ninguna.
+     */
+    static int lastReplyCode() {
+        ProtocolCommandEvent event = lastReply.get();
+        return event == null ? 0 : event.getReplyCode();
+    }
+
+    /**
+     * @return Texto de la última respuesta recibida en el hilo actual, sin el salto de línea final,
+     * o {@code null} si no se ha recibido ninguna.
+     */
+    static String lastReplyString() {
+        ProtocolCommandEvent event = lastReply.get();
+        return event == null ? null : event.getMessage().strip();
+    }
+
+    @Override
+    public void protocolCommandSent(ProtocolCommandEvent event) {
+        // Solo interesan las respuestas
+    }
+
+    @Override
+    public void protocolReplyReceived(ProtocolCommandEvent event) {
+        if (!FTPReply.isPositivePreliminary(event.getReplyCode())) {
+            lastReply.set(event);
+        }
+    }
+}
@@ -0,0 +1,340 @@
+package org.sinbelisk.graphicftp.services;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.apache.commons.net.ftp.FTP;
+import org.apache.commons.net.ftp.FTPClient;
+import org.apache.commons.net.ftp.FTPReply;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Descarga un único archivo dividiéndolo en rangos que se transfieren en paralelo.
+ * Cada rango se pide con {@code REST} + {@code RETR} sobre su propia sesión del {@link FTPConnectionPool}
+ * y se escribe directamente en su posición del archivo local mediante escrituras posicionales de {@link FileChannel}.
+ * <p>
+ * El archivo local se reserva con su tamaño final antes de empezar, de modo que los rangos pueden llegar
+ * en cualquier orden. Lo escrito en cada rango se registra en una entrada del {@link TransferJournal}: si la descarga
+ * se interrumpe, al reintentarla solo se piden las partes que faltan.
+ * </p>
+ * <p>
+ * Las sesiones se toman antes de repartir los rangos: la primera se espera como cualquier otra operación y las demás
+ * solo se usan si están libres en ese momento, de modo que una descarga nunca bloquea al resto de operaciones
+ * esperando sesiones. Los rangos intermedios terminan con {@code ABOR} y sus sesiones vuelven al pool.
+ * </p>
+ */
+public class SegmentedDownloader {
+    private static final Logger logger = LogManager.getLogger(SegmentedDownloader.class);
+
+    // Tiempo máximo de espera de las respuestas a ABOR; si no llegan, la sesión se descarta
+    private static final int ABORT_REPLY_TIMEOUT_MS = 5_000;
+
+    private final FTPConnectionPool connectionPool;
+    private final RemoteTaskExecutor executor;
+    private final TransferProfile profile;
+
+    /**
+     * Constructor del descargador segmentado.
+     *
+     * @param connectionPool Pool del que se toman las sesiones para cada rango.
+     * @param executor       Ejecutor en el que se descarga cada rango.
+     */
+    public SegmentedDownloader(FTPConnectionPool connectionPool, RemoteTaskExecutor executor) {
+        this(connectionPool, executor, new TransferProfile());
+    }
+
+    /**
+     * Constructor del descargador segmentado con un perfil de transferencia.
+     *
+     * @param connectionPool Pool del que se toman las sesiones para cada rango.
+     * @param executor       Ejecutor en el que se descarga cada rango.
+     * @param profile        Perfil con los búferes que usa cada rango.
+     */
+    public SegmentedDownloader(FTPConnectionPool connectionPool, RemoteTaskExecutor executor, TransferProfile profile) {
+        this.connectionPool = connectionPool;
+        this.executor = executor;
+        this.profile = profile;
+    }
+
+    /**
+     * Descarga un archivo remoto de tamaño conocido dividiéndolo en varios rangos.
+     *
+     * @param remotePath    Ruta del archivo en el servidor FTP.
+     * @param localFilePath Ruta local donde se guardará el archivo.
+     * @param size          Tamaño del archivo remoto, obtenido con {@code SIZE}.
+     * @param segments      Número de rangos en que se divide el archivo.
+     * @return true si todos los rangos se descargaron completos, false en caso contrario.
+     * @throws IOException si ocurre un error al preparar el archivo local o durante la descarga.
+     */
+    public boolean download(String remotePath, String localFilePath, long size, int segments) throws IOException {
+        return download(remotePath, localFilePath, size, segments, null);
+    }
+
+    /**
+     * Descarga un archivo remoto de tamaño conocido dividiéndolo en varios rangos e informa del progreso
+     * conjunto: cada rango suma sus bloques al mismo {@link TransferProgress}.
+     * El archivo se divide en tantos rangos como sesiones se hayan podido tomar, como mucho {@code segments}.
+     *
+     * @param remotePath    Ruta del archivo en el servidor FTP.
+     * @param localFilePath Ruta local donde se guardará el archivo.
+     * @param size          Tamaño del archivo remoto, obtenido con {@code SIZE}.
+     * @param segments      Número máximo de rangos en que se divide el archivo.
+     * @param progress      Progreso de la descarga, o {@code null}.
+     * @return true si todos los rangos se descargaron completos, false en caso contrario.
+     * @throws IOException si ocurre un error al preparar el archivo local o durante la descarga.
+     */
+    public boolean download(String remotePath, String localFilePath, long size, int segments,
+                            TransferProgress progress) throws IOException {
+        TransferJournal.Entry entry = new TransferJournal.Entry(TransferJob.Direction.DOWNLOAD, remotePath,
+                localFilePath, size, -1, 0);
+        return download(entry, segments, progress, null);
+    }
+
+    /**
+     * Descarga los rangos que le faltan a una entrada del {@link TransferJournal}, guardando un punto de control
+     * cada {@link TransferJournal#CHECKPOINT_INTERVAL} bytes escritos por cada sesión.
+     * <p>
+     * Si la entrada todavía no está dividida, se divide en tantos rangos como sesiones se hayan podido tomar,
+     * como mucho {@code segments}. Si ya lo está, por ejemplo al reintentar una descarga interrumpida,
+     * cada sesión toma el siguiente rango incompleto y lo pide desde su última posición confirmada,
+     * de modo que los bytes ya escritos en el archivo local no se vuelven a descargar.
+     * </p>
+     *
+     * @param entry    Entrada de la descarga, con la ruta remota, la ruta local y el tamaño del archivo.
+     * @param segments Número máximo de sesiones que se usan a la vez.
+     * @param progress Progreso de la descarga, o {@code null}.
+     * @param journal  Diario en el que se guardan los puntos de control, o {@code null}.
+     * @return true si todos los rangos quedaron completos, false en caso contrario.
+     * @throws IOException si ocurre un error al preparar el archivo local o durante la descarga.
+     */
+    public boolean download(TransferJournal.Entry entry, int segments, TransferProgress progress,
+                            TransferJournal journal) throws IOException {
+        List<FTPClient> sessions = borrowSessions(segments);
+        if (!entry.isSegmented()) {
+            entry.split(sessions.size());
+        }
+        Queue<Integer> missing = new ConcurrentLinkedQueue<>();
+        for (int range = 0; range < entry.getRangeCount(); range++) {
+            if (entry.getRangePosition(range) < entry.getRangeEnd(range)) {
+                missing.add(range);
+            }
+        }
+
+        List<Future<Boolean>> results = new ArrayList<>();
+        List<FTPClient> rangeSessions = new ArrayList<>();
+        AtomicBoolean stopped = new AtomicBoolean();
+
+        // El archivo no se trunca: al reanudar, los rangos ya confirmados siguen en él
+        try (FileChannel channel = FileChannel.open(Path.of(entry.getLocalPath()), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE)) {
+            preallocate(channel, entry.getExpectedSize());
+
+            int tasks = Math.min(sessions.size(), missing.size());
+            for (int i = 0; i < tasks; i++) {
+                FTPClient client = sessions.remove(sessions.size() - 1);
+                rangeSessions.add(client);
+                results.add(executor.submit(() ->
+                        fetchRanges(client, entry, missing, channel, progress, journal, stopped)));
+            }
+
+            boolean success = true;
+            for (Future<Boolean> result : results) {
+                success &= result.get();
+            }
+            return success && missing.isEmpty();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Segmented download interrupted", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            throw cause instanceof IOException ? (IOException) cause : new IOException(cause);
+        } finally {
+            // Si un rango falla, los demás dejan de ser útiles: los que están en curso se detienen en el siguiente
+            // bloque y los que no han empezado se cancelan devolviendo su sesión.
+            stopped.set(true);
+            for (int i = 0; i < results.size(); i++) {
+                if (results.get(i).cancel(false)) {
+                    connectionPool.release(rangeSessions.get(i));
+                }
+            }
+            // La última sesión puede quedar sin tarea si no se pudo enviar al ejecutor.
+            if (rangeSessions.size() > results.size()) {
+                connectionPool.release(rangeSessions.get(rangeSessions.size() - 1));
+            }
+            for (FTPClient unused : sessions) {
+                connectionPool.release(unused);
+            }
+        }
+    }
+
+    /**
+     * Toma las sesiones de la descarga: espera a la primera y toma las demás solo si están libres.
+     */
+    private List<FTPClient> borrowSessions(int segments) throws IOException {
+        List<FTPClient> sessions = new ArrayList<>();
+        sessions.add(connectionPool.borrow());
+        try {
+            while (sessions.size() < segments) {
+                FTPClient client = connectionPool.tryBorrow();
+                if (client == null) {
+                    break;
+                }
+                sessions.add(client);
+            }
+        } catch (IOException e) {
+            // Basta con las sesiones que ya se han obtenido.
+            logger.debug("Could not open another session for a segmented download: {}", e.getMessage());
+        }
+        return sessions;
+    }
+
+    /**
+     * Ajusta el archivo local a su tamaño final: lo recorta si es mayor y, si es menor, escribe su último byte.
+     * Un archivo que ya tiene el tamaño final no se modifica, ya que puede contener rangos confirmados.
+     */
+    private void preallocate(FileChannel channel, long size) throws IOException {
+        if (channel.size() > size) {
+            channel.truncate(size);
+        } else if (channel.size() < size) {
+            channel.write(ByteBuffer.wrap(new byte[1]), size - 1);
+        }
+    }
+
+    /**
+     * Descarga con la sesión indicada los rangos pendientes que vaya tomando de la cola, cada uno desde su última
+     * posición confirmada, y los escribe en la misma posición del archivo local. Al terminar, la sesión
+     * se devuelve al pool o se descarta si ha quedado en un estado desconocido.
+     *
+     * @return false si algún rango tomado por esta sesión quedó incompleto.
+     */
+    private boolean fetchRanges(FTPClient client, TransferJournal.Entry entry, Queue<Integer> missing,
+                                FileChannel channel, TransferProgress progress, TransferJournal journal,
+                                AtomicBoolean stopped) throws IOException {
+        String remotePath = entry.getRemotePath();
+        boolean reusable = false;
+
+        try {
+            client.setFileType(FTP.BINARY_FILE_TYPE);
+            profile.applyTo(client);
+            reusable = true;
+
+            Integer range;
+            while (!stopped.get() && (range = missing.poll()) != null) {
+                long offset = entry.getRangePosition(range);
+                long length = entry.getRangeEnd(range) - offset;
+                reusable = false;
+                client.setRestartOffset(offset);
+                InputStream input = client.retrieveFileStream(remotePath);
+                if (input == null) {
+                    logger.warn("Server refused range {}+{} of {}: {}", offset, length, remotePath,
+                            client.getReplyString());
+                    reusable = true;
+                    return false;
+                }
+
+                long remaining = copyRange(input, channel, entry, range, length, progress, journal, stopped);
+
+                if (entry.getRangeEnd(range) >= entry.getExpectedSize() && remaining == 0) {
+                    // El último rango llega hasta el final del archivo, así que el servidor cierra la transferencia con normalidad.
+                    reusable = client.completePendingCommand();
+                } else {
+                    reusable = abortTransfer(client);
+                }
+
+                logger.info("Range {}+{} of {} downloaded.", offset, length - remaining, remotePath);
+                if (remaining > 0) {
+                    return false;
+                }
+                if (!reusable) {
+                    // El rango está completo, pero la sesión no sirve para los siguientes: los tomarán las demás
+                    return true;
+                }
+            }
+            return true;
+        } finally {
+            if (reusable) {
+                connectionPool.release(client);
+            } else {
+                connectionPool.invalidate(client);
+            }
+        }
+    }
+
+    /**
+     * Termina la transferencia de un rango cuya conexión de datos se ha cerrado antes del final del archivo.
+     * Tras {@code ABOR} el servidor envía dos respuestas: la de {@code RETR} ({@code 426} si la transferencia seguía
+     * en curso, {@code 226} si ya había terminado) y la de {@code ABOR}. Se leen las dos, con una espera corta,
+     * para que la sesión vuelva al pool sin respuestas pendientes.
+     *
+     * @return true si la sesión puede reutilizarse.
+     */
+    private boolean abortTransfer(FTPClient client) {
+        try {
+            int timeout = client.getSoTimeout();
+            client.setSoTimeout(ABORT_REPLY_TIMEOUT_MS);
+            try {
+                client.abor();
+                return FTPReply.isPositiveCompletion(client.getReply());
+            } finally {
+                client.setSoTimeout(timeout);
+            }
+        } catch (IOException e) {
+            logger.debug("Could not abort range transfer cleanly: {}", e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Copia como máximo {@code length} bytes del flujo al canal a partir de la posición confirmada del rango,
+     * registrando en la entrada cada bloque escrito.
+     *
+     * @return Número de bytes del rango que no se llegaron a recibir.
+     */
+    private long copyRange(InputStream input, FileChannel channel, TransferJournal.Entry entry, int range, long length,
+                           TransferProgress progress, TransferJournal journal, AtomicBoolean stopped)
+            throws IOException {
+        byte[] buffer = new byte[profile.getBufferSize()];
+        ByteBuffer byteBuffer = ByteBuffer.wrap(buffer);
+        long position = entry.getRangePosition(range);
+        long remaining = length;
+        long sinceCheckpoint = 0;
+
+        try (input) {
+            while (remaining > 0 && !stopped.get()) {
+                int read = input.read(buffer, 0, (int) Math.min(buffer.length, remaining));
+                if (read < 0) {
+                    break;
+                }
+
+                byteBuffer.clear().limit(read);
+                while (byteBuffer.hasRemaining()) {
+                    position += channel.write(byteBuffer, position);
+                }
+                remaining -= read;
+                entry.advanceRange(range, read);
+                sinceCheckpoint += read;
+                if (journal != null && sinceCheckpoint >= TransferJournal.CHECKPOINT_INTERVAL) {
+                    sinceCheckpoint = 0;
+                    journal.checkpoint(entry);
+                }
+                if (progress != null) {
+                    progress.bytesTransferred(length - remaining, read, length);
+                }
+            }
+        }
+
+        return remaining;
+    }
+}
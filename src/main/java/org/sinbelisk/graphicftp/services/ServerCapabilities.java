@@ -0,0 +1,252 @@
+package org.sinbelisk.graphicftp.services;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.commons.net.ftp.FTPClient;
+import org.apache.commons.net.ftp.FTPClientConfig;
+import org.apache.commons.net.ftp.FTPReply;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Funciones que anuncia un servidor FTP en sus respuestas a {@code FEAT} y {@code SYST}.
+ * <p>
+ * Se consultan una sola vez por servidor al iniciar sesión y se guardan mientras dura la aplicación, de modo que
+ * las reconexiones y las sesiones del pool no repiten {@code FEAT} ni {@code SYST}. Con ellas cada operación elige
+ * el camino más barato que admite el servidor ({@code MLSD} en lugar de {@code LIST}, {@code MLST} en lugar de
+ * listar la carpeta padre, {@code HASH} en lugar de descargar y comparar...) sin enviar comandos a ciegas que
+ * fallan y cuestan un viaje de ida y vuelta.
+ * </p>
+ * <p>
+ * Si el servidor no responde a {@code FEAT} se considera anterior a RFC 3659: se suponen {@code SIZE} y
+ * {@code MDTM}, que casi todos admiten desde mucho antes, y ninguna otra extensión.
+ * </p>
+ */
+public final class ServerCapabilities {
+    private static final Logger logger = LogManager.getLogger(ServerCapabilities.class);
+
+    /**
+     * Funciones de un servidor que no se ha consultado: ninguna extensión, salvo {@code SIZE} y {@code MDTM}.
+     */
+    public static final ServerCapabilities UNKNOWN = new ServerCapabilities(false, Map.of(), null);
+
+    private static final Map<String, ServerCapabilities> byHost = new ConcurrentHashMap<>();
+
+    private final boolean featAvailable;
+    private final Map<String, List<String>> features;
+    private final String systemType;
+
+    private ServerCapabilities(boolean featAvailable, Map<String, List<String>> features, String systemType) {
+        this.featAvailable = featAvailable;
+        this.features = features;
+        this.systemType = systemType;
+    }
+
+    /**
+     * Obtiene las funciones de un servidor, consultándolas con la sesión indicada si todavía no se conocen.
+     *
+     * @param host   Servidor y puerto, por ejemplo {@code ftp.example.com:21}.
+     * @param client Sesión ya iniciada con el servidor.
+     * @return Las funciones del servidor.
+     * @throws IOException si se pierde la conexión durante la consulta.
+     */
+    public static ServerCapabilities forHost(String host, FTPClient client) throws IOException {
+        ServerCapabilities cached = byHost.get(host);
+        if (cached != null) {
+            return cached;
+        }
+
+        ServerCapabilities probed = probe(client);
+        logger.info("Server capabilities of {}: {}", host, probed);
+        byHost.put(host, probed);
+        return probed;
+    }
+
+    /**
+     * Olvida las funciones guardadas de un servidor, para que se vuelvan a consultar en el próximo inicio de sesión.
+     *
+     * @param host Servidor y puerto.
+     */
+    public static void forget(String host) {
+        byHost.remove(host);
+    }
+
+    /**
+     * Consulta las funciones de un servidor con {@code FEAT} y {@code SYST}.
+     */
+    private static ServerCapabilities probe(FTPClient client) throws IOException {
+        String[] featReply = FTPReply.isPositiveCompletion(client.feat()) ? client.getReplyStrings() : null;
+
+        String systemType = null;
+        if (FTPReply.isPositiveCompletion(client.syst())) {
+            String reply = client.getReplyString();
+            systemType = reply.length() > 4 ? reply.substring(4).trim() : null;
+        }
+        return parse(featReply, systemType);
+    }
+
+    /**
+     * Construye las funciones a partir de las líneas de la respuesta a {@code FEAT}.
+     * Cada función ocupa una línea que empieza con un espacio, con su nombre y, opcionalmente, sus parámetros,
+     * por ejemplo {@code " REST STREAM"} o {@code " MLST type*;size*;modify*;"}.
+     *
+     * @param featReply  Líneas de la respuesta a {@code FEAT}, o {@code null} si el servidor no lo admite.
+     * @param systemType Respuesta a {@code SYST} sin el código, o {@code null} si no se conoce.
+     * @return Las funciones del servidor.
+     */
+    public static ServerCapabilities parse(String[] featReply, String systemType) {
+        if (featReply == null) {
+            return new ServerCapabilities(false, Map.of(), systemType);
+        }
+
+        Map<String, List<String>> features = new HashMap<>();
+        for (String line : featReply) {
+            if (!line.startsWith(" ")) {
+                continue;
+            }
+            String feature = line.trim();
+            if (feature.isEmpty()) {
+                continue;
+            }
+            int space = feature.indexOf(' ');
+            String name = (space < 0 ? feature : feature.substring(0, space)).toUpperCase(Locale.ROOT);
+            String parameters = space < 0 ? "" : feature.substring(space + 1).trim();
+            features.computeIfAbsent(name, key -> new ArrayList<>()).add(parameters);
+        }
+        return new ServerCapabilities(true, features, systemType);
+    }
+
+    /**
+     * @return true si el servidor respondió a {@code FEAT}.
+     */
+    public boolean isFeatAvailable() {
+        return featAvailable;
+    }
+
+    /**
+     * @param feature Nombre de la función, por ejemplo {@code HASH}.
+     * @return true si el servidor la anuncia.
+     */
+    public boolean has(String feature) {
+        return features.containsKey(feature.toUpperCase(Locale.ROOT));
+    }
+
+    /**
+     * @param feature   Nombre de la función, por ejemplo {@code REST}.
+     * @param parameter Parámetro de la función, por ejemplo {@code STREAM}.
+     * @return true si el servidor anuncia la función con ese parámetro.
+     */
+    public boolean has(String feature, String parameter) {
+        for (String value : values(feature)) {
+            if (value.equalsIgnoreCase(parameter)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @param feature Nombre de la función.
+     * @return Los parámetros de cada línea en la que el servidor anuncia la función, o una lista vacía.
+     */
+    public List<String> values(String feature) {
+        return Collections.unmodifiableList(features.getOrDefault(feature.toUpperCase(Locale.ROOT), List.of()));
+    }
+
+    /**
+     * @return true si el servidor admite los listados normalizados {@code MLSD} y {@code MLST}.
+     */
+    public boolean supportsMlsd() {
+        return has("MLST");
+    }
+
+    /**
+     * @return true si el servidor admite {@code SIZE}.
+     */
+    public boolean supportsSize() {
+        return !featAvailable || has("SIZE");
+    }
+
+    /**
+     * @return true si el servidor admite {@code MDTM}.
+     */
+    public boolean supportsMdtm() {
+        return !featAvailable || has("MDTM");
+    }
+
+    /**
+     * @return true si el servidor admite reanudar transferencias desde un desplazamiento con {@code REST STREAM}.
+     */
+    public boolean supportsRestStream() {
+        return has("REST", "STREAM");
+    }
+
+    /**
+     * @return true si el servidor calcula sumas de comprobación con {@code HASH}.
+     */
+    public boolean supportsHash() {
+        return has("HASH");
+    }
+
+    /**
+     * @return true si el servidor admite transferencias comprimidas con {@code MODE Z}.
+     */
+    public boolean supportsModeZ() {
+        return has("MODE", "Z");
+    }
+
+    /**
+     * Obtiene el algoritmo que el servidor usa por defecto con {@code HASH}, marcado con un asterisco
+     * en la línea de {@code FEAT}, por ejemplo {@code HASH SHA-1;SHA-256*;MD5}.
+     *
+     * @return El algoritmo por defecto, el primero anunciado si ninguno está marcado, o {@code SHA-1}.
+     */
+    public String getDefaultHashAlgorithm() {
+        String first = null;
+        for (String value : values("HASH")) {
+            for (String candidate : value.split(";")) {
+                String name = candidate.trim();
+                if (name.endsWith("*")) {
+                    return name.substring(0, name.length() - 1).toUpperCase(Locale.ROOT);
+                }
+                if (first == null && !name.isEmpty()) {
+                    first = name.toUpperCase(Locale.ROOT);
+                }
+            }
+        }
+        return first == null ? "SHA-1" : first;
+    }
+
+    /**
+     * @return Respuesta del servidor a {@code SYST}, por ejemplo {@code UNIX Type: L8}, o {@code null}.
+     */
+    public String getSystemType() {
+        return systemType;
+    }
+
+    /**
+     * Configura el intérprete de listados {@code LIST} de una sesión según el sistema del servidor,
+     * para que la sesión no tenga que enviar {@code SYST} antes de su primer listado.
+     *
+     * @param client La sesión FTP.
+     */
+    public void configure(FTPClient client) {
+        if (systemType != null && !systemType.isEmpty()) {
+            client.configure(new FTPClientConfig(systemType));
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "SYST " + (systemType == null ? "unknown" : systemType) + ", FEAT "
+                + (featAvailable ? new TreeSet<>(features.keySet()) : "unsupported");
+    }
+}
@@ -0,0 +1,181 @@
+package org.sinbelisk.graphicftp.services;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Plan de cambios calculado por el {@link DeltaSynchronizer} al comparar una carpeta local con una remota.
+ * Cada {@link Action} indica qué hacer con un archivo o carpeta y por qué. El plan puede mostrarse como informe
+ * sin aplicar ningún cambio (ensayo) o ejecutarse con {@link DeltaSynchronizer#execute(SyncPlan)}.
+ */
+public class SyncPlan {
+
+    /**
+     * Sentido de la sincronización.
+     */
+    public enum Direction {
+        /**
+         * La carpeta local es el origen y la remota se actualiza.
+         */
+        UPLOAD,
+        /**
+         * La carpeta remota es el origen y la local se actualiza.
+         */
+        DOWNLOAD
+    }
+
+    /**
+     * Tipo de cambio a realizar sobre un elemento.
+     */
+    public enum ActionType {
+        CREATE_FOLDER, UPLOAD, DOWNLOAD, DELETE, SKIP
+    }
+
+    private final Direction direction;
+    private final String localRoot;
+    private final String remoteRoot;
+    private final List<Action> actions = new ArrayList<>();
+
+    SyncPlan(Direction direction, String localRoot, String remoteRoot) {
+        this.direction = direction;
+        this.localRoot = localRoot;
+        this.remoteRoot = remoteRoot;
+    }
+
+    void add(Action action) {
+        actions.add(action);
+    }
+
+    public Direction getDirection() {
+        return direction;
+    }
+
+    public String getLocalRoot() {
+        return localRoot;
+    }
+
+    public String getRemoteRoot() {
+        return remoteRoot;
+    }
+
+    /**
+     * @return Todos los cambios del plan, incluidos los elementos que se omiten.
+     */
+    public List<Action> getActions() {
+        return Collections.unmodifiableList(actions);
+    }
+
+    /**
+     * @return Número de cambios de cada tipo.
+     */
+    public Map<ActionType, Integer> getCounts() {
+        Map<ActionType, Integer> counts = new EnumMap<>(ActionType.class);
+        for (ActionType type : ActionType.values()) {
+            counts.put(type, 0);
+        }
+        for (Action action : actions) {
+            counts.merge(action.type, 1, Integer::sum);
+        }
+        return counts;
+    }
+
+    /**
+     * @return true si no hay nada que cambiar.
+     */
+    public boolean isEmpty() {
+        return actions.stream().allMatch(action -> action.type == ActionType.SKIP);
+    }
+
+    /**
+     * Resume el plan en una línea, por ejemplo para pedir confirmación al usuario.
+     *
+     * @return El resumen del plan.
+     */
+    public String getSummary() {
+        Map<ActionType, Integer> counts = getCounts();
+        return counts.get(ActionType.UPLOAD) + " para subir, "
+                + counts.get(ActionType.DOWNLOAD) + " para descargar, "
+                + counts.get(ActionType.CREATE_FOLDER) + " carpetas nuevas, "
+                + counts.get(ActionType.DELETE) + " para eliminar y "
+                + counts.get(ActionType.SKIP) + " sin cambios";
+    }
+
+    /**
+     * Genera el informe del ensayo: una línea por cada cambio que se aplicaría, sin los elementos omitidos.
+     *
+     * @param maxLines Número máximo de líneas de cambios del informe.
+     * @return El informe del plan.
+     */
+    public String getReport(int maxLines) {
+        StringBuilder report = new StringBuilder(getSummary()).append('\n');
+        int lines = 0;
+        for (Action action : actions) {
+            if (action.type == ActionType.SKIP) {
+                continue;
+            }
+            if (lines++ == maxLines) {
+                report.append("...\n");
+                break;
+            }
+            report.append(action).append('\n');
+        }
+        return report.toString();
+    }
+
+    /**
+     * Cambio previsto sobre un archivo o carpeta.
+     */
+    public static final class Action {
+        private final ActionType type;
+        private final String relativePath;
+        private final String localPath;
+        private final String remotePath;
+        private final boolean folder;
+        private final String reason;
+
+        Action(ActionType type, String relativePath, String localPath, String remotePath, boolean folder,
+               String reason) {
+            this.type = type;
+            this.relativePath = relativePath;
+            this.localPath = localPath;
+            this.remotePath = remotePath;
+            this.folder = folder;
+            this.reason = reason;
+        }
+
+        public ActionType getType() {
+            return type;
+        }
+
+        /**
+         * @return Ruta del elemento relativa a las carpetas sincronizadas, separada por {@code /}.
+         */
+        public String getRelativePath() {
+            return relativePath;
+        }
+
+        public String getLocalPath() {
+            return localPath;
+        }
+
+        public String getRemotePath() {
+            return remotePath;
+        }
+
+        public boolean isFolder() {
+            return folder;
+        }
+
+        public String getReason() {
+            return reason;
+        }
+
+        @Override
+        public String toString() {
+            return type + " " + relativePath + (folder ? "/" : "") + " (" + reason + ")";
+        }
+    }
+}
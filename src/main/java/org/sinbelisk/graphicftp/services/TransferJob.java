@@ -0,0 +1,192 @@
+package org.sinbelisk.graphicftp.services;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Representa una transferencia (subida o descarga) gestionada por el {@link TransferScheduler}.
+ * El planificador también ejecuta como trabajos las eliminaciones recursivas de carpetas, que no tienen ruta local.
+ * Guarda las rutas local y remota, el estado actual de la transferencia y un mensaje descriptivo
+ * en caso de error. El estado solo avanza en el orden {@code QUEUED -> RUNNING -> [VERIFYING ->] DONE/FAILED},
+ * o pasa a {@code CANCELLED} mientras la transferencia sigue en cola.
+ */
+public class TransferJob {
+
+    /**
+     * Sentido de la transferencia.
+     */
+    public enum Direction {
+        UPLOAD, DOWNLOAD,
+        /**
+         * Eliminación recursiva de una carpeta remota.
+         */
+        DELETE
+    }
+
+    /**
+     * Estados por los que pasa una transferencia.
+     */
+    public enum State {
+        QUEUED, RUNNING,
+        /**
+         * Los datos ya se han transferido y se está comprobando su integridad.
+         */
+        VERIFYING,
+        DONE, FAILED, CANCELLED;
+
+        /**
+         * @return true si la transferencia ya no va a cambiar de estado.
+         */
+        public boolean isFinished() {
+            return this == DONE || this == FAILED || this == CANCELLED;
+        }
+    }
+
+    private final long id;
+    private final Direction direction;
+    private final String localPath;
+    private final String remotePath;
+    private final AtomicReference<State> state = new AtomicReference<>(State.QUEUED);
+    private final CompletableFuture<TransferJob> completion = new CompletableFuture<>();
+    private volatile String message;
+    private volatile Future<?> future;
+    private volatile TransferProgress progress;
+
+    /**
+     * Constructor de la transferencia.
+     *
+     * @param id         Identificador único dentro del planificador.
+     * @param direction  Sentido de la transferencia.
+     * @param localPath  Ruta del archivo local.
+     * @param remotePath Ruta del archivo en el servidor FTP.
+     */
+    TransferJob(long id, Direction direction, String localPath, String remotePath) {
+        this.id = id;
+        this.direction = direction;
+        this.localPath = localPath;
+        this.remotePath = remotePath;
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public Direction getDirection() {
+        return direction;
+    }
+
+    public String getLocalPath() {
+        return localPath;
+    }
+
+    public String getRemotePath() {
+        return remotePath;
+    }
+
+    public State getState() {
+        return state.get();
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    /**
+     * Obtiene el nombre del archivo transferido, tomado de la ruta remota.
+     *
+     * @return El nombre del archivo.
+     */
+    public String getFileName() {
+        return remotePath.substring(remotePath.lastIndexOf('/') + 1);
+    }
+
+    /**
+     * Futuro que se completa cuando la transferencia termina, sea cual sea su estado final.
+     *
+     * @return El futuro de finalización de la transferencia.
+     */
+    public CompletableFuture<TransferJob> getCompletion() {
+        return completion;
+    }
+
+    /**
+     * Obtiene el progreso del intento actual o del último intento de la transferencia.
+     *
+     * @return El progreso, o {@code null} si la transferencia no ha empezado o es una eliminación.
+     */
+    public TransferProgress getProgress() {
+        return progress;
+    }
+
+    void setProgress(TransferProgress progress) {
+        this.progress = progress;
+    }
+
+    void setMessage(String message) {
+        this.message = message;
+    }
+
+    void setFuture(Future<?> future) {
+        this.future = future;
+    }
+
+    Future<?> getFuture() {
+        return future;
+    }
+
+    /**
+     * Marca la transferencia como en curso si todavía estaba en cola.
+     *
+     * @return true si la transferencia debe ejecutarse, false si se canceló antes de empezar.
+     */
+    boolean start() {
+        return state.compareAndSet(State.QUEUED, State.RUNNING);
+    }
+
+    /**
+     * Marca como pendiente de verificación una transferencia cuyos datos ya se han transferido.
+     */
+    void startVerifying() {
+        this.message = "Verificando";
+        state.set(State.VERIFYING);
+    }
+
+    /**
+     * Finaliza una transferencia en curso. La transferencia no se da por completada hasta llamar a {@link #complete()}.
+     *
+     * @param finalState Estado final ({@code DONE} o {@code FAILED}).
+     * @param message    Mensaje descriptivo, o {@code null}.
+     */
+    void finish(State finalState, String message) {
+        this.message = message;
+        state.set(finalState);
+    }
+
+    /**
+     * Completa el resultado de una transferencia finalizada, una vez notificado su estado final a los oyentes.
+     */
+    void complete() {
+        completion.complete(this);
+    }
+
+    /**
+     * Cancela la transferencia si todavía está en cola. Igual que con {@link #finish(State, String)},
+     * la transferencia no se da por completada hasta llamar a {@link #complete()}.
+     *
+     * @return true si se ha cancelado, false si ya había empezado o terminado.
+     */
+    boolean cancel() {
+        return state.compareAndSet(State.QUEUED, State.CANCELLED);
+    }
+
+    @Override
+    public String toString() {
+        String arrow = direction == Direction.UPLOAD ? "↑" : direction == Direction.DOWNLOAD ? "↓" : "✕";
+        String text = arrow + " " + getFileName() + " [" + state.get() + "]";
+        if (message == null && progress != null && state.get() != State.QUEUED) {
+            return text + " - " + progress.describe();
+        }
+        return message == null ? text : text + " - " + message;
+    }
+}
@@ -0,0 +1,476 @@
+package org.sinbelisk.graphicftp.services;
+
+import java.io.FilterInputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URLDecoder;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Diario en disco de las transferencias que no han terminado.
+ * Por cada transferencia guarda la ruta remota, la ruta local, el tamaño esperado, la fecha de modificación
+ * del origen y los bytes confirmados, de forma que un reintento o un reinicio de la aplicación pueda
+ * continuar desde el último desplazamiento confirmado en lugar de empezar desde cero.
+ * <p>
+ * Las descargas segmentadas guardan además el final de cada rango y hasta dónde se ha escrito, de modo que
+ * al reanudarlas solo se piden las partes que faltan (ver {@link SegmentedDownloader}).
+ * </p>
+ * <p>
+ * El diario es un archivo de texto con una entrada por línea y se reescribe de forma atómica en cada
+ * punto de control. Las entradas se eliminan en cuanto la transferencia termina correctamente.
+ * </p>
+ */
+public class TransferJournal {
+    private static final Logger logger = LogManager.getLogger(TransferJournal.class);
+
+    /**
+     * Cantidad de bytes transferidos entre dos puntos de control consecutivos (4 MB).
+     */
+    public static final long CHECKPOINT_INTERVAL = 4L * 1024 * 1024;
+
+    private static final String SEPARATOR = "\t";
+    private static final String RANGE_SEPARATOR = ",";
+    private static final String POSITION_SEPARATOR = ":";
+
+    private final Path journalFile;
+    private final Map<String, Entry> entries = new LinkedHashMap<>();
+
+    /**
+     * Constructor del diario. Carga las entradas existentes si el archivo ya existe.
+     *
+     * @param journalFile Ruta del archivo del diario.
+     */
+    public TransferJournal(Path journalFile) {
+        this.journalFile = journalFile;
+        load();
+    }
+
+    /**
+     * Obtiene la ubicación por defecto del diario, dentro de la carpeta personal del usuario.
+     *
+     * @return La ruta {@code ~/.graphicftp/transfers.journal}.
+     */
+    public static Path defaultLocation() {
+        return Path.of(System.getProperty("user.home"), ".graphicftp", "transfers.journal");
+    }
+
+    /**
+     * Busca la entrada de una transferencia pendiente.
+     *
+     * @param direction  Sentido de la transferencia.
+     * @param remotePath Ruta del archivo en el servidor FTP.
+     * @param localPath  Ruta del archivo local.
+     * @return La entrada guardada, o {@code null} si no hay ninguna.
+     */
+    public synchronized Entry find(TransferJob.Direction direction, String remotePath, String localPath) {
+        return entries.get(key(direction, remotePath, localPath));
+    }
+
+    /**
+     * Guarda el estado actual de una entrada en disco.
+     *
+     * @param entry La entrada a guardar.
+     */
+    public synchronized void checkpoint(Entry entry) {
+        entries.put(key(entry.direction, entry.remotePath, entry.localPath), entry);
+        persist();
+    }
+
+    /**
+     * Elimina una entrada del diario, normalmente porque su transferencia ha terminado.
+     *
+     * @param entry La entrada a eliminar.
+     */
+    public synchronized void remove(Entry entry) {
+        if (entries.remove(key(entry.direction, entry.remotePath, entry.localPath)) != null) {
+            persist();
+        }
+    }
+
+    /**
+     * @return Una copia de las entradas pendientes.
+     */
+    public synchronized List<Entry> getEntries() {
+        return new ArrayList<>(entries.values());
+    }
+
+    /**
+     * Envuelve el flujo que se lee durante una subida para ir guardando puntos de control.
+     *
+     * @param input Flujo del archivo local, ya posicionado en el desplazamiento de la entrada.
+     * @param entry Entrada de la transferencia.
+     * @return El flujo envuelto.
+     */
+    public InputStream track(InputStream input, Entry entry) {
+        return new CheckpointInputStream(input, entry);
+    }
+
+    /**
+     * Envuelve el flujo en el que se escribe durante una descarga para ir guardando puntos de control.
+     *
+     * @param output Flujo del archivo local, ya posicionado en el desplazamiento de la entrada.
+     * @param entry  Entrada de la transferencia.
+     * @return El flujo envuelto.
+     */
+    public OutputStream track(OutputStream output, Entry entry) {
+        return new CheckpointOutputStream(output, entry);
+    }
+
+    private static String key(TransferJob.Direction direction, String remotePath, String localPath) {
+        return direction + SEPARATOR + remotePath + SEPARATOR + localPath;
+    }
+
+    /**
+     * Lee el archivo del diario, ignorando las líneas que no se puedan interpretar.
+     */
+    private void load() {
+        if (!Files.exists(journalFile)) {
+            return;
+        }
+
+        try {
+            for (String line : Files.readAllLines(journalFile, StandardCharsets.UTF_8)) {
+                Entry entry = Entry.parse(line);
+                if (entry == null) {
+                    logger.warn("Ignoring malformed transfer journal line: {}", line);
+                } else {
+                    entries.put(key(entry.direction, entry.remotePath, entry.localPath), entry);
+                }
+            }
+            logger.info("Loaded {} pending transfers from {}", entries.size(), journalFile);
+        } catch (IOException e) {
+            logger.error("Error reading transfer journal {}: {}", journalFile, e.getMessage());
+        }
+    }
+
+    /**
+     * Reescribe el diario completo en un archivo temporal y lo mueve sobre el original.
+     */
+    private void persist() {
+        List<String> lines = new ArrayList<>();
+        for (Entry entry : entries.values()) {
+            lines.add(entry.format());
+        }
+
+        try {
+            if (journalFile.getParent() != null) {
+                Files.createDirectories(journalFile.getParent());
+            }
+            Path tempFile = journalFile.resolveSibling(journalFile.getFileName() + ".tmp");
+            Files.write(tempFile, lines, StandardCharsets.UTF_8);
+            try {
+                Files.move(tempFile, journalFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(tempFile, journalFile, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (IOException e) {
+            logger.error("Error writing transfer journal {}: {}", journalFile, e.getMessage());
+        }
+    }
+
+    /**
+     * Entrada del diario para una transferencia pendiente.
+     */
+    public static class Entry {
+        private final TransferJob.Direction direction;
+        private final String remotePath;
+        private final String localPath;
+        private final long expectedSize;
+        private final long modificationTime;
+        private volatile long bytesConfirmed;
+
+        // Solo en descargas segmentadas: final de cada rango y posición hasta la que se ha escrito
+        private volatile long[] rangeEnds;
+        private volatile AtomicLongArray rangePositions;
+
+        /**
+         * Constructor de la entrada.
+         *
+         * @param direction        Sentido de la transferencia.
+         * @param remotePath       Ruta del archivo en el servidor FTP.
+         * @param localPath        Ruta del archivo local.
+         * @param expectedSize     Tamaño del archivo de origen.
+         * @param modificationTime Fecha de modificación del archivo de origen, en milisegundos.
+         * @param bytesConfirmed   Bytes ya transferidos.
+         */
+        public Entry(TransferJob.Direction direction, String remotePath, String localPath,
+                     long expectedSize, long modificationTime, long bytesConfirmed) {
+            this.direction = direction;
+            this.remotePath = remotePath;
+            this.localPath = localPath;
+            this.expectedSize = expectedSize;
+            this.modificationTime = modificationTime;
+            this.bytesConfirmed = bytesConfirmed;
+        }
+
+        public TransferJob.Direction getDirection() {
+            return direction;
+        }
+
+        public String getRemotePath() {
+            return remotePath;
+        }
+
+        public String getLocalPath() {
+            return localPath;
+        }
+
+        public long getExpectedSize() {
+            return expectedSize;
+        }
+
+        public long getModificationTime() {
+            return modificationTime;
+        }
+
+        public long getBytesConfirmed() {
+            return bytesConfirmed;
+        }
+
+        /**
+         * Indica si la entrada corresponde a un origen con el mismo tamaño y fecha de modificación.
+         *
+         * @param size             Tamaño actual del archivo de origen.
+         * @param modificationTime Fecha de modificación actual del archivo de origen.
+         * @return true si el origen no ha cambiado desde que se creó la entrada.
+         */
+        public boolean matches(long size, long modificationTime) {
+            return expectedSize == size && this.modificationTime == modificationTime;
+        }
+
+        /**
+         * Obtiene el desplazamiento desde el que puede reanudarse la transferencia en un único flujo.
+         * En una descarga segmentada es el final de la parte confirmada sin huecos desde el principio del archivo.
+         *
+         * @return Número de bytes confirmados de forma continua desde el byte 0.
+         */
+        public long getResumeOffset() {
+            if (!isSegmented()) {
+                return bytesConfirmed;
+            }
+            long offset = 0;
+            for (int i = 0; i < rangeEnds.length; i++) {
+                offset = rangePositions.get(i);
+                if (offset < rangeEnds[i]) {
+                    break;
+                }
+            }
+            return offset;
+        }
+
+        /**
+         * @return true si la entrada corresponde a una descarga dividida en rangos.
+         */
+        boolean isSegmented() {
+            return rangeEnds != null;
+        }
+
+        /**
+         * Divide el archivo en rangos consecutivos de igual tamaño, salvo el último, todavía sin bytes confirmados.
+         *
+         * @param count Número máximo de rangos.
+         */
+        void split(int count) {
+            long rangeSize = Math.max(1, (expectedSize + count - 1) / count);
+            int ranges = (int) Math.max(1, (expectedSize + rangeSize - 1) / rangeSize);
+            long[] ends = new long[ranges];
+            AtomicLongArray positions = new AtomicLongArray(ranges);
+            for (int i = 0; i < ranges; i++) {
+                positions.set(i, i * rangeSize);
+                ends[i] = Math.min(expectedSize, (i + 1) * rangeSize);
+            }
+            rangePositions = positions;
+            rangeEnds = ends;
+            bytesConfirmed = 0;
+        }
+
+        int getRangeCount() {
+            return rangeEnds.length;
+        }
+
+        long getRangeEnd(int range) {
+            return rangeEnds[range];
+        }
+
+        /**
+         * @return Posición del archivo hasta la que se ha escrito el rango.
+         */
+        long getRangePosition(int range) {
+            return rangePositions.get(range);
+        }
+
+        /**
+         * Registra los bytes escritos al final de la parte confirmada de un rango.
+         */
+        synchronized void advanceRange(int range, long count) {
+            rangePositions.addAndGet(range, count);
+            bytesConfirmed += count;
+        }
+
+        private String format() {
+            String line = direction + SEPARATOR + encode(remotePath) + SEPARATOR + encode(localPath) + SEPARATOR
+                    + expectedSize + SEPARATOR + modificationTime + SEPARATOR + bytesConfirmed;
+            if (!isSegmented()) {
+                return line;
+            }
+
+            StringBuilder ranges = new StringBuilder(line).append(SEPARATOR);
+            for (int i = 0; i < rangeEnds.length; i++) {
+                if (i > 0) {
+                    ranges.append(RANGE_SEPARATOR);
+                }
+                ranges.append(rangeEnds[i]).append(POSITION_SEPARATOR).append(rangePositions.get(i));
+            }
+            return ranges.toString();
+        }
+
+        private static Entry parse(String line) {
+            String[] fields = line.split(SEPARATOR);
+            if (fields.length != 6 && fields.length != 7) {
+                return null;
+            }
+            try {
+                Entry entry = new Entry(TransferJob.Direction.valueOf(fields[0]), decode(fields[1]), decode(fields[2]),
+                        Long.parseLong(fields[3]), Long.parseLong(fields[4]), Long.parseLong(fields[5]));
+                if (fields.length == 7) {
+                    entry.parseRanges(fields[6]);
+                }
+                return entry;
+            } catch (IllegalArgumentException e) {
+                return null;
+            }
+        }
+
+        /**
+         * Recupera los rangos guardados con {@link #format()}, comprobando que son consecutivos y no se salen
+         * del archivo.
+         */
+        private void parseRanges(String field) {
+            String[] ranges = field.split(RANGE_SEPARATOR);
+            long[] ends = new long[ranges.length];
+            AtomicLongArray positions = new AtomicLongArray(ranges.length);
+            long start = 0;
+            long confirmed = 0;
+            for (int i = 0; i < ranges.length; i++) {
+                String[] parts = ranges[i].split(POSITION_SEPARATOR);
+                if (parts.length != 2) {
+                    throw new IllegalArgumentException("Malformed range: " + ranges[i]);
+                }
+                ends[i] = Long.parseLong(parts[0]);
+                long position = Long.parseLong(parts[1]);
+                if (ends[i] <= start || ends[i] > expectedSize || position < start || position > ends[i]) {
+                    throw new IllegalArgumentException("Invalid range: " + ranges[i]);
+                }
+                positions.set(i, position);
+                confirmed += position - start;
+                start = ends[i];
+            }
+            if (start != expectedSize) {
+                throw new IllegalArgumentException("Ranges do not cover the file: " + field);
+            }
+            rangePositions = positions;
+            rangeEnds = ends;
+            bytesConfirmed = confirmed;
+        }
+
+        private static String encode(String path) {
+            return URLEncoder.encode(path, StandardCharsets.UTF_8);
+        }
+
+        private static String decode(String path) {
+            return URLDecoder.decode(path, StandardCharsets.UTF_8);
+        }
+    }
+
+    /**
+     * Flujo de entrada que actualiza los bytes confirmados de una entrada y guarda un punto de control
+     * cada {@link #CHECKPOINT_INTERVAL} bytes leídos.
+     */
+    private class CheckpointInputStream extends FilterInputStream {
+        private final Entry entry;
+        private long lastCheckpoint;
+
+        private CheckpointInputStream(InputStream input, Entry entry) {
+            super(input);
+            this.entry = entry;
+            this.lastCheckpoint = entry.bytesConfirmed;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int value = super.read();
+            if (value >= 0) {
+                advance(1);
+            }
+            return value;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            int read = super.read(buffer, offset, length);
+            if (read > 0) {
+                advance(read);
+            }
+            return read;
+        }
+
+        private void advance(int count) {
+            entry.bytesConfirmed += count;
+            if (entry.bytesConfirmed - lastCheckpoint >= CHECKPOINT_INTERVAL) {
+                lastCheckpoint = entry.bytesConfirmed;
+                checkpoint(entry);
+            }
+        }
+    }
+
+    /**
+     * Flujo de salida que actualiza los bytes confirmados de una entrada y guarda un punto de control
+     * cada {@link #CHECKPOINT_INTERVAL} bytes escritos en el archivo local.
+     */
+    private class CheckpointOutputStream extends FilterOutputStream {
+        private final Entry entry;
+        private long lastCheckpoint;
+
+        private CheckpointOutputStream(OutputStream output, Entry entry) {
+            super(output);
+            this.entry = entry;
+            this.lastCheckpoint = entry.bytesConfirmed;
+        }
+
+        @Override
+        public void write(int value) throws IOException {
+            out.write(value);
+            advance(1);
+        }
+
+        @Override
+        public void write(byte[] buffer, int offset, int length) throws IOException {
+            out.write(buffer, offset, length);
+            advance(length);
+        }
+
+        private void advance(int count) throws IOException {
+            entry.bytesConfirmed += count;
+            if (entry.bytesConfirmed - lastCheckpoint >= CHECKPOINT_INTERVAL) {
+                out.flush();
+                lastCheckpoint = entry.bytesConfirmed;
+                checkpoint(entry);
+            }
+        }
+    }
+}
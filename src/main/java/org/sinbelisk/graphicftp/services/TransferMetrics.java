@@ -0,0 +1,87 @@
+package org.sinbelisk.graphicftp.services;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Métricas acumuladas de las transferencias de un {@link TransferScheduler}: número de transferencias
+ * terminadas, bytes enviados y recibidos y velocidades reales, tomadas del {@link TransferProgress} de cada trabajo.
+ * Los contadores son seguros para registrar desde varios hilos de trabajo a la vez.
+ */
+public class TransferMetrics {
+    private final LongAdder completedTransfers = new LongAdder();
+    private final LongAdder failedTransfers = new LongAdder();
+    private final LongAdder bytesUploaded = new LongAdder();
+    private final LongAdder bytesDownloaded = new LongAdder();
+    private final LongAdder transferNanos = new LongAdder();
+    private final AtomicLong peakRate = new AtomicLong();
+
+    /**
+     * Registra una transferencia terminada. Las eliminaciones y los trabajos sin progreso se ignoran.
+     *
+     * @param job        La transferencia terminada.
+     * @param finalState Estado final de la transferencia.
+     * @param progress   El progreso medido durante su último intento.
+     */
+    void record(TransferJob job, TransferJob.State finalState, TransferProgress progress) {
+        if (progress == null || job.getDirection() == TransferJob.Direction.DELETE) {
+            return;
+        }
+
+        if (finalState == TransferJob.State.DONE) {
+            completedTransfers.increment();
+        } else {
+            failedTransfers.increment();
+        }
+
+        long bytes = progress.getBytesThisRun();
+        if (job.getDirection() == TransferJob.Direction.UPLOAD) {
+            bytesUploaded.add(bytes);
+        } else {
+            bytesDownloaded.add(bytes);
+        }
+        transferNanos.add(progress.getElapsedNanos());
+        peakRate.accumulateAndGet((long) progress.getAverageRate(), Math::max);
+    }
+
+    public long getCompletedTransfers() {
+        return completedTransfers.sum();
+    }
+
+    public long getFailedTransfers() {
+        return failedTransfers.sum();
+    }
+
+    public long getBytesUploaded() {
+        return bytesUploaded.sum();
+    }
+
+    public long getBytesDownloaded() {
+        return bytesDownloaded.sum();
+    }
+
+    /**
+     * @return Velocidad media de todas las transferencias registradas en bytes por segundo,
+     * calculada sobre el tiempo que cada una estuvo transfiriendo datos.
+     */
+    public double getAverageRate() {
+        long nanos = transferNanos.sum();
+        return nanos <= 0 ? 0 : (bytesUploaded.sum() + bytesDownloaded.sum()) * 1e9 / nanos;
+    }
+
+    /**
+     * @return Mayor velocidad media de una sola transferencia, en bytes por segundo.
+     */
+    public long getPeakRate() {
+        return peakRate.get();
+    }
+
+    @Override
+    public String toString() {
+        return completedTransfers.sum() + " transfers done, " + failedTransfers.sum() + " failed, "
+                + TransferProgress.formatBytes(bytesUploaded.sum()) + " up, "
+                + TransferProgress.formatBytes(bytesDownloaded.sum()) + " down, average "
+                + TransferProgress.formatBytes((long) getAverageRate()) + "/s, peak "
+                + TransferProgress.formatBytes(peakRate.get()) + "/s";
+    }
+}
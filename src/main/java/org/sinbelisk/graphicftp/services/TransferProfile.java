@@ -0,0 +1,126 @@
+package org.sinbelisk.graphicftp.services;
+
+import org.apache.commons.net.ftp.FTPClient;
+
+/**
+ * Parámetros de E/S de las transferencias de una conexión: el tamaño del búfer con el que se copian los datos,
+ * los búferes de envío y recepción de los sockets de datos y el tamaño a partir del cual los archivos locales
+ * se leen mapeados en memoria.
+ * <p>
+ * Los valores por defecto sirven para la mayoría de conexiones. En enlaces rápidos con mucha latencia,
+ * {@link #forBandwidthDelay(long, long)} ajusta los búferes de los sockets al producto ancho de banda-retardo,
+ * ya que con búferes menores TCP no llega a llenar el enlace.
+ * </p>
+ */
+public class TransferProfile {
+
+    /**
+     * Tamaño por defecto del búfer de copia de las transferencias (64 KB).
+     */
+    public static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * Tamaño por defecto a partir del cual un archivo local se sube mapeado en memoria (64 MB).
+     */
+    public static final long DEFAULT_MEMORY_MAP_THRESHOLD = 64L * 1024 * 1024;
+
+    // Límites de los búferes de socket calculados a partir del producto ancho de banda-retardo
+    private static final int MIN_SOCKET_BUFFER_SIZE = 64 * 1024;
+    private static final int MAX_SOCKET_BUFFER_SIZE = 16 * 1024 * 1024;
+
+    private int bufferSize = DEFAULT_BUFFER_SIZE;
+    private int sendBufferSize;
+    private int receiveBufferSize;
+    private long memoryMapThreshold = DEFAULT_MEMORY_MAP_THRESHOLD;
+
+    /**
+     * Crea un perfil con búferes de socket dimensionados para un enlace concreto.
+     *
+     * @param bytesPerSecond Ancho de banda del enlace en bytes por segundo.
+     * @param rttMillis      Tiempo de ida y vuelta hasta el servidor en milisegundos.
+     * @return El perfil ajustado al enlace.
+     */
+    public static TransferProfile forBandwidthDelay(long bytesPerSecond, long rttMillis) {
+        long product = bytesPerSecond * rttMillis / 1000;
+        int socketBufferSize = (int) Math.min(MAX_SOCKET_BUFFER_SIZE, Math.max(MIN_SOCKET_BUFFER_SIZE, product));
+
+        TransferProfile profile = new TransferProfile();
+        profile.setSendBufferSize(socketBufferSize);
+        profile.setReceiveBufferSize(socketBufferSize);
+        profile.setBufferSize(Math.min(socketBufferSize, 1024 * 1024));
+        return profile;
+    }
+
+    /**
+     * Aplica el perfil a una sesión FTP. Afecta a las conexiones de datos que se abran a partir de ese momento.
+     *
+     * @param client La sesión FTP.
+     */
+    public void applyTo(FTPClient client) {
+        client.setBufferSize(bufferSize);
+        client.setSendDataSocketBufferSize(sendBufferSize);
+        client.setReceieveDataSocketBufferSize(receiveBufferSize);
+    }
+
+    public int getBufferSize() {
+        return bufferSize;
+    }
+
+    /**
+     * Establece el tamaño del búfer con el que se copian los datos entre el archivo local y la conexión de datos.
+     *
+     * @param bufferSize Tamaño en bytes, mayor que 0.
+     */
+    public void setBufferSize(int bufferSize) {
+        if (bufferSize <= 0) {
+            throw new IllegalArgumentException("Buffer size must be positive: " + bufferSize);
+        }
+        this.bufferSize = bufferSize;
+    }
+
+    public int getSendBufferSize() {
+        return sendBufferSize;
+    }
+
+    /**
+     * Establece el búfer de envío ({@code SO_SNDBUF}) de los sockets de datos.
+     *
+     * @param sendBufferSize Tamaño en bytes, o 0 para usar el del sistema.
+     */
+    public void setSendBufferSize(int sendBufferSize) {
+        this.sendBufferSize = Math.max(0, sendBufferSize);
+    }
+
+    public int getReceiveBufferSize() {
+        return receiveBufferSize;
+    }
+
+    /**
+     * Establece el búfer de recepción ({@code SO_RCVBUF}) de los sockets de datos.
+     *
+     * @param receiveBufferSize Tamaño en bytes, o 0 para usar el del sistema.
+     */
+    public void setReceiveBufferSize(int receiveBufferSize) {
+        this.receiveBufferSize = Math.max(0, receiveBufferSize);
+    }
+
+    public long getMemoryMapThreshold() {
+        return memoryMapThreshold;
+    }
+
+    /**
+     * Establece el tamaño a partir del cual un archivo local se sube mapeado en memoria.
+     *
+     * @param memoryMapThreshold Tamaño en bytes, o {@link Long#MAX_VALUE} para no mapear nunca.
+     */
+    public void setMemoryMapThreshold(long memoryMapThreshold) {
+        this.memoryMapThreshold = memoryMapThreshold;
+    }
+
+    @Override
+    public String toString() {
+        return "buffer " + TransferProgress.formatBytes(bufferSize) + ", socket send "
+                + (sendBufferSize == 0 ? "default" : TransferProgress.formatBytes(sendBufferSize)) + ", receive "
+                + (receiveBufferSize == 0 ? "default" : TransferProgress.formatBytes(receiveBufferSize));
+    }
+}
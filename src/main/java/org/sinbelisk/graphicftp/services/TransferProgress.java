@@ -0,0 +1,249 @@
+package org.sinbelisk.graphicftp.services;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.commons.net.io.CopyStreamEvent;
+import org.apache.commons.net.io.CopyStreamListener;
+
+/**
+ * Progreso de una transferencia a nivel de byte: bytes transferidos, velocidad instantánea y media,
+ * y tiempo restante estimado.
+ * <p>
+ * Se registra como {@link CopyStreamListener} en la sesión FTP que ejecuta la transferencia, por lo que recibe
+ * cada bloque copiado. Contar un bloque solo cuesta una suma atómica; las velocidades se recalculan y se notifica
+ * al {@link Listener} como mucho una vez por intervalo, de modo que el seguimiento nunca frena la transferencia.
+ * Varios hilos pueden notificar bloques a la vez, como ocurre en las descargas segmentadas.
+ * </p>
+ */
+public class TransferProgress implements CopyStreamListener {
+
+    /**
+     * Intervalo mínimo entre dos notificaciones al {@link Listener} por defecto.
+     */
+    public static final long DEFAULT_UPDATE_INTERVAL_MS = 250;
+
+    // Peso de la última muestra en la velocidad instantánea (media móvil exponencial)
+    private static final double RATE_SMOOTHING = 0.3;
+
+    private final Listener listener;
+    private final long updateIntervalNanos;
+    private final AtomicLong bytesTransferred = new AtomicLong();
+    private final AtomicLong nextUpdateNanos = new AtomicLong();
+    private volatile long totalBytes = -1;
+    private volatile long initialBytes;
+    private volatile long startNanos;
+    private volatile long endNanos;
+    private volatile double currentRate;
+
+    // Última muestra tomada; solo se usan dentro de sample()
+    private long lastSampleNanos;
+    private long lastSampleBytes;
+
+    /**
+     * Constructor del progreso con el intervalo de notificación por defecto.
+     *
+     * @param listener Receptor de las actualizaciones, o {@code null}.
+     */
+    public TransferProgress(Listener listener) {
+        this(listener, DEFAULT_UPDATE_INTERVAL_MS);
+    }
+
+    /**
+     * Constructor del progreso.
+     *
+     * @param listener         Receptor de las actualizaciones, o {@code null}.
+     * @param updateIntervalMs Intervalo mínimo en milisegundos entre dos notificaciones.
+     */
+    public TransferProgress(Listener listener, long updateIntervalMs) {
+        this.listener = listener;
+        this.updateIntervalNanos = TimeUnit.MILLISECONDS.toNanos(updateIntervalMs);
+        start(-1, 0);
+    }
+
+    /**
+     * Empieza a medir una transferencia.
+     *
+     * @param totalBytes   Tamaño total del archivo, o -1 si no se conoce.
+     * @param initialBytes Bytes que ya estaban transferidos, por ejemplo al reanudar.
+     */
+    public synchronized void start(long totalBytes, long initialBytes) {
+        long now = System.nanoTime();
+        this.totalBytes = totalBytes;
+        this.initialBytes = initialBytes;
+        this.bytesTransferred.set(initialBytes);
+        this.startNanos = now;
+        this.endNanos = 0;
+        this.currentRate = 0;
+        this.lastSampleNanos = now;
+        this.lastSampleBytes = initialBytes;
+        this.nextUpdateNanos.set(now + updateIntervalNanos);
+    }
+
+    @Override
+    public void bytesTransferred(CopyStreamEvent event) {
+        bytesTransferred(event.getTotalBytesTransferred(), event.getBytesTransferred(), event.getStreamSize());
+    }
+
+    /**
+     * Cuenta un bloque transferido y, si ha pasado el intervalo de notificación, actualiza las velocidades.
+     *
+     * @param totalBytesTransferred Bytes transferidos por el flujo que notifica (no se usa, ya que puede haber varios).
+     * @param bytesTransferred      Bytes del bloque.
+     * @param streamSize            Tamaño del flujo, normalmente desconocido.
+     */
+    @Override
+    public void bytesTransferred(long totalBytesTransferred, int bytesTransferred, long streamSize) {
+        long done = this.bytesTransferred.addAndGet(bytesTransferred);
+        long now = System.nanoTime();
+        long next = nextUpdateNanos.get();
+        if (now >= next && nextUpdateNanos.compareAndSet(next, now + updateIntervalNanos)) {
+            sample(now, done);
+            notifyListener();
+        }
+    }
+
+    /**
+     * Termina la medición y envía una última actualización si se han transferido bytes desde la anterior.
+     */
+    public void finish() {
+        long now = System.nanoTime();
+        endNanos = now;
+        if (sample(now, bytesTransferred.get())) {
+            notifyListener();
+        }
+    }
+
+    /**
+     * Toma una muestra de la velocidad.
+     *
+     * @return true si se han transferido bytes desde la muestra anterior.
+     */
+    private synchronized boolean sample(long now, long done) {
+        long elapsed = now - lastSampleNanos;
+        if (elapsed <= 0 || done == lastSampleBytes) {
+            return false;
+        }
+        double rate = (done - lastSampleBytes) * 1e9 / elapsed;
+        currentRate = currentRate == 0 ? rate : RATE_SMOOTHING * rate + (1 - RATE_SMOOTHING) * currentRate;
+        lastSampleNanos = now;
+        lastSampleBytes = done;
+        return true;
+    }
+
+    private void notifyListener() {
+        if (listener != null) {
+            listener.onProgress(this);
+        }
+    }
+
+    public long getBytesTransferred() {
+        return bytesTransferred.get();
+    }
+
+    /**
+     * @return Tamaño total del archivo, o -1 si no se conoce.
+     */
+    public long getTotalBytes() {
+        return totalBytes;
+    }
+
+    /**
+     * @return Bytes transferidos en esta medición, sin contar los que ya lo estaban al reanudar.
+     */
+    public long getBytesThisRun() {
+        return bytesTransferred.get() - initialBytes;
+    }
+
+    /**
+     * @return Porcentaje completado entre 0 y 100, o -1 si no se conoce el tamaño total.
+     */
+    public int getPercent() {
+        long total = totalBytes;
+        if (total <= 0) {
+            return total == 0 ? 100 : -1;
+        }
+        return (int) Math.min(100, bytesTransferred.get() * 100 / total);
+    }
+
+    /**
+     * @return Tiempo transcurrido desde el inicio hasta ahora o hasta el final de la transferencia, en nanosegundos.
+     */
+    public long getElapsedNanos() {
+        long end = endNanos;
+        return (end == 0 ? System.nanoTime() : end) - startNanos;
+    }
+
+    /**
+     * @return Velocidad reciente en bytes por segundo, suavizada entre las últimas muestras.
+     */
+    public double getCurrentRate() {
+        return endNanos == 0 ? currentRate : 0;
+    }
+
+    /**
+     * @return Velocidad media desde el inicio en bytes por segundo.
+     */
+    public double getAverageRate() {
+        long elapsed = getElapsedNanos();
+        return elapsed <= 0 ? 0 : getBytesThisRun() * 1e9 / elapsed;
+    }
+
+    /**
+     * @return Segundos restantes estimados, o -1 si no se pueden estimar.
+     */
+    public long getEtaSeconds() {
+        long total = totalBytes;
+        double rate = currentRate > 0 ? currentRate : getAverageRate();
+        if (total < 0 || rate <= 0) {
+            return -1;
+        }
+        return (long) Math.ceil(Math.max(0, total - bytesTransferred.get()) / rate);
+    }
+
+    /**
+     * Describe el progreso para mostrarlo al usuario, por ejemplo {@code 45% · 2,3 MB/s · quedan 00:12}.
+     *
+     * @return El texto del progreso.
+     */
+    public String describe() {
+        StringBuilder text = new StringBuilder();
+        int percent = getPercent();
+        text.append(percent >= 0 ? percent + "%" : formatBytes(getBytesTransferred()));
+        text.append(" · ").append(formatBytes((long) (endNanos == 0 ? currentRate : getAverageRate()))).append("/s");
+
+        long eta = getEtaSeconds();
+        if (endNanos == 0 && eta >= 0) {
+            text.append(" · quedan ").append(String.format("%02d:%02d", eta / 60, eta % 60));
+        }
+        return text.toString();
+    }
+
+    /**
+     * Da formato a una cantidad de bytes con la unidad más adecuada.
+     *
+     * @param bytes Cantidad de bytes.
+     * @return La cantidad con una cifra decimal y su unidad, por ejemplo {@code 2,3 MB}.
+     */
+    public static String formatBytes(long bytes) {
+        if (bytes < 1024) {
+            return bytes + " B";
+        }
+        String[] units = {"KB", "MB", "GB", "TB"};
+        double value = bytes;
+        int unit = -1;
+        while (value >= 1024 && unit < units.length - 1) {
+            value /= 1024;
+            unit++;
+        }
+        return String.format("%.1f %s", value, units[unit]);
+    }
+
+    /**
+     * Receptor de las actualizaciones de progreso, llamado desde el hilo que transfiere los datos.
+     */
+    @FunctionalInterface
+    public interface Listener {
+        void onProgress(TransferProgress progress);
+    }
+}
@@ -0,0 +1,390 @@
+package org.sinbelisk.graphicftp.services;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Planificador de transferencias en segundo plano.
+ * Las subidas y descargas se encolan y se ejecutan en el {@link RemoteTaskExecutor} de la sesión con un número
+ * limitado de transferencias simultáneas, cada una con su propia sesión del {@link FTPConnectionPool},
+ * de forma que la interfaz gráfica nunca queda bloqueada mientras dura una transferencia.
+ * <p>
+ * Una transferencia fallida se reintenta hasta {@link #DEFAULT_MAX_ATTEMPTS} veces; gracias al {@link TransferJournal}
+ * cada reintento continúa desde el último byte confirmado.
+ * </p>
+ * <p>
+ * Si se activa la verificación, cada transferencia calcula la suma de sus datos mientras los transfiere
+ * y el {@link TransferVerifier} la compara con la del servidor en segundo plano, sin ocupar el hilo de trabajo,
+ * de modo que la siguiente transferencia empieza mientras se verifica la anterior.
+ * </p>
+ * <p>
+ * Los cambios de estado de cada {@link TransferJob} se notifican a los {@link TransferListener} registrados,
+ * siempre desde el hilo que ejecuta la transferencia. Mientras se transfieren datos, el {@link TransferProgress}
+ * del trabajo también se notifica, como mucho una vez cada {@link TransferProgress#DEFAULT_UPDATE_INTERVAL_MS} ms.
+ * Al terminar, cada transferencia se suma a las {@link TransferMetrics} del planificador.
+ * </p>
+ */
+public class TransferScheduler {
+    private static final Logger logger = LogManager.getLogger(TransferScheduler.class);
+
+    /**
+     * Número de transferencias simultáneas por defecto. Deja una sesión del pool libre para los listados.
+     */
+    public static final int DEFAULT_WORKERS = Math.max(1, FTPConnectionPool.DEFAULT_MAX_SIZE - 1);
+
+    /**
+     * Número máximo de intentos de cada transferencia por defecto.
+     */
+    public static final int DEFAULT_MAX_ATTEMPTS = 3;
+    private static final long RETRY_DELAY_MS = 2_000;
+    private static final int MAX_REPORTED_FAILURES = 3;
+    private static final int VERIFICATION_PARALLELISM = 1;
+
+    private final FTPClientManager ftpClientManager;
+    private final Executor workers;
+    private final RecursiveDeleter recursiveDeleter;
+    private final TransferVerifier transferVerifier;
+    private final Executor verifiers;
+    private final TransferMetrics metrics = new TransferMetrics();
+    private final List<TransferListener> listeners = new CopyOnWriteArrayList<>();
+    private final Set<TransferJob> pendingJobs = ConcurrentHashMap.newKeySet();
+    private final AtomicLong nextId = new AtomicLong(1);
+    private volatile int maxAttempts = DEFAULT_MAX_ATTEMPTS;
+    private volatile boolean verificationEnabled;
+
+    /**
+     * Constructor del planificador con el número de hilos por defecto.
+     *
+     * @param ftpClientManager Gestor FTP con el que se realizan las transferencias.
+     */
+    public TransferScheduler(FTPClientManager ftpClientManager) {
+        this(ftpClientManager, DEFAULT_WORKERS);
+    }
+
+    /**
+     * Constructor del planificador.
+     *
+     * @param ftpClientManager Gestor FTP con el que se realizan las transferencias.
+     * @param workerCount      Número de transferencias que pueden ejecutarse a la vez.
+     */
+    public TransferScheduler(FTPClientManager ftpClientManager, int workerCount) {
+        this.ftpClientManager = ftpClientManager;
+        this.workers = ftpClientManager.getTaskExecutor().limitedTo(workerCount);
+        this.recursiveDeleter = new RecursiveDeleter(ftpClientManager);
+        this.transferVerifier = new TransferVerifier(ftpClientManager);
+        this.verifiers = ftpClientManager.getTaskExecutor().limitedTo(VERIFICATION_PARALLELISM);
+    }
+
+    /**
+     * Encola la subida de un archivo local al servidor.
+     *
+     * @param localPath  Ruta del archivo local.
+     * @param remotePath Ruta de destino en el servidor FTP.
+     * @return La transferencia encolada.
+     */
+    public TransferJob enqueueUpload(String localPath, String remotePath) {
+        return enqueue(new TransferJob(nextId.getAndIncrement(), TransferJob.Direction.UPLOAD, localPath, remotePath));
+    }
+
+    /**
+     * Encola la descarga de un archivo del servidor.
+     *
+     * @param remotePath Ruta del archivo en el servidor FTP.
+     * @param localPath  Ruta local donde se guardará el archivo.
+     * @return La transferencia encolada.
+     */
+    public TransferJob enqueueDownload(String remotePath, String localPath) {
+        return enqueue(new TransferJob(nextId.getAndIncrement(), TransferJob.Direction.DOWNLOAD, localPath, remotePath));
+    }
+
+    /**
+     * Encola la eliminación de una carpeta remota con todo su contenido mediante el {@link RecursiveDeleter}.
+     * Mientras se ejecuta, el mensaje del trabajo indica cuántos elementos se han eliminado; si algún elemento
+     * no se puede eliminar, el trabajo termina como fallido con el detalle de los fallos.
+     *
+     * @param remotePath Ruta de la carpeta en el servidor FTP.
+     * @return El trabajo encolado.
+     */
+    public TransferJob enqueueDelete(String remotePath) {
+        return enqueue(new TransferJob(nextId.getAndIncrement(), TransferJob.Direction.DELETE, null, remotePath));
+    }
+
+    /**
+     * Cancela una transferencia que todavía no ha empezado.
+     *
+     * @param job La transferencia a cancelar.
+     * @return true si se ha cancelado, false si ya estaba en curso o había terminado.
+     */
+    public boolean cancel(TransferJob job) {
+        if (!job.cancel()) {
+            return false;
+        }
+
+        if (job.getFuture() != null) {
+            job.getFuture().cancel(false);
+        }
+        pendingJobs.remove(job);
+        logger.info("Transfer cancelled: {}", job.getRemotePath());
+        notifyListeners(job);
+        job.complete();
+        return true;
+    }
+
+    /**
+     * Establece cuántas veces se intenta cada transferencia antes de marcarla como fallida.
+     *
+     * @param maxAttempts Número máximo de intentos, al menos 1.
+     */
+    public void setMaxAttempts(int maxAttempts) {
+        this.maxAttempts = Math.max(1, maxAttempts);
+    }
+
+    /**
+     * Activa o desactiva la verificación de integridad de las subidas y descargas que empiecen a partir de ahora.
+     *
+     * @param verificationEnabled {@code true} para comprobar cada archivo transferido con el {@link TransferVerifier}.
+     */
+    public void setVerificationEnabled(boolean verificationEnabled) {
+        this.verificationEnabled = verificationEnabled;
+    }
+
+    public boolean isVerificationEnabled() {
+        return verificationEnabled;
+    }
+
+    /**
+     * Obtiene las métricas acumuladas de las transferencias terminadas.
+     *
+     * @return Las métricas del planificador.
+     */
+    public TransferMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Suma la velocidad actual de todas las transferencias en curso.
+     *
+     * @return La velocidad total en bytes por segundo.
+     */
+    public double getCurrentRate() {
+        double rate = 0;
+        for (TransferJob job : pendingJobs) {
+            TransferProgress progress = job.getProgress();
+            if (progress != null && job.getState() == TransferJob.State.RUNNING) {
+                rate += progress.getCurrentRate();
+            }
+        }
+        return rate;
+    }
+
+    /**
+     * Registra un oyente que será notificado de cada cambio de estado de las transferencias.
+     *
+     * @param listener El oyente a registrar.
+     */
+    public void addListener(TransferListener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Elimina un oyente registrado previamente.
+     *
+     * @param listener El oyente a eliminar.
+     */
+    public void removeListener(TransferListener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Detiene el planificador, cancelando las transferencias que sigan en cola.
+     * Las transferencias en curso terminan cuando se detiene el {@link RemoteTaskExecutor} de la sesión.
+     */
+    public void shutdown() {
+        for (TransferJob job : pendingJobs) {
+            cancel(job);
+        }
+        logger.info("Transfer scheduler shut down. {}", metrics);
+    }
+
+    private TransferJob enqueue(TransferJob job) {
+        pendingJobs.add(job);
+        logger.info("Transfer queued: {} {} <-> {}", job.getDirection(), job.getLocalPath(), job.getRemotePath());
+        notifyListeners(job);
+        FutureTask<Void> task = new FutureTask<>(() -> run(job), null);
+        job.setFuture(task);
+        workers.execute(task);
+        return job;
+    }
+
+    /**
+     * Ejecuta una transferencia en el hilo de trabajo actual.
+     */
+    private void run(TransferJob job) {
+        if (!job.start()) {
+            return;
+        }
+        notifyListeners(job);
+
+        boolean verify = verificationEnabled && job.getDirection() != TransferJob.Direction.DELETE;
+        RemoteChecksum.Calculator checksum = null;
+        boolean success = false;
+        for (int attempt = 1; attempt <= maxAttempts && !success; attempt++) {
+            if (attempt > 1) {
+                logger.warn("Retrying transfer {} (attempt {}/{})", job.getRemotePath(), attempt, maxAttempts);
+                job.setMessage("Reintentando (" + attempt + "/" + maxAttempts + ")");
+                notifyListeners(job);
+                if (!sleepBeforeRetry(attempt)) {
+                    break;
+                }
+            }
+            checksum = verify ? transferVerifier.newCalculator() : null;
+            if (job.getDirection() != TransferJob.Direction.DELETE) {
+                job.setMessage(null);
+                job.setProgress(new TransferProgress(progress -> notifyListeners(job)));
+            }
+            success = transfer(job, checksum);
+        }
+
+        pendingJobs.remove(job);
+        if (success && verify) {
+            verifyInBackground(job, checksum);
+            return;
+        }
+        String failure = job.getDirection() == TransferJob.Direction.DELETE ? job.getMessage() : "Error en la transferencia";
+        finish(job, success ? TransferJob.State.DONE : TransferJob.State.FAILED, success ? null : failure);
+    }
+
+    /**
+     * Ejecuta un intento de la transferencia.
+     *
+     * @return true si la transferencia terminó correctamente.
+     */
+    private boolean transfer(TransferJob job, RemoteChecksum.Calculator checksum) {
+        try {
+            switch (job.getDirection()) {
+                case UPLOAD:
+                    return ftpClientManager.uploadFile(job.getLocalPath(), job.getRemotePath(), checksum, job.getProgress());
+                case DOWNLOAD:
+                    return ftpClientManager.downloadFile(job.getRemotePath(), job.getLocalPath(), checksum, job.getProgress());
+                default:
+                    return deleteFolder(job);
+            }
+        } catch (RuntimeException e) {
+            logger.error("Unexpected error running transfer {}", job.getRemotePath(), e);
+            return false;
+        }
+    }
+
+    /**
+     * Verifica una transferencia terminada sin ocupar el hilo de trabajo, que queda libre para la siguiente.
+     */
+    private void verifyInBackground(TransferJob job, RemoteChecksum.Calculator checksum) {
+        job.startVerifying();
+        notifyListeners(job);
+
+        Runnable verification = () -> {
+            String mismatch;
+            try {
+                mismatch = transferVerifier.verify(job.getLocalPath(), job.getRemotePath(), checksum);
+            } catch (RuntimeException e) {
+                logger.error("Unexpected error verifying transfer {}", job.getRemotePath(), e);
+                mismatch = "Error al verificar";
+            }
+            finish(job, mismatch == null ? TransferJob.State.DONE : TransferJob.State.FAILED, mismatch);
+        };
+        try {
+            verifiers.execute(verification);
+        } catch (RejectedExecutionException e) {
+            finish(job, TransferJob.State.DONE, "Sin verificar");
+        }
+    }
+
+    /**
+     * Finaliza una transferencia: registra sus métricas, notifica el estado final a los oyentes y,
+     * por último, completa su resultado, de modo que quien espera la transferencia ya ve todas las notificaciones.
+     */
+    private void finish(TransferJob job, TransferJob.State finalState, String message) {
+        metrics.record(job, finalState, job.getProgress());
+        job.finish(finalState, message);
+        notifyListeners(job);
+        job.complete();
+    }
+
+    /**
+     * Ejecuta un intento de eliminación recursiva, informando del progreso en el mensaje del trabajo.
+     *
+     * @return true si se eliminó la carpeta completa.
+     */
+    private boolean deleteFolder(TransferJob job) {
+        try {
+            RecursiveDeleter.Result result = recursiveDeleter.delete(job.getRemotePath(), (deleted, discovered) -> {
+                job.setMessage(deleted + "/" + discovered + " eliminados");
+                notifyListeners(job);
+            });
+            if (!result.isSuccessful()) {
+                job.setMessage(describeFailures(result.getFailures()));
+            }
+            return result.isSuccessful();
+        } catch (IOException e) {
+            logger.error("Error deleting folder {}: {}", job.getRemotePath(), e.getMessage());
+            job.setMessage("Error al eliminar: " + e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Resume los fallos de una eliminación mostrando los primeros elementos y la respuesta del servidor.
+     */
+    private static String describeFailures(Map<String, String> failures) {
+        StringBuilder text = new StringBuilder(failures.size() + " elementos sin eliminar");
+        int shown = 0;
+        for (Map.Entry<String, String> failure : failures.entrySet()) {
+            if (shown++ == MAX_REPORTED_FAILURES) {
+                text.append(", ...");
+                break;
+            }
+            text.append(shown == 1 ? ": " : ", ").append(failure.getKey()).append(" (").append(failure.getValue()).append(')');
+        }
+        return text.toString();
+    }
+
+    /**
+     * Espera antes de un reintento, más tiempo cuantos más intentos se hayan hecho.
+     *
+     * @return false si el hilo fue interrumpido porque el planificador se está deteniendo.
+     */
+    private boolean sleepBeforeRetry(int attempt) {
+        try {
+            Thread.sleep(RETRY_DELAY_MS * (attempt - 1));
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private void notifyListeners(TransferJob job) {
+        for (TransferListener listener : listeners) {
+            listener.onTransferUpdated(job);
+        }
+    }
+
+    /**
+     * Oyente de los cambios de estado de las transferencias.
+     */
+    @FunctionalInterface
+    public interface TransferListener {
+        void onTransferUpdated(TransferJob job);
+    }
+}
@@ -0,0 +1,164 @@
+package org.sinbelisk.graphicftp.services;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Comprueba que un archivo transferido es idéntico en el equipo local y en el servidor.
+ * <p>
+ * La suma local se calcula con un {@link RemoteChecksum.Calculator} mientras se transfiere el archivo, por lo que
+ * no hace falta volver a leerlo. Después se pide la misma suma al servidor con el primer comando que anuncie
+ * en su respuesta a {@code FEAT}: {@code HASH}, {@code XSHA1}, {@code XMD5} o {@code XCRC}. Si no anuncia ninguno,
+ * o la transferencia se reanudó y la suma local no cubre todo el archivo, solo se compara el tamaño con {@code SIZE}.
+ * </p>
+ */
+public class TransferVerifier {
+    private static final Logger logger = LogManager.getLogger(TransferVerifier.class);
+
+    /**
+     * Forma de obtener la suma de comprobación del servidor.
+     */
+    public enum Method {
+        HASH, XSHA1, XMD5, XCRC,
+        /**
+         * El servidor no calcula sumas; solo se compara el tamaño.
+         */
+        SIZE
+    }
+
+    private final FTPClientManager ftpClientManager;
+    private volatile Method method;
+    private volatile String algorithm;
+    private volatile ServerCapabilities detectedFor;
+
+    /**
+     * Constructor del verificador.
+     *
+     * @param ftpClientManager Gestor FTP con el que se consultan las sumas y tamaños remotos.
+     */
+    public TransferVerifier(FTPClientManager ftpClientManager) {
+        this.ftpClientManager = ftpClientManager;
+    }
+
+    /**
+     * Obtiene el método de verificación que admite el servidor según las {@link ServerCapabilities}
+     * de la sesión, sin consultar al servidor.
+     *
+     * @return El método de verificación.
+     */
+    public Method getMethod() {
+        ServerCapabilities capabilities = ftpClientManager.getCapabilities();
+        if (capabilities != detectedFor) {
+            detectMethod(capabilities);
+        }
+        return method;
+    }
+
+    /**
+     * Crea la calculadora que debe alimentarse con los datos de una transferencia para poder verificarla.
+     *
+     * @return La calculadora, o {@code null} si el servidor no calcula sumas y solo se comparará el tamaño.
+     */
+    public RemoteChecksum.Calculator newCalculator() {
+        if (getMethod() == Method.SIZE) {
+            return null;
+        }
+        try {
+            return RemoteChecksum.newCalculator(algorithm);
+        } catch (IOException e) {
+            logger.warn("Checksum algorithm {} not available locally, verifying by size.", algorithm);
+            return null;
+        }
+    }
+
+    /**
+     * Verifica un archivo transferido.
+     *
+     * @param localPath  Ruta del archivo local.
+     * @param remotePath Ruta del archivo en el servidor FTP.
+     * @param calculator Calculadora alimentada durante la transferencia, o {@code null}.
+     * @return {@code null} si el archivo es correcto o no se puede comprobar, o la descripción de la diferencia.
+     */
+    public String verify(String localPath, String remotePath, RemoteChecksum.Calculator calculator) {
+        long localSize = new File(localPath).length();
+
+        if (calculator != null && calculator.getByteCount() == localSize) {
+            RemoteChecksum remote = getRemoteChecksum(remotePath);
+            if (remote != null && remote.getAlgorithm().equals(calculator.getAlgorithm())) {
+                if (remote.getValue().equals(calculator.getValue())) {
+                    logger.info("Transfer of {} verified ({}).", remotePath, remote.getAlgorithm());
+                    return null;
+                }
+                logger.warn("Checksum mismatch for {}: local {}, remote {}", remotePath, calculator.getValue(), remote);
+                return "La suma " + remote.getAlgorithm() + " no coincide";
+            }
+        }
+
+        long remoteSize = ftpClientManager.getRemoteFileSize(remotePath);
+        if (remoteSize < 0) {
+            logger.warn("Transfer of {} could not be verified.", remotePath);
+            return null;
+        }
+        if (remoteSize != localSize) {
+            logger.warn("Size mismatch for {}: local {}, remote {}", remotePath, localSize, remoteSize);
+            return "Tamaño distinto (local " + localSize + ", remoto " + remoteSize + " bytes)";
+        }
+        logger.info("Transfer of {} verified (SIZE).", remotePath);
+        return null;
+    }
+
+    /**
+     * Pide al servidor la suma de un archivo con el comando detectado.
+     */
+    private RemoteChecksum getRemoteChecksum(String remotePath) {
+        Method current = getMethod();
+        if (current == Method.HASH) {
+            return ftpClientManager.getRemoteChecksum(remotePath);
+        }
+
+        try {
+            return requirePool().execute(client -> {
+                client.sendCommand(current.name(), remotePath);
+                return RemoteChecksum.parseValueReply(algorithm, client.getReplyString());
+            });
+        } catch (IOException e) {
+            logger.warn("Could not get checksum of {}: {}", remotePath, e.getMessage());
+            return null;
+        }
+    }
+
+    private synchronized void detectMethod(ServerCapabilities capabilities) {
+        if (capabilities == detectedFor) {
+            return;
+        }
+        if (capabilities.supportsHash()) {
+            algorithm = capabilities.getDefaultHashAlgorithm();
+            method = Method.HASH;
+        } else if (capabilities.has("XSHA1")) {
+            algorithm = "SHA-1";
+            method = Method.XSHA1;
+        } else if (capabilities.has("XMD5")) {
+            algorithm = "MD5";
+            method = Method.XMD5;
+        } else if (capabilities.has("XCRC")) {
+            algorithm = "CRC32";
+            method = Method.XCRC;
+        } else {
+            algorithm = null;
+            method = Method.SIZE;
+        }
+        detectedFor = capabilities;
+        logger.info("Transfer verification method: {} {}", method, algorithm == null ? "" : algorithm);
+    }
+
+    private FTPConnectionPool requirePool() throws IOException {
+        FTPConnectionPool pool = ftpClientManager.getConnectionPool();
+        if (pool == null || pool.isClosed()) {
+            throw new IOException("Not connected to FTP server");
+        }
+        return pool;
+    }
+}
@@ -1,18 +1,16 @@
 package org.sinbelisk.graphicftp.util;
 
 import javafx.scene.control.TreeItem;
-import org.apache.commons.net.ftp.FTPFile;
 import org.sinbelisk.graphicftp.controller.FTPFileExplorer;
-
-import java.io.File;
+import org.sinbelisk.graphicftp.services.RemoteEntry;
 
 /**
- * Utilidades para manejar elementos dentro de un árbol de archivos, ya sea local o remoto.
- * Esta clase proporciona métodos para obtener iconos de archivos, crear rutas a partir de elementos
+ * Utilidades para manejar elementos dentro del árbol de archivos remoto.
+ * Esta clase proporciona métodos para obtener iconos de archivos, obtener la ruta de los elementos
  * del árbol y otros métodos relacionados con el manejo de archivos y carpetas.
  * <p>
- * Esta clase se utiliza principalmente en la clase {@link FTPFileExplorer} para representar archivos y carpetas
- * con iconos y realizar manipulaciones de nombre y rutas.
+ * Esta clase se utiliza principalmente en la clase {@link FTPFileExplorer} y en la celda que dibuja
+ * cada {@link RemoteEntry} del árbol.
  */
 public class ElementUtils {
     // Iconos para representar carpetas, archivos y programas
@@ -21,36 +19,18 @@ public class ElementUtils {
     public static final String PROGRAM_ICON = "\uD83D\uDCBD";
 
     /**
-     * Devuelve el nombre de un archivo o carpeta en el árbol con el nuevo nombre proporcionado.
-     * Este método también conserva el icono y la extensión original.
-     *
-     * @param originalName El nombre original del archivo o carpeta.
-     * @param newName El nuevo nombre que se asignará.
-     * @return El nombre actualizado con el icono original y la extensión.
-     */
-    public static String getTreeParsedName(String originalName, String newName) {
-        // Obtiene el icono (carpeta o archivo) del nombre original
-        String icon = originalName.substring(0, 2);
-        // Obtiene la extensión del archivo
-        String extension;
-        try {
-            extension = originalName.substring(originalName.lastIndexOf('.'));
-        } catch (IndexOutOfBoundsException e) { extension = ""; }
-        // Devuelve el nuevo nombre con el icono y la extensión
-        return icon + newName + extension;
-    }
-
-    /**
-     * Obtiene el icono correspondiente a un archivo dado, dependiendo de si es un directorio,
+     * Obtiene el icono correspondiente a una entrada remota, dependiendo de si es un directorio,
      * un archivo ejecutable o cualquier otro tipo de archivo.
      *
-     * @param file El archivo para el cual se desea obtener el icono.
-     * @return El icono correspondiente al archivo.
+     * @param entry La entrada para la cual se desea obtener el icono.
+     * @return El icono correspondiente, o una cadena vacía para el marcador de carga.
      */
-    public static String getIconForFile(File file) {
-        if (file.isDirectory()) {
+    public static String getIconForEntry(RemoteEntry entry) {
+        if (entry.isPlaceholder()) {
+            return ""; // El marcador de carga no lleva icono
+        } else if (entry.isDirectory()) {
             return FOLDER_ICON; // Es un directorio
-        } else if (file.getName().endsWith(".exe")) {
+        } else if (entry.getName().endsWith(".exe")) {
             return PROGRAM_ICON; // Es un archivo ejecutable
         } else {
             return FILE_ICON; // Es un archivo normal
@@ -58,39 +38,14 @@ public class ElementUtils {
     }
 
     /**
-     * Obtiene el icono correspondiente a un archivo FTP, dependiendo de si es un directorio,
-     * un archivo ejecutable o cualquier otro tipo de archivo.
+     * Obtiene la ruta completa de un elemento del árbol (TreeItem). La ruta se guarda en la propia
+     * {@link RemoteEntry}, por lo que no es necesario recorrer el árbol hasta la raíz.
      *
-     * @param file El archivo FTP para el cual se desea obtener el icono.
-     * @return El icono correspondiente al archivo FTP.
+     * @param item El TreeItem del cual se obtendrá la ruta.
+     * @return La ruta completa del elemento en el servidor.
      */
-    public static String getIconForFile(FTPFile file) {
-        if (file.isDirectory()) {
-            return FOLDER_ICON; // Es un directorio
-        } else if (file.getName().endsWith(".exe")) {
-            return PROGRAM_ICON; // Es un archivo ejecutable
-        } else {
-            return FILE_ICON; // Es un archivo normal
-        }
-    }
-
-    /**
-     * Extrae la ruta completa a partir de un elemento del árbol (TreeItem), comenzando desde
-     * el elemento seleccionado y subiendo hasta la raíz del árbol.
-     *
-     * @param item El TreeItem del cual se extraerá la ruta.
-     * @return La ruta completa del elemento en el árbol.
-     */
-    public static String getPathFromTreeItem(TreeItem<String> item) {
-        StringBuilder path = new StringBuilder();
-
-        // Subir por el árbol hasta llegar a la raíz
-        while (item != null && item.getParent() != null) {
-            String itemName = item.getValue().substring(2); // Elimina el icono del nombre
-            path.insert(0, "/" + itemName); // Agrega el nombre al inicio de la ruta
-            item = item.getParent(); // Subir al nodo padre
-        }
-        return path.toString(); // Devuelve la ruta construida
+    public static String getPathFromTreeItem(TreeItem<RemoteEntry> item) {
+        return item.getValue().getPath();
     }
 
     /**
@@ -99,7 +54,7 @@ public class ElementUtils {
      * @param selectedItem El TreeItem a verificar.
      * @return true si el elemento es una carpeta, false si no lo es.
      */
-    public static boolean isElementFolder(TreeItem<String> selectedItem) {
-        return (selectedItem.getValue().startsWith(FOLDER_ICON)); // Verifica si comienza con el icono de carpeta
+    public static boolean isElementFolder(TreeItem<RemoteEntry> selectedItem) {
+        return selectedItem.getValue().isDirectory();
     }
-}
\ No newline at end of file
+}
@@ -1,11 +1,13 @@
 package org.sinbelisk.graphicftp.controller;
 
-import org.apache.commons.net.ftp.FTPClient;
 import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.TempDir;
+import org.sinbelisk.graphicftp.services.EmbeddedFTPServer;
 import org.sinbelisk.graphicftp.services.FTPClientManager;
 import java.io.File;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.nio.file.Path;
 import static org.junit.jupiter.api.Assertions.*;
 
 /**
@@ -18,8 +20,6 @@ import static org.junit.jupiter.api.Assertions.*;
 public class FTPFileExplorerTest {
 
     // Constantes para la configuración del servidor FTP y archivos de prueba
-    private static final String FTP_SERVER = "localhost";
-    private static final int FTP_PORT = 21;
     private static final String TEST_USER = "usuario1";
     private static final String TEST_PASSWORD = "usu1";
 
@@ -28,11 +28,16 @@ public class FTPFileExplorerTest {
     private static final String REMOTE_FOLDER_PATH = "/test_folder";
     private static final String RENAMED_FILE_PATH = "/renamed_file.txt";
 
+    @TempDir
+    static Path serverRoot;
+
+    private static EmbeddedFTPServer server;
     private static FTPClientManager ftpManager;
 
     /**
      * Configuración inicial que se ejecuta antes de todas las pruebas.
-     * Crea un archivo de prueba en el sistema local y prepara la instancia de {@link FTPClientManager}.
+     * Crea un archivo de prueba en el sistema local, arranca un {@link EmbeddedFTPServer} sobre una carpeta
+     * temporal y prepara la instancia de {@link FTPClientManager}.
      *
      * @throws IOException Si ocurre un error al escribir el archivo de prueba o al conectar con el servidor FTP.
      */
@@ -44,8 +49,12 @@ public class FTPFileExplorerTest {
             writer.write("Este es un archivo de prueba para FTP.");
         }
 
-        // Instanciar el cliente FTP
-        ftpManager = new FTPClientManager(FTP_SERVER, FTP_PORT);
+        // Arrancar el servidor de pruebas e instanciar el cliente FTP
+        server = new EmbeddedFTPServer(serverRoot.resolve("ftp"));
+        server.addUser(TEST_USER, TEST_PASSWORD);
+        server.start();
+
+        ftpManager = server.newClientManager();
     }
 
     /**
@@ -119,8 +128,7 @@ public class FTPFileExplorerTest {
     @Order(7)
     void testDisconnect() {
         ftpManager.disconnect();
-        FTPClient client = ftpManager.getFtpClient();
-        assertFalse(client.isConnected(), "El cliente FTP sigue conectado después de la desconexión.");
+        assertFalse(ftpManager.isConnected(), "El cliente FTP sigue conectado después de la desconexión.");
     }
 
     /**
@@ -129,6 +137,7 @@ public class FTPFileExplorerTest {
      */
     @AfterAll
     static void cleanup() {
+        server.stop();
         new File(LOCAL_FILE_PATH).delete();
         new File("downloaded_test_file.txt").delete();
     }
@@ -0,0 +1,162 @@
+package org.sinbelisk.graphicftp.controller;
+
+import javafx.scene.control.TreeItem;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Clase de pruebas unitarias para la clase {@link TreeUpdateDispatcher}.
+ * Los pulsos se lanzan a mano con un temporizador de prueba, sin arrancar JavaFX, para comprobar cómo se fusionan
+ * los cambios y cuándo se arranca y se detiene el temporizador.
+ */
+public class TreeUpdateDispatcherTest {
+
+    private ManualTimer timer;
+    private TreeUpdateDispatcher<String> dispatcher;
+
+    @BeforeEach
+    void setUp() {
+        timer = new ManualTimer();
+        dispatcher = new TreeUpdateDispatcher<>(onPulse -> timer);
+    }
+
+    /**
+     * Prueba que los añadidos consecutivos a un mismo nodo se aplican en una sola operación y que una sustitución
+     * descarta los añadidos anteriores del mismo pulso.
+     */
+    @Test
+    void testMergesChildrenPerParent() {
+        TreeItem<String> first = new TreeItem<>("primera");
+        TreeItem<String> second = new TreeItem<>("segunda");
+        first.getChildren().add(new TreeItem<>("antiguo"));
+
+        dispatcher.appendChildren(first, items("a", "b"));
+        dispatcher.appendChildren(second, items("x"));
+        dispatcher.appendChildren(first, items("c"));
+        dispatcher.replaceChildren(second, items("y"));
+        dispatcher.appendChildren(second, items("z"));
+        dispatcher.pulse();
+
+        assertEquals(List.of("antiguo", "a", "b", "c"), values(first));
+        assertEquals(List.of("y", "z"), values(second));
+        assertEquals(5, dispatcher.getSubmittedMutations());
+        assertEquals(2, dispatcher.getAppliedBatches());
+        assertEquals(1, dispatcher.getPulses());
+        assertEquals(0, dispatcher.getQueueDepth());
+        assertEquals(5, dispatcher.getMaxQueueDepth());
+    }
+
+    /**
+     * Prueba que una acción arbitraria se ejecuta después de los cambios encolados antes que ella
+     * y antes de los encolados después.
+     */
+    @Test
+    void testActionsKeepOrder() {
+        TreeItem<String> parent = new TreeItem<>("padre");
+        List<List<String>> seen = new ArrayList<>();
+
+        dispatcher.appendChildren(parent, items("a"));
+        dispatcher.submit(() -> seen.add(values(parent)));
+        dispatcher.appendChildren(parent, items("b"));
+        dispatcher.pulse();
+
+        assertEquals(List.of(List.of("a")), seen);
+        assertEquals(List.of("a", "b"), values(parent));
+        assertEquals(3, dispatcher.getAppliedBatches());
+    }
+
+    /**
+     * Prueba que en cada pulso se aplican como mucho 256 cambios y que el temporizador sigue activo
+     * mientras quedan cambios pendientes.
+     */
+    @Test
+    void testLimitsMutationsPerPulse() {
+        TreeItem<String> parent = new TreeItem<>("padre");
+        for (int i = 0; i < 300; i++) {
+            dispatcher.appendChildren(parent, items("hijo " + i));
+        }
+
+        dispatcher.pulse();
+        assertEquals(256, parent.getChildren().size());
+        assertEquals(44, dispatcher.getQueueDepth());
+        assertTrue(timer.running);
+
+        dispatcher.pulse();
+        assertEquals(300, parent.getChildren().size());
+        assertEquals("hijo 299", parent.getChildren().get(299).getValue());
+        assertEquals(2, dispatcher.getPulses());
+        assertFalse(timer.running);
+    }
+
+    /**
+     * Prueba que el temporizador se arranca al encolar el primer cambio, se detiene al vaciarse la cola
+     * y vuelve a arrancarse con el siguiente cambio, también después de {@link TreeUpdateDispatcher#stop()}.
+     */
+    @Test
+    void testTimerRunsOnlyWhileQueued() {
+        TreeItem<String> parent = new TreeItem<>("padre");
+        assertFalse(timer.running);
+
+        dispatcher.appendChildren(parent, items("a"));
+        dispatcher.appendChildren(parent, items("b"));
+        assertTrue(timer.running);
+        assertEquals(1, timer.starts);
+
+        dispatcher.pulse();
+        assertFalse(timer.running);
+
+        dispatcher.submit(() -> { });
+        assertTrue(timer.running);
+        assertEquals(2, timer.starts);
+
+        dispatcher.stop();
+        assertFalse(timer.running);
+        dispatcher.appendChildren(parent, items("c"));
+        assertTrue(timer.running);
+        assertEquals(3, timer.starts);
+
+        dispatcher.pulse();
+        assertEquals(List.of("a", "b", "c"), values(parent));
+        assertFalse(timer.running);
+    }
+
+    private static List<TreeItem<String>> items(String... values) {
+        List<TreeItem<String>> items = new ArrayList<>();
+        for (String value : values) {
+            items.add(new TreeItem<>(value));
+        }
+        return items;
+    }
+
+    private static List<String> values(TreeItem<String> parent) {
+        List<String> values = new ArrayList<>();
+        for (TreeItem<String> child : parent.getChildren()) {
+            values.add(child.getValue());
+        }
+        return values;
+    }
+
+    /**
+     * Temporizador que no genera pulsos: solo registra si está arrancado.
+     */
+    private static final class ManualTimer implements TreeUpdateDispatcher.PulseTimer {
+        private boolean running;
+        private int starts;
+
+        @Override
+        public void start() {
+            running = true;
+            starts++;
+        }
+
+        @Override
+        public void stop() {
+            running = false;
+        }
+    }
+}
@@ -0,0 +1,138 @@
+package org.sinbelisk.graphicftp.services;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Clase de pruebas unitarias para la clase {@link AsyncFTPClient}.
+ * Comprueba que los resultados incluyen la respuesta del servidor y el tiempo empleado,
+ * que las operaciones pueden encadenarse y que las independientes se ejecutan en paralelo.
+ */
+public class AsyncFTPClientTest {
+
+    private static final String USER = "usuario1";
+    private static final String PASSWORD = "usu1";
+
+    @TempDir
+    Path tempDir;
+
+    private EmbeddedFTPServer server;
+    private FTPClientManager manager;
+    private AsyncFTPClient client;
+
+    /**
+     * Arranca el servidor, inicia sesión y crea la fachada antes de cada prueba.
+     */
+    @BeforeEach
+    void setup() throws IOException {
+        server = new EmbeddedFTPServer(tempDir.resolve("ftp"));
+        server.addUser(USER, PASSWORD);
+        server.start();
+
+        manager = server.newClientManager(4);
+        assertTrue(manager.connectAndLogin(USER, PASSWORD));
+        client = new AsyncFTPClient(manager);
+    }
+
+    /**
+     * Prueba que el resultado de una operación correcta y el de una fallida incluyen la respuesta del servidor.
+     */
+    @Test
+    void testReplyCodes() throws Exception {
+        FTPResult created = client.createFolder("/carpeta").get(10, TimeUnit.SECONDS);
+        assertTrue(created.isSuccess());
+        assertEquals(257, created.getReplyCode());
+        assertTrue(created.getElapsedNanos() > 0);
+
+        FTPResult failed = client.renameFileOrFolder("/no_existe", "/otro").get(10, TimeUnit.SECONDS);
+        assertFalse(failed.isSuccess());
+        assertEquals(550, failed.getReplyCode());
+        assertNotNull(failed.getReplyString());
+        assertNull(failed.getError());
+    }
+
+    /**
+     * Prueba que una subida y un renombrado encadenados se ejecutan en orden.
+     */
+    @Test
+    void testComposition() throws Exception {
+        Path local = tempDir.resolve("local.txt");
+        Files.writeString(local, "contenido");
+
+        FTPResult renamed = client.uploadFile(local.toString(), "/subido.txt")
+                .thenCompose(upload -> {
+                    assertTrue(upload.isSuccess());
+                    assertEquals(226, upload.getReplyCode());
+                    return client.renameFileOrFolder("/subido.txt", "/final.txt");
+                })
+                .get(10, TimeUnit.SECONDS);
+
+        assertTrue(renamed.isSuccess());
+        assertEquals("contenido", Files.readString(server.getRootDirectory().resolve("final.txt")));
+    }
+
+    /**
+     * Prueba que una descarga por encima del umbral de las descargas segmentadas se hace en un único {@code RETR},
+     * de modo que el resultado refleja su respuesta, y que una descarga fallida incluye la respuesta de error.
+     */
+    @Test
+    void testDownloadReportsRetrReply() throws Exception {
+        byte[] content = new byte[256 * 1024];
+        new Random(3).nextBytes(content);
+        Files.write(server.getRootDirectory().resolve("grande.bin"), content);
+        manager.setSegmentedDownloadThreshold(64 * 1024);
+
+        Path local = tempDir.resolve("grande.bin");
+        FTPResult downloaded = client.downloadFile("/grande.bin", local.toString()).get(10, TimeUnit.SECONDS);
+        assertTrue(downloaded.isSuccess());
+        assertEquals(226, downloaded.getReplyCode());
+        assertEquals(1, server.getCommandCount("RETR"));
+        assertArrayEquals(content, Files.readAllBytes(local));
+
+        FTPResult missing = client.downloadFile("/no_existe.bin", tempDir.resolve("no_existe.bin").toString())
+                .get(10, TimeUnit.SECONDS);
+        assertFalse(missing.isSuccess());
+        assertEquals(550, missing.getReplyCode());
+    }
+
+    /**
+     * Prueba que las operaciones independientes se ejecutan en sesiones distintas a la vez.
+     */
+    @Test
+    void testIndependentOperationsRunInParallel() throws Exception {
+        server.setLatencyMillis(100);
+
+        List<CompletableFuture<FTPResult>> results = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            results.add(client.createFolder("/paralela" + i));
+        }
+        CompletableFuture.allOf(results.toArray(new CompletableFuture<?>[0])).get(10, TimeUnit.SECONDS);
+
+        for (CompletableFuture<FTPResult> result : results) {
+            assertTrue(result.get().isSuccess());
+        }
+        assertTrue(server.getPeakConnections() > 1, "Las operaciones no se han ejecutado en paralelo.");
+    }
+
+    /**
+     * Desconecta el gestor y detiene el servidor tras cada prueba.
+     */
+    @AfterEach
+    void cleanup() {
+        manager.disconnect();
+        server.stop();
+    }
+}
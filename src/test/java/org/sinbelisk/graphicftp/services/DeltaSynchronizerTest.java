@@ -0,0 +1,219 @@
+package org.sinbelisk.graphicftp.services;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Clase de pruebas unitarias para la clase {@link DeltaSynchronizer}.
+ * Compara una carpeta local con una carpeta de un {@link EmbeddedFTPServer} y comprueba la decisión tomada para cada
+ * elemento: por tamaño, por fecha con el margen {@link DeltaSynchronizer#TIME_TOLERANCE_MS}, con fechas de {@code LIST}
+ * que solo tienen minutos, ante conflictos entre archivo y carpeta y con los elementos sobrantes del destino.
+ */
+public class DeltaSynchronizerTest {
+
+    private static final String USER = "usuario1";
+    private static final String PASSWORD = "usu1";
+
+    // Fecha base reciente, para que LIST muestre horas y minutos, con segundos para probar su precisión
+    private static final Instant BASE = Instant.now().minus(2, ChronoUnit.HOURS).truncatedTo(ChronoUnit.MINUTES)
+            .plusSeconds(20);
+
+    @TempDir
+    Path tempDir;
+
+    private EmbeddedFTPServer server;
+    private FTPClientManager manager;
+    private TransferScheduler scheduler;
+    private Path local;
+    private Path remote;
+
+    /**
+     * Arranca el servidor con la carpeta remota {@code /sync} y crea la carpeta local antes de cada prueba.
+     */
+    @BeforeEach
+    void setup() throws IOException {
+        server = new EmbeddedFTPServer(tempDir.resolve("ftp"));
+        server.addUser(USER, PASSWORD);
+        server.start();
+        remote = Files.createDirectories(server.getRootDirectory().resolve("sync"));
+        local = Files.createDirectories(tempDir.resolve("local"));
+    }
+
+    /**
+     * Prueba que un tamaño distinto basta para transferir y que, con el mismo tamaño, solo se transfieren
+     * los archivos más recientes que el destino por encima del margen de tolerancia.
+     */
+    @Test
+    void testPlanBySizeAndTime() throws IOException {
+        write("distinto.txt", "local", BASE, "remoto", BASE);
+        write("igual.txt", "datos", BASE, "datos", BASE);
+        write("tolerado.txt", "datos", BASE.plusMillis(DeltaSynchronizer.TIME_TOLERANCE_MS), "datos", BASE);
+        write("reciente.txt", "datos", BASE.plusSeconds(3), "datos", BASE);
+        write("antiguo.txt", "datos", BASE.minusSeconds(60), "datos", BASE);
+        write("nuevo.txt", "nuevo", BASE, null, null);
+        connect();
+
+        Map<String, SyncPlan.Action> plan = plan(SyncPlan.Direction.UPLOAD);
+
+        assertAction(plan, "distinto.txt", SyncPlan.ActionType.UPLOAD, "tamaño distinto");
+        assertAction(plan, "igual.txt", SyncPlan.ActionType.SKIP, "sin cambios");
+        assertAction(plan, "tolerado.txt", SyncPlan.ActionType.SKIP, "sin cambios");
+        assertAction(plan, "reciente.txt", SyncPlan.ActionType.UPLOAD, "más reciente");
+        assertAction(plan, "antiguo.txt", SyncPlan.ActionType.SKIP, "sin cambios");
+        assertAction(plan, "nuevo.txt", SyncPlan.ActionType.UPLOAD, "nuevo");
+        assertEquals(0, server.getCommandCount("MDTM"), "Las fechas de MLSD no necesitan confirmación.");
+    }
+
+    /**
+     * Prueba que, con fechas de {@code LIST} que solo tienen minutos, los archivos cuya diferencia cae dentro
+     * de esa precisión se confirman con {@code MDTM} y los que quedan claramente fuera no.
+     */
+    @Test
+    void testPlanWithListMinutePrecision() throws IOException {
+        write("segundos.txt", "datos", BASE.plusSeconds(30), "datos", BASE);
+        write("mismo.txt", "datos", BASE, "datos", BASE);
+        write("horas.txt", "datos", BASE.plusSeconds(3600), "datos", BASE);
+        server.setMachineListingAdvertised(false);
+        connect();
+
+        Map<String, SyncPlan.Action> plan = plan(SyncPlan.Direction.UPLOAD);
+
+        assertAction(plan, "segundos.txt", SyncPlan.ActionType.UPLOAD, "más reciente");
+        assertAction(plan, "mismo.txt", SyncPlan.ActionType.SKIP, "sin cambios");
+        assertAction(plan, "horas.txt", SyncPlan.ActionType.UPLOAD, "más reciente");
+        assertEquals(0, server.getCommandCount("MLSD"));
+        assertEquals(2, server.getCommandCount("MDTM"));
+    }
+
+    /**
+     * Prueba que un archivo que en el destino es una carpeta, o al revés, se omite junto con todo su contenido.
+     */
+    @Test
+    void testPlanFileFolderConflicts() throws IOException {
+        Files.createDirectories(local.resolve("carpeta").resolve("interior"));
+        Files.writeString(local.resolve("carpeta").resolve("interior").resolve("a.txt"), "a");
+        Files.writeString(remote.resolve("carpeta"), "archivo");
+        Files.writeString(local.resolve("archivo"), "archivo");
+        Files.createDirectories(remote.resolve("archivo"));
+        connect();
+
+        Map<String, SyncPlan.Action> plan = plan(SyncPlan.Direction.UPLOAD);
+
+        assertAction(plan, "carpeta", SyncPlan.ActionType.SKIP, "conflicto entre archivo y carpeta");
+        assertAction(plan, "carpeta/interior", SyncPlan.ActionType.SKIP, "conflicto en una carpeta superior");
+        assertAction(plan, "carpeta/interior/a.txt", SyncPlan.ActionType.SKIP, "conflicto en una carpeta superior");
+        assertAction(plan, "archivo", SyncPlan.ActionType.SKIP, "conflicto entre archivo y carpeta");
+        assertEquals(4, plan.size());
+    }
+
+    /**
+     * Prueba que los elementos sobrantes del destino solo se eliminan si se ha pedido, que el contenido de una
+     * carpeta sobrante no se incluye por separado y que al aplicar el plan el destino queda como el origen.
+     */
+    @Test
+    void testPlanAndExecuteExtraneousDeletes() throws Exception {
+        write("comun.txt", "nuevo contenido", BASE, "viejo", BASE);
+        Files.createDirectories(local.resolve("nueva"));
+        Files.writeString(local.resolve("nueva").resolve("b.txt"), "b");
+        Files.writeString(remote.resolve("sobra.txt"), "sobra");
+        Files.createDirectories(remote.resolve("vieja").resolve("honda"));
+        Files.writeString(remote.resolve("vieja").resolve("honda").resolve("c.txt"), "c");
+        connect();
+
+        DeltaSynchronizer synchronizer = new DeltaSynchronizer(manager, scheduler);
+        assertFalse(plan(synchronizer).containsKey("sobra.txt"));
+
+        synchronizer.setDeleteExtraneous(true);
+        SyncPlan plan = synchronizer.plan(local, "/sync", SyncPlan.Direction.UPLOAD);
+        Map<String, SyncPlan.Action> actions = byPath(plan);
+        assertAction(actions, "sobra.txt", SyncPlan.ActionType.DELETE, "no existe en el origen");
+        assertAction(actions, "vieja", SyncPlan.ActionType.DELETE, "no existe en el origen");
+        assertFalse(actions.containsKey("vieja/honda"));
+        assertFalse(actions.containsKey("vieja/honda/c.txt"));
+        assertAction(actions, "nueva", SyncPlan.ActionType.CREATE_FOLDER, "nueva");
+
+        List<TransferJob> jobs = synchronizer.execute(plan);
+        assertEquals(2, jobs.size(), "Solo las transferencias de archivos se encolan.");
+        for (TransferJob job : jobs) {
+            job.getCompletion().get(10, TimeUnit.SECONDS);
+            assertEquals(TransferJob.State.DONE, job.getState(), job.getMessage());
+        }
+
+        assertEquals("nuevo contenido", Files.readString(remote.resolve("comun.txt")));
+        assertEquals("b", Files.readString(remote.resolve("nueva").resolve("b.txt")));
+        assertFalse(Files.exists(remote.resolve("sobra.txt")));
+        assertFalse(Files.exists(remote.resolve("vieja")));
+    }
+
+    /**
+     * Escribe un archivo en local y, si se indica su contenido, también en la carpeta remota.
+     */
+    private void write(String name, String localContent, Instant localTime, String remoteContent, Instant remoteTime)
+            throws IOException {
+        Files.writeString(local.resolve(name), localContent);
+        Files.setLastModifiedTime(local.resolve(name), FileTime.from(localTime));
+        if (remoteContent != null) {
+            Files.writeString(remote.resolve(name), remoteContent);
+            Files.setLastModifiedTime(remote.resolve(name), FileTime.from(remoteTime));
+        }
+    }
+
+    private void connect() {
+        manager = server.newClientManager();
+        assertTrue(manager.connectAndLogin(USER, PASSWORD));
+        scheduler = new TransferScheduler(manager, 2);
+    }
+
+    private Map<String, SyncPlan.Action> plan(SyncPlan.Direction direction) throws IOException {
+        DeltaSynchronizer synchronizer = new DeltaSynchronizer(manager, scheduler);
+        synchronizer.setUseHash(false);
+        return byPath(synchronizer.plan(local, "/sync", direction));
+    }
+
+    private Map<String, SyncPlan.Action> plan(DeltaSynchronizer synchronizer) throws IOException {
+        return byPath(synchronizer.plan(local, "/sync", SyncPlan.Direction.UPLOAD));
+    }
+
+    private static Map<String, SyncPlan.Action> byPath(SyncPlan plan) {
+        Map<String, SyncPlan.Action> actions = new TreeMap<>();
+        for (SyncPlan.Action action : plan.getActions()) {
+            actions.put(action.getRelativePath(), action);
+        }
+        return actions;
+    }
+
+    private static void assertAction(Map<String, SyncPlan.Action> plan, String path, SyncPlan.ActionType type,
+                                     String reason) {
+        SyncPlan.Action action = plan.get(path);
+        assertNotNull(action, "Falta la acción de " + path);
+        assertEquals(type, action.getType(), path);
+        assertEquals(reason, action.getReason(), path);
+    }
+
+    /**
+     * Detiene el planificador, cierra la sesión y detiene el servidor tras cada prueba.
+     */
+    @AfterEach
+    void cleanup() {
+        if (manager != null) {
+            scheduler.shutdown();
+            manager.disconnect();
+        }
+        server.close();
+    }
+}
@@ -0,0 +1,110 @@
+package org.sinbelisk.graphicftp.services;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Clase de pruebas unitarias para la clase {@link DirectoryListingCache}.
+ * Comprueba la caducidad de las entradas, el descarte LRU, la invalidación de rutas, el descarte de listados
+ * anteriores a una invalidación y los contadores.
+ */
+public class DirectoryListingCacheTest {
+
+    private static final RemoteEntry[] LISTING = new RemoteEntry[0];
+
+    /**
+     * Prueba que un listado guardado se devuelve hasta que caduca.
+     */
+    @Test
+    void testEntryExpiresAfterTtl() {
+        AtomicLong now = new AtomicLong(0);
+        DirectoryListingCache cache = new DirectoryListingCache(1000, 10, now::get);
+
+        cache.put("/docs", LISTING);
+        assertSame(LISTING, cache.get("/docs/"), "La ruta con barra final debería compartir la entrada.");
+
+        now.set(1001);
+        assertNull(cache.get("/docs"), "La entrada debería haber caducado.");
+        assertEquals(1, cache.getHits());
+        assertEquals(1, cache.getMisses());
+    }
+
+    /**
+     * Prueba que al superar el máximo de entradas se descarta la usada hace más tiempo.
+     */
+    @Test
+    void testLeastRecentlyUsedIsEvicted() {
+        DirectoryListingCache cache = new DirectoryListingCache(60_000, 2);
+
+        cache.put("/a", LISTING);
+        cache.put("/b", LISTING);
+        cache.get("/a");
+        cache.put("/c", LISTING);
+
+        assertNotNull(cache.get("/a"));
+        assertNull(cache.get("/b"), "La entrada menos usada debería haberse descartado.");
+        assertEquals(1, cache.getEvictions());
+    }
+
+    /**
+     * Prueba que un listado pedido antes de una invalidación no se guarda, aunque la ruta invalidada no estuviera
+     * en la caché, y que uno pedido después sí.
+     */
+    @Test
+    void testPutSkippedAfterInvalidation() {
+        DirectoryListingCache cache = new DirectoryListingCache();
+
+        long generation = cache.generation();
+        cache.invalidateParent("/docs/nuevo.txt");
+        assertFalse(cache.put("/docs", LISTING, generation), "El listado es anterior a la invalidación.");
+        assertNull(cache.peek("/docs"));
+
+        generation = cache.generation();
+        assertTrue(cache.put("/docs", LISTING, generation));
+        assertSame(LISTING, cache.peek("/docs"));
+
+        generation = cache.generation();
+        cache.invalidateTree("/otra");
+        assertFalse(cache.put("/docs", new RemoteEntry[1], generation));
+        assertSame(LISTING, cache.peek("/docs"));
+    }
+
+    /**
+     * Prueba que invalidar un subárbol descarta el directorio y sus descendientes, pero no los directorios hermanos.
+     */
+    @Test
+    void testInvalidateTree() {
+        DirectoryListingCache cache = new DirectoryListingCache();
+
+        cache.put("/", LISTING);
+        cache.put("/docs", LISTING);
+        cache.put("/docs/old", LISTING);
+        cache.put("/docs2", LISTING);
+
+        cache.invalidateTree("/docs");
+        cache.invalidateParent("/docs");
+
+        assertNull(cache.get("/docs"));
+        assertNull(cache.get("/docs/old"));
+        assertNull(cache.get(""), "La raíz debería haberse invalidado como padre de /docs.");
+        assertNotNull(cache.get("/docs2"));
+    }
+
+    /**
+     * Prueba que consultar la caché para la precarga no cuenta como acierto ni como fallo.
+     */
+    @Test
+    void testPeekDoesNotAffectStats() {
+        DirectoryListingCache cache = new DirectoryListingCache();
+
+        assertNull(cache.peek("/docs"));
+        cache.put("/docs", LISTING);
+        assertNotNull(cache.peek("/docs/"));
+
+        assertEquals(0, cache.getHits());
+        assertEquals(0, cache.getMisses());
+    }
+}
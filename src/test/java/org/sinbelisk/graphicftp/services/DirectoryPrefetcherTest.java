@@ -0,0 +1,139 @@
+package org.sinbelisk.graphicftp.services;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Clase de pruebas unitarias para la clase {@link DirectoryPrefetcher}.
+ * Sobre el árbol {@code /a0..a9/b0..b2/c0} de un {@link EmbeddedFTPServer} comprueba los límites de carpetas
+ * y de profundidad, que las precargas de una carpeta abierta anteriormente se descartan y que un listado pedido
+ * antes de modificar la carpeta no se guarda en la caché.
+ */
+public class DirectoryPrefetcherTest {
+
+    private static final String USER = "usuario1";
+    private static final String PASSWORD = "usu1";
+
+    @TempDir
+    Path tempDir;
+
+    private EmbeddedFTPServer server;
+    private FTPClientManager manager;
+
+    /**
+     * Arranca el servidor con el árbol de prueba e inicia sesión antes de cada prueba.
+     */
+    @BeforeEach
+    void setup() throws IOException {
+        server = new EmbeddedFTPServer(tempDir.resolve("ftp"));
+        server.addUser(USER, PASSWORD);
+        server.start();
+
+        for (int a = 0; a < 10; a++) {
+            for (int b = 0; b < 3; b++) {
+                Files.createDirectories(server.getRootDirectory().resolve("a" + a).resolve("b" + b).resolve("c0"));
+            }
+        }
+
+        manager = server.newClientManager();
+        assertTrue(manager.connectAndLogin(USER, PASSWORD));
+    }
+
+    /**
+     * Prueba que solo se precargan las primeras carpetas de cada nivel y hasta la profundidad indicada.
+     */
+    @Test
+    void testDepthAndDirectoryBounds() throws Exception {
+        DirectoryPrefetcher prefetcher = new DirectoryPrefetcher(manager, 3, 2, 1);
+        prefetcher.prefetchChildren(List.of(manager.listEntries("/")));
+
+        // Tres carpetas del primer nivel y tres de cada una de ellas en el segundo
+        waitFor(() -> prefetcher.getPrefetched() + prefetcher.getSkipped() >= 12);
+        Thread.sleep(200);
+        assertEquals(12, prefetcher.getPrefetched());
+        assertEquals(0, prefetcher.getSkipped());
+        assertEquals(13, server.getCommandCount("MLSD"));
+
+        DirectoryListingCache cache = manager.getListingCache();
+        assertNotNull(cache.peek("/a2"));
+        assertNull(cache.peek("/a3"), "Solo deberían precargarse las tres primeras carpetas.");
+        assertNotNull(cache.peek("/a0/b2"));
+        assertNull(cache.peek("/a0/b0/c0"), "El tercer nivel queda fuera de la profundidad máxima.");
+    }
+
+    /**
+     * Prueba que al abrir otra carpeta se descartan las precargas que todavía no habían empezado.
+     */
+    @Test
+    void testCancelledGenerationIsSkipped() throws Exception {
+        RemoteEntry[] root = manager.listEntries("/");
+        server.setBandwidthLimit(1024);
+
+        DirectoryPrefetcher prefetcher = new DirectoryPrefetcher(manager, 3, 1, 1);
+        prefetcher.prefetchChildren(List.of(root));
+        prefetcher.cancelPending();
+
+        waitFor(() -> prefetcher.getPrefetched() + prefetcher.getSkipped() >= 3);
+        assertTrue(prefetcher.getPrefetched() <= 1, "Solo la precarga ya empezada puede terminar.");
+        assertTrue(prefetcher.getSkipped() >= 2);
+        assertNull(manager.getListingCache().peek("/a2"));
+    }
+
+    /**
+     * Prueba que un listado precargado que llega después de crear una carpeta dentro no se guarda en la caché,
+     * de modo que el siguiente listado ya incluye la carpeta nueva.
+     */
+    @Test
+    void testListingFetchedBeforeInvalidationIsNotCached() throws Exception {
+        Path large = Files.createDirectories(server.getRootDirectory().resolve("grande"));
+        for (int i = 0; i < 200; i++) {
+            Files.writeString(large.resolve("archivo " + i + ".txt"), "datos");
+        }
+        server.setBandwidthLimit(8 * 1024);
+
+        CompletableFuture<RemoteEntry[]> prefetch = CompletableFuture.supplyAsync(() -> {
+            try {
+                return manager.prefetchListing("/grande");
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+        });
+        Thread.sleep(300);
+        assertTrue(manager.createFolder("/grande/nueva"));
+
+        assertEquals(200, prefetch.get(10, TimeUnit.SECONDS).length, "El listado precargado es anterior al cambio.");
+        assertNull(manager.getListingCache().peek("/grande"), "El listado anterior al cambio no debería guardarse.");
+
+        server.setBandwidthLimit(0);
+        assertEquals(201, manager.listEntries("/grande").length);
+    }
+
+    /**
+     * Detiene el servidor tras cada prueba.
+     */
+    @AfterEach
+    void cleanup() {
+        manager.disconnect();
+        server.stop();
+    }
+
+    private static void waitFor(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.nanoTime() < deadline, "La precarga no ha terminado a tiempo.");
+            Thread.sleep(20);
+        }
+    }
+}
@@ -0,0 +1,945 @@
+package org.sinbelisk.graphicftp.services;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.net.SocketTimeoutException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Pattern;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Servidor FTP mínimo que se ejecuta dentro del propio proceso de las pruebas, sobre una carpeta local.
+ * <p>
+ * Escucha en {@code 127.0.0.1} en un puerto libre y atiende cada conexión de control en su propio hilo.
+ * Admite el modo activo ({@code PORT}/{@code EPRT}) y el pasivo ({@code PASV}/{@code EPSV}), los listados
+ * {@code LIST}, {@code NLST}, {@code MLSD} y {@code MLST}, las transferencias {@code STOR}, {@code APPE} y
+ * {@code RETR} con {@code REST}, y los comandos {@code MKD}, {@code RMD}, {@code DELE}, {@code RNFR}/{@code RNTO},
+ * {@code SIZE}, {@code MDTM} y {@code HASH}. Todas las transferencias son binarias.
+ * </p>
+ * <p>
+ * Para probar el cliente en condiciones controladas se puede añadir una latencia fija antes de cada respuesta,
+ * limitar el ancho de banda de cada conexión de datos y limitar el número de conexiones de control simultáneas;
+ * las que superan el límite se rechazan con {@code 421}, como hacen los servidores reales. También se pueden
+ * cerrar las sesiones inactivas o cortar todas las conexiones para probar la reconexión.
+ * </p>
+ */
+public class EmbeddedFTPServer implements AutoCloseable {
+    private static final Logger logger = LogManager.getLogger(EmbeddedFTPServer.class);
+
+    // Tamaño de los bloques de las transferencias de datos
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final int DATA_CONNECT_TIMEOUT_MS = 10_000;
+    private static final DateTimeFormatter MDTM_FORMAT =
+            DateTimeFormatter.ofPattern("yyyyMMddHHmmss").withZone(ZoneOffset.UTC);
+    private static final DateTimeFormatter LIST_RECENT_FORMAT =
+            DateTimeFormatter.ofPattern("MMM dd HH:mm", Locale.ENGLISH).withZone(ZoneId.systemDefault());
+    private static final DateTimeFormatter LIST_OLD_FORMAT =
+            DateTimeFormatter.ofPattern("MMM dd  yyyy", Locale.ENGLISH).withZone(ZoneId.systemDefault());
+
+    private final Path rootDirectory;
+    private final Map<String, String> users = new ConcurrentHashMap<>();
+    private final Set<Socket> openSockets = ConcurrentHashMap.newKeySet();
+    private final Set<Path> protectedPaths = ConcurrentHashMap.newKeySet();
+    private final Set<Path> corruptedHashes = ConcurrentHashMap.newKeySet();
+    private final Map<String, LongAdder> commandCounts = new ConcurrentHashMap<>();
+    private final AtomicInteger activeConnections = new AtomicInteger();
+    private final AtomicInteger peakConnections = new AtomicInteger();
+    private final LongAdder rejectedConnections = new LongAdder();
+
+    private volatile long latencyMillis;
+    private volatile long bandwidthLimit;
+    private volatile int maxConnections = Integer.MAX_VALUE;
+    private volatile int idleTimeoutMillis;
+    private volatile boolean machineListingAdvertised = true;
+
+    private ServerSocket serverSocket;
+    private ExecutorService sessions;
+
+    /**
+     * Constructor del servidor.
+     *
+     * @param rootDirectory Carpeta local que el servidor muestra como su raíz {@code /}.
+     */
+    public EmbeddedFTPServer(Path rootDirectory) {
+        this.rootDirectory = rootDirectory.toAbsolutePath().normalize();
+    }
+
+    /**
+     * Añade un usuario que puede iniciar sesión.
+     *
+     * @param username Nombre de usuario.
+     * @param password Contraseña.
+     */
+    public void addUser(String username, String password) {
+        users.put(username, password);
+    }
+
+    /**
+     * Establece la latencia que se añade antes de cada respuesta del canal de control,
+     * que simula el tiempo de ida y vuelta hasta un servidor remoto.
+     *
+     * @param latencyMillis Latencia en milisegundos, o 0 para responder de inmediato.
+     */
+    public void setLatencyMillis(long latencyMillis) {
+        this.latencyMillis = latencyMillis;
+    }
+
+    /**
+     * Limita la velocidad de cada conexión de datos, en ambos sentidos.
+     *
+     * @param bytesPerSecond Bytes por segundo de cada conexión, o 0 para no limitarla.
+     */
+    public void setBandwidthLimit(long bytesPerSecond) {
+        this.bandwidthLimit = bytesPerSecond;
+    }
+
+    /**
+     * Establece el número máximo de conexiones de control simultáneas.
+     *
+     * @param maxConnections Número máximo de conexiones.
+     */
+    public void setMaxConnections(int maxConnections) {
+        this.maxConnections = maxConnections;
+    }
+
+    /**
+     * Empieza a aceptar conexiones en un puerto libre de {@code 127.0.0.1}.
+     *
+     * @throws IOException Si no se puede abrir el puerto.
+     */
+    public synchronized void start() throws IOException {
+        Files.createDirectories(rootDirectory);
+        serverSocket = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+        sessions = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "embedded-ftp-session");
+            thread.setDaemon(true);
+            return thread;
+        });
+        Thread acceptor = new Thread(this::acceptConnections, "embedded-ftp-acceptor");
+        acceptor.setDaemon(true);
+        acceptor.start();
+        logger.info("Embedded FTP server listening on port {} over {}", getPort(), rootDirectory);
+    }
+
+    /**
+     * Establece el tiempo sin comandos tras el que el servidor cierra una conexión de control con {@code 421},
+     * como hacen los servidores reales con las sesiones inactivas.
+     *
+     * @param idleTimeoutMillis Tiempo en milisegundos, o 0 para no cerrarlas nunca.
+     */
+    public void setIdleTimeoutMillis(int idleTimeoutMillis) {
+        this.idleTimeoutMillis = idleTimeoutMillis;
+    }
+
+    /**
+     * Indica si la respuesta a {@code FEAT} anuncia {@code MLST}, para probar el comportamiento con servidores
+     * que solo admiten {@code LIST}.
+     *
+     * @param advertised true para anunciarlo, que es el valor por defecto.
+     */
+    public void setMachineListingAdvertised(boolean advertised) {
+        this.machineListingAdvertised = advertised;
+    }
+
+    /**
+     * Impide eliminar un archivo o una carpeta: {@code DELE} y {@code RMD} sobre esa ruta responden {@code 550},
+     * como ocurre en un servidor real con un elemento sin permisos de escritura.
+     *
+     * @param remotePath Ruta absoluta en el servidor, por ejemplo {@code /carpeta/archivo.txt}.
+     */
+    public void protect(String remotePath) {
+        protectedPaths.add(rootDirectory.resolve(remotePath.substring(1)).normalize());
+    }
+
+    /**
+     * Hace que {@code HASH} sobre un archivo responda con una suma que no corresponde a su contenido,
+     * como si el archivo se hubiera dañado en el servidor.
+     *
+     * @param remotePath Ruta absoluta en el servidor, por ejemplo {@code /carpeta/archivo.txt}.
+     */
+    public void corruptHash(String remotePath) {
+        corruptedHashes.add(rootDirectory.resolve(remotePath.substring(1)).normalize());
+    }
+
+    /**
+     * Corta de golpe todas las conexiones de control abiertas, sin respuesta previa, como ocurre cuando se cae la red
+     * o se reinicia el servidor. El servidor sigue aceptando conexiones nuevas.
+     */
+    public void dropConnections() {
+        for (Socket socket : openSockets) {
+            closeQuietly(socket);
+        }
+    }
+
+    /**
+     * Detiene el servidor y cierra todas las conexiones abiertas.
+     */
+    public synchronized void stop() {
+        if (serverSocket == null) {
+            return;
+        }
+        closeQuietly(serverSocket);
+        for (Socket socket : openSockets) {
+            closeQuietly(socket);
+        }
+        sessions.shutdownNow();
+        serverSocket = null;
+    }
+
+    @Override
+    public void close() {
+        stop();
+    }
+
+    /**
+     * @return Dirección en la que escucha el servidor.
+     */
+    public String getHost() {
+        return InetAddress.getLoopbackAddress().getHostAddress();
+    }
+
+    /**
+     * @return Puerto en el que escucha el servidor.
+     */
+    public int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    public Path getRootDirectory() {
+        return rootDirectory;
+    }
+
+    /**
+     * Crea un gestor para este servidor, todavía sin sesión iniciada, con el tamaño de pool por defecto.
+     *
+     * @return El gestor, con su propio diario de transferencias.
+     * @see #newClientManager(int)
+     */
+    public FTPClientManager newClientManager() {
+        return newClientManager(FTPConnectionPool.DEFAULT_MAX_SIZE);
+    }
+
+    /**
+     * Crea un gestor para este servidor, todavía sin sesión iniciada. Su diario de transferencias se guarda junto a
+     * la carpeta raíz, fuera de ella, en lugar de en la carpeta personal del usuario, de modo que las pruebas
+     * no dependen de las transferencias pendientes de otras ejecuciones.
+     *
+     * @param maxConnections Número máximo de sesiones del pool.
+     * @return El gestor, con su propio diario de transferencias.
+     */
+    public FTPClientManager newClientManager(int maxConnections) {
+        FTPClientManager manager = new FTPClientManager(getHost(), getPort(), maxConnections);
+        manager.setTransferJournal(new TransferJournal(
+                rootDirectory.resolveSibling(rootDirectory.getFileName() + "-transfers.journal")));
+        return manager;
+    }
+
+    /**
+     * @return Número de conexiones de control abiertas en este momento.
+     */
+    public int getActiveConnections() {
+        return activeConnections.get();
+    }
+
+    /**
+     * @return Mayor número de conexiones de control simultáneas observado.
+     */
+    public int getPeakConnections() {
+        return peakConnections.get();
+    }
+
+    /**
+     * @return Número de conexiones rechazadas por superar el límite.
+     */
+    public long getRejectedConnections() {
+        return rejectedConnections.sum();
+    }
+
+    /**
+     * Obtiene cuántas veces se ha recibido un comando.
+     *
+     * @param command Nombre del comando, por ejemplo {@code RETR}.
+     * @return Número de veces que se ha recibido.
+     */
+    public long getCommandCount(String command) {
+        LongAdder count = commandCounts.get(command.toUpperCase(Locale.ROOT));
+        return count == null ? 0 : count.sum();
+    }
+
+    private void acceptConnections() {
+        ServerSocket listener = serverSocket;
+        while (!listener.isClosed()) {
+            try {
+                Socket socket = listener.accept();
+                sessions.execute(() -> serve(socket));
+            } catch (IOException e) {
+                if (!listener.isClosed()) {
+                    logger.warn("Embedded FTP server could not accept a connection: {}", e.getMessage());
+                }
+            }
+        }
+    }
+
+    private void serve(Socket socket) {
+        openSockets.add(socket);
+        int active = activeConnections.incrementAndGet();
+        try (socket) {
+            if (active > maxConnections) {
+                rejectedConnections.increment();
+                new Session(socket).reply(421, "Too many connections, try again later.");
+                return;
+            }
+            peakConnections.accumulateAndGet(active, Math::max);
+            new Session(socket).run();
+        } catch (IOException e) {
+            logger.debug("Embedded FTP session closed: {}", e.getMessage());
+        } finally {
+            activeConnections.decrementAndGet();
+            openSockets.remove(socket);
+        }
+    }
+
+    private static void closeQuietly(AutoCloseable closeable) {
+        try {
+            if (closeable != null) {
+                closeable.close();
+            }
+        } catch (Exception e) {
+            // Nada que hacer al cerrar
+        }
+    }
+
+    /**
+     * Estado de una conexión de control.
+     */
+    private final class Session {
+        private final Socket socket;
+        private final Writer writer;
+        private String username;
+        private boolean loggedIn;
+        private String workingDirectory = "/";
+        private long restartOffset;
+        private Path renameSource;
+        private InetSocketAddress activeAddress;
+        private ServerSocket passiveSocket;
+
+        private Session(Socket socket) throws IOException {
+            this.socket = socket;
+            this.writer = new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8);
+        }
+
+        private void run() throws IOException {
+            BufferedReader reader = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+            reply(220, "GraphicFTP embedded test server ready.");
+            socket.setSoTimeout(idleTimeoutMillis);
+            try {
+                String line;
+                while ((line = readCommand(reader)) != null) {
+                    int space = line.indexOf(' ');
+                    String command = (space < 0 ? line : line.substring(0, space)).toUpperCase(Locale.ROOT);
+                    String argument = space < 0 ? "" : line.substring(space + 1);
+                    commandCounts.computeIfAbsent(command, key -> new LongAdder()).increment();
+                    if (!handle(command, argument)) {
+                        return;
+                    }
+                }
+            } finally {
+                closeQuietly(passiveSocket);
+            }
+        }
+
+        /**
+         * Lee el siguiente comando. Si la sesión supera el tiempo de inactividad, se cierra con {@code 421}.
+         *
+         * @return El comando, o {@code null} si la sesión ha terminado.
+         */
+        private String readCommand(BufferedReader reader) throws IOException {
+            try {
+                return reader.readLine();
+            } catch (SocketTimeoutException e) {
+                reply(421, "Idle timeout, closing control connection.");
+                return null;
+            }
+        }
+
+        /**
+         * Atiende un comando.
+         *
+         * @return false si la sesión debe cerrarse.
+         */
+        private boolean handle(String command, String argument) throws IOException {
+            switch (command) {
+                case "USER":
+                    username = argument;
+                    loggedIn = false;
+                    reply(331, "Password required for " + argument + ".");
+                    return true;
+                case "PASS":
+                    loggedIn = username != null && argument.equals(users.get(username));
+                    reply(loggedIn ? 230 : 530, loggedIn ? "Logged in." : "Login incorrect.");
+                    return true;
+                case "QUIT":
+                    reply(221, "Goodbye.");
+                    return false;
+                case "SYST":
+                    reply(215, "UNIX Type: L8");
+                    return true;
+                case "FEAT":
+                    if (machineListingAdvertised) {
+                        replyLines(211, "Features:", " SIZE", " MDTM", " REST STREAM", " MLST type*;size*;modify*;",
+                                " UTF8", " HASH SHA-1;SHA-256*;MD5", "End");
+                    } else {
+                        replyLines(211, "Features:", " SIZE", " MDTM", " REST STREAM", " UTF8",
+                                " HASH SHA-1;SHA-256*;MD5", "End");
+                    }
+                    return true;
+                case "NOOP":
+                    reply(200, "NOOP ok.");
+                    return true;
+                default:
+                    break;
+            }
+
+            if (!loggedIn) {
+                reply(530, "Please login with USER and PASS.");
+                return true;
+            }
+
+            try {
+                handleAuthenticated(command, argument);
+            } catch (IOException e) {
+                if (e instanceof SocketException || e instanceof InterruptedIOException) {
+                    throw e;
+                }
+                reply(550, "Requested action not taken: " + e.getMessage());
+            }
+            return true;
+        }
+
+        private void handleAuthenticated(String command, String argument) throws IOException {
+            switch (command) {
+                case "OPTS":
+                case "MODE":
+                case "STRU":
+                    reply(200, command + " ok.");
+                    break;
+                case "TYPE":
+                    reply(200, "Type set to " + argument + ".");
+                    break;
+                case "PWD":
+                case "XPWD":
+                    reply(257, "\"" + workingDirectory + "\" is the current directory.");
+                    break;
+                case "CWD":
+                case "XCWD":
+                    changeDirectory(resolveVirtual(argument));
+                    break;
+                case "CDUP":
+                case "XCUP":
+                    changeDirectory(resolveVirtual(".."));
+                    break;
+                case "PORT":
+                    activePort(argument);
+                    break;
+                case "EPRT":
+                    extendedActivePort(argument);
+                    break;
+                case "PASV":
+                    openPassive();
+                    int port = passiveSocket.getLocalPort();
+                    reply(227, "Entering Passive Mode (" + getHost().replace('.', ',') + "," + (port >> 8) + ","
+                            + (port & 0xFF) + ").");
+                    break;
+                case "EPSV":
+                    openPassive();
+                    reply(229, "Entering Extended Passive Mode (|||" + passiveSocket.getLocalPort() + "|).");
+                    break;
+                case "REST":
+                    restartOffset = Long.parseLong(argument.trim());
+                    reply(350, "Restarting at " + restartOffset + ".");
+                    break;
+                case "LIST":
+                case "NLST":
+                case "MLSD":
+                    list(command, argument);
+                    break;
+                case "MLST":
+                    mlst(argument);
+                    break;
+                case "RETR":
+                    retrieve(resolve(argument));
+                    break;
+                case "STOR":
+                case "APPE":
+                    store(resolve(argument), "APPE".equals(command));
+                    break;
+                case "SIZE":
+                    size(resolve(argument));
+                    break;
+                case "MDTM":
+                    modificationTime(resolve(argument));
+                    break;
+                case "HASH":
+                    hash(resolve(argument));
+                    break;
+                case "MKD":
+                case "XMKD":
+                    makeDirectory(argument);
+                    break;
+                case "RMD":
+                case "XRMD":
+                    removeDirectory(resolve(argument));
+                    break;
+                case "DELE":
+                    delete(resolve(argument));
+                    break;
+                case "RNFR":
+                    renameFrom(resolve(argument));
+                    break;
+                case "RNTO":
+                    renameTo(resolve(argument));
+                    break;
+                case "ABOR":
+                    reply(226, "No transfer to abort.");
+                    break;
+                default:
+                    reply(502, "Command not implemented: " + command);
+                    break;
+            }
+        }
+
+        private void changeDirectory(String path) throws IOException {
+            if (!Files.isDirectory(toLocal(path))) {
+                reply(550, path + ": No such directory.");
+                return;
+            }
+            workingDirectory = path;
+            reply(250, "Directory changed to " + path + ".");
+        }
+
+        private void activePort(String argument) throws IOException {
+            String[] parts = argument.trim().split(",");
+            if (parts.length != 6) {
+                reply(501, "Syntax error in PORT.");
+                return;
+            }
+            String host = parts[0] + "." + parts[1] + "." + parts[2] + "." + parts[3];
+            int port = Integer.parseInt(parts[4]) * 256 + Integer.parseInt(parts[5]);
+            setActiveAddress(new InetSocketAddress(host, port));
+            reply(200, "PORT command successful.");
+        }
+
+        private void extendedActivePort(String argument) throws IOException {
+            String trimmed = argument.trim();
+            String[] parts = trimmed.substring(1).split(Pattern.quote(trimmed.substring(0, 1)));
+            if (parts.length < 3) {
+                reply(501, "Syntax error in EPRT.");
+                return;
+            }
+            setActiveAddress(new InetSocketAddress(parts[1], Integer.parseInt(parts[2])));
+            reply(200, "EPRT command successful.");
+        }
+
+        private void setActiveAddress(InetSocketAddress address) {
+            closeQuietly(passiveSocket);
+            passiveSocket = null;
+            activeAddress = address;
+        }
+
+        private void openPassive() throws IOException {
+            closeQuietly(passiveSocket);
+            activeAddress = null;
+            passiveSocket = new ServerSocket(0, 1, InetAddress.getLoopbackAddress());
+            passiveSocket.setSoTimeout(DATA_CONNECT_TIMEOUT_MS);
+        }
+
+        /**
+         * Abre la conexión de datos preparada con el último {@code PORT}/{@code EPRT} o {@code PASV}/{@code EPSV}.
+         */
+        private Socket openDataConnection() throws IOException {
+            try {
+                if (passiveSocket != null) {
+                    try (ServerSocket listener = passiveSocket) {
+                        passiveSocket = null;
+                        return listener.accept();
+                    }
+                }
+                if (activeAddress != null) {
+                    Socket data = new Socket();
+                    data.connect(activeAddress, DATA_CONNECT_TIMEOUT_MS);
+                    return data;
+                }
+            } catch (IOException e) {
+                logger.debug("Embedded FTP data connection failed: {}", e.getMessage());
+            }
+            return null;
+        }
+
+        private void list(String command, String argument) throws IOException {
+            String target = argument.trim();
+            // Las opciones al estilo de ls (por ejemplo LIST -a) no se usan
+            while (target.startsWith("-")) {
+                int space = target.indexOf(' ');
+                target = space < 0 ? "" : target.substring(space + 1).trim();
+            }
+            Path path = resolve(target);
+            if (!Files.exists(path)) {
+                reply(550, target + ": No such file or directory.");
+                return;
+            }
+            if ("MLSD".equals(command) && !Files.isDirectory(path)) {
+                reply(501, target + ": Not a directory.");
+                return;
+            }
+
+            List<Path> entries = new ArrayList<>();
+            if (Files.isDirectory(path)) {
+                try (DirectoryStream<Path> children = Files.newDirectoryStream(path)) {
+                    children.forEach(entries::add);
+                }
+                entries.sort(null);
+            } else {
+                entries.add(path);
+            }
+
+            StringBuilder listing = new StringBuilder();
+            for (Path entry : entries) {
+                BasicFileAttributes attributes = Files.readAttributes(entry, BasicFileAttributes.class);
+                String name = entry.getFileName().toString();
+                switch (command) {
+                    case "MLSD":
+                        listing.append(facts(attributes)).append(' ').append(name);
+                        break;
+                    case "NLST":
+                        listing.append(name);
+                        break;
+                    default:
+                        listing.append(unixLine(attributes, name));
+                        break;
+                }
+                listing.append("\r\n");
+            }
+            sendData(listing.toString().getBytes(StandardCharsets.UTF_8));
+        }
+
+        private void mlst(String argument) throws IOException {
+            String path = resolveVirtual(argument);
+            Path local = toLocal(path);
+            if (!Files.exists(local)) {
+                reply(550, path + ": No such file or directory.");
+                return;
+            }
+            replyLines(250, "Listing " + path, " " + facts(Files.readAttributes(local, BasicFileAttributes.class))
+                    + " " + path, "End");
+        }
+
+        private void retrieve(Path path) throws IOException {
+            long offset = takeRestartOffset();
+            if (!Files.isRegularFile(path)) {
+                reply(550, "No such file.");
+                return;
+            }
+            reply(150, "Opening BINARY mode data connection.");
+            try (Socket data = openDataConnection()) {
+                if (data == null) {
+                    reply(425, "Can't open data connection.");
+                    return;
+                }
+                try (InputStream in = Files.newInputStream(path)) {
+                    in.skipNBytes(Math.min(offset, Files.size(path)));
+                    copy(in, data.getOutputStream());
+                } catch (IOException e) {
+                    reply(426, "Connection closed; transfer aborted.");
+                    return;
+                }
+            }
+            reply(226, "Transfer complete.");
+        }
+
+        private void store(Path path, boolean append) throws IOException {
+            long offset = takeRestartOffset();
+            reply(150, "Opening BINARY mode data connection.");
+            try (Socket data = openDataConnection()) {
+                if (data == null) {
+                    reply(425, "Can't open data connection.");
+                    return;
+                }
+                OutputStream out;
+                if (append) {
+                    out = Files.newOutputStream(path, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+                } else if (offset > 0) {
+                    // REST + STOR: se descarta lo que haya tras el desplazamiento y se escribe a partir de él
+                    FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+                    channel.truncate(offset);
+                    channel.position(channel.size());
+                    out = Channels.newOutputStream(channel);
+                } else {
+                    out = Files.newOutputStream(path);
+                }
+                try (out) {
+                    copy(data.getInputStream(), out);
+                } catch (IOException e) {
+                    reply(426, "Connection closed; transfer aborted.");
+                    return;
+                }
+            }
+            reply(226, "Transfer complete.");
+        }
+
+        private void sendData(byte[] content) throws IOException {
+            reply(150, "Opening data connection for directory listing.");
+            try (Socket data = openDataConnection()) {
+                if (data == null) {
+                    reply(425, "Can't open data connection.");
+                    return;
+                }
+                copy(new ByteArrayInputStream(content), data.getOutputStream());
+            }
+            reply(226, "Transfer complete.");
+        }
+
+        /**
+         * Copia los datos de una transferencia respetando el límite de ancho de banda: tras cada bloque se espera
+         * lo necesario para no superar la velocidad configurada desde el inicio de la copia.
+         */
+        private void copy(InputStream in, OutputStream out) throws IOException {
+            byte[] buffer = new byte[BUFFER_SIZE];
+            long limit = bandwidthLimit;
+            int chunk = limit > 0 ? (int) Math.max(1, Math.min(BUFFER_SIZE, limit / 10)) : BUFFER_SIZE;
+            long start = System.nanoTime();
+            long copied = 0;
+            int read;
+            while ((read = in.read(buffer, 0, chunk)) != -1) {
+                out.write(buffer, 0, read);
+                copied += read;
+                if (limit > 0) {
+                    long dueNanos = copied * 1_000_000_000L / limit;
+                    sleepNanos(dueNanos - (System.nanoTime() - start));
+                }
+            }
+            out.flush();
+        }
+
+        private void size(Path path) throws IOException {
+            if (!Files.isRegularFile(path)) {
+                reply(550, "No such file.");
+                return;
+            }
+            reply(213, String.valueOf(Files.size(path)));
+        }
+
+        private void modificationTime(Path path) throws IOException {
+            if (!Files.exists(path)) {
+                reply(550, "No such file.");
+                return;
+            }
+            reply(213, MDTM_FORMAT.format(Files.getLastModifiedTime(path).toInstant()));
+        }
+
+        private void hash(Path path) throws IOException {
+            if (!Files.isRegularFile(path)) {
+                reply(550, "No such file.");
+                return;
+            }
+            try {
+                MessageDigest digest = MessageDigest.getInstance("SHA-256");
+                try (InputStream in = Files.newInputStream(path)) {
+                    byte[] buffer = new byte[BUFFER_SIZE];
+                    int read;
+                    while ((read = in.read(buffer)) != -1) {
+                        digest.update(buffer, 0, read);
+                    }
+                }
+                if (corruptedHashes.contains(path)) {
+                    digest.update((byte) 0);
+                }
+                reply(213, "SHA-256 0-" + Files.size(path) + " " + HexFormat.of().formatHex(digest.digest())
+                        + " " + path.getFileName());
+            } catch (NoSuchAlgorithmException e) {
+                reply(504, "Hash algorithm not available.");
+            }
+        }
+
+        private void makeDirectory(String argument) throws IOException {
+            String path = resolveVirtual(argument);
+            Path local = toLocal(path);
+            if (Files.exists(local)) {
+                reply(550, path + ": File exists.");
+                return;
+            }
+            Files.createDirectory(local);
+            reply(257, "\"" + path + "\" directory created.");
+        }
+
+        private void removeDirectory(Path path) throws IOException {
+            if (!Files.isDirectory(path) || path.equals(rootDirectory)) {
+                reply(550, "No such directory.");
+                return;
+            }
+            if (protectedPaths.contains(path)) {
+                reply(550, "Permission denied.");
+                return;
+            }
+            Files.delete(path);
+            reply(250, "Directory removed.");
+        }
+
+        private void delete(Path path) throws IOException {
+            if (!Files.isRegularFile(path)) {
+                reply(550, "No such file.");
+                return;
+            }
+            if (protectedPaths.contains(path)) {
+                reply(550, "Permission denied.");
+                return;
+            }
+            Files.delete(path);
+            reply(250, "File deleted.");
+        }
+
+        private void renameFrom(Path path) throws IOException {
+            if (!Files.exists(path) || path.equals(rootDirectory)) {
+                renameSource = null;
+                reply(550, "No such file or directory.");
+                return;
+            }
+            renameSource = path;
+            reply(350, "Ready for RNTO.");
+        }
+
+        private void renameTo(Path path) throws IOException {
+            Path source = renameSource;
+            renameSource = null;
+            if (source == null) {
+                reply(503, "Bad sequence of commands.");
+                return;
+            }
+            Files.move(source, path);
+            reply(250, "Rename successful.");
+        }
+
+        private long takeRestartOffset() {
+            long offset = restartOffset;
+            restartOffset = 0;
+            return offset;
+        }
+
+        /**
+         * Resuelve una ruta del cliente, absoluta o relativa al directorio de trabajo, a una ruta virtual normalizada.
+         */
+        private String resolveVirtual(String argument) {
+            String requested = argument.trim();
+            String combined = requested.startsWith("/") ? requested : workingDirectory + "/" + requested;
+            List<String> parts = new ArrayList<>();
+            for (String part : combined.split("/")) {
+                if (part.isEmpty() || ".".equals(part)) {
+                    continue;
+                }
+                if ("..".equals(part)) {
+                    if (!parts.isEmpty()) {
+                        parts.remove(parts.size() - 1);
+                    }
+                } else {
+                    parts.add(part);
+                }
+            }
+            return "/" + String.join("/", parts);
+        }
+
+        private Path resolve(String argument) {
+            return toLocal(resolveVirtual(argument));
+        }
+
+        /**
+         * Convierte una ruta virtual normalizada en la ruta local correspondiente, siempre dentro de la raíz.
+         */
+        private Path toLocal(String virtualPath) {
+            return rootDirectory.resolve(virtualPath.substring(1)).normalize();
+        }
+
+        private String facts(BasicFileAttributes attributes) {
+            return "type=" + (attributes.isDirectory() ? "dir" : "file") + ";size=" + attributes.size()
+                    + ";modify=" + MDTM_FORMAT.format(attributes.lastModifiedTime().toInstant()) + ";";
+        }
+
+        private String unixLine(BasicFileAttributes attributes, String name) {
+            Instant modified = attributes.lastModifiedTime().toInstant();
+            boolean recent = modified.isAfter(Instant.now().minus(180, ChronoUnit.DAYS));
+            String date = (recent ? LIST_RECENT_FORMAT : LIST_OLD_FORMAT).format(modified);
+            return String.format("%s 1 ftp ftp %12d %s %s", attributes.isDirectory() ? "drwxr-xr-x" : "-rw-r--r--",
+                    attributes.size(), date, name);
+        }
+
+        private void reply(int code, String text) throws IOException {
+            sleepNanos(TimeUnit.MILLISECONDS.toNanos(latencyMillis));
+            writer.write(code + " " + text + "\r\n");
+            writer.flush();
+        }
+
+        /**
+         * Envía una respuesta de varias líneas: la primera y la última llevan el código.
+         */
+        private void replyLines(int code, String first, String... rest) throws IOException {
+            sleepNanos(TimeUnit.MILLISECONDS.toNanos(latencyMillis));
+            StringBuilder text = new StringBuilder().append(code).append('-').append(first).append("\r\n");
+            for (int i = 0; i < rest.length - 1; i++) {
+                text.append(rest[i]).append("\r\n");
+            }
+            text.append(code).append(' ').append(rest[rest.length - 1]).append("\r\n");
+            writer.write(text.toString());
+            writer.flush();
+        }
+    }
+
+    private static void sleepNanos(long nanos) throws InterruptedIOException {
+        if (nanos <= 0) {
+            return;
+        }
+        try {
+            TimeUnit.NANOSECONDS.sleep(nanos);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Embedded FTP server stopped");
+        }
+    }
+}
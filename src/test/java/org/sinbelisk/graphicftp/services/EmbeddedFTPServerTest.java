@@ -0,0 +1,254 @@
+package org.sinbelisk.graphicftp.services;
+
+import org.apache.commons.net.ftp.FTP;
+import org.apache.commons.net.ftp.FTPClient;
+import org.apache.commons.net.ftp.FTPConnectionClosedException;
+import org.apache.commons.net.ftp.FTPReply;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Clase de pruebas unitarias para el {@link EmbeddedFTPServer}.
+ * Comprueba que la latencia, el límite de ancho de banda y el límite de conexiones se aplican,
+ * y que las transferencias reanudadas y segmentadas del {@link FTPClientManager} producen el archivo original
+ * sin ocupar todas las sesiones del pool ni repetir consultas de tamaño.
+ */
+public class EmbeddedFTPServerTest {
+
+    private static final String USER = "usuario1";
+    private static final String PASSWORD = "usu1";
+
+    @TempDir
+    Path tempDir;
+
+    private EmbeddedFTPServer server;
+    private byte[] content;
+
+    /**
+     * Arranca un servidor con un archivo remoto de 256 KB antes de cada prueba.
+     */
+    @BeforeEach
+    void setup() throws IOException {
+        content = new byte[256 * 1024];
+        new Random(7).nextBytes(content);
+        server = new EmbeddedFTPServer(tempDir.resolve("ftp"));
+        server.addUser(USER, PASSWORD);
+        server.start();
+        Files.write(server.getRootDirectory().resolve("datos.bin"), content);
+    }
+
+    /**
+     * Prueba que la latencia configurada se añade a cada respuesta.
+     */
+    @Test
+    void testLatencyInjection() throws IOException {
+        FTPClient client = login();
+        server.setLatencyMillis(100);
+
+        long start = System.nanoTime();
+        assertTrue(FTPReply.isPositiveCompletion(client.noop()));
+        assertTrue(System.nanoTime() - start >= 100_000_000L, "La respuesta no se ha retrasado.");
+        client.disconnect();
+    }
+
+    /**
+     * Prueba que el límite de ancho de banda frena la descarga y que REST la reanuda desde el desplazamiento indicado.
+     */
+    @Test
+    void testBandwidthLimitAndRestart() throws IOException {
+        FTPClient client = login();
+        client.setFileType(FTP.BINARY_FILE_TYPE);
+        server.setBandwidthLimit(512 * 1024);
+
+        ByteArrayOutputStream received = new ByteArrayOutputStream();
+        client.setRestartOffset(content.length / 2);
+        long start = System.nanoTime();
+        assertTrue(client.retrieveFile("/datos.bin", received));
+
+        // 128 KB a 512 KB/s deberían tardar al menos 250 ms
+        assertTrue(System.nanoTime() - start >= 200_000_000L, "La descarga no se ha limitado.");
+        assertArrayEquals(Arrays.copyOfRange(content, content.length / 2, content.length), received.toByteArray());
+        client.disconnect();
+    }
+
+    /**
+     * Prueba que las conexiones que superan el límite se rechazan con 421.
+     */
+    @Test
+    void testConnectionLimit() throws IOException {
+        server.setMaxConnections(1);
+        FTPClient first = login();
+
+        FTPClient second = new FTPClient();
+        assertThrows(FTPConnectionClosedException.class, () -> second.connect(server.getHost(), server.getPort()),
+                "La segunda conexión debería haberse rechazado.");
+        assertEquals(421, second.getReplyCode());
+        assertEquals(1, server.getRejectedConnections());
+
+        first.disconnect();
+    }
+
+    /**
+     * Prueba que una descarga segmentada a través del pool de sesiones reconstruye el archivo original.
+     */
+    @Test
+    void testSegmentedDownload() throws IOException {
+        FTPClientManager manager = server.newClientManager(4);
+        manager.setSegmentedDownloadThreshold(1);
+        assertTrue(manager.connectAndLogin(USER, PASSWORD));
+
+        Path local = tempDir.resolve("descarga.bin");
+        assertTrue(manager.downloadFile("/datos.bin", local.toString()), "Falló la descarga segmentada.");
+        assertArrayEquals(content, Files.readAllBytes(local));
+        assertTrue(server.getCommandCount("REST") >= 2, "La descarga no se ha dividido en rangos.");
+        assertEquals(1, server.getCommandCount("SIZE"), "El tamaño debería pedirse una sola vez.");
+        assertEquals(server.getCommandCount("RETR") - 1, server.getCommandCount("ABOR"));
+        assertEquals(0, manager.getConnectionPool().getDiscardedSessions(), "Los rangos intermedios han descartado su sesión.");
+        assertEquals(3, server.getPeakConnections(), "La descarga no ha dejado una sesión libre.");
+        manager.disconnect();
+    }
+
+    /**
+     * Prueba que una descarga segmentada interrumpida se reanuda pidiendo solo lo que falta de cada rango:
+     * los bytes ya confirmados del archivo local no se vuelven a descargar ni se truncan.
+     */
+    @Test
+    void testSegmentedDownloadResumesMissingRanges() throws IOException {
+        FTPClientManager manager = server.newClientManager(4);
+        manager.setSegmentedDownloadThreshold(1);
+        assertTrue(manager.connectAndLogin(USER, PASSWORD));
+
+        Path local = tempDir.resolve("descarga.bin");
+        TransferJournal journal = new TransferJournal(tempDir.resolve("reanudar.journal"));
+        manager.setTransferJournal(journal);
+        byte[] expected = prepareInterruptedDownload(manager, journal, local);
+        assertTrue(manager.downloadFile("/datos.bin", local.toString()));
+
+        assertArrayEquals(expected, Files.readAllBytes(local));
+        assertEquals(2, server.getCommandCount("RETR"), "Solo deberían pedirse los dos rangos incompletos.");
+        assertTrue(journal.getEntries().isEmpty());
+        manager.disconnect();
+    }
+
+    /**
+     * Prueba que, si no quedan sesiones libres para reanudar una descarga segmentada, se continúa en un único flujo
+     * desde el final de la parte confirmada sin huecos.
+     */
+    @Test
+    void testSegmentedDownloadResumesInSingleStream() throws IOException {
+        FTPClientManager manager = server.newClientManager(2);
+        manager.setSegmentedDownloadThreshold(1);
+        assertTrue(manager.connectAndLogin(USER, PASSWORD));
+
+        Path local = tempDir.resolve("descarga.bin");
+        TransferJournal journal = new TransferJournal(tempDir.resolve("reanudar.journal"));
+        manager.setTransferJournal(journal);
+        byte[] expected = prepareInterruptedDownload(manager, journal, local);
+        // El rango intermedio estaba completo, pero el único flujo lo vuelve a escribir
+        System.arraycopy(content, 1000, expected, 1000, content.length - 1000);
+        assertTrue(manager.downloadFile("/datos.bin", local.toString()));
+
+        assertArrayEquals(expected, Files.readAllBytes(local));
+        assertEquals(1, server.getCommandCount("RETR"));
+        assertEquals(1, server.getCommandCount("REST"));
+        assertTrue(journal.getEntries().isEmpty());
+        manager.disconnect();
+    }
+
+    /**
+     * Prepara una descarga segmentada interrumpida en tres rangos: el primero con 1000 bytes confirmados,
+     * el segundo completo y el tercero sin empezar. Los bytes confirmados del archivo local se marcan con un valor
+     * distinto del remoto para comprobar que no se vuelven a descargar.
+     *
+     * @return El contenido que debería tener el archivo local al terminar la descarga.
+     */
+    private byte[] prepareInterruptedDownload(FTPClientManager manager, TransferJournal journal, Path local)
+            throws IOException {
+        TransferJournal.Entry entry = new TransferJournal.Entry(TransferJob.Direction.DOWNLOAD, "/datos.bin",
+                local.toString(), content.length, manager.getRemoteModificationTime("/datos.bin"), 0);
+        entry.split(3);
+        entry.advanceRange(0, 1000);
+        entry.advanceRange(1, entry.getRangeEnd(1) - entry.getRangePosition(1));
+
+        byte[] expected = content.clone();
+        Arrays.fill(expected, 0, 1000, (byte) 0x5A);
+        Arrays.fill(expected, (int) entry.getRangeEnd(0), (int) entry.getRangeEnd(1), (byte) 0x5A);
+        byte[] partial = new byte[content.length];
+        System.arraycopy(expected, 0, partial, 0, (int) entry.getRangeEnd(1));
+        Files.write(local, partial);
+
+        journal.checkpoint(entry);
+        return expected;
+    }
+
+    /**
+     * Prueba que una descarga por debajo del umbral segmentado reutiliza el tamaño ya obtenido
+     * en lugar de volver a pedirlo.
+     */
+    @Test
+    void testSingleStreamDownloadAsksSizeOnce() throws IOException {
+        FTPClientManager manager = server.newClientManager(4);
+        manager.setSegmentedDownloadThreshold(content.length + 1);
+        assertTrue(manager.connectAndLogin(USER, PASSWORD));
+
+        Path local = tempDir.resolve("descarga.bin");
+        assertTrue(manager.downloadFile("/datos.bin", local.toString()));
+        assertArrayEquals(content, Files.readAllBytes(local));
+        assertEquals(1, server.getCommandCount("SIZE"));
+        assertEquals(1, server.getCommandCount("MDTM"));
+        assertEquals(1, server.getCommandCount("RETR"));
+        manager.disconnect();
+    }
+
+    /**
+     * Prueba que, mientras una descarga segmentada lenta ocupa las sesiones libres, un listado no tiene que esperar.
+     */
+    @Test
+    void testListingDuringSegmentedDownload() throws Exception {
+        FTPClientManager manager = server.newClientManager(3);
+        manager.setSegmentedDownloadThreshold(1);
+        assertTrue(manager.connectAndLogin(USER, PASSWORD));
+        server.setBandwidthLimit(128 * 1024);
+
+        Path local = tempDir.resolve("descarga.bin");
+        CompletableFuture<Boolean> download = CompletableFuture.supplyAsync(
+                () -> manager.downloadFile("/datos.bin", local.toString()));
+        Thread.sleep(300);
+
+        long start = System.nanoTime();
+        assertEquals(1, manager.listEntries("/").length);
+        assertTrue(System.nanoTime() - start < 500_000_000L, "El listado ha esperado a la descarga.");
+
+        assertTrue(download.get(10, TimeUnit.SECONDS));
+        assertArrayEquals(content, Files.readAllBytes(local));
+        manager.disconnect();
+    }
+
+    /**
+     * Detiene el servidor tras cada prueba.
+     */
+    @AfterEach
+    void cleanup() {
+        server.stop();
+    }
+
+    private FTPClient login() throws IOException {
+        FTPClient client = new FTPClient();
+        client.connect(server.getHost(), server.getPort());
+        assertTrue(client.login(USER, PASSWORD), "No se pudo iniciar sesión en el servidor de pruebas.");
+        return client;
+    }
+}
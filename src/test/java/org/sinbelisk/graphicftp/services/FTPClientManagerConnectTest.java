@@ -0,0 +1,116 @@
+package org.sinbelisk.graphicftp.services;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.nio.file.Path;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Clase de pruebas unitarias para la conexión de {@link FTPClientManager}.
+ * Comprueba que la conexión en segundo plano puede cancelarse, que una dirección inaccesible falla dentro
+ * del tiempo máximo de conexión y que, entre varias direcciones, se elige la que responde.
+ */
+public class FTPClientManagerConnectTest {
+
+    private static final String USER = "usuario1";
+    private static final String PASSWORD = "usu1";
+
+    @TempDir
+    Path tempDir;
+
+    private EmbeddedFTPServer server;
+
+    /**
+     * Arranca el servidor de pruebas antes de cada prueba.
+     */
+    @BeforeEach
+    void setup() throws IOException {
+        server = new EmbeddedFTPServer(tempDir.resolve("ftp"));
+        server.addUser(USER, PASSWORD);
+        server.start();
+    }
+
+    /**
+     * Prueba que la conexión en segundo plano inicia sesión sin bloquear al llamante.
+     */
+    @Test
+    void testAsyncConnect() throws Exception {
+        FTPClientManager manager = newManager(server.getHost(), server.getPort());
+
+        CompletableFuture<Boolean> connection = manager.connectAndLoginAsync(USER, PASSWORD);
+        assertTrue(connection.get(10, TimeUnit.SECONDS));
+        assertTrue(manager.isConnected());
+        manager.disconnect();
+    }
+
+    /**
+     * Prueba que cancelar una conexión que espera la bienvenida del servidor la termina enseguida.
+     */
+    @Test
+    void testCancelConnect() throws Exception {
+        server.setLatencyMillis(5000);
+        FTPClientManager manager = newManager(server.getHost(), server.getPort());
+
+        CompletableFuture<Boolean> connection = manager.connectAndLoginAsync(USER, PASSWORD);
+        Thread.sleep(300);
+        long start = System.nanoTime();
+        manager.cancelConnect();
+
+        assertFalse(connection.get(2, TimeUnit.SECONDS), "La conexión cancelada no debería iniciar sesión.");
+        assertTrue(System.nanoTime() - start < 2_000_000_000L, "La cancelación ha tardado demasiado.");
+        assertFalse(manager.isConnected());
+    }
+
+    /**
+     * Prueba que el tiempo máximo de respuesta se aplica cuando el servidor acepta la conexión pero no responde.
+     */
+    @Test
+    void testReadTimeout() throws IOException {
+        try (ServerSocket silent = new ServerSocket(0, 1, InetAddress.getLoopbackAddress())) {
+            FTPClientManager manager = newManager(server.getHost(), silent.getLocalPort());
+            manager.setTimeouts(500, 500, 500);
+
+            long start = System.nanoTime();
+            assertFalse(manager.connectAndLogin(USER, PASSWORD));
+            assertTrue(System.nanoTime() - start < 5_000_000_000L, "La espera no se ha limitado.");
+        }
+    }
+
+    /**
+     * Prueba que la carrera de direcciones elige la dirección que acepta la conexión.
+     */
+    @Test
+    void testAddressRace() throws IOException {
+        FTPClientManager manager = newManager(server.getHost(), server.getPort());
+        manager.setTimeouts(500, 500, 500);
+        // 192.0.2.1 pertenece a un rango reservado para documentación y nunca responde.
+        InetAddress unreachable = InetAddress.getByName("192.0.2.1");
+        InetAddress loopback = InetAddress.getByName(server.getHost());
+
+        assertEquals(loopback, manager.raceAddresses(new InetAddress[]{unreachable, loopback}));
+        assertThrows(IOException.class, () -> manager.raceAddresses(new InetAddress[]{unreachable}));
+    }
+
+    /**
+     * Detiene el servidor tras cada prueba.
+     */
+    @AfterEach
+    void cleanup() {
+        server.stop();
+    }
+
+    private FTPClientManager newManager(String host, int port) {
+        FTPClientManager manager = new FTPClientManager(host, port);
+        manager.setTransferJournal(new TransferJournal(tempDir.resolve("transfers.journal")));
+        return manager;
+    }
+}
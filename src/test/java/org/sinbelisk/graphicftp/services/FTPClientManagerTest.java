@@ -1,11 +1,12 @@
 package org.sinbelisk.graphicftp.services;
 
-import org.apache.commons.net.ftp.FTPClient;
 import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.TempDir;
 
 import java.io.File;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.nio.file.Path;
 import static org.junit.jupiter.api.Assertions.*;
 
 /**
@@ -16,8 +17,6 @@ import static org.junit.jupiter.api.Assertions.*;
 @TestMethodOrder(MethodOrderer.OrderAnnotation.class)
 public class FTPClientManagerTest {
 
-    private static final String FTP_SERVER = "localhost";
-    private static final int FTP_PORT = 21;
     private static final String FTP_USER = "usuario1";
     private static final String FTP_PASSWORD = "usu1";
 
@@ -26,13 +25,18 @@ public class FTPClientManagerTest {
     private static final String REMOTE_FOLDER_PATH = "/test_folder";
     private static final String RENAMED_FILE_PATH = "/renamed_file.txt";
 
+    @TempDir
+    static Path serverRoot;
+
+    private static EmbeddedFTPServer server;
     private static FTPClientManager ftpManager;
 
     /**
      * Configuración inicial antes de ejecutar las pruebas.
-     * Crea un archivo de prueba en el sistema local y prepara el gestor de conexión FTP.
+     * Crea un archivo de prueba en el sistema local, arranca un {@link EmbeddedFTPServer} sobre una carpeta
+     * temporal y prepara el gestor de conexión FTP.
      *
-     * @throws IOException si ocurre algún error al escribir el archivo de prueba.
+     * @throws IOException si ocurre algún error al escribir el archivo de prueba o al arrancar el servidor.
      */
     @BeforeAll
     static void setup() throws IOException {
@@ -41,7 +45,11 @@ public class FTPClientManagerTest {
             writer.write("Este es un archivo de prueba para FTP.");
         }
 
-        ftpManager = new FTPClientManager(FTP_SERVER, FTP_PORT);
+        server = new EmbeddedFTPServer(serverRoot.resolve("ftp"));
+        server.addUser(FTP_USER, FTP_PASSWORD);
+        server.start();
+
+        ftpManager = server.newClientManager();
     }
 
     /**
@@ -115,8 +123,7 @@ public class FTPClientManagerTest {
     @Order(7)
     void testDisconnect() {
         ftpManager.disconnect();
-        FTPClient client = ftpManager.getFtpClient();
-        assertFalse(client.isConnected(), "El cliente FTP sigue conectado después de la desconexión.");
+        assertFalse(ftpManager.isConnected(), "El cliente FTP sigue conectado después de la desconexión.");
     }
 
     /**
@@ -125,6 +132,7 @@ public class FTPClientManagerTest {
      */
     @AfterAll
     static void cleanup() {
+        server.stop();
         new File(LOCAL_FILE_PATH).delete();
         new File("downloaded_test_file.txt").delete();
     }
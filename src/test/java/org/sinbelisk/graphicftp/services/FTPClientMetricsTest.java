@@ -0,0 +1,93 @@
+package org.sinbelisk.graphicftp.services;
+
+import org.junit.jupiter.api.Test;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Clase de pruebas unitarias para las clases {@link FTPClientMetrics} y {@link LatencyHistogram}.
+ * Comprueba la precisión de los percentiles y que las métricas se publican y retiran de JMX sin afectar
+ * a las de otro gestor del mismo servidor.
+ */
+public class FTPClientMetricsTest {
+
+    /**
+     * Prueba que los percentiles de 1 a 1000 ms se calculan con un error inferior al 12,5 %.
+     */
+    @Test
+    void testHistogramPercentiles() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int millis = 1; millis <= 1000; millis++) {
+            histogram.record(TimeUnit.MILLISECONDS.toNanos(millis));
+        }
+
+        assertEquals(1000, histogram.getCount());
+        assertEquals(500, histogram.getPercentileMillis(50), 500 * 0.125);
+        assertEquals(950, histogram.getPercentileMillis(95), 950 * 0.125);
+        assertEquals(990, histogram.getPercentileMillis(99), 990 * 0.125);
+        assertEquals(1000, histogram.getMaxMillis(), 0.001);
+        assertEquals(500.5, histogram.getMeanMillis(), 0.01);
+    }
+
+    /**
+     * Prueba que los comandos registrados se pueden leer por JMX y que los MBeans se retiran al terminar.
+     */
+    @Test
+    void testMetricsPublishedOverJmx() throws Exception {
+        FTPClientMetrics metrics = new FTPClientMetrics("test.invalid:21");
+        metrics.register();
+        metrics.recordCommand("RETR", TimeUnit.MILLISECONDS.toNanos(20), false);
+        metrics.recordCommand("RETR", TimeUnit.MILLISECONDS.toNanos(40), true);
+
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName command = metrics.commandName("RETR");
+        ObjectName client = metrics.clientName();
+        assertEquals(FTPClientMetrics.JMX_DOMAIN, client.getDomain());
+        assertEquals("\"test.invalid:21\"", client.getKeyProperty("server"));
+        try {
+            assertEquals(2L, server.getAttribute(command, "Count"));
+            assertEquals(1L, server.getAttribute(command, "Errors"));
+            assertTrue((Double) server.getAttribute(command, "P99Millis") >= 35);
+            assertEquals(1L, server.getAttribute(client, "Errors"));
+        } finally {
+            metrics.unregister();
+        }
+
+        assertFalse(server.isRegistered(command));
+        assertFalse(server.isRegistered(client));
+    }
+
+    /**
+     * Prueba que dos registros del mismo servidor publican MBeans distintos y que retirar los de uno
+     * no retira los del otro.
+     */
+    @Test
+    void testSameServerRegistrationsAreIndependent() {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        FTPClientMetrics first = new FTPClientMetrics("test.invalid:21");
+        FTPClientMetrics second = new FTPClientMetrics("test.invalid:21");
+        first.recordCommand("LIST", 1, false);
+        second.recordCommand("LIST", 1, false);
+        try {
+            first.register();
+            second.register();
+            assertNotEquals(first.clientName(), second.clientName());
+            assertTrue(server.isRegistered(first.clientName()), "El segundo registro no debe retirar el primero.");
+            assertTrue(server.isRegistered(first.commandName("LIST")));
+
+            first.unregister();
+            assertFalse(server.isRegistered(first.clientName()));
+            assertTrue(server.isRegistered(second.clientName()), "Retirar el primero no debe retirar el segundo.");
+            assertTrue(server.isRegistered(second.commandName("LIST")));
+        } finally {
+            first.unregister();
+            second.unregister();
+        }
+        assertFalse(server.isRegistered(second.clientName()));
+    }
+}
@@ -0,0 +1,107 @@
+package org.sinbelisk.graphicftp.services;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Clase de pruebas unitarias para la clase {@link FTPConnectionPool}.
+ * Comprueba que el {@code NOOP} periódico mantiene vivas las sesiones inactivas, que las consultas
+ * se repiten en una sesión nueva cuando se pierde la conexión y que las transferencias fallidas descartan su sesión.
+ */
+public class FTPConnectionPoolTest {
+
+    private static final String USER = "usuario1";
+    private static final String PASSWORD = "usu1";
+
+    @TempDir
+    Path tempDir;
+
+    private EmbeddedFTPServer server;
+    private FTPClientManager manager;
+
+    /**
+     * Arranca un servidor con un archivo remoto de 12 bytes antes de cada prueba.
+     */
+    @BeforeEach
+    void setup() throws IOException {
+        server = new EmbeddedFTPServer(tempDir.resolve("ftp"));
+        server.addUser(USER, PASSWORD);
+        server.start();
+        Files.writeString(server.getRootDirectory().resolve("datos.txt"), "hola, mundo!");
+
+        manager = server.newClientManager(2);
+    }
+
+    /**
+     * Prueba que una consulta tras cortarse todas las conexiones se repite en una sesión nueva,
+     * que vuelve a iniciar sesión y restaura el directorio de trabajo.
+     */
+    @Test
+    void testTransparentReconnect() {
+        assertTrue(manager.connectAndLogin(USER, PASSWORD));
+        assertEquals(12, manager.getRemoteFileSize("/datos.txt"));
+
+        server.dropConnections();
+
+        assertEquals(12, manager.getRemoteFileSize("/datos.txt"), "La consulta no se ha repetido tras la reconexión.");
+        FTPConnectionPool pool = manager.getConnectionPool();
+        assertEquals(1, pool.getRetriedOperations());
+        assertTrue(pool.getDiscardedSessions() >= 1, "La sesión caída no se ha descartado.");
+        assertEquals(2, server.getCommandCount("PASS"));
+        assertEquals(1, server.getCommandCount("CWD"));
+    }
+
+    /**
+     * Prueba que el {@code NOOP} periódico impide que el servidor cierre las sesiones inactivas.
+     */
+    @Test
+    void testKeepAliveOutlivesIdleTimeout() throws InterruptedException {
+        server.setIdleTimeoutMillis(600);
+        manager.setKeepAliveInterval(150);
+        assertTrue(manager.connectAndLogin(USER, PASSWORD));
+
+        Thread.sleep(1500);
+
+        assertEquals(12, manager.getRemoteFileSize("/datos.txt"));
+        FTPConnectionPool pool = manager.getConnectionPool();
+        assertEquals(0, pool.getDiscardedSessions(), "El servidor ha cerrado una sesión inactiva.");
+        assertEquals(0, pool.getRetriedOperations());
+        assertTrue(server.getCommandCount("NOOP") >= 3, "No se han enviado NOOP a la sesión inactiva.");
+    }
+
+    /**
+     * Prueba que una transferencia que falla por el lado local descarta la sesión en lugar de devolverla al pool
+     * con la respuesta final sin leer.
+     */
+    @Test
+    void testFailedTransferDiscardsSession() throws IOException {
+        assertTrue(manager.connectAndLogin(USER, PASSWORD));
+        FTPConnectionPool pool = manager.getConnectionPool();
+
+        IOException failure = assertThrows(IOException.class, () -> pool.executeTransfer(client -> {
+            throw new IOException("Disco lleno");
+        }));
+        assertEquals("Disco lleno", failure.getMessage());
+        assertEquals(1, pool.getDiscardedSessions());
+        assertEquals(pool.getMaxSize(), pool.getAvailableCount());
+
+        assertEquals(12, manager.getRemoteFileSize("/datos.txt"));
+    }
+
+    /**
+     * Desconecta el gestor y detiene el servidor tras cada prueba.
+     */
+    @AfterEach
+    void cleanup() {
+        manager.disconnect();
+        server.stop();
+    }
+}
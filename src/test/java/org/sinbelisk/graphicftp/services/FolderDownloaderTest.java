@@ -0,0 +1,117 @@
+package org.sinbelisk.graphicftp.services;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Clase de pruebas unitarias para la clase {@link FolderDownloader}.
+ * Descarga un árbol de un {@link EmbeddedFTPServer} y comprueba que se reproduce en local con todas sus carpetas
+ * tanto si las carpetas se listan con {@code MLSD} como con {@code LIST}.
+ */
+public class FolderDownloaderTest {
+
+    private static final String USER = "usuario1";
+    private static final String PASSWORD = "usu1";
+
+    @TempDir
+    Path tempDir;
+
+    private EmbeddedFTPServer server;
+    private FTPClientManager manager;
+    private TransferScheduler scheduler;
+    private Path localParent;
+
+    /**
+     * Arranca el servidor con la carpeta remota
+     * {@code /proyecto/{leeme.txt, src/{main.txt, util/{a.txt, b.txt}}, vacia}} e inicia sesión antes de cada prueba.
+     */
+    @BeforeEach
+    void setup() throws IOException {
+        server = new EmbeddedFTPServer(tempDir.resolve("ftp"));
+        server.addUser(USER, PASSWORD);
+        server.start();
+
+        Path remote = server.getRootDirectory().resolve("proyecto");
+        Files.createDirectories(remote.resolve("src").resolve("util"));
+        Files.createDirectories(remote.resolve("vacia"));
+        Files.writeString(remote.resolve("leeme.txt"), "léeme");
+        Files.writeString(remote.resolve("src").resolve("main.txt"), "main");
+        Files.writeString(remote.resolve("src").resolve("util").resolve("a.txt"), "a".repeat(10_000));
+        Files.writeString(remote.resolve("src").resolve("util").resolve("b.txt"), "b");
+
+        connect();
+        localParent = tempDir.resolve("local");
+    }
+
+    private void connect() {
+        manager = server.newClientManager();
+        assertTrue(manager.connectAndLogin(USER, PASSWORD));
+        scheduler = new TransferScheduler(manager, 2);
+    }
+
+    /**
+     * Prueba que se listan todas las carpetas, incluidas las vacías, y que los archivos se descargan completos.
+     */
+    @Test
+    void testDownloadFolder() throws Exception {
+        assertFolderDownloaded();
+    }
+
+    /**
+     * Prueba la descarga con un servidor que no anuncia {@code MLSD}, cuyas carpetas se listan con {@code LIST}.
+     */
+    @Test
+    void testDownloadFolderWithList() throws Exception {
+        // Las capacidades se guardan por servidor al iniciar sesión, así que se olvidan y se usa un gestor nuevo
+        scheduler.shutdown();
+        manager.disconnect();
+        server.setMachineListingAdvertised(false);
+        ServerCapabilities.forget(server.getHost() + ":" + server.getPort());
+        connect();
+
+        assertFolderDownloaded();
+        assertEquals(0, server.getCommandCount("MLSD"));
+        assertEquals(4, server.getCommandCount("LIST"));
+    }
+
+    private void assertFolderDownloaded() throws Exception {
+        RemoteEntry folder = new RemoteEntry("proyecto", "/proyecto", RemoteEntry.Type.DIRECTORY,
+                RemoteEntry.UNKNOWN, RemoteEntry.UNKNOWN);
+        FolderDownloader.Result result = new FolderDownloader(manager, scheduler).download(folder, localParent);
+        for (TransferJob job : result.getJobs()) {
+            job.getCompletion().get(10, TimeUnit.SECONDS);
+            assertEquals(TransferJob.State.DONE, job.getState(), job.getMessage());
+        }
+
+        Path local = localParent.toAbsolutePath().resolve("proyecto");
+        assertEquals(local, result.getLocalPath());
+        assertEquals(4, result.getListedDirectories());
+        assertEquals(4, result.getJobs().size());
+        assertTrue(result.getFailedPaths().isEmpty());
+
+        assertEquals("léeme", Files.readString(local.resolve("leeme.txt")));
+        assertEquals("main", Files.readString(local.resolve("src").resolve("main.txt")));
+        assertEquals("a".repeat(10_000), Files.readString(local.resolve("src").resolve("util").resolve("a.txt")));
+        assertEquals("b", Files.readString(local.resolve("src").resolve("util").resolve("b.txt")));
+        assertTrue(Files.isDirectory(local.resolve("vacia")));
+    }
+
+    /**
+     * Detiene el planificador, cierra la sesión y detiene el servidor tras cada prueba.
+     */
+    @AfterEach
+    void cleanup() {
+        scheduler.shutdown();
+        manager.disconnect();
+        server.close();
+    }
+}
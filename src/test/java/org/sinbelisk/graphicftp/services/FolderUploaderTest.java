@@ -0,0 +1,122 @@
+package org.sinbelisk.graphicftp.services;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Clase de pruebas unitarias para la clase {@link FolderUploader}.
+ * Sube un árbol local a un {@link EmbeddedFTPServer} y comprueba que cada carpeta remota se crea una sola vez
+ * por subida y que los archivos llegan completos.
+ */
+public class FolderUploaderTest {
+
+    private static final String USER = "usuario1";
+    private static final String PASSWORD = "usu1";
+
+    @TempDir
+    Path tempDir;
+
+    private EmbeddedFTPServer server;
+    private FTPClientManager manager;
+    private TransferScheduler scheduler;
+    private Path localFolder;
+
+    /**
+     * Arranca el servidor, inicia sesión y crea la carpeta local
+     * {@code proyecto/{leeme.txt, src/{main.txt, util/{a.txt, b.txt}}, vacia}} antes de cada prueba.
+     */
+    @BeforeEach
+    void setup() throws IOException {
+        server = new EmbeddedFTPServer(tempDir.resolve("ftp"));
+        server.addUser(USER, PASSWORD);
+        server.start();
+        Files.createDirectories(server.getRootDirectory().resolve("destino"));
+
+        manager = server.newClientManager();
+        assertTrue(manager.connectAndLogin(USER, PASSWORD));
+        scheduler = new TransferScheduler(manager, 2);
+
+        localFolder = tempDir.resolve("local").resolve("proyecto");
+        Files.createDirectories(localFolder.resolve("src").resolve("util"));
+        Files.createDirectories(localFolder.resolve("vacia"));
+        Files.writeString(localFolder.resolve("leeme.txt"), "léeme");
+        Files.writeString(localFolder.resolve("src").resolve("main.txt"), "main");
+        Files.writeString(localFolder.resolve("src").resolve("util").resolve("a.txt"), "a".repeat(10_000));
+        Files.writeString(localFolder.resolve("src").resolve("util").resolve("b.txt"), "b");
+    }
+
+    /**
+     * Prueba que se reproduce todo el árbol, incluidas las carpetas vacías, con un {@code MKD} por carpeta.
+     */
+    @Test
+    void testUploadFolder() throws Exception {
+        FolderUploader.Result result = new FolderUploader(manager, scheduler).upload(localFolder, "/destino");
+        awaitJobs(result);
+
+        assertEquals("/destino/proyecto", result.getRemotePath());
+        assertEquals(4, result.getJobs().size());
+        assertEquals(4, result.getCreatedDirectories());
+        assertTrue(result.getFailedPaths().isEmpty());
+        assertEquals(4, server.getCommandCount("MKD"));
+
+        Path remote = server.getRootDirectory().resolve("destino").resolve("proyecto");
+        assertEquals("léeme", Files.readString(remote.resolve("leeme.txt")));
+        assertEquals("main", Files.readString(remote.resolve("src").resolve("main.txt")));
+        assertEquals("a".repeat(10_000), Files.readString(remote.resolve("src").resolve("util").resolve("a.txt")));
+        assertEquals("b", Files.readString(remote.resolve("src").resolve("util").resolve("b.txt")));
+        assertTrue(Files.isDirectory(remote.resolve("vacia")));
+    }
+
+    /**
+     * Prueba que una segunda subida con el mismo cargador vuelve a crear las carpetas remotas
+     * si se han borrado entre medias.
+     */
+    @Test
+    void testUploadAgainAfterRemoteDelete() throws Exception {
+        FolderUploader uploader = new FolderUploader(manager, scheduler);
+        awaitJobs(uploader.upload(localFolder, "/destino"));
+
+        Path remote = server.getRootDirectory().resolve("destino").resolve("proyecto");
+        try (Stream<Path> paths = Files.walk(remote)) {
+            for (Path path : paths.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(path);
+            }
+        }
+
+        FolderUploader.Result result = uploader.upload(localFolder, "/destino");
+        awaitJobs(result);
+
+        assertEquals(4, result.getCreatedDirectories());
+        assertTrue(result.getFailedPaths().isEmpty());
+        assertEquals(8, server.getCommandCount("MKD"));
+        assertEquals("b", Files.readString(remote.resolve("src").resolve("util").resolve("b.txt")));
+    }
+
+    private static void awaitJobs(FolderUploader.Result result) throws Exception {
+        for (TransferJob job : result.getJobs()) {
+            job.getCompletion().get(10, TimeUnit.SECONDS);
+            assertEquals(TransferJob.State.DONE, job.getState(), job.getMessage());
+        }
+    }
+
+    /**
+     * Detiene el planificador, cierra la sesión y detiene el servidor tras cada prueba.
+     */
+    @AfterEach
+    void cleanup() {
+        scheduler.shutdown();
+        manager.disconnect();
+        server.close();
+    }
+}
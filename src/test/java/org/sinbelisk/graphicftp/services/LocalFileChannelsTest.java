@@ -0,0 +1,87 @@
+package org.sinbelisk.graphicftp.services;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Clase de pruebas unitarias para la clase {@link LocalFileChannels}.
+ * Comprueba que la lectura mapeada en memoria y la lectura con el canal devuelven los mismos bytes
+ * y que la escritura reanudada conserva la parte ya descargada.
+ */
+public class LocalFileChannelsTest {
+
+    @TempDir
+    Path tempDir;
+
+    private Path file;
+    private byte[] content;
+
+    /**
+     * Crea un archivo local de 300 KB antes de cada prueba.
+     */
+    @BeforeEach
+    void setup() throws IOException {
+        content = new byte[300 * 1024];
+        new Random(3).nextBytes(content);
+        file = tempDir.resolve("datos.bin");
+        Files.write(file, content);
+    }
+
+    /**
+     * Prueba que la lectura mapeada y la lectura con el canal empiezan en el desplazamiento y llegan al final.
+     */
+    @Test
+    void testMappedAndChannelReadsMatch() throws IOException {
+        int offset = 1000;
+        byte[] expected = Arrays.copyOfRange(content, offset, content.length);
+
+        try (InputStream mapped = LocalFileChannels.openInput(file, offset, 0);
+             InputStream channel = LocalFileChannels.openInput(file, offset, Long.MAX_VALUE)) {
+            assertEquals(expected.length, mapped.available());
+            assertArrayEquals(expected, mapped.readAllBytes());
+            assertArrayEquals(expected, channel.readAllBytes());
+            assertEquals(-1, mapped.read());
+        }
+    }
+
+    /**
+     * Prueba que saltar bytes en la lectura mapeada avanza la posición correctamente.
+     */
+    @Test
+    void testMappedSkip() throws IOException {
+        try (InputStream mapped = LocalFileChannels.openInput(file, 0, 0)) {
+            assertEquals(10, mapped.read(new byte[10]));
+            assertEquals(5000, mapped.skip(5000));
+            assertEquals(content[5010] & 0xFF, mapped.read());
+            assertEquals(content.length - 5011, mapped.skip(Long.MAX_VALUE));
+            assertEquals(-1, mapped.read());
+        }
+    }
+
+    /**
+     * Prueba que al reanudar una escritura el archivo se recorta al desplazamiento y se continúa a partir de él.
+     */
+    @Test
+    void testResumedOutputTruncatesAndAppends() throws IOException {
+        try (OutputStream output = LocalFileChannels.openOutput(file, 4)) {
+            output.write("fin".getBytes(StandardCharsets.UTF_8));
+        }
+
+        byte[] written = Files.readAllBytes(file);
+        assertEquals(7, written.length);
+        assertArrayEquals(Arrays.copyOf(content, 4), Arrays.copyOf(written, 4));
+        assertEquals("fin", new String(written, 4, 3, StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,231 @@
+package org.sinbelisk.graphicftp.services;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Clase de pruebas unitarias para la clase {@link MlsdParser}.
+ * Comprueba la interpretación de los hechos de cada línea, la lectura de listados cuyas líneas llegan
+ * partidas, la entrega por páginas y que el gestor lista con {@code MLSD} o, si el servidor no lo admite,
+ * con {@code LIST}, guardando el listado en la caché y sin reutilizar la sesión de un listado interrumpido.
+ */
+public class MlsdParserTest {
+
+    private static final String USER = "usuario1";
+    private static final String PASSWORD = "usu1";
+
+    @TempDir
+    Path tempDir;
+
+    /**
+     * Prueba la interpretación de los tipos, el tamaño, la fecha y los nombres con espacios.
+     */
+    @Test
+    void testParseLine() {
+        RemoteEntry file = MlsdParser.parseLine("type=file;size=1024;modify=20240314093015.250;UNIX.mode=0644; "
+                + "informe final.pdf", "/docs");
+        assertEquals("informe final.pdf", file.getName());
+        assertEquals("/docs/informe final.pdf", file.getPath());
+        assertEquals(RemoteEntry.Type.FILE, file.getType());
+        assertEquals(1024, file.getSize());
+        assertEquals(Instant.parse("2024-03-14T09:30:15.250Z").toEpochMilli(), file.getModificationTime());
+
+        RemoteEntry folder = MlsdParser.parseLine("Type=DIR;Modify=19991231235959; carpeta", "/");
+        assertEquals(RemoteEntry.Type.DIRECTORY, folder.getType());
+        assertEquals("/carpeta", folder.getPath());
+        assertEquals(RemoteEntry.UNKNOWN, folder.getSize());
+        assertEquals(Instant.parse("1999-12-31T23:59:59Z").toEpochMilli(), folder.getModificationTime());
+
+        RemoteEntry link = MlsdParser.parseLine("type=OS.unix=slink:/destino;size=7; enlace", "/");
+        assertEquals(RemoteEntry.Type.SYMBOLIC_LINK, link.getType());
+        assertEquals(7, link.getSize());
+
+        RemoteEntry leapDay = MlsdParser.parseLine("modify=20240229000000; bisiesto", "/");
+        assertEquals(RemoteEntry.Type.FILE, leapDay.getType());
+        assertEquals(Instant.parse("2024-02-29T00:00:00Z").toEpochMilli(), leapDay.getModificationTime());
+
+        RemoteEntry badFacts = MlsdParser.parseLine("size=12a;modify=2024; raro", "/");
+        assertEquals(RemoteEntry.UNKNOWN, badFacts.getSize());
+        assertEquals(RemoteEntry.UNKNOWN, badFacts.getModificationTime());
+
+        assertNull(MlsdParser.parseLine("type=cdir;modify=20240314093015; /docs", "/docs"));
+        assertNull(MlsdParser.parseLine("type=pdir; ..", "/docs"));
+        assertNull(MlsdParser.parseLine("type=file;size=1", "/"));
+    }
+
+    /**
+     * Prueba que se leen listados grandes aunque las líneas lleguen partidas en varias lecturas,
+     * con saltos {@code CRLF} o {@code LF} y nombres más largos que el búfer inicial.
+     */
+    @Test
+    void testParseStream() throws IOException {
+        StringBuilder text = new StringBuilder();
+        text.append("type=cdir; /grande\r\n");
+        for (int i = 0; i < 5000; i++) {
+            text.append("type=file;size=").append(i).append("; archivo ").append(i).append(i % 2 == 0 ? "\r\n" : "\n");
+        }
+        String longName = "n".repeat(40_000);
+        text.append("type=dir; ").append(longName).append("\r\n\r\n");
+        text.append("type=file; último");
+
+        // Un flujo que entrega los bytes en trozos pequeños, como una conexión de datos lenta
+        InputStream in = new ByteArrayInputStream(text.toString().getBytes(StandardCharsets.UTF_8)) {
+            @Override
+            public synchronized int read(byte[] b, int off, int len) {
+                return super.read(b, off, Math.min(len, 7));
+            }
+        };
+        RemoteEntry[] entries = MlsdParser.parse(in, "/grande", StandardCharsets.UTF_8);
+
+        assertEquals(5002, entries.length);
+        for (int i = 0; i < 5000; i++) {
+            assertEquals("archivo " + i, entries[i].getName());
+            assertEquals(i, entries[i].getSize());
+        }
+        assertEquals(longName, entries[5000].getName());
+        assertTrue(entries[5000].isDirectory());
+        assertEquals("último", entries[5001].getName());
+    }
+
+    /**
+     * Prueba que las páginas se entregan a medida que se leen, antes de llegar al final del flujo.
+     */
+    @Test
+    void testParseInPages() throws IOException {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < 250; i++) {
+            text.append("type=file;size=").append(i).append("; archivo ").append(i).append("\r\n");
+        }
+        byte[] bytes = text.toString().getBytes(StandardCharsets.UTF_8);
+        List<Integer> pageSizes = new ArrayList<>();
+        List<RemoteEntry> entries = new ArrayList<>();
+        MlsdParser.parse(new ByteArrayInputStream(bytes), "/", StandardCharsets.UTF_8, 100, page -> {
+            pageSizes.add(page.length);
+            entries.addAll(List.of(page));
+        });
+
+        assertEquals(List.of(100, 100, 50), pageSizes);
+        assertEquals(250, entries.size());
+        assertEquals("archivo 249", entries.get(249).getName());
+
+        // Con un flujo que entrega pocos bytes por lectura, la primera página llega antes de leerlo entero
+        ByteArrayInputStream slow = new ByteArrayInputStream(bytes) {
+            @Override
+            public synchronized int read(byte[] b, int off, int len) {
+                return super.read(b, off, Math.min(len, 512));
+            }
+        };
+        List<Integer> remaining = new ArrayList<>();
+        MlsdParser.parse(slow, "/", StandardCharsets.UTF_8, 10, page -> remaining.add(slow.available()));
+        assertEquals(25, remaining.size());
+        assertTrue(remaining.get(0) > 0, "La primera página debería entregarse antes de terminar el flujo.");
+
+        List<RemoteEntry[]> empty = new ArrayList<>();
+        MlsdParser.parse(new ByteArrayInputStream(new byte[0]), "/", StandardCharsets.UTF_8, 10, empty::add);
+        assertTrue(empty.isEmpty());
+    }
+
+    /**
+     * Prueba que un listado {@code MLSD} se guarda en la caché, de modo que volver a listar la carpeta,
+     * por páginas o de una vez, no envía otro {@code MLSD}.
+     */
+    @Test
+    void testMachineListingIsCached() throws IOException {
+        try (EmbeddedFTPServer server = new EmbeddedFTPServer(tempDir.resolve("ftp"))) {
+            server.addUser(USER, PASSWORD);
+            server.start();
+            for (int i = 0; i < 5; i++) {
+                Files.writeString(server.getRootDirectory().resolve("archivo " + i + ".txt"), "datos");
+            }
+
+            FTPClientManager manager = server.newClientManager();
+            assertTrue(manager.connectAndLogin(USER, PASSWORD));
+
+            List<Integer> pageSizes = new ArrayList<>();
+            manager.listEntriesInPages("/", 2, page -> pageSizes.add(page.length));
+            assertEquals(List.of(2, 2, 1), pageSizes);
+            assertEquals(1, server.getCommandCount("MLSD"));
+
+            List<RemoteEntry> cached = new ArrayList<>();
+            manager.listEntriesInPages("/", 2, page -> cached.addAll(List.of(page)));
+            assertEquals(5, cached.size());
+            assertEquals("/archivo 4.txt", cached.get(4).getPath());
+            assertEquals(5, manager.listEntries("/").length);
+            assertEquals(1, server.getCommandCount("MLSD"), "Los listados repetidos deberían salir de la caché.");
+            manager.disconnect();
+        }
+    }
+
+    /**
+     * Prueba que, si el receptor de páginas lanza una excepción a mitad del listado, la sesión no vuelve
+     * al pool con la respuesta del {@code MLSD} sin leer: la siguiente orden recibe su propia respuesta.
+     */
+    @Test
+    void testInterruptedListingDoesNotPoisonSession() throws IOException {
+        try (EmbeddedFTPServer server = new EmbeddedFTPServer(tempDir.resolve("ftp"))) {
+            server.addUser(USER, PASSWORD);
+            server.start();
+            for (int i = 0; i < 200; i++) {
+                Files.writeString(server.getRootDirectory().resolve("archivo " + i + ".txt"), "datos");
+            }
+            Files.write(server.getRootDirectory().resolve("datos.bin"), new byte[12345]);
+
+            FTPClientManager manager = server.newClientManager(1);
+            assertTrue(manager.connectAndLogin(USER, PASSWORD));
+
+            IllegalStateException error = assertThrows(IllegalStateException.class,
+                    () -> manager.listEntriesInPages("/", 10, page -> {
+                        throw new IllegalStateException("Receptor cerrado");
+                    }));
+            assertEquals("Receptor cerrado", error.getMessage());
+            assertNull(manager.getListingCache().peek("/"));
+
+            assertEquals(12345, manager.getRemoteFileSize("/datos.bin"));
+            assertEquals(201, manager.listEntries("/").length);
+            manager.disconnect();
+        }
+    }
+
+    /**
+     * Prueba que el gestor lista con {@code MLSD} si el servidor lo anuncia y con {@code LIST} si no.
+     */
+    @Test
+    void testListEntriesFallsBackToList() throws IOException {
+        for (boolean machineListing : new boolean[]{true, false}) {
+            try (EmbeddedFTPServer server = new EmbeddedFTPServer(tempDir.resolve("ftp" + machineListing))) {
+                server.addUser(USER, PASSWORD);
+                server.setMachineListingAdvertised(machineListing);
+                server.start();
+                Files.createDirectories(server.getRootDirectory().resolve("carpeta"));
+                Files.writeString(server.getRootDirectory().resolve("nombre con espacios.txt"), "datos");
+
+                FTPClientManager manager = server.newClientManager();
+                assertTrue(manager.connectAndLogin(USER, PASSWORD));
+
+                List<RemoteEntry> entries = new ArrayList<>();
+                manager.listEntriesInPages("/", 1, page -> entries.addAll(List.of(page)));
+                manager.disconnect();
+
+                assertEquals(2, entries.size());
+                assertEquals("/carpeta", entries.get(0).getPath());
+                assertTrue(entries.get(0).isDirectory());
+                assertEquals("/nombre con espacios.txt", entries.get(1).getPath());
+                assertEquals(5, entries.get(1).getSize());
+                assertEquals(machineListing ? 1 : 0, server.getCommandCount("MLSD"));
+                assertEquals(machineListing ? 0 : 1, server.getCommandCount("LIST"));
+            }
+        }
+    }
+}
@@ -0,0 +1,124 @@
+package org.sinbelisk.graphicftp.services;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Clase de pruebas unitarias para la clase {@link RecursiveDeleter}.
+ * Elimina el árbol {@code /raiz/{1..5.txt, a/b/{60 archivos}, c/{60 archivos}}} de un {@link EmbeddedFTPServer}
+ * y comprueba el orden de las eliminaciones, los fallos parciales y el progreso informado.
+ */
+public class RecursiveDeleterTest {
+
+    private static final String USER = "usuario1";
+    private static final String PASSWORD = "usu1";
+    private static final int FILES = 125;
+    private static final int FOLDERS = 4;
+
+    @TempDir
+    Path tempDir;
+
+    private EmbeddedFTPServer server;
+    private FTPClientManager manager;
+    private Path root;
+
+    /**
+     * Arranca el servidor con el árbol de prueba e inicia sesión antes de cada prueba.
+     */
+    @BeforeEach
+    void setup() throws IOException {
+        server = new EmbeddedFTPServer(tempDir.resolve("ftp"));
+        server.addUser(USER, PASSWORD);
+        server.start();
+
+        root = server.getRootDirectory().resolve("raiz");
+        Path deep = Files.createDirectories(root.resolve("a").resolve("b"));
+        Path sibling = Files.createDirectories(root.resolve("c"));
+        for (int i = 0; i < 5; i++) {
+            Files.writeString(root.resolve(i + ".txt"), "raiz");
+        }
+        for (int i = 0; i < 60; i++) {
+            Files.writeString(deep.resolve("archivo " + i + ".txt"), "b");
+            Files.writeString(sibling.resolve("archivo " + i + ".txt"), "c");
+        }
+
+        manager = server.newClientManager();
+        assertTrue(manager.connectAndLogin(USER, PASSWORD));
+    }
+
+    /**
+     * Prueba que se elimina todo el árbol. Como {@code RMD} solo admite carpetas vacías, que no haya fallos implica
+     * que los archivos se han eliminado antes que sus carpetas y las carpetas de la más profunda a la raíz.
+     */
+    @Test
+    void testDeleteTree() throws IOException {
+        List<int[]> progress = new CopyOnWriteArrayList<>();
+        RecursiveDeleter.Result result = new RecursiveDeleter(manager)
+                .delete("/raiz", (deleted, discovered) -> progress.add(new int[]{deleted, discovered}));
+
+        assertTrue(result.isSuccessful(), result.getFailures().toString());
+        assertEquals(FILES, result.getDeletedFiles());
+        assertEquals(FOLDERS, result.getDeletedFolders());
+        assertFalse(Files.exists(root));
+        assertEquals(FILES, server.getCommandCount("DELE"));
+        assertEquals(FOLDERS, server.getCommandCount("RMD"));
+
+        // Un aviso al llegar a 50 y a 100 eliminados y otro al terminar
+        assertEquals(3, progress.size());
+        assertArrayEquals(new int[]{FILES + FOLDERS, FILES + FOLDERS}, progress.get(2));
+    }
+
+    /**
+     * Prueba que un archivo que no se puede eliminar se informa con la respuesta del servidor, que se conservan
+     * las carpetas que lo contienen y que el resto del árbol se elimina.
+     */
+    @Test
+    void testPartialFailureKeepsAncestors() throws IOException {
+        server.protect("/raiz/a/b/archivo 7.txt");
+        List<int[]> progress = new CopyOnWriteArrayList<>();
+        RecursiveDeleter.Result result = new RecursiveDeleter(manager)
+                .delete("/raiz", (deleted, discovered) -> progress.add(new int[]{deleted, discovered}));
+
+        assertFalse(result.isSuccessful());
+        Map<String, String> failures = result.getFailures();
+        assertEquals(List.of("/raiz/a/b/archivo 7.txt"), List.copyOf(failures.keySet()));
+        assertTrue(failures.get("/raiz/a/b/archivo 7.txt").startsWith("550"));
+
+        assertEquals(FILES - 1, result.getDeletedFiles());
+        assertEquals(1, result.getDeletedFolders());
+        assertEquals(1, server.getCommandCount("RMD"));
+        assertFalse(Files.exists(root.resolve("c")));
+        assertEquals(List.of(root.resolve("a").resolve("b").resolve("archivo 7.txt")), list(root));
+
+        // El fallo no genera avisos de más: uno a los 50, otro a los 100 y el final
+        assertEquals(3, progress.size());
+        assertArrayEquals(new int[]{FILES, FILES + FOLDERS}, progress.get(2));
+    }
+
+    private static List<Path> list(Path folder) throws IOException {
+        try (Stream<Path> paths = Files.walk(folder)) {
+            return paths.filter(Files::isRegularFile).toList();
+        }
+    }
+
+    /**
+     * Cierra la sesión y detiene el servidor tras cada prueba.
+     */
+    @AfterEach
+    void cleanup() {
+        manager.disconnect();
+        server.close();
+    }
+}
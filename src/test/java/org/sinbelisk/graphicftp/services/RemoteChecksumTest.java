@@ -0,0 +1,81 @@
+package org.sinbelisk.graphicftp.services;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Clase de pruebas unitarias para la clase {@link RemoteChecksum}.
+ * Comprueba la interpretación de las respuestas del servidor y el cálculo de la suma local,
+ * tanto sobre un archivo como sobre los datos de una transferencia.
+ */
+public class RemoteChecksumTest {
+
+    /**
+     * Prueba que se interpreta una respuesta válida y se descartan las que no tienen el formato esperado.
+     */
+    @Test
+    void testParseHashReply() {
+        RemoteChecksum checksum = RemoteChecksum.parseHashReply("213 md5 0-4 098F6BCD4621D373CADE4E832627B4F6 test.txt");
+
+        assertNotNull(checksum);
+        assertEquals("MD5", checksum.getAlgorithm());
+        assertEquals("098f6bcd4621d373cade4e832627b4f6", checksum.getValue());
+        assertNull(RemoteChecksum.parseHashReply("550 test.txt: No such file"));
+        assertNull(RemoteChecksum.parseHashReply(null));
+    }
+
+    /**
+     * Prueba que la suma calculada sobre un archivo local coincide con la del servidor.
+     */
+    @Test
+    void testMatchesLocalFile(@TempDir Path tempDir) throws IOException {
+        Path file = Files.writeString(tempDir.resolve("test.txt"), "test", StandardCharsets.US_ASCII);
+
+        assertTrue(new RemoteChecksum("MD5", "098f6bcd4621d373cade4e832627b4f6").matches(file));
+        assertTrue(new RemoteChecksum("CRC32", "d87f7e0c").matches(file));
+        assertFalse(new RemoteChecksum("MD5", "00000000000000000000000000000000").matches(file));
+    }
+
+    /**
+     * Prueba que se interpretan las respuestas de las extensiones {@code XMD5} y {@code XCRC}.
+     */
+    @Test
+    void testParseValueReply() {
+        assertEquals("098f6bcd4621d373cade4e832627b4f6",
+                RemoteChecksum.parseValueReply("MD5", "250 098F6BCD4621D373CADE4E832627B4F6").getValue());
+        assertEquals("0000abcd", RemoteChecksum.parseValueReply("CRC32", "250 ABCD").getValue());
+        assertNull(RemoteChecksum.parseValueReply("MD5", "500 Unknown command"));
+    }
+
+    /**
+     * Prueba que la suma calculada al leer o escribir un flujo coincide con la del archivo completo.
+     */
+    @Test
+    void testCalculatorWrapsStreams() throws IOException {
+        byte[] data = "test".getBytes(StandardCharsets.US_ASCII);
+
+        RemoteChecksum.Calculator reading = RemoteChecksum.newCalculator("MD5");
+        try (InputStream input = reading.wrap(new ByteArrayInputStream(data))) {
+            input.readAllBytes();
+        }
+        RemoteChecksum.Calculator writing = RemoteChecksum.newCalculator("CRC32");
+        try (OutputStream output = writing.wrap(new ByteArrayOutputStream())) {
+            output.write(data);
+        }
+
+        assertEquals("098f6bcd4621d373cade4e832627b4f6", reading.getValue());
+        assertEquals(4, reading.getByteCount());
+        assertEquals("d87f7e0c", writing.getValue());
+    }
+}
@@ -0,0 +1,51 @@
+package org.sinbelisk.graphicftp.services;
+
+import org.apache.commons.net.ftp.FTPFile;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Clase de pruebas unitarias para la clase {@link RemoteEntry}.
+ * Comprueba que las rutas se construyen sin barras duplicadas y que renombrar o mover
+ * una entrada actualiza su ruta.
+ */
+public class RemoteEntryTest {
+
+    /**
+     * Prueba que los elementos de la raíz y de una subcarpeta reciben la ruta correcta.
+     */
+    @Test
+    void testPathsFromListing() {
+        FTPFile file = new FTPFile();
+        file.setName("notas.txt");
+        file.setType(FTPFile.FILE_TYPE);
+        file.setSize(12);
+
+        RemoteEntry inRoot = RemoteEntry.of("/", file);
+        RemoteEntry nested = RemoteEntry.of("/docs", file);
+
+        assertEquals("/notas.txt", inRoot.getPath());
+        assertEquals("/docs/notas.txt", nested.getPath());
+        assertEquals(12, nested.getSize());
+        assertEquals(RemoteEntry.UNKNOWN, nested.getModificationTime());
+        assertFalse(nested.isDirectory());
+    }
+
+    /**
+     * Prueba que renombrar y mover una entrada conserva su tipo y calcula la nueva ruta.
+     */
+    @Test
+    void testRenameAndMove() {
+        RemoteEntry folder = RemoteEntry.root().childFolder("docs");
+        RemoteEntry renamed = folder.renamedTo("documentos");
+        RemoteEntry moved = new RemoteEntry("a.txt", "/docs/a.txt", RemoteEntry.Type.FILE, 1, 1)
+                .movedTo(renamed.getPath());
+
+        assertEquals("/docs", folder.getPath());
+        assertEquals("/documentos", renamed.getPath());
+        assertTrue(renamed.isDirectory());
+        assertEquals("/documentos/a.txt", moved.getPath());
+        assertEquals("/documentos", moved.getParentPath());
+    }
+}
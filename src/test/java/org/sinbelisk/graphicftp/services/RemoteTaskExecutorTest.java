@@ -0,0 +1,55 @@
+package org.sinbelisk.graphicftp.services;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Clase de pruebas unitarias para la clase {@link RemoteTaskExecutor}.
+ * Comprueba que la vista limitada del ejecutor nunca supera el número de tareas simultáneas indicado.
+ */
+public class RemoteTaskExecutorTest {
+
+    private final RemoteTaskExecutor executor = new RemoteTaskExecutor("test-io-");
+
+    /**
+     * Prueba que un ejecutor limitado a dos tareas ejecuta todas las tareas sin superar ese límite.
+     */
+    @Test
+    void testLimitedExecutorBoundsParallelism() throws InterruptedException {
+        Executor limited = executor.limitedTo(2);
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+        CountDownLatch finished = new CountDownLatch(20);
+
+        for (int i = 0; i < 20; i++) {
+            limited.execute(() -> {
+                maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+                try {
+                    Thread.sleep(10);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                running.decrementAndGet();
+                finished.countDown();
+            });
+        }
+
+        assertTrue(finished.await(5, TimeUnit.SECONDS), "No se han ejecutado todas las tareas.");
+        assertTrue(maxRunning.get() <= 2, "Se han ejecutado más de dos tareas a la vez.");
+    }
+
+    /**
+     * Detiene el ejecutor tras cada prueba.
+     */
+    @AfterEach
+    void cleanup() {
+        executor.shutdown();
+    }
+}
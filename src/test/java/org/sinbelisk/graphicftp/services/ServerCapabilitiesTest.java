@@ -0,0 +1,95 @@
+package org.sinbelisk.graphicftp.services;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Clase de pruebas unitarias para la clase {@link ServerCapabilities}.
+ * Comprueba la interpretación de la respuesta a {@code FEAT}, que se consulta una sola vez por servidor
+ * y que el gestor elige {@code MLSD} y {@code MLST} cuando el servidor los anuncia.
+ */
+public class ServerCapabilitiesTest {
+
+    private static final String USER = "usuario1";
+    private static final String PASSWORD = "usu1";
+
+    @TempDir
+    Path tempDir;
+
+    /**
+     * Prueba que se reconocen las funciones y parámetros de una respuesta a {@code FEAT} típica.
+     */
+    @Test
+    void testParseFeatReply() {
+        ServerCapabilities capabilities = ServerCapabilities.parse(new String[]{
+                "211-Features:", " MDTM", " REST STREAM", " MLST type*;size*;modify*;", " MODE Z",
+                " HASH SHA-1;SHA-256*;MD5", " UTF8", "211 End"}, "UNIX Type: L8");
+
+        assertTrue(capabilities.isFeatAvailable());
+        assertTrue(capabilities.supportsRestStream());
+        assertTrue(capabilities.supportsMlsd());
+        assertTrue(capabilities.supportsModeZ());
+        assertTrue(capabilities.supportsMdtm());
+        assertFalse(capabilities.supportsSize());
+        assertTrue(capabilities.supportsHash());
+        assertEquals("SHA-256", capabilities.getDefaultHashAlgorithm());
+        assertEquals("UNIX Type: L8", capabilities.getSystemType());
+    }
+
+    /**
+     * Prueba que, sin respuesta a {@code FEAT}, solo se suponen {@code SIZE} y {@code MDTM}.
+     */
+    @Test
+    void testServerWithoutFeat() {
+        ServerCapabilities capabilities = ServerCapabilities.parse(null, null);
+
+        assertFalse(capabilities.isFeatAvailable());
+        assertTrue(capabilities.supportsSize());
+        assertTrue(capabilities.supportsMdtm());
+        assertFalse(capabilities.supportsMlsd());
+        assertFalse(capabilities.supportsRestStream());
+        assertFalse(capabilities.supportsHash());
+    }
+
+    /**
+     * Prueba que las funciones se consultan una vez por servidor y que los listados usan {@code MLSD}.
+     */
+    @Test
+    void testProbedOncePerHostAndListsWithMlsd() throws IOException {
+        try (EmbeddedFTPServer server = new EmbeddedFTPServer(tempDir.resolve("ftp"))) {
+            server.addUser(USER, PASSWORD);
+            server.start();
+            Files.createDirectories(server.getRootDirectory().resolve("carpeta"));
+            Files.writeString(server.getRootDirectory().resolve("nombre con espacios.txt"), "datos");
+
+            for (int i = 0; i < 2; i++) {
+                FTPClientManager manager = server.newClientManager();
+                assertTrue(manager.connectAndLogin(USER, PASSWORD));
+                assertTrue(manager.getCapabilities().supportsMlsd());
+
+                RemoteEntry[] entries = manager.listEntries("/");
+                assertEquals(2, entries.length);
+                assertEquals("carpeta", entries[0].getName());
+                assertTrue(entries[0].isDirectory());
+                assertEquals("nombre con espacios.txt", entries[1].getName());
+                assertEquals(5, manager.getRemoteFileSize("/nombre con espacios.txt"));
+                assertTrue(manager.deleteFileOrFolder("/carpeta"));
+                Files.createDirectories(server.getRootDirectory().resolve("carpeta"));
+                manager.disconnect();
+            }
+
+            assertEquals(1, server.getCommandCount("FEAT"), "FEAT debería consultarse una sola vez por servidor.");
+            assertEquals(1, server.getCommandCount("SYST"));
+            assertEquals(0, server.getCommandCount("LIST"));
+            assertEquals(2, server.getCommandCount("MLSD"));
+            assertEquals(2, server.getCommandCount("RMD"));
+            assertEquals(0, server.getCommandCount("DELE"));
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package org.sinbelisk.graphicftp.services;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Clase de pruebas unitarias para la clase {@link TransferJournal}.
+ * Comprueba que las entradas se guardan en disco, se recuperan al reabrir el diario
+ * con los rangos de las descargas segmentadas, y que los flujos envueltos actualizan los bytes confirmados.
+ */
+public class TransferJournalTest {
+
+    @TempDir
+    Path tempDir;
+
+    /**
+     * Prueba que una entrada guardada se recupera al abrir de nuevo el diario, incluso con rutas con espacios.
+     */
+    @Test
+    void testCheckpointSurvivesRestart() {
+        Path journalFile = tempDir.resolve("transfers.journal");
+        TransferJournal journal = new TransferJournal(journalFile);
+        TransferJournal.Entry entry = new TransferJournal.Entry(TransferJob.Direction.DOWNLOAD,
+                "/carpeta con espacios/archivo.bin", "/tmp/archivo.bin", 1000, 42, 300);
+        journal.checkpoint(entry);
+
+        TransferJournal reopened = new TransferJournal(journalFile);
+        TransferJournal.Entry loaded = reopened.find(TransferJob.Direction.DOWNLOAD,
+                "/carpeta con espacios/archivo.bin", "/tmp/archivo.bin");
+
+        assertNotNull(loaded, "La entrada no se ha recuperado del diario.");
+        assertEquals(300, loaded.getBytesConfirmed());
+        assertTrue(loaded.matches(1000, 42));
+        assertFalse(loaded.matches(1000, 43));
+    }
+
+    /**
+     * Prueba que los rangos de una descarga segmentada se recuperan al reabrir el diario y que la reanudación
+     * en un único flujo solo aprovecha la parte confirmada sin huecos desde el principio.
+     */
+    @Test
+    void testSegmentedEntrySurvivesRestart() {
+        Path journalFile = tempDir.resolve("transfers.journal");
+        TransferJournal journal = new TransferJournal(journalFile);
+        TransferJournal.Entry entry = new TransferJournal.Entry(TransferJob.Direction.DOWNLOAD,
+                "/grande.bin", "/tmp/grande.bin", 1000, 42, 0);
+        entry.split(3);
+        entry.advanceRange(0, 334);
+        entry.advanceRange(1, 100);
+        entry.advanceRange(2, 50);
+        journal.checkpoint(entry);
+
+        TransferJournal.Entry loaded = new TransferJournal(journalFile).find(TransferJob.Direction.DOWNLOAD,
+                "/grande.bin", "/tmp/grande.bin");
+        assertNotNull(loaded);
+        assertTrue(loaded.isSegmented());
+        assertEquals(3, loaded.getRangeCount());
+        assertEquals(484, loaded.getBytesConfirmed());
+        assertEquals(434, loaded.getResumeOffset());
+        assertEquals(718, loaded.getRangePosition(2));
+        assertEquals(1000, loaded.getRangeEnd(2));
+    }
+
+    /**
+     * Prueba que una entrada eliminada ya no aparece al reabrir el diario.
+     */
+    @Test
+    void testRemoveEntry() {
+        Path journalFile = tempDir.resolve("transfers.journal");
+        TransferJournal journal = new TransferJournal(journalFile);
+        TransferJournal.Entry entry = new TransferJournal.Entry(TransferJob.Direction.UPLOAD,
+                "/remote.txt", "local.txt", 10, 1, 5);
+        journal.checkpoint(entry);
+        journal.remove(entry);
+
+        assertTrue(new TransferJournal(journalFile).getEntries().isEmpty(), "El diario debería estar vacío.");
+    }
+
+    /**
+     * Prueba que el flujo de entrada envuelto cuenta los bytes leídos a partir del desplazamiento inicial.
+     */
+    @Test
+    void testTrackedInputCountsBytes() throws IOException {
+        TransferJournal journal = new TransferJournal(tempDir.resolve("transfers.journal"));
+        TransferJournal.Entry entry = new TransferJournal.Entry(TransferJob.Direction.UPLOAD,
+                "/remote.txt", "local.txt", 110, 1, 100);
+
+        try (InputStream input = journal.track(new ByteArrayInputStream(new byte[10]), entry)) {
+            input.readAllBytes();
+        }
+
+        assertEquals(110, entry.getBytesConfirmed());
+    }
+}
@@ -0,0 +1,54 @@
+package org.sinbelisk.graphicftp.services;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Clase de pruebas unitarias para la clase {@link TransferProgress}.
+ * Comprueba el cálculo del porcentaje y las velocidades y que las notificaciones se limitan al intervalo indicado.
+ */
+public class TransferProgressTest {
+
+    /**
+     * Prueba que una transferencia reanudada cuenta los bytes previos en el porcentaje pero no en la velocidad.
+     */
+    @Test
+    void testResumedTransferProgress() throws InterruptedException {
+        TransferProgress progress = new TransferProgress(null, 0);
+        progress.start(1000, 400);
+        Thread.sleep(5);
+        progress.bytesTransferred(-1, 100, -1);
+
+        assertEquals(500, progress.getBytesTransferred());
+        assertEquals(100, progress.getBytesThisRun());
+        assertEquals(50, progress.getPercent());
+        assertTrue(progress.getCurrentRate() > 0);
+        assertTrue(progress.getEtaSeconds() >= 0);
+
+        progress.finish();
+        assertEquals(0, progress.getCurrentRate());
+        assertTrue(progress.getAverageRate() > 0);
+    }
+
+    /**
+     * Prueba que con un intervalo largo los bloques no generan notificaciones y solo se notifica al terminar.
+     */
+    @Test
+    void testUpdatesAreThrottled() {
+        AtomicInteger updates = new AtomicInteger();
+        TransferProgress progress = new TransferProgress(p -> updates.incrementAndGet(), 60_000);
+        progress.start(-1, 0);
+
+        for (int i = 0; i < 1000; i++) {
+            progress.bytesTransferred(-1, 1024, -1);
+        }
+        progress.finish();
+
+        assertEquals(1, updates.get());
+        assertEquals(-1, progress.getPercent());
+        assertEquals("1000,0 KB", TransferProgress.formatBytes(1000 * 1024).replace('.', ','));
+    }
+}
@@ -0,0 +1,115 @@
+package org.sinbelisk.graphicftp.services;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Clase de pruebas unitarias para la clase {@link TransferScheduler}.
+ * Comprueba los cambios de estado de las transferencias y su notificación sin necesidad de un servidor FTP,
+ * usando un {@link FTPClientManager} sin sesión iniciada. Los archivos locales y el diario de transferencias
+ * se crean en una carpeta temporal.
+ */
+public class TransferSchedulerTest {
+
+    @TempDir
+    Path tempDir;
+
+    private TransferScheduler scheduler;
+
+    /**
+     * Crea un planificador con un único hilo de trabajo antes de cada prueba.
+     */
+    @BeforeEach
+    void setup() {
+        FTPClientManager manager = new FTPClientManager("localhost", 21);
+        manager.setTransferJournal(new TransferJournal(tempDir.resolve("transfers.journal")));
+        scheduler = new TransferScheduler(manager, 1);
+        scheduler.setMaxAttempts(1);
+    }
+
+    /**
+     * Prueba que una transferencia sin sesión activa pasa por los estados en cola, en curso y fallida.
+     */
+    @Test
+    void testFailedTransferStates() throws Exception {
+        List<TransferJob.State> states = new CopyOnWriteArrayList<>();
+        scheduler.addListener(job -> states.add(job.getState()));
+
+        TransferJob job = scheduler.enqueueDownload("/remote.txt", tempDir.resolve("local.txt").toString());
+        job.getCompletion().get(5, TimeUnit.SECONDS);
+
+        assertEquals(TransferJob.State.FAILED, job.getState(), "La transferencia debería haber fallado.");
+        assertEquals(List.of(TransferJob.State.QUEUED, TransferJob.State.RUNNING, TransferJob.State.FAILED), states);
+    }
+
+    /**
+     * Prueba que una transferencia terminada no puede cancelarse.
+     */
+    @Test
+    void testCancelFinishedTransfer() throws Exception {
+        Path local = tempDir.resolve("local.txt");
+        Files.writeString(local, "contenido");
+        TransferJob job = scheduler.enqueueUpload(local.toString(), "/remote.txt");
+        job.getCompletion().get(5, TimeUnit.SECONDS);
+
+        assertFalse(scheduler.cancel(job), "No se debería poder cancelar una transferencia terminada.");
+        assertEquals("remote.txt", job.getFileName());
+    }
+
+    /**
+     * Prueba que una transferencia cancelada en cola notifica su estado a los oyentes antes de completarse.
+     */
+    @Test
+    void testCancelNotifiesBeforeCompletion() throws Exception {
+        CountDownLatch workerBlocked = new CountDownLatch(1);
+        CountDownLatch releaseWorker = new CountDownLatch(1);
+        List<TransferJob.State> states = new CopyOnWriteArrayList<>();
+        scheduler.addListener(job -> {
+            if (job.getState() == TransferJob.State.RUNNING) {
+                // Retiene el único hilo de trabajo para que la segunda transferencia siga en cola
+                workerBlocked.countDown();
+                awaitQuietly(releaseWorker);
+            }
+            states.add(job.getState());
+        });
+
+        scheduler.enqueueDownload("/primero.txt", tempDir.resolve("primero.txt").toString());
+        assertTrue(workerBlocked.await(5, TimeUnit.SECONDS));
+        TransferJob queued = scheduler.enqueueDownload("/segundo.txt", tempDir.resolve("segundo.txt").toString());
+
+        CompletableFuture<TransferJob.State> lastNotified = queued.getCompletion()
+                .thenApply(job -> states.get(states.size() - 1));
+
+        assertTrue(scheduler.cancel(queued));
+        assertEquals(TransferJob.State.CANCELLED, lastNotified.get(5, TimeUnit.SECONDS));
+        releaseWorker.countDown();
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Detiene el planificador tras cada prueba.
+     */
+    @AfterEach
+    void cleanup() {
+        scheduler.shutdown();
+    }
+}
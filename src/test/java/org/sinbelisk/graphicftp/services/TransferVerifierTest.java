@@ -0,0 +1,134 @@
+package org.sinbelisk.graphicftp.services;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Clase de pruebas unitarias para la clase {@link TransferVerifier}.
+ * Contra un {@link EmbeddedFTPServer}, que responde a {@code HASH} con {@code SHA-256}, comprueba que una suma
+ * coincidente verifica el archivo, que una suma distinta hace fallar la transferencia en el {@link TransferScheduler}
+ * y que, si la suma local no cubre todo el archivo, solo se compara el tamaño.
+ */
+public class TransferVerifierTest {
+
+    private static final String USER = "usuario1";
+    private static final String PASSWORD = "usu1";
+
+    @TempDir
+    Path tempDir;
+
+    private EmbeddedFTPServer server;
+    private FTPClientManager manager;
+    private TransferVerifier verifier;
+    private byte[] content;
+
+    /**
+     * Arranca el servidor con un archivo remoto de 100 KB e inicia sesión antes de cada prueba.
+     */
+    @BeforeEach
+    void setup() throws IOException {
+        content = new byte[100 * 1024];
+        new Random(11).nextBytes(content);
+        server = new EmbeddedFTPServer(tempDir.resolve("ftp"));
+        server.addUser(USER, PASSWORD);
+        server.start();
+        Files.write(server.getRootDirectory().resolve("datos.bin"), content);
+
+        manager = server.newClientManager();
+        assertTrue(manager.connectAndLogin(USER, PASSWORD));
+        verifier = new TransferVerifier(manager);
+    }
+
+    /**
+     * Prueba que una descarga cuya suma coincide con la del servidor se verifica con {@code HASH},
+     * sin recurrir a {@code SIZE}.
+     */
+    @Test
+    void testHashMatch() {
+        assertEquals(TransferVerifier.Method.HASH, verifier.getMethod());
+        RemoteChecksum.Calculator calculator = verifier.newCalculator();
+        assertNotNull(calculator);
+        assertEquals("SHA-256", calculator.getAlgorithm());
+
+        Path local = tempDir.resolve("descarga.bin");
+        assertTrue(manager.downloadFile("/datos.bin", local.toString(), calculator, null));
+        long sizeQueries = server.getCommandCount("SIZE");
+
+        assertNull(verifier.verify(local.toString(), "/datos.bin", calculator));
+        assertEquals(1, server.getCommandCount("HASH"));
+        assertEquals(sizeQueries, server.getCommandCount("SIZE"), "Con la suma no hace falta comparar el tamaño.");
+    }
+
+    /**
+     * Prueba que, si la suma del servidor no coincide, la transferencia se da por fallida con el motivo,
+     * mientras que otra transferencia correcta del mismo planificador termina bien.
+     */
+    @Test
+    void testMismatchMarksJobFailed() throws Exception {
+        Files.write(server.getRootDirectory().resolve("corrupto.bin"), content);
+        server.corruptHash("/corrupto.bin");
+
+        TransferScheduler scheduler = new TransferScheduler(manager, 1);
+        try {
+            scheduler.setVerificationEnabled(true);
+            TransferJob damaged = scheduler.enqueueDownload("/corrupto.bin", tempDir.resolve("corrupto.bin").toString());
+            TransferJob intact = scheduler.enqueueDownload("/datos.bin", tempDir.resolve("datos.bin").toString());
+            damaged.getCompletion().get(10, TimeUnit.SECONDS);
+            intact.getCompletion().get(10, TimeUnit.SECONDS);
+
+            assertEquals(TransferJob.State.FAILED, damaged.getState());
+            assertEquals("La suma SHA-256 no coincide", damaged.getMessage());
+            assertEquals(TransferJob.State.DONE, intact.getState());
+            assertNull(intact.getMessage());
+            assertEquals(2, server.getCommandCount("HASH"));
+        } finally {
+            scheduler.shutdown();
+        }
+    }
+
+    /**
+     * Prueba que, si la calculadora no ha recibido el archivo completo, como en una descarga reanudada
+     * o segmentada, no se pide la suma al servidor y se compara el tamaño.
+     */
+    @Test
+    void testSizeFallbackWhenChecksumIncomplete() throws IOException {
+        Path local = tempDir.resolve("descarga.bin");
+        Files.write(local, content);
+
+        // Solo la segunda mitad pasa por la calculadora, como tras reanudar desde la mitad
+        RemoteChecksum.Calculator calculator = verifier.newCalculator();
+        try (OutputStream out = calculator.wrap(OutputStream.nullOutputStream())) {
+            out.write(content, content.length / 2, content.length - content.length / 2);
+        }
+        assertNotEquals(content.length, calculator.getByteCount());
+
+        assertNull(verifier.verify(local.toString(), "/datos.bin", calculator));
+        assertEquals(0, server.getCommandCount("HASH"));
+        assertEquals(1, server.getCommandCount("SIZE"));
+
+        Files.write(local, new byte[content.length - 1]);
+        assertEquals("Tamaño distinto (local " + (content.length - 1) + ", remoto " + content.length + " bytes)",
+                verifier.verify(local.toString(), "/datos.bin", calculator));
+        assertEquals(0, server.getCommandCount("HASH"));
+    }
+
+    /**
+     * Cierra la sesión y detiene el servidor tras cada prueba.
+     */
+    @AfterEach
+    void cleanup() {
+        manager.disconnect();
+        server.stop();
+    }
+}